@@ -0,0 +1,191 @@
+package com.example.questgame.achievement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Прогресс игрока по достижениям: биты полученных, счётчики, маски встреченных значений each
+ * и маски испорченных достижений по играм — по номерам {@link Achievements}, без истории событий.
+ * Хранится (achievement_progress.progress) по id достижений, так что правка описаний не сдвигает
+ * чужие данные: "u=id,id;c.id=N;s.id=маска;g.игра=id,id;e.игра=id;f=id". Пропавшие из описаний id
+ * отбрасываются. Не потокобезопасен.
+ * <p>
+ * Повторы доставки отсекаются по последнему id события <b>каждой игры</b> (e.игра): события одной игры
+ * коммитятся по порядку (строка game_states держится транзакцией до вставки в outbox), а события разных
+ * игр игрока — нет, и опоздавшее событие одной игры не должно теряться из-за большего id другой.
+ * Помнятся последние {@link #TRACKED_GAMES} игр; у вытесненных остаётся общий порог f — события игр
+ * без своей отметки с id не выше него считаются учтёнными.
+ */
+public final class AchievementProgress {
+
+    static final int TRACKED_GAMES = 32;
+
+    private final Achievements catalog;
+    private final long[] unlocked;
+    private final int[] counters;
+    private final long[] sets;
+    // игра -> маска spoilBit; запись живёт, пока игра идёт
+    private final Map<Long, Long> spoiled = new HashMap<>();
+    // игра -> последний учтённый id события, в порядке последнего события
+    private final LinkedHashMap<Long, Long> delivered = new LinkedHashMap<>();
+    private long floor;
+    private long lastEventId;
+
+    private AchievementProgress(Achievements catalog) {
+        this.catalog = catalog;
+        this.unlocked = new long[(catalog.all().size() + 63) / 64];
+        this.counters = new int[catalog.counters()];
+        this.sets = new long[catalog.sets()];
+    }
+
+    public static AchievementProgress parse(Achievements catalog, long lastEventId, String stored) {
+        AchievementProgress p = new AchievementProgress(catalog);
+        p.lastEventId = lastEventId;
+        // прогресс без порога записан до отметок по играм: всё до lastEventId уже учтено
+        p.floor = lastEventId;
+        if (stored == null || stored.isEmpty()) return p;
+        for (String pair : stored.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            String key = pair.substring(0, eq);
+            String value = pair.substring(eq + 1);
+            try {
+                if (key.equals("u")) {
+                    for (String id : value.split(",")) {
+                        int i = catalog.indexOf(id);
+                        if (i >= 0) p.unlock(i);
+                    }
+                } else if (key.startsWith("c.")) {
+                    Achievements.Achievement a = find(catalog, key.substring(2), Achievements.Kind.COUNT);
+                    if (a != null) p.counters[a.slot()] = Integer.parseInt(value);
+                } else if (key.startsWith("s.")) {
+                    Achievements.Achievement a = find(catalog, key.substring(2), Achievements.Kind.EACH);
+                    if (a != null) p.sets[a.slot()] = Long.parseLong(value);
+                } else if (key.startsWith("g.")) {
+                    long mask = 0;
+                    for (String id : value.split(",")) {
+                        int i = catalog.indexOf(id);
+                        if (i >= 0 && catalog.get(i).spoilBit() >= 0) mask |= 1L << catalog.get(i).spoilBit();
+                    }
+                    if (mask != 0) p.spoiled.put(Long.parseLong(key.substring(2)), mask);
+                } else if (key.startsWith("e.")) {
+                    p.delivered.put(Long.parseLong(key.substring(2)), Long.parseLong(value));
+                } else if (key.equals("f")) {
+                    p.floor = Long.parseLong(value);
+                }
+            } catch (NumberFormatException ignored) {
+                // битую пару пропускаем: прогресс по ней начнётся заново
+            }
+        }
+        return p;
+    }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder(64);
+        List<String> got = new ArrayList<>();
+        for (Achievements.Achievement a : catalog.all()) if (isUnlocked(a.index())) got.add(a.id());
+        if (!got.isEmpty()) sb.append("u=").append(String.join(",", got));
+        for (Achievements.Achievement a : catalog.all()) {
+            if (isUnlocked(a.index()) || a.slot() < 0) continue;
+            if (a.kind() == Achievements.Kind.COUNT && counters[a.slot()] != 0) {
+                sep(sb).append("c.").append(a.id()).append('=').append(counters[a.slot()]);
+            } else if (a.kind() == Achievements.Kind.EACH && sets[a.slot()] != 0) {
+                sep(sb).append("s.").append(a.id()).append('=').append(sets[a.slot()]);
+            }
+        }
+        for (Map.Entry<Long, Long> g : new TreeMap<>(spoiled).entrySet()) {
+            List<String> ids = new ArrayList<>();
+            for (Achievements.Achievement a : catalog.all()) {
+                if (a.spoilBit() >= 0 && (g.getValue() & (1L << a.spoilBit())) != 0) ids.add(a.id());
+            }
+            sep(sb).append("g.").append(g.getKey()).append('=').append(String.join(",", ids));
+        }
+        // порядок записи = порядок вытеснения после parse
+        for (Map.Entry<Long, Long> d : delivered.entrySet()) {
+            sep(sb).append("e.").append(d.getKey()).append('=').append(d.getValue());
+        }
+        if (floor != 0) sep(sb).append("f=").append(floor);
+        return sb.toString();
+    }
+
+    public long lastEventId() {
+        return lastEventId;
+    }
+
+    /** Отметить событие игры; false — оно уже учтено (повтор доставки outbox). */
+    boolean accept(Long eventId, Long gameStateId) {
+        if (eventId == null) return true;
+        long game = gameStateId == null ? 0 : gameStateId;
+        Long last = delivered.remove(game);
+        if (eventId <= (last != null ? last : floor)) {
+            if (last != null) delivered.put(game, last);
+            return false;
+        }
+        delivered.put(game, eventId);
+        lastEventId = Math.max(lastEventId, eventId);
+        Iterator<Long> oldest = delivered.values().iterator();
+        while (delivered.size() > TRACKED_GAMES) {
+            floor = Math.max(floor, oldest.next());
+            oldest.remove();
+        }
+        return true;
+    }
+
+    public boolean isUnlocked(int index) {
+        return (unlocked[index >>> 6] & (1L << index)) != 0;
+    }
+
+    void unlock(int index) {
+        unlocked[index >>> 6] |= 1L << index;
+    }
+
+    /** +1 к счётчику; true — цель достигнута. */
+    boolean count(Achievements.Achievement a) {
+        return ++counters[a.slot()] >= a.target();
+    }
+
+    /** Отметить значение each; true — встречены все. */
+    boolean see(Achievements.Achievement a, int bit) {
+        sets[a.slot()] |= 1L << bit;
+        return Long.bitCount(sets[a.slot()]) >= a.target();
+    }
+
+    /** Сколько набрано к цели: счётчик, число встреченных значений; у полученных — цель. */
+    public int current(Achievements.Achievement a) {
+        if (isUnlocked(a.index())) return a.target();
+        return switch (a.kind()) {
+            case ONCE -> 0;
+            case COUNT -> counters[a.slot()];
+            case EACH -> Long.bitCount(sets[a.slot()]);
+        };
+    }
+
+    void spoil(Long gameStateId, Achievements.Achievement a) {
+        spoiled.merge(gameStateId, 1L << a.spoilBit(), (x, y) -> x | y);
+    }
+
+    boolean isSpoiled(Long gameStateId, Achievements.Achievement a) {
+        Long mask = spoiled.get(gameStateId);
+        return mask != null && (mask & (1L << a.spoilBit())) != 0;
+    }
+
+    /** Игра закончилась или начата заново — её отметки больше не нужны. */
+    void forgetGame(Long gameStateId) {
+        spoiled.remove(gameStateId);
+    }
+
+    private static Achievements.Achievement find(Achievements catalog, String id, Achievements.Kind kind) {
+        int i = catalog.indexOf(id);
+        return i >= 0 && catalog.get(i).kind() == kind ? catalog.get(i) : null;
+    }
+
+    private static StringBuilder sep(StringBuilder sb) {
+        if (!sb.isEmpty()) sb.append(';');
+        return sb;
+    }
+}
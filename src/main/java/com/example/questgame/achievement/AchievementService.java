@@ -0,0 +1,227 @@
+package com.example.questgame.achievement;
+
+import com.example.questgame.config.AchievementProperties;
+import com.example.questgame.dto.AchievementDto;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.model.AchievementUnlock;
+import com.example.questgame.model.PlayerAchievements;
+import com.example.questgame.outbox.OutboxSink;
+import com.example.questgame.repository.AchievementRepository;
+import com.example.questgame.service.MessageCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Достижения по потоку событий outbox — ещё один приёмник, история ходов не перечитывается.
+ * На батч: прогресс игроков батча, которых нет в памяти, читается одним запросом; события
+ * проверяются только достижениями, ждущими их тип ({@link Achievements#triggeredBy}); изменённый
+ * прогресс и новые достижения пишутся двумя многострочными INSERT, и лишь после этого relay
+ * удаляет батч из outbox. Ошибка записи — батч придёт ещё раз, уже учтённые события отбрасываются
+ * по id: последний id каждой игры хранится в прогрессе игрока ({@link AchievementProgress}), так что
+ * событие, закоммиченное позже события другой игры того же игрока с большим id, не теряется.
+ */
+@Service
+public class AchievementService implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(AchievementService.class);
+    // действие шага «начать заново» (GameService.restartGame): отметки unless этой игры сбрасываются
+    private static final String RESTART = "restart";
+
+    private final AchievementProperties props;
+    private final AchievementRepository repository;
+    private final MessageCatalog messages;
+    private final Achievements catalog;
+    // игроки в памяти в порядке последнего обращения; dirty — ещё не записанные
+    private final LinkedHashMap<Long, AchievementProgress> players = new LinkedHashMap<>(256, 0.75f, true);
+    private final Set<Long> dirty = new LinkedHashSet<>();
+    private final List<AchievementUnlock> unlocks = new ArrayList<>();
+
+    public AchievementService(AchievementProperties props, AchievementRepository repository,
+                              ObjectMapper objectMapper, MessageCatalog messages) {
+        this.props = props;
+        this.repository = repository;
+        this.messages = messages;
+        this.catalog = props.isEnabled() ? load(props.getDefinitions(), objectMapper) : Achievements.empty();
+        messages.register(catalog.messages());
+        if (props.isEnabled()) log.info("achievements: загружено {} достижений", catalog.all().size());
+    }
+
+    public Achievements catalog() {
+        return catalog;
+    }
+
+    @Override
+    public Mono<Void> publish(List<GameEventDto> batch) {
+        if (!props.isEnabled() || catalog.all().isEmpty()) return Mono.empty();
+        Set<Long> users = new LinkedHashSet<>();
+        for (GameEventDto e : batch) {
+            if (e.getUserId() != null && catalog.interested(e.getType())) users.add(e.getUserId());
+        }
+        if (users.isEmpty() && !hasPending()) return Mono.empty();
+        return loadMissing(users)
+                .then(Mono.fromRunnable(() -> evaluate(batch)))
+                .then(Mono.defer(this::flush));
+    }
+
+    /** Достижения игрока с прогрессом; названия на языке locale. */
+    public Mono<List<AchievementDto>> forUser(Long userId, Locale locale) {
+        Mono<AchievementProgress> progress = Mono.defer(() -> {
+            AchievementProgress cached = cachedCopy(userId);
+            if (cached != null) return Mono.just(cached);
+            return repository.findProgress(List.of(userId)).next()
+                    .map(row -> AchievementProgress.parse(catalog, row.lastEventId(), row.progress()))
+                    .defaultIfEmpty(AchievementProgress.parse(catalog, 0, null));
+        });
+        return Mono.zip(progress, repository.findUnlocks(userId)
+                        .collectMap(AchievementUnlock::achievementId, AchievementUnlock::unlockedAt))
+                .map(t -> {
+                    List<AchievementDto> out = new ArrayList<>(catalog.all().size());
+                    for (Achievements.Achievement a : catalog.all()) {
+                        LocalDateTime at = t.getT2().get(a.id());
+                        boolean got = at != null || t.getT1().isUnlocked(a.index());
+                        out.add(new AchievementDto(a.id(), messages.message(Achievements.PREFIX + a.id(), locale),
+                                got, at, got ? a.target() : t.getT1().current(a), a.target()));
+                    }
+                    return out;
+                });
+    }
+
+    // ---- батч ----
+
+    private Mono<Void> loadMissing(Set<Long> users) {
+        List<Long> missing = new ArrayList<>();
+        synchronized (this) {
+            for (Long u : users) if (!players.containsKey(u)) missing.add(u);
+        }
+        if (missing.isEmpty()) return Mono.empty();
+        return repository.findProgress(missing)
+                .collectList()
+                .doOnNext(rows -> {
+                    synchronized (this) {
+                        for (PlayerAchievements row : rows) {
+                            players.putIfAbsent(row.userId(),
+                                    AchievementProgress.parse(catalog, row.lastEventId(), row.progress()));
+                        }
+                        for (Long u : missing) players.putIfAbsent(u, AchievementProgress.parse(catalog, 0, null));
+                    }
+                })
+                .then();
+    }
+
+    synchronized void evaluate(List<GameEventDto> batch) {
+        for (GameEventDto e : batch) {
+            if (e.getUserId() == null || !catalog.interested(e.getType())) continue;
+            AchievementProgress p = players.get(e.getUserId());
+            if (p == null || !p.accept(e.getId(), e.getGameStateId())) continue;
+            dirty.add(e.getUserId());
+            apply(p, e);
+        }
+    }
+
+    /** Цена — число достижений, ждущих тип события, сколько бы описаний ни было. */
+    private void apply(AchievementProgress p, GameEventDto e) {
+        Long game = e.getGameStateId();
+        if (GameEventDto.STEP.equals(e.getType()) && RESTART.equals(e.getAction())) p.forgetGame(game);
+        for (Achievements.Achievement a : catalog.spoiledBy(e.getType())) {
+            if (!p.isUnlocked(a.index()) && a.unless().test(e)) p.spoil(game, a);
+        }
+        for (Achievements.Achievement a : catalog.triggeredBy(e.getType())) {
+            if (p.isUnlocked(a.index()) || !a.match().test(e)) continue;
+            if (a.spoilBit() >= 0 && p.isSpoiled(game, a)) continue;
+            boolean done = switch (a.kind()) {
+                case ONCE -> true;
+                case COUNT -> p.count(a);
+                case EACH -> {
+                    int bit = a.valueBit(e);
+                    yield bit >= 0 && p.see(a, bit);
+                }
+            };
+            if (done) {
+                p.unlock(a.index());
+                long at = e.getAt() != null ? e.getAt() : System.currentTimeMillis();
+                unlocks.add(new AchievementUnlock(e.getUserId(), a.id(),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(at), ZoneId.systemDefault())));
+                log.debug("achievements: игрок {} получил {}", e.getUserId(), a.id());
+            }
+        }
+        if (GameEventDto.GAME_WON.equals(e.getType()) || GameEventDto.PLAYER_DIED.equals(e.getType())) {
+            p.forgetGame(game);
+        }
+    }
+
+    /** Записать изменённый прогресс и новые достижения; до успеха они остаются в очереди. */
+    private Mono<Void> flush() {
+        List<PlayerAchievements> rows = new ArrayList<>();
+        List<AchievementUnlock> got;
+        synchronized (this) {
+            for (Long u : dirty) {
+                AchievementProgress p = players.get(u);
+                rows.add(new PlayerAchievements(u, p.lastEventId(), p.encode()));
+            }
+            got = List.copyOf(unlocks);
+        }
+        if (rows.isEmpty() && got.isEmpty()) return Mono.empty();
+        return repository.upsertProgress(rows)
+                .then(Mono.defer(() -> repository.insertUnlocks(got)))
+                .doOnSuccess(n -> {
+                    synchronized (this) {
+                        rows.forEach(r -> dirty.remove(r.userId()));
+                        unlocks.subList(0, got.size()).clear();
+                        trim();
+                    }
+                    if (!got.isEmpty()) log.info("achievements: получено {} достижений", got.size());
+                })
+                .then();
+    }
+
+    /** Вытеснить давно не встречавшихся игроков сверх app.achievements.cache-size (только записанных). */
+    private void trim() {
+        Iterator<Map.Entry<Long, AchievementProgress>> it = players.entrySet().iterator();
+        while (players.size() > Math.max(1, props.getCacheSize()) && it.hasNext()) {
+            if (!dirty.contains(it.next().getKey())) it.remove();
+        }
+    }
+
+    private synchronized boolean hasPending() {
+        return !dirty.isEmpty() || !unlocks.isEmpty();
+    }
+
+    private synchronized AchievementProgress cachedCopy(Long userId) {
+        AchievementProgress p = players.get(userId);
+        return p == null ? null : AchievementProgress.parse(catalog, p.lastEventId(), p.encode());
+    }
+
+    private static Achievements load(String definitions, ObjectMapper objectMapper) {
+        Path file = Path.of(definitions);
+        try (InputStream in = Files.isRegularFile(file) ? Files.newInputStream(file)
+                : AchievementService.class.getClassLoader().getResourceAsStream(definitions)) {
+            if (in == null) {
+                log.warn("achievements: описания {} не найдены, достижений нет", definitions);
+                return Achievements.empty();
+            }
+            return Achievements.compile(objectMapper.readValue(in, AchievementsDef.class));
+        } catch (IOException e) {
+            throw new ValidationException("Описания достижений " + definitions + " не читаются: " + e.getMessage());
+        }
+    }
+}
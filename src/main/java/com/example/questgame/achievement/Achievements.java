@@ -0,0 +1,224 @@
+package com.example.questgame.achievement;
+
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Собранные достижения: у каждого свой номер, слот счётчика или множества и бит «испорчено в игре».
+ * Индекс «тип события -&gt; заинтересованные достижения» делает цену события пропорциональной только
+ * тем, кто его ждёт, а не числу всех описаний. Экземпляр неизменяемый.
+ */
+public final class Achievements {
+
+    public static final String PREFIX = "achievement.";
+    /** Сколько значений each и сколько достижений с unless: на них по одному биту long. */
+    static final int MAX_BITS = 64;
+
+    public enum Kind { ONCE, COUNT, EACH }
+
+    /**
+     * slot — номер счётчика (COUNT) или множества (EACH) в прогрессе игрока, иначе -1;
+     * spoilBit — бит в маске испорченных игр (есть unless), иначе -1.
+     */
+    public record Achievement(int index, String id, Kind kind, Predicate<GameEventDto> match, int target,
+                              Function<GameEventDto, String> eachField, Map<String, Integer> values,
+                              int slot, int spoilBit, Predicate<GameEventDto> unless) {
+
+        /** Бит значения поля each у события; -1 — значение не из списка. */
+        int valueBit(GameEventDto e) {
+            Integer bit = values.get(eachField.apply(e));
+            return bit == null ? -1 : bit;
+        }
+    }
+
+    private static final Map<String, Function<GameEventDto, String>> FIELDS = Map.of(
+            "action", GameEventDto::getAction,
+            "outcome", GameEventDto::getOutcome,
+            "item", GameEventDto::getItem,
+            "location", GameEventDto::getLocation,
+            "from", GameEventDto::getFrom,
+            "questId", GameEventDto::getQuestId);
+
+    private static final Achievement[] NONE = new Achievement[0];
+
+    private final List<Achievement> all;
+    private final Map<String, Integer> byId;
+    private final Map<String, Achievement[]> byType;
+    private final Map<String, Achievement[]> spoilersByType;
+    private final int counters;
+    private final int sets;
+    private final Map<String, Map<String, String>> messages;
+
+    private Achievements(List<Achievement> all, Map<String, Achievement[]> byType,
+                         Map<String, Achievement[]> spoilersByType, int counters, int sets,
+                         Map<String, Map<String, String>> messages) {
+        this.all = List.copyOf(all);
+        this.byId = new HashMap<>();
+        for (Achievement a : all) byId.put(a.id(), a.index());
+        this.byType = byType;
+        this.spoilersByType = spoilersByType;
+        this.counters = counters;
+        this.sets = sets;
+        this.messages = messages;
+    }
+
+    public static Achievements empty() {
+        return new Achievements(List.of(), Map.of(), Map.of(), 0, 0, Map.of());
+    }
+
+    public List<Achievement> all() {
+        return all;
+    }
+
+    public Achievement get(int index) {
+        return all.get(index);
+    }
+
+    /** Номер достижения по id; -1 — такого (больше) нет. */
+    public int indexOf(String id) {
+        Integer i = byId.get(id);
+        return i == null ? -1 : i;
+    }
+
+    /** Достижения, которые срабатывают на событиях этого типа. */
+    public Achievement[] triggeredBy(String eventType) {
+        return byType.getOrDefault(eventType, NONE);
+    }
+
+    /** Достижения, которые событие этого типа может испортить в игре. */
+    public Achievement[] spoiledBy(String eventType) {
+        return spoilersByType.getOrDefault(eventType, NONE);
+    }
+
+    /** Интересно ли событие этого типа хоть одному достижению. */
+    public boolean interested(String eventType) {
+        return byType.containsKey(eventType) || spoilersByType.containsKey(eventType);
+    }
+
+    public int counters() {
+        return counters;
+    }
+
+    public int sets() {
+        return sets;
+    }
+
+    public Map<String, Map<String, String>> messages() {
+        return messages;
+    }
+
+    /** Проверить описание и собрать индекс; ошибка — ValidationException с id достижения. */
+    public static Achievements compile(AchievementsDef def) {
+        List<Achievement> all = new ArrayList<>();
+        Map<String, List<Achievement>> byType = new LinkedHashMap<>();
+        Map<String, List<Achievement>> spoilers = new LinkedHashMap<>();
+        int counters = 0;
+        int sets = 0;
+        int spoilBits = 0;
+        Map<String, AchievementsDef.AchievementDef> defs = def == null || def.achievements() == null
+                ? Map.of() : def.achievements();
+        for (Map.Entry<String, AchievementsDef.AchievementDef> e : defs.entrySet()) {
+            String id = e.getKey();
+            AchievementsDef.AchievementDef d = e.getValue();
+            if (!id.matches("[a-z0-9_]{1,64}")) throw invalid(id, "id должен быть [a-z0-9_]{1,64}");
+            if (d == null || blank(d.on())) throw invalid(id, "нет on");
+            Predicate<GameEventDto> match = match(id, d.match());
+
+            Kind kind = Kind.ONCE;
+            int target = 1;
+            int slot = -1;
+            Function<GameEventDto, String> eachField = null;
+            Map<String, Integer> values = Map.of();
+            if (d.each() != null) {
+                if (d.count() != null) throw invalid(id, "count и each вместе не бывают");
+                eachField = field(id, d.each());
+                if (d.values() == null || d.values().isEmpty()) throw invalid(id, "у each нет values");
+                if (d.values().size() > MAX_BITS) throw invalid(id, "values больше " + MAX_BITS);
+                values = new HashMap<>();
+                for (String v : d.values()) values.putIfAbsent(v, values.size());
+                kind = Kind.EACH;
+                target = values.size();
+                slot = sets++;
+            } else if (d.count() != null && d.count() > 1) {
+                kind = Kind.COUNT;
+                target = d.count();
+                slot = counters++;
+            } else if (d.count() != null && d.count() < 1) {
+                throw invalid(id, "count должен быть >= 1");
+            }
+
+            int spoilBit = -1;
+            Predicate<GameEventDto> unless = null;
+            if (d.unless() != null) {
+                if (blank(d.unless().on())) throw invalid(id, "у unless нет on");
+                if (spoilBits == MAX_BITS) throw invalid(id, "достижений с unless больше " + MAX_BITS);
+                spoilBit = spoilBits++;
+                unless = match(id, d.unless().match());
+            }
+
+            Achievement a = new Achievement(all.size(), id, kind, match, target, eachField, values, slot, spoilBit, unless);
+            all.add(a);
+            byType.computeIfAbsent(d.on(), t -> new ArrayList<>()).add(a);
+            if (unless != null) spoilers.computeIfAbsent(d.unless().on(), t -> new ArrayList<>()).add(a);
+        }
+        Map<String, Map<String, String>> messages = def == null || def.messages() == null ? Map.of() : def.messages();
+        for (Map<String, String> texts : messages.values()) {
+            for (String code : texts.keySet()) {
+                if (!code.startsWith(PREFIX)) throw invalid(code, "код сообщения должен начинаться с " + PREFIX);
+            }
+        }
+        return new Achievements(all, toArrays(byType), toArrays(spoilers), counters, sets, messages);
+    }
+
+    /** Все пары match — равенство; health сравнивается числом. */
+    private static Predicate<GameEventDto> match(String id, Map<String, String> match) {
+        Predicate<GameEventDto> out = e -> true;
+        if (match == null) return out;
+        for (Map.Entry<String, String> m : match.entrySet()) {
+            String value = m.getValue();
+            Predicate<GameEventDto> one;
+            if (m.getKey().equals("health")) {
+                int health;
+                try {
+                    health = Integer.parseInt(value);
+                } catch (NumberFormatException ex) {
+                    throw invalid(id, "health должно быть числом: " + value);
+                }
+                one = e -> e.getHealth() != null && e.getHealth() == health;
+            } else {
+                Function<GameEventDto, String> f = field(id, m.getKey());
+                one = e -> value.equals(f.apply(e));
+            }
+            out = out.and(one);
+        }
+        return out;
+    }
+
+    private static Function<GameEventDto, String> field(String id, String name) {
+        Function<GameEventDto, String> f = FIELDS.get(name);
+        if (f == null) throw invalid(id, "неизвестное поле события " + name);
+        return f;
+    }
+
+    private static Map<String, Achievement[]> toArrays(Map<String, List<Achievement>> lists) {
+        Map<String, Achievement[]> out = new HashMap<>();
+        lists.forEach((type, list) -> out.put(type, list.toArray(NONE)));
+        return out;
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static ValidationException invalid(String id, String what) {
+        return new ValidationException("Достижение " + id + ": " + what);
+    }
+}
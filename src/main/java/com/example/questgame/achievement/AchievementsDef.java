@@ -0,0 +1,21 @@
+package com.example.questgame.achievement;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-описание достижений (classpath:achievements.json) как есть, до проверки. Достижение
+ * срабатывает на событии outbox типа on, все поля match которого совпали; count — сколько раз
+ * (по умолчанию 1); each + values — нужно встретить каждое значение поля each; unless — событие,
+ * после которого достижение в этой игре уже не получить. messages — названия по языкам
+ * (язык -&gt; код -&gt; текст), коды "achievement.&lt;id&gt;".
+ */
+public record AchievementsDef(
+        Map<String, AchievementDef> achievements,
+        Map<String, Map<String, String>> messages) {
+
+    public record AchievementDef(String on, Map<String, String> match, Integer count, String each,
+                                 List<String> values, TriggerDef unless) {}
+
+    public record TriggerDef(String on, Map<String, String> match) {}
+}
@@ -0,0 +1,180 @@
+package com.example.questgame.analytics;
+
+import com.example.questgame.config.AnalyticsProperties;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.outbox.FileOutboxSink;
+import com.example.questgame.outbox.OutboxSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выгрузка игровых событий для аналитики — ещё один приёмник outbox, так что аналитика
+ * не читает game_states/inventory_items. События раскладываются по часу события в журналы
+ * (events-2026-10-19T13.spool, JSON Lines, батч подтверждается после записи на диск); прошедший
+ * час (плюс app.analytics.seal-delay на отставание relay) закрывается в колоночный файл
+ * events-2026-10-19T13.qcol ({@link ColumnarEventFile}), журнал удаляется.
+ * Повторные доставки отбрасываются по id при закрытии; событие, опоздавшее в уже закрытый час,
+ * ляжет в следующую часть того же часа (events-…T13-2.qcol). Журналы, оставшиеся после падения,
+ * закрываются при старте.
+ */
+@Service
+public class AnalyticsExporter implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsExporter.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH").withZone(ZoneOffset.UTC);
+    static final String PREFIX = "events-";
+    static final String SPOOL = ".spool";
+    static final String COLUMNS = ".qcol";
+
+    private final AnalyticsProperties props;
+    private volatile Disposable task;
+
+    public AnalyticsExporter(AnalyticsProperties props) {
+        this.props = props;
+    }
+
+    public Path dir() {
+        return Path.of(props.getDir());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (task != null || !props.isEnabled()) return;
+        task = Flux.interval(Duration.ZERO, props.getSealInterval(), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .subscribe(tick -> {
+                    try {
+                        seal(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        log.warn("analytics: часы не закрыты: {}", e.toString());
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable t = task;
+        if (t != null) t.dispose();
+    }
+
+    @Override
+    public Mono<Void> publish(List<GameEventDto> batch) {
+        if (!props.isEnabled() || batch.isEmpty()) return Mono.empty();
+        return Mono.fromRunnable(() -> spool(batch))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /** Дописать батч в журналы своих часов. */
+    synchronized void spool(List<GameEventDto> batch) {
+        Map<String, List<GameEventDto>> byHour = new LinkedHashMap<>();
+        for (GameEventDto e : batch) {
+            long at = e.getAt() != null ? e.getAt() : System.currentTimeMillis();
+            byHour.computeIfAbsent(hour(at), h -> new ArrayList<>()).add(e);
+        }
+        try {
+            Files.createDirectories(dir());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byHour.forEach((hour, events) -> FileOutboxSink.append(dir().resolve(PREFIX + hour + SPOOL), events));
+    }
+
+    /** Закрыть журналы часов, кончившихся раньше now - sealDelay; число записанных колоночных файлов. */
+    public synchronized int seal(long nowMillis) {
+        Path dir = dir();
+        if (!Files.isDirectory(dir)) return 0;
+        long cutoff = nowMillis - props.getSealDelay().toMillis();
+        List<Path> closed = new ArrayList<>();
+        try (DirectoryStream<Path> spools = Files.newDirectoryStream(dir, PREFIX + "*" + SPOOL)) {
+            for (Path p : spools) {
+                if (hourStart(p).plus(1, ChronoUnit.HOURS).toEpochMilli() <= cutoff) closed.add(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        closed.sort(null);
+        for (Path spool : closed) sealOne(spool);
+        return closed.size();
+    }
+
+    private void sealOne(Path spool) {
+        String hour = hourName(spool);
+        ColumnarEventFile.Writer writer = new ColumnarEventFile.Writer();
+        Set<Long> seen = new HashSet<>();
+        try (BufferedReader in = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                GameEventDto e;
+                try {
+                    e = JSON.readValue(line, GameEventDto.class);
+                } catch (IOException bad) {
+                    // обрыв последней строки при падении — батч не был подтверждён и придёт снова
+                    log.warn("analytics: пропущена неполная строка в {}", spool.getFileName());
+                    continue;
+                }
+                if (e.getId() != null && !seen.add(e.getId())) continue;
+                writer.add(e);
+            }
+            Path out = nextPart(spool.getParent(), hour);
+            writer.write(out, props.getCompressionLevel());
+            Files.delete(spool);
+            log.info("analytics: {} — {} событий ({} байт)", out.getFileName(), writer.rows(), Files.size(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path nextPart(Path dir, String hour) {
+        Path first = dir.resolve(PREFIX + hour + COLUMNS);
+        if (!Files.exists(first)) return first;
+        for (int part = 2; ; part++) {
+            Path p = dir.resolve(PREFIX + hour + "-" + part + COLUMNS);
+            if (!Files.exists(p)) return p;
+        }
+    }
+
+    static String hour(long atMillis) {
+        return HOUR.format(Instant.ofEpochMilli(atMillis));
+    }
+
+    /** events-2026-10-19T13.spool, events-2026-10-19T13-2.qcol -> 2026-10-19T13. */
+    static String hourName(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(PREFIX.length(), PREFIX.length() + "yyyy-MM-ddTHH".length());
+    }
+
+    static Instant hourStart(Path file) {
+        return Instant.parse(hourName(file) + ":00:00Z");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.questgame.analytics;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запросы аналитиков по закрытым часовым файлам — без OLTP-базы. Читаются только нужные колонки:
+ * группировка, значение и колонка at — и та лишь у файлов, час которых выходит за границы интервала.
+ * Агрегаты по словарным колонкам считаются по кодам, строки словаря берутся один раз на файл.
+ * <pre>
+ * java -cp questgame.jar com.example.questgame.analytics.AnalyticsQuery analytics action 2026-10-19T00:00:00Z 2026-10-20T00:00:00Z
+ * </pre>
+ */
+public class AnalyticsQuery {
+
+    private final Path dir;
+    private long bytesRead;
+
+    public AnalyticsQuery(Path dir) {
+        this.dir = dir;
+    }
+
+    /** Сколько байт колонок прочитано всеми запросами этого экземпляра. */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /** Колоночные файлы часов, пересекающих [from, to), по порядку часов. */
+    public List<Path> files(Instant from, Instant to) throws IOException {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> all = Files.newDirectoryStream(dir,
+                AnalyticsExporter.PREFIX + "*" + AnalyticsExporter.COLUMNS)) {
+            for (Path p : all) {
+                Instant start = AnalyticsExporter.hourStart(p);
+                if (start.isBefore(to) && start.plus(1, ChronoUnit.HOURS).isAfter(from)) out.add(p);
+            }
+        }
+        out.sort(null);
+        return out;
+    }
+
+    /** Число событий по значению словарной колонки (у списков — по каждому элементу); null не считается. */
+    public Map<String, Long> countBy(String column, Instant from, Instant to) throws IOException {
+        Map<String, Long> out = new HashMap<>();
+        for (Path p : files(from, to)) {
+            ColumnarEventFile.Reader r = ColumnarEventFile.open(p);
+            boolean[] keep = rowsIn(r, from, to);
+            if (r.kind(column) == ColumnarEventFile.Kind.DICT_LIST) {
+                ColumnarEventFile.DictListColumn c = r.dictList(column);
+                long[] counts = new long[c.values().size() + 1];
+                for (int row = 0; row < r.rows(); row++) {
+                    if (keep != null && !keep[row]) continue;
+                    for (int i = c.offsets()[row]; i < c.offsets()[row + 1]; i++) counts[c.codes()[i]]++;
+                }
+                merge(out, c.values(), counts);
+            } else {
+                ColumnarEventFile.DictColumn c = r.dict(column);
+                long[] counts = new long[c.values().size() + 1];
+                for (int row = 0; row < r.rows(); row++) {
+                    if (keep == null || keep[row]) counts[c.codes()[row]]++;
+                }
+                merge(out, c.values(), counts);
+            }
+            bytesRead += r.bytesRead();
+        }
+        return out;
+    }
+
+    /** Сумма числовой колонки (INT или LONG) по значению словарной колонки; строки с null-группой пропускаются. */
+    public Map<String, Long> sumBy(String groupColumn, String valueColumn, Instant from, Instant to) throws IOException {
+        Map<String, Long> out = new HashMap<>();
+        for (Path p : files(from, to)) {
+            ColumnarEventFile.Reader r = ColumnarEventFile.open(p);
+            boolean[] keep = rowsIn(r, from, to);
+            ColumnarEventFile.DictColumn group = r.dict(groupColumn);
+            long[] values = r.kind(valueColumn) == ColumnarEventFile.Kind.INT
+                    ? toLongs(r.ints(valueColumn)) : r.longs(valueColumn);
+            long[] sums = new long[group.values().size() + 1];
+            boolean[] seen = new boolean[sums.length];
+            for (int row = 0; row < r.rows(); row++) {
+                if (keep != null && !keep[row]) continue;
+                sums[group.codes()[row]] += values[row];
+                seen[group.codes()[row]] = true;
+            }
+            for (int code = 1; code < sums.length; code++) {
+                if (seen[code]) out.merge(group.values().get(code - 1), sums[code], Long::sum);
+            }
+            bytesRead += r.bytesRead();
+        }
+        return out;
+    }
+
+    /** null — в интервал попадает весь файл и колонка at не читается. */
+    private static boolean[] rowsIn(ColumnarEventFile.Reader r, Instant from, Instant to) throws IOException {
+        if (r.rows() == 0 || (r.minAt() >= from.toEpochMilli() && r.maxAt() < to.toEpochMilli())) return null;
+        long[] at = r.longs("at");
+        boolean[] keep = new boolean[r.rows()];
+        for (int i = 0; i < at.length; i++) keep[i] = at[i] >= from.toEpochMilli() && at[i] < to.toEpochMilli();
+        return keep;
+    }
+
+    private static void merge(Map<String, Long> out, List<String> values, long[] byCode) {
+        for (int code = 1; code < byCode.length; code++) {
+            if (byCode[code] != 0) out.merge(values.get(code - 1), byCode[code], Long::sum);
+        }
+    }
+
+    private static long[] toLongs(int[] v) {
+        long[] out = new long[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = v[i];
+        return out;
+    }
+
+    /** dir column [from to] — countBy по колонке; без интервала — за всё время. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 4) {
+            System.err.println("usage: AnalyticsQuery <dir> <column> [<from> <to>]");
+            System.exit(2);
+        }
+        Instant from = args.length == 4 ? Instant.parse(args[2]) : Instant.EPOCH;
+        Instant to = args.length == 4 ? Instant.parse(args[3]) : Instant.now().plus(1, ChronoUnit.DAYS);
+        AnalyticsQuery q = new AnalyticsQuery(Path.of(args[0]));
+        q.countBy(args[1], from, to).entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> System.out.println(e.getValue() + "\t" + e.getKey()));
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.questgame.analytics;
+
+import com.example.questgame.dto.GameEventDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Колоночный файл игровых событий за час. Каждая колонка — отдельный сжатый (deflate) блок,
+ * в заголовке — смещения блоков, поэтому чтение одной колонки не трогает остальные байты файла.
+ * <pre>
+ * "QCOL" | version | rows | minAt | maxAt | columns | (name, kind, offset, length)* | блоки
+ * </pre>
+ * LONG — zigzag-varint разностей соседних значений (id и время почти монотонны);
+ * INT — zigzag-varint; DICT — словарь строк и varint-код на строку (0 — null);
+ * DICT_LIST — на строку число элементов и их коды в общем словаре колонки.
+ */
+public final class ColumnarEventFile {
+
+    private static final int MAGIC = 0x51434F4C; // "QCOL"
+    private static final byte VERSION = 1;
+
+    public enum Kind { LONG, INT, DICT, DICT_LIST }
+
+    /** Колонка схемы: имя, кодирование и откуда значение берётся в событии. */
+    public record Column(String name, Kind kind, Function<GameEventDto, Object> getter) {}
+
+    /** Схема файла; порядок колонок — порядок блоков. */
+    public static final List<Column> SCHEMA = List.of(
+            new Column("id", Kind.LONG, GameEventDto::getId),
+            new Column("at", Kind.LONG, GameEventDto::getAt),
+            new Column("gameStateId", Kind.LONG, GameEventDto::getGameStateId),
+            new Column("userId", Kind.LONG, GameEventDto::getUserId),
+            new Column("type", Kind.DICT, GameEventDto::getType),
+            new Column("questId", Kind.DICT, GameEventDto::getQuestId),
+            new Column("action", Kind.DICT, GameEventDto::getAction),
+            new Column("location", Kind.DICT, GameEventDto::getLocation),
+            new Column("from", Kind.DICT, GameEventDto::getFrom),
+            new Column("outcome", Kind.DICT, GameEventDto::getOutcome),
+            new Column("healthDelta", Kind.INT, GameEventDto::getHealthDelta),
+            new Column("item", Kind.DICT, GameEventDto::getItem),
+            new Column("items", Kind.DICT_LIST, GameEventDto::getItems),
+            new Column("removed", Kind.DICT_LIST, GameEventDto::getRemoved));
+
+    private ColumnarEventFile() {}
+
+    // ==========================
+    //          Запись
+    // ==========================
+
+    /** Построчное накопление колонок в памяти: примитивные массивы и словари, без объектов событий. */
+    public static final class Writer {
+        private final List<ColumnBuffer> columns = new ArrayList<>(SCHEMA.size());
+        private int rows;
+        private long minAt = Long.MAX_VALUE;
+        private long maxAt = Long.MIN_VALUE;
+
+        public Writer() {
+            for (Column c : SCHEMA) columns.add(new ColumnBuffer(c));
+        }
+
+        public void add(GameEventDto e) {
+            for (ColumnBuffer c : columns) c.add(e);
+            if (e.getAt() != null) {
+                minAt = Math.min(minAt, e.getAt());
+                maxAt = Math.max(maxAt, e.getAt());
+            }
+            rows++;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        /** Записать файл атомарно: во временный рядом и переименованием. */
+        public void write(Path file, int compressionLevel) throws IOException {
+            List<byte[]> blocks = new ArrayList<>(columns.size());
+            for (ColumnBuffer c : columns) blocks.add(c.encode(compressionLevel));
+
+            ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+            DataOutputStream out = new DataOutputStream(head);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(rows);
+            out.writeLong(rows == 0 ? 0 : minAt);
+            out.writeLong(rows == 0 ? 0 : maxAt);
+            out.writeShort(columns.size());
+            long offset = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                Column c = columns.get(i).column;
+                out.writeUTF(c.name());
+                out.writeByte(c.kind().ordinal());
+                out.writeLong(offset);
+                out.writeInt(blocks.get(i).length);
+                offset += blocks.get(i).length;
+            }
+            out.flush();
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                os.write(head.toByteArray());
+                for (byte[] b : blocks) os.write(b);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static final class ColumnBuffer {
+        final Column column;
+        long[] longs;
+        int[] codes = new int[1024];
+        int size;
+        int[] listCodes;
+        int listSize;
+        final Map<String, Integer> dict = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        ColumnBuffer(Column column) {
+            this.column = column;
+            if (column.kind() == Kind.LONG) longs = new long[1024];
+            if (column.kind() == Kind.DICT_LIST) listCodes = new int[1024];
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(GameEventDto e) {
+            Object v = column.getter().apply(e);
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+                if (longs != null) longs = Arrays.copyOf(longs, size * 2);
+            }
+            switch (column.kind()) {
+                case LONG -> longs[size] = v == null ? 0L : ((Number) v).longValue();
+                case INT -> codes[size] = v == null ? 0 : ((Number) v).intValue();
+                case DICT -> codes[size] = code((String) v);
+                case DICT_LIST -> {
+                    List<String> list = v == null ? List.of() : (List<String>) v;
+                    codes[size] = list.size();
+                    for (String s : list) {
+                        if (listSize == listCodes.length) listCodes = Arrays.copyOf(listCodes, listSize * 2);
+                        listCodes[listSize++] = code(s);
+                    }
+                }
+            }
+            size++;
+        }
+
+        private int code(String v) {
+            if (v == null) return 0;
+            Integer c = dict.get(v);
+            if (c == null) {
+                values.add(v);
+                c = values.size();
+                dict.put(v, c);
+            }
+            return c;
+        }
+
+        byte[] encode(int level) throws IOException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(size * 2 + 64);
+            Deflater deflater = new Deflater(level);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(buf, deflater))) {
+                switch (column.kind()) {
+                    case LONG -> {
+                        long prev = 0;
+                        for (int i = 0; i < size; i++) {
+                            writeVarLong(out, zigzag(longs[i] - prev));
+                            prev = longs[i];
+                        }
+                    }
+                    case INT -> {
+                        for (int i = 0; i < size; i++) writeVarLong(out, zigzag(codes[i]));
+                    }
+                    case DICT, DICT_LIST -> {
+                        writeVarLong(out, values.size());
+                        for (String s : values) out.writeUTF(s);
+                        for (int i = 0; i < size; i++) writeVarLong(out, codes[i]);
+                        for (int i = 0; i < listSize; i++) writeVarLong(out, listCodes[i]);
+                    }
+                }
+            } finally {
+                deflater.end();
+            }
+            return buf.toByteArray();
+        }
+    }
+
+    // ==========================
+    //          Чтение
+    // ==========================
+
+    /** Открыть файл: читается только заголовок; колонки — по запросу, каждая своим блоком. */
+    public static Reader open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate((int) Math.min(ch.size(), 64 * 1024));
+            while (head.hasRemaining() && ch.read(head) > 0) { }
+            head.flip();
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(head.array(), 0, head.limit()));
+            if (in.readInt() != MAGIC) throw new IOException("Не колоночный файл событий: " + file);
+            byte version = in.readByte();
+            if (version != VERSION) throw new IOException("Неизвестная версия колоночного файла " + version + ": " + file);
+            int rows = in.readInt();
+            long minAt = in.readLong();
+            long maxAt = in.readLong();
+            int n = in.readUnsignedShort();
+            Map<String, Block> blocks = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                Kind kind = Kind.values()[in.readUnsignedByte()];
+                blocks.put(name, new Block(kind, in.readLong(), in.readInt()));
+            }
+            long dataStart = head.limit() - in.available();
+            return new Reader(file, rows, minAt, maxAt, blocks, dataStart);
+        }
+    }
+
+    private record Block(Kind kind, long offset, int length) {}
+
+    /** Словарная колонка: значения словаря и код строки (0 — null). */
+    public record DictColumn(List<String> values, int[] codes) {
+        public String value(int row) {
+            int c = codes[row];
+            return c == 0 ? null : values.get(c - 1);
+        }
+    }
+
+    /** Колонка-список: элементы строки row — codes[offsets[row] .. offsets[row + 1]). */
+    public record DictListColumn(List<String> values, int[] offsets, int[] codes) {
+        public List<String> value(int row) {
+            List<String> out = new ArrayList<>(offsets[row + 1] - offsets[row]);
+            for (int i = offsets[row]; i < offsets[row + 1]; i++) out.add(values.get(codes[i] - 1));
+            return out;
+        }
+    }
+
+    public static final class Reader {
+        private final Path file;
+        private final int rows;
+        private final long minAt;
+        private final long maxAt;
+        private final Map<String, Block> blocks;
+        private final long dataStart;
+        private long bytesRead;
+
+        private Reader(Path file, int rows, long minAt, long maxAt, Map<String, Block> blocks, long dataStart) {
+            this.file = file;
+            this.rows = rows;
+            this.minAt = minAt;
+            this.maxAt = maxAt;
+            this.blocks = blocks;
+            this.dataStart = dataStart;
+        }
+
+        public int rows() { return rows; }
+        public long minAt() { return minAt; }
+        public long maxAt() { return maxAt; }
+        public List<String> columns() { return List.copyOf(blocks.keySet()); }
+
+        /** Сколько байт блоков колонок прочитано с диска (заголовок не в счёт). */
+        public long bytesRead() { return bytesRead; }
+
+        public Kind kind(String column) {
+            return block(column).kind();
+        }
+
+        public long[] longs(String column) throws IOException {
+            long[] out = new long[rows];
+            try (DataInputStream in = inflate(column, Kind.LONG)) {
+                long prev = 0;
+                for (int i = 0; i < rows; i++) {
+                    prev += unzigzag(readVarLong(in));
+                    out[i] = prev;
+                }
+            }
+            return out;
+        }
+
+        public int[] ints(String column) throws IOException {
+            int[] out = new int[rows];
+            try (DataInputStream in = inflate(column, Kind.INT)) {
+                for (int i = 0; i < rows; i++) out[i] = (int) unzigzag(readVarLong(in));
+            }
+            return out;
+        }
+
+        public DictColumn dict(String column) throws IOException {
+            try (DataInputStream in = inflate(column, Kind.DICT)) {
+                List<String> values = readValues(in);
+                int[] codes = new int[rows];
+                for (int i = 0; i < rows; i++) codes[i] = (int) readVarLong(in);
+                return new DictColumn(values, codes);
+            }
+        }
+
+        public DictListColumn dictList(String column) throws IOException {
+            try (DataInputStream in = inflate(column, Kind.DICT_LIST)) {
+                List<String> values = readValues(in);
+                int[] offsets = new int[rows + 1];
+                for (int i = 0; i < rows; i++) offsets[i + 1] = offsets[i] + (int) readVarLong(in);
+                int[] codes = new int[offsets[rows]];
+                for (int i = 0; i < codes.length; i++) codes[i] = (int) readVarLong(in);
+                return new DictListColumn(values, offsets, codes);
+            }
+        }
+
+        private Block block(String column) {
+            Block b = blocks.get(column);
+            if (b == null) throw new IllegalArgumentException("Нет колонки " + column + " в " + file);
+            return b;
+        }
+
+        private DataInputStream inflate(String column, Kind expected) throws IOException {
+            Block b = block(column);
+            if (b.kind() != expected) {
+                throw new IllegalArgumentException("Колонка " + column + " — " + b.kind() + ", а не " + expected);
+            }
+            ByteBuffer buf = ByteBuffer.allocate(b.length());
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                long pos = dataStart + b.offset();
+                while (buf.hasRemaining()) {
+                    int n = ch.read(buf, pos + buf.position());
+                    if (n < 0) throw new IOException("Файл обрезан: " + file);
+                }
+            }
+            bytesRead += b.length();
+            InputStream raw = new ByteArrayInputStream(buf.array());
+            return new DataInputStream(new InflaterInputStream(raw));
+        }
+
+        private static List<String> readValues(DataInputStream in) throws IOException {
+            int n = (int) readVarLong(in);
+            List<String> values = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) values.add(in.readUTF());
+            return values;
+        }
+    }
+
+    // ==========================
+    //          varint
+    // ==========================
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Битый varint");
+    }
+}
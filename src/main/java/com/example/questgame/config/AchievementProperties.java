@@ -0,0 +1,26 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Достижения (app.achievements.*): описания в данных, прогресс считается по событиям outbox.
+ */
+@ConfigurationProperties(prefix = "app.achievements")
+public class AchievementProperties {
+
+    /** Принимать ли события outbox в достижения. */
+    private boolean enabled = true;
+    /** Файл описаний: путь на диске или (если его нет) ресурс classpath. */
+    private String definitions = "achievements.json";
+    /** Сколько игроков держать в памяти; записанные на диск вытесняются первыми по давности. */
+    private int cacheSize = 10_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getDefinitions() { return definitions; }
+    public void setDefinitions(String definitions) { this.definitions = definitions; }
+
+    public int getCacheSize() { return cacheSize; }
+    public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+}
@@ -0,0 +1,26 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Администраторы (app.admin.*): e-mail из списка получают ROLE_ADMIN.
+ */
+@ConfigurationProperties(prefix = "app.admin")
+public class AdminProperties {
+    /** E-mail администраторов. */
+    private List<String> emails = new ArrayList<>();
+
+    public List<String> getEmails() { return emails; }
+    public void setEmails(List<String> emails) { this.emails = emails; }
+
+    public boolean isAdmin(String email) {
+        if (email == null) return false;
+        for (String e : emails) {
+            if (e != null && e.trim().equalsIgnoreCase(email)) return true;
+        }
+        return false;
+    }
+}
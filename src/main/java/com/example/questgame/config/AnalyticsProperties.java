@@ -0,0 +1,38 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Офлайн-выгрузка игровых событий для аналитики (app.analytics.*): почасовые колоночные файлы.
+ */
+@ConfigurationProperties(prefix = "app.analytics")
+public class AnalyticsProperties {
+
+    /** Принимать ли события outbox в выгрузку. */
+    private boolean enabled = false;
+    /** Каталог часовых файлов и журналов текущих часов. */
+    private String dir = "analytics";
+    /** Как часто проверять, не пора ли закрыть прошедшие часы. */
+    private Duration sealInterval = Duration.ofMinutes(1);
+    /** Сколько ждать после конца часа запоздавших событий (отставание relay) перед закрытием. */
+    private Duration sealDelay = Duration.ofMinutes(5);
+    /** Уровень deflate для блоков колонок (1 — быстрее, 9 — компактнее). */
+    private int compressionLevel = 6;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+
+    public Duration getSealInterval() { return sealInterval; }
+    public void setSealInterval(Duration sealInterval) { this.sealInterval = sealInterval; }
+
+    public Duration getSealDelay() { return sealDelay; }
+    public void setSealDelay(Duration sealDelay) { this.sealDelay = sealDelay; }
+
+    public int getCompressionLevel() { return compressionLevel; }
+    public void setCompressionLevel(int compressionLevel) { this.compressionLevel = compressionLevel; }
+}
@@ -0,0 +1,48 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Холодный архив завершённых и заброшенных игр (app.archive.*).
+ */
+@ConfigurationProperties(prefix = "app.archive")
+public class ArchiveProperties {
+
+    /** Запускать ли фоновую архивацию. */
+    private boolean enabled = false;
+    /** Период запуска задачи. */
+    private Duration interval = Duration.ofHours(1);
+    /** Активная игра без изменений дольше этого срока считается заброшенной. */
+    private Duration idleAfter = Duration.ofDays(30);
+    /** Игр в одном батче (один SELECT, один многострочный INSERT, по одному DELETE на таблицу). */
+    private int batchSize = 200;
+    /** Верхняя граница игр за один запуск. */
+    private int maxGamesPerRun = 10_000;
+    /** Пауза между батчами — ограничивает нагрузку на БД. */
+    private Duration pauseBetweenBatches = Duration.ofMillis(200);
+    /** Уровень gzip (1 — быстрее, 9 — компактнее). */
+    private int compressionLevel = 6;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getInterval() { return interval; }
+    public void setInterval(Duration interval) { this.interval = interval; }
+
+    public Duration getIdleAfter() { return idleAfter; }
+    public void setIdleAfter(Duration idleAfter) { this.idleAfter = idleAfter; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public int getMaxGamesPerRun() { return maxGamesPerRun; }
+    public void setMaxGamesPerRun(int maxGamesPerRun) { this.maxGamesPerRun = maxGamesPerRun; }
+
+    public Duration getPauseBetweenBatches() { return pauseBetweenBatches; }
+    public void setPauseBetweenBatches(Duration pauseBetweenBatches) { this.pauseBetweenBatches = pauseBetweenBatches; }
+
+    public int getCompressionLevel() { return compressionLevel; }
+    public void setCompressionLevel(int compressionLevel) { this.compressionLevel = compressionLevel; }
+}
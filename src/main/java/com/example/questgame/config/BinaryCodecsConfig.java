@@ -0,0 +1,122 @@
+package com.example.questgame.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Бинарные форматы для нативного клиента: application/cbor и application/x-jackson-smile.
+ * Повторяющиеся имена полей и строки (локации, названия действий) пишутся ссылками
+ * (CBOR stringref, Smile shared names/values). JSON остаётся форматом по умолчанию:
+ * пользовательские кодеки WebFlux идут раньше стандартных, поэтому JSON-кодек регистрируется
+ * здесь же первым — на Accept: * / * и без Accept отвечаем JSON.
+ */
+@Configuration
+public class BinaryCodecsConfig implements WebFluxConfigurer {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private final ObjectMapper jsonMapper;
+    private final Jackson2ObjectMapperBuilder builder;
+
+    public BinaryCodecsConfig(ObjectMapper jsonMapper, Jackson2ObjectMapperBuilder builder) {
+        this.jsonMapper = jsonMapper;
+        this.builder = builder;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new Jackson2JsonEncoder(jsonMapper));
+
+        ObjectMapper cbor = cborMapper(builder);
+        configurer.customCodecs().register(new CollectingCborEncoder(cbor));
+        configurer.customCodecs().register(new Jackson2CborDecoder(cbor));
+
+        ObjectMapper smile = smileMapper(builder);
+        configurer.customCodecs().register(new CollectingSmileEncoder(smile));
+        configurer.customCodecs().register(new Jackson2SmileDecoder(smile));
+    }
+
+    /** Smile с общими ссылками не только на имена полей, но и на короткие строковые значения. */
+    public static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                        .build())
+                .build();
+    }
+
+    /** CBOR с расширением stringref (тег 256/25): повторная строка — ссылка на первую. */
+    public static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(CBORFactory.builder()
+                        .enable(CBORGenerator.Feature.STRINGREF)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Бинарные энкодеры Jackson не пишут Flux одним документом (CBOR не умеет потоково вовсе);
+     * списки у нас небольшие (инвентарь, рецепты) — собираем их и пишем один массив.
+     */
+    private static Flux<DataBuffer> encodeCollected(AbstractJackson2Encoder encoder, Publisher<?> input,
+                                                    DataBufferFactory bufferFactory, ResolvableType elementType,
+                                                    MimeType mimeType, Map<String, Object> hints) {
+        if (input instanceof Mono<?> mono) {
+            return mono.map(v -> encoder.encodeValue(v, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return Flux.from(input)
+                .collectList()
+                .map(list -> encoder.encodeValue(list, bufferFactory, listType, mimeType, hints))
+                .flux();
+    }
+
+    static final class CollectingCborEncoder extends Jackson2CborEncoder {
+
+        CollectingCborEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            return encodeCollected(this, input, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    static final class CollectingSmileEncoder extends Jackson2SmileEncoder {
+
+        CollectingSmileEncoder(ObjectMapper mapper) {
+            super(mapper, MimeType.valueOf(APPLICATION_SMILE_VALUE));
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            return encodeCollected(this, input, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Эффекты времени (app.effects.*): регенерация здоровья и колесо таймеров, по которому
+ * применяются созревшие эффекты (смерть от яда, конец яда).
+ */
+@ConfigurationProperties(prefix = "app.effects")
+public class EffectsProperties {
+
+    /** Запускать ли колесо; без него эффекты всё равно досчитываются при следующей команде. */
+    private boolean enabled = true;
+    /** Сколько здоровья восстанавливается за период; 0 — регенерации нет. */
+    private int regenAmount;
+    private Duration regenEvery = Duration.ofMinutes(1);
+    /** Тик колеса — точность срабатывания. */
+    private Duration tick = Duration.ofSeconds(1);
+    /** Корзин на уровне колеса. */
+    private int wheelSize = 64;
+    /** Созревших игр в одном батче применения. */
+    private int batchSize = 200;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getRegenAmount() { return regenAmount; }
+    public void setRegenAmount(int regenAmount) { this.regenAmount = regenAmount; }
+
+    public Duration getRegenEvery() { return regenEvery; }
+    public void setRegenEvery(Duration regenEvery) { this.regenEvery = regenEvery; }
+
+    public Duration getTick() { return tick; }
+    public void setTick(Duration tick) { this.tick = tick; }
+
+    public int getWheelSize() { return wheelSize; }
+    public void setWheelSize(int wheelSize) { this.wheelSize = wheelSize; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
@@ -0,0 +1,40 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Идемпотентность POST-команд (app.idempotency.*).
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+
+    public enum Store { MEMORY, DB }
+
+    /** MEMORY — только этот узел; DB — ещё и таблица idempotency_keys (несколько узлов). */
+    private Store store = Store.MEMORY;
+    /** Сколько хранится ответ на ключ. */
+    private Duration ttl = Duration.ofHours(1);
+    /** Верхняя граница числа ключей в памяти. */
+    private int maxEntries = 50_000;
+    /** DB: как часто проверять, не закончил ли другой узел выполнение. */
+    private Duration pollInterval = Duration.ofMillis(100);
+    /** DB: сколько ждать результата другого узла. */
+    private Duration pollTimeout = Duration.ofSeconds(10);
+
+    public Store getStore() { return store; }
+    public void setStore(Store store) { this.store = store; }
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+    public int getMaxEntries() { return maxEntries; }
+    public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+    public Duration getPollInterval() { return pollInterval; }
+    public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+
+    public Duration getPollTimeout() { return pollTimeout; }
+    public void setPollTimeout(Duration pollTimeout) { this.pollTimeout = pollTimeout; }
+}
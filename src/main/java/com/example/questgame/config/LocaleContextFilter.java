@@ -0,0 +1,40 @@
+package com.example.questgame.config;
+
+import com.example.questgame.service.MessageCatalog;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Кладёт язык запроса (Accept-Language, см. spring.web.locale) в Reactor Context под ключом Locale.class —
+ * GameDtoFacade берёт его оттуда при сборке текста сюжета, не протаскивая exchange через сервисы.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class LocaleContextFilter implements WebFilter {
+
+    private final MessageCatalog catalog;
+
+    public LocaleContextFilter(MessageCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Locale locale = localeOf(exchange, catalog);
+        return chain.filter(exchange).contextWrite(ctx -> ctx.put(Locale.class, locale));
+    }
+
+    /** Поддерживаемый каталогом язык запроса. */
+    public static Locale localeOf(ServerWebExchange exchange, MessageCatalog catalog) {
+        LocaleContext lc = exchange.getLocaleContext();
+        return catalog.supported(lc == null ? null : lc.getLocale());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.questgame.config;
+
+import com.example.questgame.outbox.FileOutboxSink;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/** Активирует биндинг OutboxProperties и файловый приёмник, если задан app.outbox.file. */
+@Configuration
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty("app.outbox.file")
+    public FileOutboxSink fileOutboxSink(OutboxProperties props) {
+        return new FileOutboxSink(Path.of(props.getFile()));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Outbox доменных событий игры (app.outbox.*): как часто и какими порциями relay разбирает таблицу.
+ */
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+
+    /** Запускать ли relay; записи в outbox идут всегда. */
+    private boolean enabled = true;
+    /** Пауза между разборами хвоста таблицы. */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /** Событий в одном батче (один SELECT, одна публикация, один DELETE). */
+    private int batchSize = 500;
+    /** Файл JSON Lines для файлового приёмника; пусто — приёмник не создаётся. */
+    private String file;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getPollInterval() { return pollInterval; }
+    public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+}
@@ -0,0 +1,10 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Активирует биндинг PartyProperties. */
+@Configuration
+@EnableConfigurationProperties(PartyProperties.class)
+public class PartyConfig {
+}
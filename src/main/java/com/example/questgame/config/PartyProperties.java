@@ -0,0 +1,26 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Совместные игры — партии (app.party.*).
+ */
+@ConfigurationProperties(prefix = "app.party")
+public class PartyProperties {
+
+    /** Сколько игроков может быть в одной партии. */
+    private int maxMembers = 6;
+    /** Сколько команд партии может ждать своей очереди; больше — команда отклоняется. */
+    private int maxPendingCommands = 16;
+    /** Сколько событий копится у подписчика, который не успевает читать; дальше поток завершается ошибкой. */
+    private int eventBuffer = 256;
+
+    public int getMaxMembers() { return maxMembers; }
+    public void setMaxMembers(int maxMembers) { this.maxMembers = maxMembers; }
+
+    public int getMaxPendingCommands() { return maxPendingCommands; }
+    public void setMaxPendingCommands(int maxPendingCommands) { this.maxPendingCommands = maxPendingCommands; }
+
+    public int getEventBuffer() { return eventBuffer; }
+    public void setEventBuffer(int eventBuffer) { this.eventBuffer = eventBuffer; }
+}
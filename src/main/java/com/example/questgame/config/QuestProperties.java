@@ -0,0 +1,21 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Пакеты квестов (app.quests.*).
+ */
+@ConfigurationProperties(prefix = "app.quests")
+public class QuestProperties {
+
+    /** Квест новых игр и игр без quest_id. */
+    private String defaultId = "classic";
+    /** Каталог с &lt;id&gt;.json, перекрывающими classpath:quests/ (для горячей перезагрузки без сборки); пусто — только classpath. */
+    private String dir = "";
+
+    public String getDefaultId() { return defaultId; }
+    public void setDefaultId(String defaultId) { this.defaultId = defaultId; }
+
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+}
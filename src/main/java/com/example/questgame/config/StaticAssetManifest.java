@@ -0,0 +1,81 @@
+package com.example.questgame.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Манифест статики: "/css/style.css" -> "/css/style-&lt;md5&gt;.css".
+ * Хэш считается один раз при старте тем же способом, что и ContentVersionStrategy,
+ * поэтому VersionResourceResolver принимает эти URL. Переписывание ссылок синхронное —
+ * Thymeleaf вызывает ServerWebExchange.transformUrl прямо во время рендера.
+ */
+@Component
+public class StaticAssetManifest {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticAssetManifest.class);
+
+    static final String LOCATION = "classpath:/static/";
+
+    private final Map<String, String> versioned = new ConcurrentHashMap<>();
+
+    public StaticAssetManifest() {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        try {
+            for (Resource r : resolver.getResources(LOCATION + "**/*.*")) {
+                String path = relativePath(r);
+                if (path == null || path.endsWith(".gz") || path.endsWith(".br")) continue;
+                try (InputStream in = r.getInputStream()) {
+                    String hash = DigestUtils.md5DigestAsHex(in);
+                    versioned.put(path, withVersion(path, hash));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось построить манифест статики: {}", e.toString());
+        }
+        log.debug("static manifest: {}", versioned);
+    }
+
+    /** Версионированный URL или исходный, если ресурс неизвестен. */
+    public String rewrite(String url) {
+        if (url == null) return null;
+        int cut = indexOfQueryOrFragment(url);
+        String path = cut < 0 ? url : url.substring(0, cut);
+        String v = versioned.get(path);
+        return v == null ? url : (cut < 0 ? v : v + url.substring(cut));
+    }
+
+    /** Путь известного ресурса без хэша — такой ответ нельзя кэшировать как immutable. */
+    public boolean isUnversioned(String path) {
+        return versioned.containsKey(path);
+    }
+
+    private static String relativePath(Resource r) throws IOException {
+        String url = r.getURL().toString();
+        int i = url.lastIndexOf("/static/");
+        return i < 0 ? null : url.substring(i + "/static".length());
+    }
+
+    private static String withVersion(String path, String hash) {
+        String ext = StringUtils.getFilenameExtension(path);
+        String base = StringUtils.stripFilenameExtension(path);
+        return base + "-" + hash + (ext == null ? "" : "." + ext);
+    }
+
+    private static int indexOfQueryOrFragment(String url) {
+        int q = url.indexOf('?');
+        int h = url.indexOf('#');
+        if (q < 0) return h;
+        if (h < 0) return q;
+        return Math.min(q, h);
+    }
+}
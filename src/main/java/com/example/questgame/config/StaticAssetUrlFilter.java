@@ -0,0 +1,39 @@
+package com.example.questgame.config;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Подключает переписывание ссылок на статику (Thymeleaf @{...} -> URL с хэшем)
+ * и снимает immutable-кэширование с запросов статики по старым URL без хэша.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StaticAssetUrlFilter implements WebFilter {
+
+    private final StaticAssetManifest manifest;
+
+    public StaticAssetUrlFilter(StaticAssetManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (manifest.isUnversioned(path)) {
+            exchange.getResponse().beforeCommit(() -> {
+                exchange.getResponse().getHeaders().setCacheControl(CacheControl.noCache());
+                return Mono.empty();
+            });
+        } else {
+            exchange.addUrlTransformer(manifest::rewrite);
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -1,15 +1,36 @@
 package com.example.questgame.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.reactive.config.ResourceHandlerRegistry;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.resource.EncodedResourceResolver;
+import org.springframework.web.reactive.resource.VersionResourceResolver;
 
+import java.time.Duration;
+
+/**
+ * Статика по URL с хэшем содержимого (style-&lt;md5&gt;.css) и вечным кэшем.
+ * Сжатые .gz/.br копии готовятся при сборке (см. pom.xml) и отдаются по Accept-Encoding.
+ */
 @Configuration
 public class StaticResourceConfig implements WebFluxConfigurer {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePublic()
+            .immutable();
+
+    private static final String[] DIRS = {"css", "js"};
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/css/**")
-                .addResourceLocations("classpath:/static/css/")
-                .resourceChain(true);
+        for (String dir : DIRS) {
+            registry.addResourceHandler("/" + dir + "/**")
+                    .addResourceLocations(StaticAssetManifest.LOCATION + dir + "/")
+                    .setCacheControl(IMMUTABLE)
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
     }
 }
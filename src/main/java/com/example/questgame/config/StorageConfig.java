@@ -0,0 +1,34 @@
+package com.example.questgame.config;
+
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.storage.GameStore;
+import com.example.questgame.storage.InMemoryGameStore;
+import com.example.questgame.storage.R2dbcGameStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Активирует биндинг StorageProperties и выбирает хранилище игр по app.storage.backend.
+ * <p>
+ * Выбор — в фабрике бина, а не через @ConditionalOnProperty: AOT (mvn -Pfast-start) вычисляет условия
+ * на сборке с профилем prod, и в сгенерированном контексте остался бы R2DBC при любом backend на запуске.
+ * Фабрика читает StorageProperties при старте, поэтому переключатель работает и в AOT/CDS-сборке.
+ * Межбиновых вызовов нет — CGLIB-подкласс конфигурации не нужен.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    @Bean
+    public GameStore gameStore(StorageProperties props,
+                               ObjectProvider<GameStateRepository> states,
+                               ObjectProvider<InventoryItemRepository> items) {
+        return switch (props.getBackend()) {
+            case MEMORY -> new InMemoryGameStore(props.getExpectedGames());
+            case R2DBC -> new R2dbcGameStore(states.getObject(), items.getObject());
+        };
+    }
+}
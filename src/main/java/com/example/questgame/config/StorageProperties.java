@@ -0,0 +1,23 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Хранилище игр и инвентаря (app.storage.*).
+ */
+@ConfigurationProperties(prefix = "app.storage")
+public class StorageProperties {
+
+    public enum Backend { R2DBC, MEMORY }
+
+    /** R2DBC — MySQL; MEMORY — только память процесса (один узел, тесты, симуляторы). */
+    private Backend backend = Backend.R2DBC;
+    /** MEMORY: ожидаемое число игр — начальный размер таблиц. */
+    private int expectedGames = 100_000;
+
+    public Backend getBackend() { return backend; }
+    public void setBackend(Backend backend) { this.backend = backend; }
+
+    public int getExpectedGames() { return expectedGames; }
+    public void setExpectedGames(int expectedGames) { this.expectedGames = expectedGames; }
+}
@@ -0,0 +1,39 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Трасса игровых команд для воспроизведения (app.trace.*).
+ */
+@ConfigurationProperties(prefix = "app.trace")
+public class TraceProperties {
+
+    /** Писать ли трассу; выключено — в горячем пути остаётся одна проверка флага. */
+    private boolean enabled = false;
+    /** Каталог файлов трассы (по файлу на запуск приложения). */
+    private String dir = "traces";
+    /** Очередь записей между потоками запросов и писателем; при переполнении записи отбрасываются. */
+    private int queueCapacity = 65_536;
+    /** Достигнув этого размера, файл закрывается и запись останавливается. */
+    private DataSize maxFileSize = DataSize.ofMegabytes(512);
+    /** Как часто писатель сбрасывает буфер на диск, пока очередь пуста. */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public DataSize getMaxFileSize() { return maxFileSize; }
+    public void setMaxFileSize(DataSize maxFileSize) { this.maxFileSize = maxFileSize; }
+
+    public Duration getFlushInterval() { return flushInterval; }
+    public void setFlushInterval(Duration flushInterval) { this.flushInterval = flushInterval; }
+}
@@ -0,0 +1,16 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Отмена шагов (app.undo.*).
+ */
+@ConfigurationProperties(prefix = "app.undo")
+public class UndoProperties {
+
+    /** Сколько последних шагов игры хранится для отмены; 0 — дельты не пишутся. */
+    private int depth = 20;
+
+    public int getDepth() { return depth; }
+    public void setDepth(int depth) { this.depth = depth; }
+}
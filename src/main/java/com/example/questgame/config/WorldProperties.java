@@ -0,0 +1,35 @@
+package com.example.questgame.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Мировые события (app.world.*): общие для всех игроков модификаторы правил на время.
+ */
+@ConfigurationProperties(prefix = "app.world")
+public class WorldProperties {
+
+    /** Запускать ли случайные события по расписанию; вручную их можно запустить всегда. */
+    private boolean enabled = true;
+    /** Как часто начинается случайное событие. */
+    private Duration interval = Duration.ofMinutes(30);
+    /** Известные события и их длительность: имя -> сколько длится. */
+    private Map<String, Duration> events = new LinkedHashMap<>(Map.of("dragon_sleeps", Duration.ofMinutes(10)));
+    /** Сколько событий может ждать медленный подписчик; больше — поток закрывается, клиент переподключается. */
+    private int subscriberBuffer = 64;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getInterval() { return interval; }
+    public void setInterval(Duration interval) { this.interval = interval; }
+
+    public Map<String, Duration> getEvents() { return events; }
+    public void setEvents(Map<String, Duration> events) { this.events = events; }
+
+    public int getSubscriberBuffer() { return subscriberBuffer; }
+    public void setSubscriberBuffer(int subscriberBuffer) { this.subscriberBuffer = subscriberBuffer; }
+}
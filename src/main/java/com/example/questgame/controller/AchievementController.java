@@ -0,0 +1,42 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.achievement.AchievementService;
+import com.example.questgame.dto.AchievementDto;
+import com.example.questgame.exception.UnauthorizedException;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.UserService;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+
+/** Достижения текущего пользователя: полученные и прогресс к остальным. */
+@RestController
+@RequestMapping("/api/achievements")
+public class AchievementController {
+
+    private final AchievementService achievementService;
+    private final UserService userService;
+
+    public AchievementController(AchievementService achievementService, UserService userService) {
+        this.achievementService = achievementService;
+        this.userService = userService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<AchievementDto>> list(Authentication authentication) {
+        return Mono.justOrEmpty(authentication)
+                .map(Authentication::getName)
+                .filter(StringUtils::hasText)
+                .switchIfEmpty(Mono.error(new UnauthorizedException("Требуется вход")))
+                .flatMap(userService::findUserIdByEmail)
+                .flatMap(userId -> Mono.deferContextual(ctx -> achievementService.forUser(userId,
+                        ctx.getOrDefault(Locale.class, MessageCatalog.DEFAULT_LOCALE))));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.dto.GameExportDto;
+import com.example.questgame.dto.GameStepDto;
+import com.example.questgame.dto.ImportReportDto;
+import com.example.questgame.model.GameState;
+import com.example.questgame.service.GameArchiveService;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameTransferService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Админская выгрузка/загрузка игр в NDJSON (одна игра с инвентарём на строку).
+ * Доступ — только ROLE_ADMIN (см. SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/games")
+public class AdminDataController {
+
+    private final GameTransferService transferService;
+    private final GameArchiveService archiveService;
+    private final GameService gameService;
+
+    public AdminDataController(GameTransferService transferService, GameArchiveService archiveService,
+                               GameService gameService) {
+        this.transferService = transferService;
+        this.archiveService = archiveService;
+        this.gameService = gameService;
+    }
+
+    /** Потоковая выгрузка; afterId позволяет продолжить прерванную выгрузку. */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<GameExportDto> export(@RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                      @RequestParam(value = "pageSize", defaultValue = "500") int pageSize) {
+        return transferService.exportAll(afterId, pageSize);
+    }
+
+    /** Загрузка того же формата; повтор с тем же jobId продолжает с чекпоинта. */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ImportReportDto> importGames(@RequestParam("jobId") String jobId,
+                                             @RequestParam(value = "batchSize", defaultValue = "500") int batchSize,
+                                             @RequestParam(value = "concurrency", defaultValue = "4") int concurrency,
+                                             @RequestBody Flux<GameExportDto> records) {
+        return transferService.importAll(jobId, records, batchSize, concurrency);
+    }
+
+    /** Внеочередной проход архивации (обычно её запускает фоновая задача); ответ — число заархивированных игр. */
+    @PostMapping(value = "/archive", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Long> archive() {
+        return archiveService.runOnce();
+    }
+
+    /** Журнал шагов игры (номера шагов для отката), от новых к старым. */
+    @GetMapping(value = "/{gameStateId}/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<GameStepDto> history(@PathVariable Long gameStateId) {
+        return gameService.history(gameStateId);
+    }
+
+    /** Откатить игру к состоянию после шага step. */
+    @PostMapping(value = "/{gameStateId}/rewind", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<GameState> rewind(@PathVariable Long gameStateId, @RequestParam("step") long step) {
+        return gameService.rewindTo(gameStateId, step);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.config.SchedulerProvider;
+import com.example.questgame.dto.QuestPackDto;
+import com.example.questgame.quest.QuestPack;
+import com.example.questgame.quest.QuestPacks;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Пакеты квестов: список и горячая перезагрузка без остановки игры.
+ * Доступ — только ROLE_ADMIN (см. SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/quests")
+public class AdminQuestController {
+
+    private final QuestPacks quests;
+    private final SchedulerProvider schedulerProvider;
+
+    public AdminQuestController(QuestPacks quests, SchedulerProvider schedulerProvider) {
+        this.quests = quests;
+        this.schedulerProvider = schedulerProvider;
+    }
+
+    /** Все доступные пакеты; у загруженных — название, локации и время загрузки. */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<QuestPackDto> list() {
+        return Mono.fromCallable(() -> {
+                    Map<String, QuestPack> loaded = quests.loaded().stream()
+                            .collect(Collectors.toMap(QuestPack::id, Function.identity()));
+                    return quests.available().stream()
+                            .map(id -> loaded.containsKey(id) ? toDto(loaded.get(id)) : new QuestPackDto(id, null, null, null))
+                            .toList();
+                })
+                .subscribeOn(schedulerProvider.io())
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /** Перечитать пакет; ошибка в файле — 400, в игре остаётся прежняя версия. */
+    @PostMapping(value = "/{questId}/reload", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<QuestPackDto> reload(@PathVariable String questId) {
+        return Mono.fromCallable(() -> toDto(quests.reload(questId)))
+                .subscribeOn(schedulerProvider.io());
+    }
+
+    private static QuestPackDto toDto(QuestPack pack) {
+        List<String> locations = pack.locations().values().stream().map(QuestPack.Location::name).toList();
+        return new QuestPackDto(pack.id(), pack.title(), locations, pack.loadedAt());
+    }
+}
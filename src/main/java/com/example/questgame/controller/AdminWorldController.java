@@ -0,0 +1,39 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.dto.PreEncodedWorldEvent;
+import com.example.questgame.exception.NotFoundException;
+import com.example.questgame.service.WorldEventService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Ручной запуск и остановка мировых событий. Доступ — только ROLE_ADMIN (см. SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin/world/events")
+public class AdminWorldController {
+
+    private final WorldEventService world;
+
+    public AdminWorldController(WorldEventService world) {
+        this.world = world;
+    }
+
+    /** Начать (или продлить) событие; без minutes — длительность из app.world.events. */
+    @PostMapping(value = "/{name}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PreEncodedWorldEvent> start(@PathVariable String name,
+                                            @RequestParam(value = "minutes", required = false) Integer minutes) {
+        return Mono.fromCallable(() -> world.start(name, minutes == null ? null : Duration.ofMinutes(minutes))
+                .announcement());
+    }
+
+    /** Завершить событие досрочно; 404, если оно не идёт. */
+    @DeleteMapping("/{name}")
+    public Mono<Void> end(@PathVariable String name) {
+        return Mono.fromCallable(() -> world.end(name))
+                .flatMap(ended -> ended ? Mono.<Void>empty() : Mono.error(new NotFoundException("WorldEvent", name)));
+    }
+}
@@ -1,46 +1,79 @@
 package com.example.questgame.controller;
 
-import com.example.questgame.dto.CraftDto;
 import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.dto.PreEncodedCraft;
 import com.example.questgame.facade.GameDtoFacade;
 import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.IdempotencyService;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.config.BinaryCodecsConfig;
+import com.example.questgame.config.LocaleContextFilter;
 import com.example.questgame.config.SchedulerProvider;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 @RestController
 @RequestMapping("/api/games")
 @Validated
 public class GameController {
 
+    // порядок — предпочтение сервера, когда Accept допускает любой из форматов
+    private static final List<MediaType> REPRESENTATIONS = List.of(MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR, MediaType.parseMediaType(BinaryCodecsConfig.APPLICATION_SMILE_VALUE));
+
+    /** Заголовок ответа, собранного из снимка в памяти при недоступной БД. */
+    public static final String STALE_HEADER = "X-Data-Stale";
+
     private final GameService gameService;
     private final GameDtoFacade facade;
     private final SchedulerProvider schedulerProvider;
+    private final GameVersions gameVersions;
+    private final IdempotencyService idempotency;
+    private final MessageCatalog messages;
 
-    public GameController(GameService gameService, GameDtoFacade facade, SchedulerProvider schedulerProvider) {
+    public GameController(GameService gameService, GameDtoFacade facade, SchedulerProvider schedulerProvider,
+                          GameVersions gameVersions, IdempotencyService idempotency, MessageCatalog messages) {
         this.gameService = gameService;
         this.facade = facade;
         this.schedulerProvider = schedulerProvider;
+        this.gameVersions = gameVersions;
+        this.idempotency = idempotency;
+        this.messages = messages;
     }
 
-    /** Сделать шаг сюжета. */
+    /** Сделать шаг сюжета. Повтор с тем же Idempotency-Key возвращает первый ответ. */
     @PostMapping("/progress")
     public Mono<GameStateDto> updatePlot(
             @RequestParam("gameStateId") Long gameStateId,
-            @RequestParam("choice") String choice
+            @RequestParam("choice") String choice,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication
     ) {
-        return gameService.updatePlot(gameStateId, choice)
-                .flatMap(facade::from)
+        return idempotency.execute(userOf(authentication), idempotencyKey,
+                        "progress:" + gameStateId + ":" + choice, GameStateDto.class,
+                        () -> gameService.updatePlot(gameStateId, choice).flatMap(facade::from))
                 .subscribeOn(schedulerProvider.cpu());
     }
 
     /** Ответить на загадку. */
-    @PostMapping(value = "/riddle/answer", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value = "/riddle/answer", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
     public Mono<GameStateDto> answerRiddle(
             @RequestParam @NotNull Long gameStateId,
             @RequestParam @NotBlank String answer
@@ -51,43 +84,96 @@ public class GameController {
     }
 
     /** Перезапустить игру. */
-    @PostMapping(value = "/restart", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value = "/restart", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
     public Mono<GameStateDto> restart(@RequestParam @NotNull Long gameStateId) {
         return gameService.restartGame(gameStateId)
                 .flatMap(facade::from)
                 .subscribeOn(schedulerProvider.cpu());
     }
 
-    /** Доступные рецепты крафта. */
-    @GetMapping(value = "/{gameStateId}/craft/available", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<CraftDto> availableCrafts(@PathVariable @NotNull Long gameStateId) {
-        return gameService.getAvailableCrafts(gameStateId)
-                .map(r -> new CraftDto(
-                        r.key(),
-                        r.title(),
-                        r.requires(),
-                        new com.example.questgame.dto.ItemDto(
-                                r.result() == null ? "" : r.result().name(),
-                                r.result() == null ? "" : r.result().description()
-                        )
-                ));
+    /** Доступные рецепты крафта (If-None-Match → 304 без чтения инвентаря). */
+    @GetMapping(value = "/{gameStateId}/craft/available", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Flux<PreEncodedCraft>> availableCrafts(@PathVariable @NotNull Long gameStateId,
+                                                                 ServerWebExchange exchange) {
+        return conditional(gameStateId, exchange, Flux.defer(() -> facade.availableCrafts(gameStateId)));
     }
 
-    /** Выполнить крафт. */
+    /** Отменить последние шаги игры (по умолчанию один). */
+    @PostMapping(value = "/{gameStateId}/undo", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public Mono<GameStateDto> undo(@PathVariable @NotNull Long gameStateId,
+                                   @RequestParam(value = "steps", defaultValue = "1") int steps) {
+        return gameService.undo(gameStateId, steps)
+                .flatMap(facade::from)
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    /** Выполнить крафт. Повтор с тем же Idempotency-Key возвращает первый ответ. */
     @PostMapping("/{gameStateId}/craft")
     public Mono<GameStateDto> craft(
             @PathVariable Long gameStateId,
-            @RequestParam("recipeKey") String recipeKey
+            @RequestParam("recipeKey") String recipeKey,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication
     ) {
-        return gameService.craft(gameStateId, recipeKey)
-                .flatMap(facade::from)
+        return idempotency.execute(userOf(authentication), idempotencyKey,
+                        "craft:" + gameStateId + ":" + recipeKey, GameStateDto.class,
+                        () -> gameService.craft(gameStateId, recipeKey).flatMap(facade::from))
                 .subscribeOn(schedulerProvider.cpu());
     }
 
-    /** Получить текущее состояние (полезно фронту для синхронизации). */
-    @GetMapping(value = "/{gameStateId}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<GameStateDto> get(@PathVariable @NotNull Long gameStateId) {
-        return facade.byId(gameStateId)
-                .subscribeOn(schedulerProvider.cpu());
+    /**
+     * Получить текущее состояние (полезно фронту для синхронизации). If-None-Match → 304 без сборки DTO.
+     * Текст сюжета зависит от Accept-Language, поэтому язык входит в ETag — как и формат ответа.
+     */
+    @GetMapping(value = "/{gameStateId}", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Mono<GameStateDto>> get(@PathVariable @NotNull Long gameStateId, ServerWebExchange exchange) {
+        Locale locale = LocaleContextFilter.localeOf(exchange, messages);
+        return ResponseEntity.ok()
+                .eTag(gameVersions.etag(gameStateId, locale.getLanguage() + "-" + representation(exchange)))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_LANGUAGE)
+                .body(Mono.defer(() -> facade.byId(gameStateId, () -> markStale(exchange)))
+                        .subscribeOn(schedulerProvider.cpu()));
+    }
+
+    /** Ответ собран из снимка в памяти: БД недоступна. */
+    static void markStale(ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().set(STALE_HEADER, "true");
+    }
+
+    static String userOf(Authentication authentication) {
+        return authentication == null ? "anonymous" : authentication.getName();
+    }
+
+    /**
+     * Формат, который выберет согласование по Accept среди JSON/CBOR/Smile, — для ETag: у разных
+     * кодировок одного состояния теги должны различаться, иначе кэш отдаст 304 не на тот формат.
+     */
+    static String representation(ServerWebExchange exchange) {
+        List<MediaType> accepted = new ArrayList<>(exchange.getRequest().getHeaders().getAccept());
+        if (accepted.isEmpty()) return REPRESENTATIONS.get(0).getSubtype();
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType a : accepted) {
+            for (MediaType r : REPRESENTATIONS) {
+                if (a.includes(r)) return r.getSubtype();
+            }
+        }
+        return REPRESENTATIONS.get(0).getSubtype();
+    }
+
+    /**
+     * ETag из версии в памяти и формата ответа. Тело ленивое: при совпадении If-None-Match
+     * ResponseEntityResultHandler отвечает 304 и не подписывается на него.
+     */
+    private <T> ResponseEntity<T> conditional(Long gameStateId, ServerWebExchange exchange, T body) {
+        return ResponseEntity.ok()
+                .eTag(gameVersions.etag(gameStateId, representation(exchange)))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
     }
 }
@@ -1,8 +1,10 @@
 package com.example.questgame.controller;
 
+import com.example.questgame.dto.GameSlotDto;
 import com.example.questgame.model.GameState;
 import com.example.questgame.security.JwtService;
 import com.example.questgame.service.GameService;
+import com.example.questgame.service.MessageCatalog;
 import com.example.questgame.service.UserService;
 import org.springframework.http.HttpCookie;
 import org.springframework.security.core.Authentication;
@@ -10,14 +12,19 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ServerWebExchange;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import com.example.questgame.config.LocaleContextFilter;
 import com.example.questgame.config.SchedulerProvider;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
- * Отдаёт страницу игры и наполняет модель данными.
+ * Отдаёт страницу игры и наполняет модель данными (шапка страницы — сразу, данные игры — потоком).
  * Разбито на компактные методы, без if/else на верхнем уровне — используется реактивный стиль.
  */
 @Controller
@@ -27,28 +34,53 @@ public class GameFrontendController {
     private final GameService gameService;
     private final SchedulerProvider schedulerProvider;
     private final UserService userService;
+    private final MessageCatalog messages;
 
-    public GameFrontendController(JwtService jwtService, GameService gameService, UserService userService, SchedulerProvider schedulerProvider) {
+    public GameFrontendController(JwtService jwtService, GameService gameService, UserService userService,
+                                  SchedulerProvider schedulerProvider, MessageCatalog messages) {
         this.jwtService = jwtService;
         this.gameService = gameService;
         this.userService = userService;
         this.schedulerProvider = schedulerProvider;
+        this.messages = messages;
     }
 
+    private static final int SLOTS_ON_PAGE = 20;
+
+    /**
+     * Страница игры в chunked-режиме Thymeleaf: шапка уходит клиенту сразу,
+     * а блок игры рендерится, когда data-driver "game" отдаст данные из БД.
+     */
     @GetMapping("/game")
     public Mono<String> gamePage(Authentication authentication,
                                  ServerWebExchange exchange,
+                                 @RequestParam(value = "slot", required = false) Long slot,
                                  Model model) {
 
         return resolveEmail(authentication, exchange)
-                .flatMap(email -> loadOrCreateState(email)
-                        .flatMap(state -> gameService.getAvailableActionKeys(state)
-                                .map(k -> new ActionView(k, gameService.labelOf(k)))
-                                .collectList()
-                                .map(actions -> prepareGameView(model, email, state, actions))
-                        ).subscribeOn(schedulerProvider.cpu())
-                .switchIfEmpty(Mono.just("redirect:/api/auth/login"))
-                .onErrorResume(e -> Mono.just("redirect:/api/auth/login")));
+                .map(email -> {
+                    model.addAttribute("email", email);
+                    model.addAttribute("game", new ReactiveDataDriverContextVariable(
+                            loadView(email, slot, LocaleContextFilter.localeOf(exchange, messages)), 1));
+                    return "game";
+                })
+                .switchIfEmpty(Mono.just("redirect:/api/auth/login"));
+    }
+
+    /** Данные блока игры; после отправки шапки редирект уже невозможен — отдаём маркер loginRequired. */
+    private Flux<GamePageView> loadView(String email, Long slot, Locale locale) {
+        return userService.findUserIdByEmail(email)
+                .flatMap(userId -> loadOrCreateState(userId, slot)
+                        .flatMap(state -> Mono.zip(
+                                        Flux.fromIterable(gameService.locationOf(state).menu())
+                                                .map(c -> new ActionView(c.key(), c.label()))
+                                                .collectList(),
+                                        gameService.listSlots(userId, null, SLOTS_ON_PAGE))
+                                .map(t -> new GamePageView(state, messages.resolve(state.getPlotProgress(), locale),
+                                        t.getT1(), t.getT2().getItems(), false))))
+                .subscribeOn(schedulerProvider.cpu())
+                .onErrorResume(e -> Mono.just(GamePageView.LOGIN_REQUIRED))
+                .flux();
     }
 
     /** Достаём e-mail из Authentication или из JWT-куки. Пустой Mono, если ничего нет. */
@@ -64,20 +96,20 @@ public class GameFrontendController {
                 ));
     }
 
-    /** Загружаем состояние пользователя или создаём новое. */
-    private Mono<GameState> loadOrCreateState(String email) {
-        return userService.findUserIdByEmail(email)
-                .flatMap(userId -> gameService.getUserGames(userId)
-                        .switchIfEmpty(gameService.createNewGame(userId)));
-    }
-
-    /** Наполняем модель и возвращаем имя шаблона. */
-    private String prepareGameView(Model model, String email, GameState state, java.util.List<ActionView> actions) {
-        model.addAttribute("email", email);
-        model.addAttribute("gameState", state);
-        model.addAttribute("actions", actions);
-        return "game";
+    /** Выбранный слот пользователя; без выбора — последний изменённый или новый. */
+    private Mono<GameState> loadOrCreateState(Long userId, Long slot) {
+        if (slot != null) {
+            return gameService.findOwnedState(userId, slot);
+        }
+        return gameService.getUserGames(userId)
+                .switchIfEmpty(Mono.defer(() -> gameService.createNewGame(userId)));
     }
 
     public record ActionView(String key, String label) {}
+
+    /** plot — текст сюжета на языке запроса (в state.plotProgress лежат коды каталога). */
+    public record GamePageView(GameState state, String plot, List<ActionView> actions, List<GameSlotDto> slots,
+                               boolean loginRequired) {
+        static final GamePageView LOGIN_REQUIRED = new GamePageView(null, "", List.of(), List.of(), true);
+    }
 }
\ No newline at end of file
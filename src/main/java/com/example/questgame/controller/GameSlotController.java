@@ -0,0 +1,65 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.config.SchedulerProvider;
+import com.example.questgame.dto.GameSlotPageDto;
+import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.exception.UnauthorizedException;
+import com.example.questgame.facade.GameDtoFacade;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.UserService;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Слоты сохранений текущего пользователя: список (keyset-пагинация) и создание нового слота.
+ */
+@RestController
+@RequestMapping("/api/games/slots")
+public class GameSlotController {
+
+    private static final int DEFAULT_PAGE = 20;
+
+    private final GameService gameService;
+    private final UserService userService;
+    private final GameDtoFacade facade;
+    private final SchedulerProvider schedulerProvider;
+
+    public GameSlotController(GameService gameService, UserService userService, GameDtoFacade facade,
+                              SchedulerProvider schedulerProvider) {
+        this.gameService = gameService;
+        this.userService = userService;
+        this.facade = facade;
+        this.schedulerProvider = schedulerProvider;
+    }
+
+    /** Страница слотов: id, локация, здоровье, статус — без текста сюжета. */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<GameSlotPageDto> list(Authentication authentication,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE) int limit) {
+        return currentUserId(authentication)
+                .flatMap(userId -> gameService.listSlots(userId, cursor, limit))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    /** Новый слот (новая игра) для текущего пользователя; quest — id пакета квеста, без него — квест по умолчанию. */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<GameStateDto> create(Authentication authentication,
+                                     @RequestParam(value = "quest", required = false) String questId) {
+        return currentUserId(authentication)
+                .flatMap(userId -> gameService.createNewGame(userId, questId))
+                .flatMap(facade::from)
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    private Mono<Long> currentUserId(Authentication authentication) {
+        return Mono.justOrEmpty(authentication)
+                .map(Authentication::getName)
+                .filter(StringUtils::hasText)
+                .switchIfEmpty(Mono.error(new UnauthorizedException("Требуется вход")))
+                .flatMap(userService::findUserIdByEmail);
+    }
+}
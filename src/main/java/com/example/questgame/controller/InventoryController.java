@@ -3,13 +3,23 @@ package com.example.questgame.controller;
 import com.example.questgame.dto.GameStateDto;
 import com.example.questgame.dto.InventoryItemDto;
 import com.example.questgame.facade.GameDtoFacade;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.limit.DatabaseBreaker;
 import com.example.questgame.model.InventoryItem;
 import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.IdempotencyService;
+import com.example.questgame.config.BinaryCodecsConfig;
 import com.example.questgame.config.SchedulerProvider;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -23,27 +33,60 @@ public class InventoryController {
     private final GameService gameService;
     private final GameDtoFacade facade;
     private final SchedulerProvider schedulerProvider;
+    private final GameVersions gameVersions;
+    private final IdempotencyService idempotency;
+    private final LastKnownGood lastKnownGood;
 
-    public InventoryController(GameService gameService, GameDtoFacade facade, SchedulerProvider schedulerProvider) {
+    public InventoryController(GameService gameService, GameDtoFacade facade, SchedulerProvider schedulerProvider,
+                               GameVersions gameVersions, IdempotencyService idempotency, LastKnownGood lastKnownGood) {
         this.gameService = gameService;
         this.facade = facade;
         this.schedulerProvider = schedulerProvider;
+        this.gameVersions = gameVersions;
+        this.idempotency = idempotency;
+        this.lastKnownGood = lastKnownGood;
     }
 
-    @GetMapping(value = "/{gameStateId}/inventory", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<InventoryItemDto> list(@PathVariable @NotNull Long gameStateId) {
-        return gameService.listInventory(gameStateId)
-                .map(InventoryController::toDto)
-                .subscribeOn(schedulerProvider.cpu());
+    /**
+     * Инвентарь; ETag из версии игры в памяти и формата ответа, If-None-Match → 304 без запроса в БД.
+     * БД недоступна — последний прочитанный инвентарь, если игра с тех пор не менялась.
+     */
+    @GetMapping(value = "/{gameStateId}/inventory", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Flux<InventoryItemDto>> list(@PathVariable @NotNull Long gameStateId,
+                                                       ServerWebExchange exchange) {
+        return ResponseEntity.ok()
+                .eTag(gameVersions.etag(gameStateId, GameController.representation(exchange)))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(Flux.defer(() -> {
+                            long version = gameVersions.version(gameStateId);
+                            return gameService.listInventory(gameStateId)
+                                    .map(InventoryController::toDto)
+                                    .collectList()
+                                    .doOnNext(items -> lastKnownGood.rememberInventory(gameStateId, version, items))
+                                    .onErrorResume(DatabaseBreaker::isDatabaseFailure, e -> {
+                                        List<InventoryItemDto> snapshot = lastKnownGood.inventory(gameStateId);
+                                        if (snapshot == null) return Mono.error(e);
+                                        GameController.markStale(exchange);
+                                        return Mono.just(snapshot);
+                                    })
+                                    .flatMapIterable(items -> items);
+                        })
+                        .subscribeOn(schedulerProvider.cpu()));
     }
 
+    /** Использовать предмет. Повтор с тем же Idempotency-Key не тратит предмет второй раз. */
     @PostMapping("/{gameId}/inventory/use")
     public Mono<GameStateDto> use(
             @PathVariable("gameId") Long gameId,
-            @RequestParam("itemId") Long itemId
+            @RequestParam("itemId") Long itemId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication
     ) {
-        return gameService.useItem(gameId, itemId)
-                .flatMap(facade::from)
+        return idempotency.execute(GameController.userOf(authentication), idempotencyKey,
+                        "use:" + gameId + ":" + itemId, GameStateDto.class,
+                        () -> gameService.useItem(gameId, itemId).flatMap(facade::from))
                 .subscribeOn(schedulerProvider.cpu());
     }
 
@@ -0,0 +1,115 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.config.SchedulerProvider;
+import com.example.questgame.dto.PartyDto;
+import com.example.questgame.dto.PartyEventDto;
+import com.example.questgame.exception.UnauthorizedException;
+import com.example.questgame.service.PartyService;
+import com.example.questgame.service.UserService;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Партии: создание, вход/выход, голосование за действия, общие крафт и предметы,
+ * поток событий партии (SSE).
+ */
+@RestController
+@RequestMapping("/api/parties")
+@Validated
+public class PartyController {
+
+    private final PartyService partyService;
+    private final UserService userService;
+    private final SchedulerProvider schedulerProvider;
+
+    public PartyController(PartyService partyService, UserService userService, SchedulerProvider schedulerProvider) {
+        this.partyService = partyService;
+        this.userService = userService;
+        this.schedulerProvider = schedulerProvider;
+    }
+
+    /** Новая партия с новой игрой; quest — id пакета квеста. */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyDto> create(Authentication authentication,
+                                 @RequestParam(value = "quest", required = false) String questId) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.create(userId, questId))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    @GetMapping(value = "/{partyId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyDto> get(Authentication authentication, @PathVariable Long partyId) {
+        return currentUserId(authentication).flatMap(userId -> partyService.get(partyId, userId));
+    }
+
+    @PostMapping(value = "/{partyId}/join", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyDto> join(Authentication authentication, @PathVariable Long partyId) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.join(partyId, userId))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    @PostMapping(value = "/{partyId}/leave", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyDto> leave(Authentication authentication, @PathVariable Long partyId) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.leave(partyId, userId))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    /** Голос за действие: vote с раскладом голосов или state, если набралось большинство. */
+    @PostMapping(value = "/{partyId}/vote", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyEventDto> vote(Authentication authentication, @PathVariable Long partyId,
+                                    @RequestParam("action") @NotBlank String action) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.vote(partyId, userId, action))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    @PostMapping(value = "/{partyId}/craft", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyEventDto> craft(Authentication authentication, @PathVariable Long partyId,
+                                     @RequestParam("recipe") @NotBlank String recipe) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.craft(partyId, userId, recipe))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    @PostMapping(value = "/{partyId}/use", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyEventDto> use(Authentication authentication, @PathVariable Long partyId,
+                                   @RequestParam("itemId") @NotNull Long itemId) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.useItem(partyId, userId, itemId))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    @PostMapping(value = "/{partyId}/riddle/answer", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PartyEventDto> answerRiddle(Authentication authentication, @PathVariable Long partyId,
+                                            @RequestParam("answer") @NotBlank String answer) {
+        return currentUserId(authentication)
+                .flatMap(userId -> partyService.answerRiddle(partyId, userId, answer))
+                .subscribeOn(schedulerProvider.cpu());
+    }
+
+    /** Поток событий партии; id события — его seq. */
+    @GetMapping(value = "/{partyId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PartyEventDto>> events(Authentication authentication, @PathVariable Long partyId) {
+        return currentUserId(authentication)
+                .flatMapMany(userId -> partyService.events(partyId, userId))
+                .map(e -> ServerSentEvent.builder(e).id(String.valueOf(e.getSeq())).event(e.getType()).build());
+    }
+
+    private Mono<Long> currentUserId(Authentication authentication) {
+        return Mono.justOrEmpty(authentication)
+                .map(Authentication::getName)
+                .filter(StringUtils::hasText)
+                .switchIfEmpty(Mono.error(new UnauthorizedException("Требуется вход")))
+                .flatMap(userService::findUserIdByEmail);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.dto.GameStatsDto;
+import com.example.questgame.service.GameStatsService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/** Живая статистика игры для дашбордов (отдаётся из памяти). */
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final GameStatsService statsService;
+
+    public StatsController(GameStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<GameStatsDto> stats() {
+        return Mono.fromSupplier(statsService::snapshot);
+    }
+}
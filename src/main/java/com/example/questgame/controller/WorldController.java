@@ -0,0 +1,39 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.dto.PreEncodedWorldEvent;
+import com.example.questgame.service.WorldEventService;
+import com.example.questgame.service.WorldSnapshot;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Мировые события для игроков: что идёт сейчас и поток объявлений (SSE).
+ */
+@RestController
+@RequestMapping("/api/world")
+public class WorldController {
+
+    private final WorldEventService world;
+
+    public WorldController(WorldEventService world) {
+        this.world = world;
+    }
+
+    /** Идущие сейчас события. */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<PreEncodedWorldEvent> active() {
+        return Flux.defer(() -> Flux.fromIterable(world.snapshot().active(System.currentTimeMillis())))
+                .map(WorldSnapshot.Active::announcement);
+    }
+
+    /** Поток объявлений: имя SSE-события — started/ended, id — версия снимка. */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PreEncodedWorldEvent>> events() {
+        return world.events()
+                .map(e -> ServerSentEvent.builder(e).id(String.valueOf(e.version())).event(e.type()).build());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** Достижение глазами игрока: получено ли, сколько набрано к цели. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AchievementDto {
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("title")
+    private String title;
+
+    @JsonProperty("unlocked")
+    private boolean unlocked;
+
+    @JsonProperty("unlockedAt")
+    private LocalDateTime unlockedAt;
+
+    @JsonProperty("progress")
+    private int progress;
+
+    @JsonProperty("target")
+    private int target;
+}
@@ -0,0 +1,80 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Доменное событие игры для внешних потребителей (аналитика, уведомления, достижения).
+ * id растёт вместе с записью в outbox: доставка «хотя бы раз», повтор отбрасывается по id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameEventDto {
+    /** Любой сохранённый ход: действие, исход, сдвиг здоровья, предметы — строка аналитики. */
+    public static final String STEP = "step";
+    public static final String ITEM_GRANTED = "item_granted";
+    public static final String LOCATION_CHANGED = "location_changed";
+    public static final String PLAYER_DIED = "player_died";
+    public static final String GAME_WON = "game_won";
+
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("gameStateId")
+    private Long gameStateId;
+
+    @JsonProperty("userId")
+    private Long userId;
+
+    @JsonProperty("questId")
+    private String questId;
+
+    /** Действие хода (step): ключ действия, riddle, craft:рецепт, use:предмет, restart. */
+    @JsonProperty("action")
+    private String action;
+
+    /** Код сообщения-исхода (step). */
+    @JsonProperty("outcome")
+    private String outcome;
+
+    @JsonProperty("healthDelta")
+    private Integer healthDelta;
+
+    /** Здоровье после хода (step). */
+    @JsonProperty("health")
+    private Integer health;
+
+    /** Добавленные ходом предметы (step). */
+    @JsonProperty("items")
+    private List<String> items;
+
+    /** Удалённые ходом предметы (step). */
+    @JsonProperty("removed")
+    private List<String> removed;
+
+    /** Выданный предмет (item_granted). */
+    @JsonProperty("item")
+    private String item;
+
+    /** Локация до хода (location_changed; у step — если ход её сменил). */
+    @JsonProperty("from")
+    private String from;
+
+    /** Локация после хода (location_changed, player_died, game_won). */
+    @JsonProperty("location")
+    private String location;
+
+    /** Момент хода, epoch millis. */
+    @JsonProperty("at")
+    private Long at;
+}
@@ -0,0 +1,53 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Одна строка NDJSON-выгрузки: состояние игры вместе с инвентарём. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameExportDto {
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("userId")
+    private Long userId;
+
+    @JsonProperty("currentLocation")
+    private String currentLocation;
+
+    @JsonProperty("plotProgress")
+    private String plotProgress;
+
+    @JsonProperty("health")
+    private Integer health;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("updatedAt")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime updatedAt;
+
+    @JsonProperty("inventory")
+    private List<InventoryItemDto> inventory;
+
+    /** Нет в выгрузках до пакетов квестов — тогда это квест по умолчанию. */
+    @JsonProperty("questId")
+    private String questId;
+
+    @JsonProperty("vars")
+    private String vars;
+
+    @JsonProperty("effects")
+    private String effects;
+}
@@ -0,0 +1,32 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameSlotDto {
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("currentLocation")
+    private String currentLocation;
+
+    @JsonProperty("health")
+    private Integer health;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("updatedAt")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime updatedAt;
+}
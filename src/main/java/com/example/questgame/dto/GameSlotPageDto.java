@@ -0,0 +1,22 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameSlotPageDto {
+    @JsonProperty("items")
+    private List<GameSlotDto> items;
+
+    /** Курсор следующей страницы; null — страниц больше нет. */
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+}
@@ -32,8 +32,8 @@ public class GameStateDto {
     private boolean terminal;
 
     @JsonProperty("riddle")
-    private RiddleDto riddle;
+    private PreEncodedRiddle riddle;
 
     @JsonProperty("crafts")
-    private List<CraftDto> crafts;
+    private List<PreEncodedCraft> crafts;
 }
@@ -0,0 +1,33 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameStatsDto {
+    @JsonProperty("actions")
+    private Map<String, Long> actions;
+
+    @JsonProperty("treasure")
+    private Map<String, Long> treasure;
+
+    @JsonProperty("riddles")
+    private Map<String, Long> riddles;
+
+    @JsonProperty("riddleSuccessRate")
+    private Double riddleSuccessRate;
+
+    @JsonProperty("deaths")
+    private Map<String, Long> deaths;
+
+    @JsonProperty("crafts")
+    private Map<String, Long> crafts;
+}
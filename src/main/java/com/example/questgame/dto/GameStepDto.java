@@ -0,0 +1,32 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Шаг игры в журнале отмены: что изменила команда (для поддержки перед откатом). */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameStepDto {
+    @JsonProperty("step")
+    private Long step;
+
+    @JsonProperty("healthDelta")
+    private Integer healthDelta;
+
+    /** Локация до шага; null — шаг локацию не менял. */
+    @JsonProperty("fromLocation")
+    private String fromLocation;
+
+    @JsonProperty("itemsAdded")
+    private List<String> itemsAdded;
+
+    @JsonProperty("itemsRemoved")
+    private List<String> itemsRemoved;
+}
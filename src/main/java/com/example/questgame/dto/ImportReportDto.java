@@ -0,0 +1,35 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReportDto {
+    @JsonProperty("jobId")
+    private String jobId;
+
+    /** Чекпоинт, с которого продолжили (0 — импорт с начала). */
+    @JsonProperty("resumedAfterId")
+    private Long resumedAfterId;
+
+    @JsonProperty("lastGameId")
+    private Long lastGameId;
+
+    @JsonProperty("games")
+    private long games;
+
+    @JsonProperty("items")
+    private long items;
+
+    @JsonProperty("elapsedMs")
+    private long elapsedMs;
+
+    @JsonProperty("rowsPerSec")
+    private double rowsPerSec;
+}
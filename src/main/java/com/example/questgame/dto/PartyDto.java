@@ -0,0 +1,27 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PartyDto {
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("gameStateId")
+    private Long gameStateId;
+
+    @JsonProperty("leaderId")
+    private Long leaderId;
+
+    @JsonProperty("members")
+    private List<Long> members;
+}
@@ -0,0 +1,43 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Событие партии для подписчиков: type = state (новое состояние игры), vote (голоса за действия)
+ * или members (кто-то вошёл/вышел). state и votes заполнены в зависимости от типа.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PartyEventDto {
+    public static final String STATE = "state";
+    public static final String VOTE = "vote";
+    public static final String MEMBERS = "members";
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("partyId")
+    private Long partyId;
+
+    /** Порядковый номер события в партии: по нему клиент видит, что пропустил промежуточные. */
+    @JsonProperty("seq")
+    private Long seq;
+
+    @JsonProperty("state")
+    private GameStateDto state;
+
+    /** Ключ действия -> голосов. */
+    @JsonProperty("votes")
+    private Map<String, Integer> votes;
+
+    @JsonProperty("members")
+    private Integer members;
+}
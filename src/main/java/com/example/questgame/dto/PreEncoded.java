@@ -0,0 +1,19 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Неизменяемая часть ответа, одинаковая для всех игроков, с заранее сериализованным JSON.
+ * JSON-генератор вставляет готовые байты как есть, бинарные форматы пишут plain().
+ * Реализации — отдельные неизменяемые держатели, а не наследники изменяемых DTO.
+ */
+@JsonSerialize(using = PreEncodedSerializer.class)
+public interface PreEncoded {
+
+    /** Готовый JSON (UTF-8 байты закэшированы внутри SerializableString); null — его нет, пишется plain(). */
+    SerializableString json();
+
+    /** То же значение обычными DTO — для CBOR/Smile и прочих не-JSON генераторов. */
+    Object plain();
+}
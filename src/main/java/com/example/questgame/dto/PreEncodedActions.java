@@ -0,0 +1,41 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/** Список действий локации: неизменяемый, общий для всех ответов, с готовым JSON. */
+public final class PreEncodedActions extends AbstractList<ActionDto> implements PreEncoded, RandomAccess {
+
+    private final List<ActionDto> items;
+    private final SerializedString json;
+
+    public PreEncodedActions(List<ActionDto> items, String json) {
+        this.items = List.copyOf(items);
+        this.json = new SerializedString(json);
+        this.json.asUnquotedUTF8(); // байты кодируются один раз, здесь
+    }
+
+    @Override
+    public ActionDto get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public SerializableString json() {
+        return json;
+    }
+
+    @Override
+    public Object plain() {
+        return items;
+    }
+}
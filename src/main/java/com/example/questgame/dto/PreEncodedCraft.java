@@ -0,0 +1,75 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Рецепт крафта — общий для всех игроков неизменяемый экземпляр с готовым JSON.
+ * Не наследует CraftDto: сеттеров нет, plain() отдаёт копию.
+ */
+public final class PreEncodedCraft implements PreEncoded {
+
+    private final String key;
+    private final String title;
+    private final List<String> requires;
+    private final String resultName;
+    private final String resultDescription;
+    private final SerializedString json;
+
+    /** json == null — готового JSON нет, пишется plain(). */
+    public PreEncodedCraft(CraftDto source, String json) {
+        this.key = source.getKey();
+        this.title = source.getTitle();
+        this.requires = source.getRequires() == null ? List.of() : List.copyOf(source.getRequires());
+        ItemDto result = source.getResult();
+        this.resultName = result == null ? null : result.getName();
+        this.resultDescription = result == null ? null : result.getDescription();
+        this.json = json == null ? null : new SerializedString(json);
+        if (this.json != null) this.json.asUnquotedUTF8();
+    }
+
+    /** Рецепт из ответа сервера (клиенты, тесты). */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static PreEncodedCraft of(CraftDto dto) {
+        return new PreEncodedCraft(dto, null);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String title() {
+        return title;
+    }
+
+    public List<String> requires() {
+        return requires;
+    }
+
+    @Override
+    public SerializableString json() {
+        return json;
+    }
+
+    @Override
+    public Object plain() {
+        ItemDto result = resultName == null && resultDescription == null ? null : new ItemDto(resultName, resultDescription);
+        return new CraftDto(key, title, requires, result);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PreEncodedCraft c && Objects.equals(key, c.key) && Objects.equals(title, c.title)
+                && requires.equals(c.requires) && Objects.equals(resultName, c.resultName)
+                && Objects.equals(resultDescription, c.resultDescription);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, title, requires, resultName, resultDescription);
+    }
+}
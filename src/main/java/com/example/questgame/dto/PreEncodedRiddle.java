@@ -0,0 +1,61 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Загадка — одна на всю игру: общий неизменяемый экземпляр с готовым JSON.
+ * Не наследует RiddleDto: сеттеров нет, наружу отдаются только копии.
+ */
+public final class PreEncodedRiddle implements PreEncoded {
+
+    private final String question;
+    private final List<String> options;
+    private final SerializedString json;
+
+    /** json == null — готового JSON нет, пишется plain(). */
+    public PreEncodedRiddle(String question, List<String> options, String json) {
+        this.question = question;
+        this.options = options == null ? List.of() : List.copyOf(options);
+        this.json = json == null ? null : new SerializedString(json);
+        if (this.json != null) this.json.asUnquotedUTF8();
+    }
+
+    /** Загадка из ответа сервера (клиенты, тесты). */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static PreEncodedRiddle of(RiddleDto dto) {
+        return new PreEncodedRiddle(dto.getQuestion(), dto.getOptions(), null);
+    }
+
+    public String question() {
+        return question;
+    }
+
+    public List<String> options() {
+        return options;
+    }
+
+    @Override
+    public SerializableString json() {
+        return json;
+    }
+
+    @Override
+    public Object plain() {
+        return new RiddleDto(question, options);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PreEncodedRiddle r && Objects.equals(question, r.question) && options.equals(r.options);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(question, options);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Вклеивает готовый JSON фрагментов в ответ без повторной сериализации. Подключён аннотацией
+ * на {@link PreEncoded}, так что работает в любом ObjectMapper без регистрации модуля.
+ */
+public class PreEncodedSerializer extends StdSerializer<PreEncoded> {
+
+    public PreEncodedSerializer() {
+        super(PreEncoded.class);
+    }
+
+    @Override
+    public void serialize(PreEncoded value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        SerializableString json = value.json();
+        // текстовый формат здесь только JSON; CBOR/Smile и TokenBuffer пишут бинарное сами — им plain()
+        if (json != null && !gen.canWriteBinaryNatively()) {
+            gen.writeRawValue(json);
+        } else {
+            provider.defaultSerializeValue(value.plain(), gen);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Мировое событие с готовым JSON: кодируется один раз при публикации, а не на каждого из
+ * тысяч подписчиков. Неизменяемо: plain() отдаёт копию.
+ */
+public final class PreEncodedWorldEvent implements PreEncoded {
+
+    private final WorldEventDto event;
+    private final SerializedString json;
+
+    public PreEncodedWorldEvent(WorldEventDto event, String json) {
+        this.event = new WorldEventDto(event.getType(), event.getName(), event.getMessage(), event.getEndsAt(),
+                event.getVersion());
+        this.json = new SerializedString(json);
+        this.json.asUnquotedUTF8();
+    }
+
+    public String type() {
+        return event.getType();
+    }
+
+    public String name() {
+        return event.getName();
+    }
+
+    public long version() {
+        return event.getVersion();
+    }
+
+    @Override
+    public SerializableString json() {
+        return json;
+    }
+
+    @Override
+    public Object plain() {
+        return new WorldEventDto(event.getType(), event.getName(), event.getMessage(), event.getEndsAt(),
+                event.getVersion());
+    }
+}
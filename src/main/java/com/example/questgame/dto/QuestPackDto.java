@@ -0,0 +1,31 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Пакет квеста в админском списке; title/locations/loadedAt есть только у загруженных пакетов. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestPackDto {
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("title")
+    private String title;
+
+    @JsonProperty("locations")
+    private List<String> locations;
+
+    @JsonProperty("loadedAt")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant loadedAt;
+}
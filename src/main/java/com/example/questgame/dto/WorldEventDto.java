@@ -0,0 +1,36 @@
+package com.example.questgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Мировое событие для всех игроков: type = started (событие началось, endsAt — когда кончится)
+ * или ended. version — номер снимка мировых событий: по нему клиент отбрасывает устаревшее.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorldEventDto {
+    public static final String STARTED = "started";
+    public static final String ENDED = "ended";
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("message")
+    private String message;
+
+    /** Конец события, epoch millis; у ended не заполняется. */
+    @JsonProperty("endsAt")
+    private Long endsAt;
+
+    @JsonProperty("version")
+    private Long version;
+}
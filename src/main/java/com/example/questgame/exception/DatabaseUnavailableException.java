@@ -0,0 +1,12 @@
+package com.example.questgame.exception;
+
+import java.util.Map;
+
+/** БД недоступна (открыт предохранитель или запрос не уложился в срок): повторить позже. */
+public class DatabaseUnavailableException extends GameException {
+    public static final String RETRY_AFTER = "retryAfterSeconds";
+
+    public DatabaseUnavailableException(String message, long retryAfterSeconds) {
+        super(ErrorCode.DB_UNAVAILABLE, message, Map.of(RETRY_AFTER, retryAfterSeconds));
+    }
+}
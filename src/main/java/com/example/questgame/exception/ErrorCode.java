@@ -6,5 +6,8 @@ public enum ErrorCode {
     BUSINESS_RULE_VIOLATION,
     UNAUTHORIZED,
     FORBIDDEN,
+    RATE_LIMITED,
+    OVERLOADED,
+    DB_UNAVAILABLE,
     INTERNAL_ERROR
 }
@@ -2,6 +2,7 @@ package com.example.questgame.exception;
 
 import com.example.questgame.dto.ApiError;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -33,12 +34,15 @@ public class GlobalExceptionHandler {
                 ex.getMessage() != null ? ex.getMessage() : status.getReasonPhrase(),
                 Map.of()
         );
-        if (status.is5xxServerError()) {
+        // недоступная БД — ожидаемый отказ (предохранитель), без стека на каждый запрос
+        if (status.is5xxServerError() && code != ErrorCode.DB_UNAVAILABLE) {
             log.error("GameException @ {} -> {} {}: {}", path, status.value(), code, body.getMessage(), ex);
         } else {
             log.warn("GameException @ {} -> {} {}: {}", path, status.value(), code, body.getMessage());
         }
         exchange.getResponse().setStatusCode(status);
+        Object retryAfter = ex.getDetails().get(DatabaseUnavailableException.RETRY_AFTER);
+        if (retryAfter != null) exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter.toString());
         return Mono.just(body);
     }
 
@@ -127,6 +131,8 @@ public class GlobalExceptionHandler {
             case VALIDATION_FAILED, BUSINESS_RULE_VIOLATION -> HttpStatus.BAD_REQUEST;
             case UNAUTHORIZED -> HttpStatus.UNAUTHORIZED;
             case FORBIDDEN -> HttpStatus.FORBIDDEN;
+            case RATE_LIMITED -> HttpStatus.TOO_MANY_REQUESTS;
+            case OVERLOADED, DB_UNAVAILABLE -> HttpStatus.SERVICE_UNAVAILABLE;
             default -> HttpStatus.INTERNAL_SERVER_ERROR;
         };
     }
@@ -1,82 +1,86 @@
 package com.example.questgame.facade;
 
 import com.example.questgame.dto.*;
+import com.example.questgame.limit.DatabaseBreaker;
 import com.example.questgame.model.GameState;
+import com.example.questgame.quest.QuestPack;
 import com.example.questgame.service.GameService;
+import com.example.questgame.service.MessageCatalog;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 @Component
 public class GameDtoFacade {
 
     private final GameService gameService;
+    private final StaticFragments fragments;
+    private final MessageCatalog messages;
+    private final LastKnownGood lastKnownGood;
 
-    public GameDtoFacade(GameService gameService) {
+    public GameDtoFacade(GameService gameService, StaticFragments fragments, MessageCatalog messages,
+                         LastKnownGood lastKnownGood) {
         this.gameService = gameService;
+        this.fragments = fragments;
+        this.messages = messages;
+        this.lastKnownGood = lastKnownGood;
     }
 
-    /** Построить GameStateDto из сущности, подтянув действия/крафты/загадку. */
+    /**
+     * Построить GameStateDto из сущности, подтянув действия/крафты/загадку.
+     * Действия, загадка и рецепты — общие фрагменты с готовым JSON; заново строятся только поля игрока.
+     * Текст сюжета собирается из кодов на языке запроса (Locale из Reactor Context, см. LocaleContextFilter).
+     */
     public Mono<GameStateDto> from(GameState gs) {
         if (gs == null || gs.getId() == null) {
             return Mono.error(new IllegalArgumentException("GameState is null or has no ID"));
         }
-
         final boolean terminal = gameService.isTerminal(gs);
 
-        final String progress = gs.getPlotProgress() == null ? "" : gs.getPlotProgress();
         final String location = gs.getCurrentLocation() == null ? "Неизвестно" : gs.getCurrentLocation();
 
-        final Mono<List<ActionDto>> actionsMono =
-                terminal ? Mono.just(List.of())
-                        : gameService.getAvailableActionKeys(gs)
-                        .map(k -> new ActionDto(k, gameService.labelOf(k)))
-                        .collectList();
+        final QuestPack pack = gameService.packOf(gs);
+
+        final List<ActionDto> actionsVal =
+                terminal ? List.of() : fragments.actions(pack, pack.locationOf(gs.getCurrentLocation()));
 
-        final RiddleDto riddle =
-                (!terminal && gameService.riddlePromptActive(gs))
-                        ? new RiddleDto(
-                        "Загадка: Что имеет голову, но не имеет тела?",
-                        List.of("сыр", "лук", "капуста")
-                )
-                        : null;
+        final PreEncodedRiddle riddle =
+                (!terminal && gameService.riddlePromptActive(gs)) ? fragments.riddle(pack) : null;
+
+        return Mono.deferContextual(ctx -> gameService.getAvailableCrafts(gs)
+                .collectList()
+                .onErrorReturn(List.of())
+                .defaultIfEmpty(List.of())
+                .map(recipes -> new GameStateDto(
+                        gs.getId(),
+                        messages.resolve(gs.getPlotProgress(), ctx.getOrDefault(Locale.class, MessageCatalog.DEFAULT_LOCALE)),
+                        gs.getHealth(),
+                        location,
+                        actionsVal,
+                        terminal,
+                        riddle,
+                        recipes.stream()
+                                .filter(Objects::nonNull)
+                                .map(r -> fragments.craft(pack, r))
+                                .toList()
+                )));
+    }
 
-        return actionsMono.flatMap(actionsVal ->
-                gameService.getAvailableCrafts(gs.getId())
-                        .collectList()
-                        .onErrorReturn(List.of())
-                        .defaultIfEmpty(List.of())
-                        .map(recipes -> new GameStateDto(
-                                gs.getId(),
-                                progress,
-                                gs.getHealth(),
-                                location,
-                                actionsVal,
-                                terminal,
-                                riddle,
-                                recipes.stream()
-                                        .filter(Objects::nonNull)
-                                        .map(r -> {
-                                            var result = r.result();
-                                            return new CraftDto(
-                                                    r.key(),
-                                                    r.title(),
-                                                    r.requires(),
-                                                    result == null
-                                                            ? new ItemDto("", "")
-                                                            : new ItemDto(
-                                                            result.name(),
-                                                            result.description()
-                                                    )
-                                            );
-                                        })
-                                        .toList()
-                        ))
-        );
+    /** Доступные рецепты игры — общие экземпляры с готовым JSON из пакета её квеста. */
+    public Flux<PreEncodedCraft> availableCrafts(Long gameStateId) {
+        if (gameStateId == null) return Flux.empty();
+        return gameService.findState(gameStateId)
+                .flatMapMany(gs -> {
+                    QuestPack pack = gameService.packOf(gs);
+                    return gameService.getAvailableCrafts(gs).map(r -> fragments.craft(pack, r));
+                })
+                .onErrorResume(e -> Flux.empty());
     }
 
     /** Удобный хелпер для случаев, когда у нас Mono<GameState>. */
@@ -88,6 +92,21 @@ public class GameDtoFacade {
 
     /** Построить DTO по id состояния. */
     public Mono<GameStateDto> byId(Long gameStateId) {
-        return gameService.byId(gameStateId).flatMap(this::from);
+        return byId(gameStateId, () -> { });
+    }
+
+    /**
+     * DTO по id; если БД недоступна, а игра уже отдавалась, — из последнего известного состояния
+     * (onSnapshot вызывается перед этим, например чтобы пометить ответ устаревшим).
+     */
+    public Mono<GameStateDto> byId(Long gameStateId, Runnable onSnapshot) {
+        return gameService.byId(gameStateId)
+                .onErrorResume(DatabaseBreaker::isDatabaseFailure, e -> {
+                    GameState snapshot = lastKnownGood.state(gameStateId);
+                    if (snapshot == null) return Mono.error(e);
+                    onSnapshot.run();
+                    return Mono.just(snapshot);
+                })
+                .flatMap(this::from);
     }
 }
\ No newline at end of file
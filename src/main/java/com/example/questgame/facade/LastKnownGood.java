@@ -0,0 +1,120 @@
+package com.example.questgame.facade;
+
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.limit.DatabaseBreakerProperties;
+import com.example.questgame.model.GameState;
+import com.example.questgame.service.GameVersions;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Последнее удачно прочитанное или записанное состояние игр и их инвентарь — чтобы при недоступной
+ * БД отдавать GET игры и инвентаря из памяти. Состояние запоминает GameService после чтения из БД
+ * и после коммита команды, а не сборка каждого ответа; оно копируется (сущности потом меняются
+ * командами). Инвентарь отдаётся, только если после его чтения игра не менялась (та же версия
+ * {@link GameVersions}): иначе он мог разойтись с состоянием. Держит примерно
+ * app.db-breaker.snapshot-size последних записанных игр; без общих блокировок.
+ */
+@Component
+public class LastKnownGood {
+
+    private record Inventory(long version, List<InventoryItemDto> items) {}
+
+    private final GameVersions versions;
+    private final Recent<GameState> states;
+    private final Recent<Inventory> inventories;
+
+    public LastKnownGood(DatabaseBreakerProperties props, GameVersions versions) {
+        this.versions = versions;
+        this.states = new Recent<>(props.getSnapshotSize());
+        this.inventories = new Recent<>(props.getSnapshotSize());
+    }
+
+    /** Ничего не запоминает — для движка без БД (тесты, воспроизведение трасс). */
+    public static LastKnownGood disabled() {
+        DatabaseBreakerProperties off = new DatabaseBreakerProperties();
+        off.setSnapshotSize(0);
+        return new LastKnownGood(off, null);
+    }
+
+    public void remember(GameState state) {
+        if (state.getId() == null || states.disabled()) return;
+        states.put(state.getId(), copy(state));
+    }
+
+    /** Копия последнего состояния игры; null — его нет. */
+    public GameState state(Long gameStateId) {
+        GameState s = states.get(gameStateId);
+        return s == null ? null : copy(s);
+    }
+
+    /** Запомнить инвентарь, прочитанный при версии игры version (взятой до чтения). */
+    public void rememberInventory(Long gameStateId, long version, List<InventoryItemDto> items) {
+        if (inventories.disabled()) return;
+        inventories.put(gameStateId, new Inventory(version, List.copyOf(items)));
+    }
+
+    /** Инвентарь, если он ещё соответствует версии игры; null — нет или устарел. */
+    public List<InventoryItemDto> inventory(Long gameStateId) {
+        Inventory inv = inventories.get(gameStateId);
+        return inv == null || inv.version() != versions.version(gameStateId) ? null : inv.items();
+    }
+
+    private static GameState copy(GameState s) {
+        GameState c = new GameState();
+        c.setId(s.getId());
+        c.setUserId(s.getUserId());
+        c.setQuestId(s.getQuestId());
+        c.setCurrentLocation(s.getCurrentLocation());
+        c.setPlotProgress(s.getPlotProgress());
+        c.setHealth(s.getHealth());
+        c.setVars(s.getVars());
+        c.setStatus(s.getStatus());
+        c.setEffects(s.getEffects());
+        c.setEffectsDue(s.getEffectsDue());
+        c.setUpdatedAt(s.getUpdatedAt());
+        return c;
+    }
+
+    /**
+     * Ограниченная карта «последних записанных»: у записи — номер записи; сверх max один поток
+     * выбрасывает всё старше последних max/2 записей (проход не чаще раза на max/2 записей).
+     */
+    private static final class Recent<V> {
+        private record Stamped<V>(long stamp, V value) {}
+
+        private final int max;
+        private final AtomicLong writes = new AtomicLong();
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+        private final ConcurrentHashMap<Long, Stamped<V>> map = new ConcurrentHashMap<>();
+
+        Recent(int max) {
+            this.max = Math.max(0, max);
+        }
+
+        boolean disabled() {
+            return max == 0;
+        }
+
+        V get(Long key) {
+            Stamped<V> s = key == null ? null : map.get(key);
+            return s == null ? null : s.value();
+        }
+
+        void put(Long key, V value) {
+            map.put(key, new Stamped<>(writes.incrementAndGet(), value));
+            if (map.size() > max && sweeping.compareAndSet(false, true)) {
+                try {
+                    long threshold = writes.get() - Math.max(1, max / 2);
+                    map.values().removeIf(s -> s.stamp() <= threshold);
+                } finally {
+                    sweeping.set(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.questgame.facade;
+
+import com.example.questgame.dto.ActionDto;
+import com.example.questgame.dto.CraftDto;
+import com.example.questgame.dto.ItemDto;
+import com.example.questgame.dto.PreEncodedActions;
+import com.example.questgame.dto.PreEncodedCraft;
+import com.example.questgame.dto.PreEncodedRiddle;
+import com.example.questgame.dto.RiddleDto;
+import com.example.questgame.quest.QuestPack;
+import com.example.questgame.service.GameService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Части GameStateDto, одинаковые для всех игроков квеста: действия локации, загадка и рецепты крафта.
+ * Собираются и сериализуются в JSON один раз; ответ потом только ссылается на готовый фрагмент.
+ * После перезагрузки пакета квеста фрагмент собирается заново при первом обращении и заменяет старый
+ * под тем же ключом, так что фрагменты прежних версий пакета не копятся. Попадание в кэш — обычный
+ * get() без блокировок; compute — только на промахе или устаревшем источнике.
+ */
+@Component
+public class StaticFragments {
+
+    private final ObjectMapper plainMapper = new ObjectMapper();
+    // ключ — "квест/локация" ("квест/рецепт"); source — из какой версии пакета собран фрагмент
+    private final ConcurrentHashMap<String, Cached<PreEncodedActions>> actions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Cached<PreEncodedRiddle>> riddles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Cached<PreEncodedCraft>> crafts = new ConcurrentHashMap<>();
+
+    /** Действия локации — общий неизменяемый список с готовым JSON. */
+    public List<ActionDto> actions(QuestPack pack, QuestPack.Location location) {
+        return cached(actions, pack.id() + "/" + location.key(), location, () -> build(location));
+    }
+
+    /** Загадка квеста; null — в квесте её нет. */
+    public PreEncodedRiddle riddle(QuestPack pack) {
+        QuestPack.Riddle r = pack.riddle();
+        if (r == null) return null;
+        return cached(riddles, pack.id(), r, () -> new PreEncodedRiddle(r.question(), r.options(),
+                encode(new RiddleDto(r.question(), r.options()))));
+    }
+
+    /** Рецепт квеста; от игрока зависит только то, какие рецепты доступны, а не их содержимое. */
+    public PreEncodedCraft craft(QuestPack pack, GameService.CraftRecipe recipe) {
+        return cached(crafts, pack.id() + "/" + recipe.key(), recipe, () -> buildCraft(recipe));
+    }
+
+    int cachedCrafts() {
+        return crafts.size();
+    }
+
+    private static <T> T cached(ConcurrentHashMap<String, Cached<T>> map, String key, Object source, Supplier<T> build) {
+        Cached<T> c = map.get(key);
+        if (c != null && c.source() == source) return c.value();
+        return map.compute(key, (k, old) -> old != null && old.source() == source ? old
+                : new Cached<>(source, build.get())).value();
+    }
+
+    private PreEncodedCraft buildCraft(GameService.CraftRecipe r) {
+        var result = r.result();
+        CraftDto dto = new CraftDto(r.key(), r.title(), r.requires() == null ? List.of() : r.requires(),
+                result == null ? new ItemDto("", "") : new ItemDto(result.name(), result.description()));
+        return new PreEncodedCraft(dto, encode(dto));
+    }
+
+    private PreEncodedActions build(QuestPack.Location location) {
+        List<ActionDto> items = location.menu().stream()
+                .map(c -> new ActionDto(c.key(), c.label()))
+                .toList();
+        return new PreEncodedActions(items, encode(items));
+    }
+
+    private String encode(Object value) {
+        try {
+            return plainMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось закодировать фрагмент", e);
+        }
+    }
+
+    private record Cached<T>(Object source, T value) {}
+}
@@ -0,0 +1,89 @@
+package com.example.questgame.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Адаптивный лимит параллельных запросов одной группы (градиентный алгоритм по задержке).
+ * Короткое EWMA задержки сравнивается с долгим базисом: пока они близки — лимит растёт на √limit,
+ * когда задержка растёт (БД тормозит, очередь пула копится) — лимит сжимается пропорционально.
+ * Ошибки и 5xx дают мультипликативное снижение (AIMD).
+ */
+public class AdaptiveLimit {
+
+    private static final double SHORT_ALPHA = 0.2;    // ~ последние 10 запросов
+    private static final double LONG_ALPHA = 0.01;    // ~ последние 200 запросов
+    private static final double TOLERANCE = 1.5;      // рост задержки до x1.5 не считается деградацией
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    // меняются только под synchronized onSample
+    private double estimated;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Некорректные границы лимита: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimated = clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) estimated;
+    }
+
+    /** Занять слот; false — группа перегружена, запрос надо отбросить сразу. */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) return false;
+            if (inflight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * Результат запроса.
+     *
+     * @param rttNanos        время обработки
+     * @param dropped         ошибка/5xx — сигнал перегрузки
+     * @param inflightAtStart сколько запросов было в работе при старте этого
+     */
+    public synchronized void onSample(long rttNanos, boolean dropped, int inflightAtStart) {
+        if (dropped) {
+            estimated = Math.max(minLimit, estimated * BACKOFF);
+            limit = (int) estimated;
+            return;
+        }
+        double rtt = Math.max(1, rttNanos);
+        shortRtt = shortRtt == 0 ? rtt : shortRtt + SHORT_ALPHA * (rtt - shortRtt);
+        longRtt = longRtt == 0 ? rtt : longRtt + LONG_ALPHA * (rtt - longRtt);
+        // после восстановления БД базис не должен долго помнить «плохую» задержку
+        if (longRtt > 2 * shortRtt) {
+            longRtt *= 0.95;
+        }
+        // лимит используется меньше чем наполовину — задержка ничего не говорит о пределе
+        if (inflightAtStart < estimated / 2) {
+            return;
+        }
+        double gradient = clamp(TOLERANCE * longRtt / shortRtt, 0.5, 1.0);
+        double next = estimated * gradient + Math.sqrt(estimated);
+        estimated = clamp(estimated * (1 - SMOOTHING) + next * SMOOTHING, minLimit, maxLimit);
+        limit = (int) estimated;
+    }
+
+    public int getLimit() { return limit; }
+    public int getInflight() { return inflight.get(); }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.questgame.limit;
+
+import com.example.questgame.exception.DatabaseUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import io.r2dbc.spi.R2dbcTransientResourceException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Предохранитель БД. Вызовы репозиториев ({@link GuardedRepositories}) идут со сроком; сбои
+ * инфраструктуры (срок вышел, соединение, ресурс) и успехи ложатся в окно последних вызовов.
+ * Когда доля сбоев превышает порог, предохранитель открывается: вызовы отказывают сразу, не занимая
+ * соединения пула и цикл событий. Закрывает его не пользовательский трафик, а пробы SELECT 1 раз
+ * в app.db-breaker.probe-interval — после нескольких удачных подряд.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(DatabaseBreakerProperties.class)
+public class DatabaseBreaker {
+
+    public enum State { CLOSED, OPEN }
+
+    private final DatabaseBreakerProperties props;
+    private final DatabaseClient db;
+    private final Counter rejected;
+    private final Counter failures;
+    // кольцо исходов последних вызовов: true — сбой
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failed;
+    private int probesOk;
+    private volatile State state = State.CLOSED;
+    private volatile Disposable prober;
+
+    public DatabaseBreaker(DatabaseBreakerProperties props, DatabaseClient db, MeterRegistry registry) {
+        this.props = props;
+        this.db = db;
+        this.outcomes = new boolean[Math.max(1, props.getWindow())];
+        Gauge.builder("questgame.db.breaker.open", this, b -> b.isOpen() ? 1 : 0).register(registry);
+        this.rejected = Counter.builder("questgame.db.breaker.rejections").register(registry);
+        this.failures = Counter.builder("questgame.db.breaker.failures").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (prober != null || !props.isEnabled()) return;
+        prober = Flux.interval(props.getProbeInterval(), Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> isOpen() ? probeOnce() : Mono.empty(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable p = prober;
+        if (p != null) p.dispose();
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    /** Вызов репозитория: отказ сразу при открытом предохранителе, иначе со сроком и учётом исхода. */
+    public <T> Mono<T> call(Mono<T> call) {
+        if (!props.isEnabled()) return call;
+        return Mono.defer(() -> isOpen() ? Mono.<T>error(rejection()) : call
+                .timeout(props.getCallTimeout())
+                .doOnSuccess(v -> record(false))
+                .onErrorMap(this::onError));
+    }
+
+    public <T> Flux<T> call(Flux<T> call) {
+        if (!props.isEnabled()) return call;
+        return Flux.defer(() -> isOpen() ? Flux.<T>error(rejection()) : call
+                .timeout(props.getCallTimeout())
+                .doOnComplete(() -> record(false))
+                .onErrorMap(this::onError));
+    }
+
+    /**
+     * Команда (транзакция): при открытом предохранителе — отказ до взятия соединения, иначе общий срок.
+     * Исходы учитывают вложенные вызовы репозиториев; здесь — только истёкший срок (ожидание соединения).
+     */
+    public <T> Mono<T> command(Mono<T> command) {
+        if (!props.isEnabled()) return command;
+        return Mono.defer(() -> isOpen() ? Mono.<T>error(rejection()) : command
+                .timeout(props.getCommandTimeout())
+                .onErrorMap(TimeoutException.class, e -> {
+                    record(true);
+                    return unavailable("БД не ответила за " + props.getCommandTimeout().toMillis() + " мс");
+                }));
+    }
+
+    /** Сбой связи с БД, а не ответ БД (дубликат ключа, ошибка SQL) — её и учитывает предохранитель. */
+    public static boolean isDatabaseFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof DatabaseUnavailableException
+                    || t instanceof TimeoutException
+                    || t instanceof R2dbcTimeoutException
+                    || t instanceof R2dbcNonTransientResourceException
+                    || t instanceof R2dbcTransientResourceException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof TransientDataAccessResourceException
+                    || t instanceof QueryTimeoutException
+                    || t instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Одна проба; пока предохранитель открыт, удачные подряд его закрывают. */
+    Mono<Void> probeOnce() {
+        return probe()
+                .timeout(props.getProbeTimeout())
+                .then(Mono.fromRunnable(this::probeSucceeded))
+                .onErrorResume(e -> {
+                    synchronized (this) {
+                        probesOk = 0;
+                    }
+                    log.debug("db-breaker: проба не прошла: {}", e.toString());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /** Запрос пробы; переопределяется в тестах. */
+    protected Mono<?> probe() {
+        return db.sql("SELECT 1").fetch().first();
+    }
+
+    private synchronized void probeSucceeded() {
+        if (state != State.OPEN) return;
+        if (++probesOk >= Math.max(1, props.getProbeSuccesses())) {
+            state = State.CLOSED;
+            reset();
+            log.info("db-breaker: БД отвечает на пробы, предохранитель закрыт");
+        }
+    }
+
+    private Throwable onError(Throwable e) {
+        if (!isDatabaseFailure(e)) {
+            // БД ответила — связь в порядке
+            record(false);
+            return e;
+        }
+        record(true);
+        if (e instanceof TimeoutException) {
+            return unavailable("БД не ответила за " + props.getCallTimeout().toMillis() + " мс");
+        }
+        return e;
+    }
+
+    private synchronized void record(boolean failure) {
+        if (state == State.OPEN) return;
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) failed--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failed++;
+            failures.increment();
+        }
+        next = (next + 1) % outcomes.length;
+        if (recorded >= Math.min(outcomes.length, props.getMinimumCalls())
+                && failed * 100 >= props.getFailureRatePercent() * recorded) {
+            state = State.OPEN;
+            probesOk = 0;
+            log.warn("db-breaker: {} сбоев из {} последних вызовов, предохранитель открыт", failed, recorded);
+            reset();
+        }
+    }
+
+    private void reset() {
+        next = 0;
+        recorded = 0;
+        failed = 0;
+    }
+
+    private DatabaseUnavailableException rejection() {
+        rejected.increment();
+        return unavailable("БД недоступна, повторите позже");
+    }
+
+    private DatabaseUnavailableException unavailable(String message) {
+        return new DatabaseUnavailableException(message, Math.max(1, props.getProbeInterval().toSeconds()));
+    }
+}
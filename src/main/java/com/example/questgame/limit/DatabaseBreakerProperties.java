@@ -0,0 +1,61 @@
+package com.example.questgame.limit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Предохранитель БД (app.db-breaker.*): сроки запросов, порог открытия и пробы закрытия.
+ */
+@ConfigurationProperties(prefix = "app.db-breaker")
+public class DatabaseBreakerProperties {
+    /** Выключатель: без него запросы идут в БД как есть, без сроков. */
+    private boolean enabled = true;
+    /** Срок одного вызова репозитория (у Flux — до каждого следующего элемента). */
+    private Duration callTimeout = Duration.ofSeconds(2);
+    /** Срок команды целиком, вместе с транзакцией и ожиданием соединения. */
+    private Duration commandTimeout = Duration.ofSeconds(5);
+    /** Сколько последних вызовов учитывать. */
+    private int window = 20;
+    /** Меньше вызовов в окне — не открываться (одна ошибка на старте — ещё не авария). */
+    private int minimumCalls = 10;
+    /** Доля сбоев в окне, %, при которой предохранитель открывается. */
+    private int failureRatePercent = 50;
+    /** Как часто пробовать БД, пока предохранитель открыт. */
+    private Duration probeInterval = Duration.ofSeconds(2);
+    private Duration probeTimeout = Duration.ofSeconds(1);
+    /** Удачных проб подряд для закрытия. */
+    private int probeSuccesses = 2;
+    /** Сколько игр держать в снимке последнего удачного чтения. */
+    private int snapshotSize = 10_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getCallTimeout() { return callTimeout; }
+    public void setCallTimeout(Duration callTimeout) { this.callTimeout = callTimeout; }
+
+    public Duration getCommandTimeout() { return commandTimeout; }
+    public void setCommandTimeout(Duration commandTimeout) { this.commandTimeout = commandTimeout; }
+
+    public int getWindow() { return window; }
+    public void setWindow(int window) { this.window = window; }
+
+    public int getMinimumCalls() { return minimumCalls; }
+    public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+    public int getFailureRatePercent() { return failureRatePercent; }
+    public void setFailureRatePercent(int failureRatePercent) { this.failureRatePercent = failureRatePercent; }
+
+    public Duration getProbeInterval() { return probeInterval; }
+    public void setProbeInterval(Duration probeInterval) { this.probeInterval = probeInterval; }
+
+    public Duration getProbeTimeout() { return probeTimeout; }
+    public void setProbeTimeout(Duration probeTimeout) { this.probeTimeout = probeTimeout; }
+
+    public int getProbeSuccesses() { return probeSuccesses; }
+    public void setProbeSuccesses(int probeSuccesses) { this.probeSuccesses = probeSuccesses; }
+
+    public int getSnapshotSize() { return snapshotSize; }
+    public void setSnapshotSize(int snapshotSize) { this.snapshotSize = snapshotSize; }
+}
@@ -0,0 +1,60 @@
+package com.example.questgame.limit;
+
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Оборачивает репозитории игр и инвентаря и оператор транзакций в {@link DatabaseBreaker}: каждый
+ * Mono/Flux репозитория получает срок и учитывается предохранителем, транзакция команды при открытом
+ * предохранителе отказывает до взятия соединения. Вызывающий код (GameService и др.) не меняется.
+ */
+@Component
+public class GuardedRepositories implements BeanPostProcessor {
+
+    // ленивая ссылка: предохранитель зависит от DatabaseClient, который сам проходит через пост-процессоры
+    private final ObjectProvider<DatabaseBreaker> breaker;
+
+    public GuardedRepositories(ObjectProvider<DatabaseBreaker> breaker) {
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof GameStateRepository) return guard(bean, GameStateRepository.class, false);
+        if (bean instanceof InventoryItemRepository) return guard(bean, InventoryItemRepository.class, false);
+        if (bean instanceof TransactionalOperator) return guard(bean, TransactionalOperator.class, true);
+        return bean;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T guard(Object target, Class<T> type, boolean command) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                if (method.getName().equals("equals")) return proxy == args[0];
+                if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+                if (method.getName().equals("toString")) return "guarded " + target;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            DatabaseBreaker b = breaker.getObject();
+            if (result instanceof Mono<?> mono) return command ? b.command(mono) : b.call(mono);
+            if (result instanceof Flux<?> flux && !command) return b.call(flux);
+            return result;
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.questgame.limit;
+
+/** Группы эндпоинтов со своим адаптивным лимитом. */
+public enum LimitGroup {
+    GAMEPLAY,
+    AUTH,
+    PAGES;
+
+    /** Группа по пути запроса; null — запрос не ограничивается (статика, админка, actuator). */
+    public static LimitGroup of(String path) {
+        if (path.startsWith("/api/games")) return GAMEPLAY;
+        if (path.startsWith("/api/auth/")) return AUTH;
+        return switch (path) {
+            case "/", "/game", "/login", "/register" -> PAGES;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.questgame.limit;
+
+import com.example.questgame.dto.ApiError;
+import com.example.questgame.exception.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Сброс нагрузки для игровых API, авторизации и страниц.
+ * Сначала токен-бакет пользователя (429), затем адаптивный лимит группы (503);
+ * отказ отдаётся сразу, без ожидания в цепочках Reactor и очереди пула R2DBC.
+ * Стоит после Spring Security (-100), чтобы бакет считался по пользователю, а не по IP.
+ */
+@Slf4j
+@Component
+@Order(LoadSheddingFilter.ORDER)
+@EnableConfigurationProperties(LoadSheddingProperties.class)
+public class LoadSheddingFilter implements WebFilter {
+
+    public static final int ORDER = -50;
+
+    private final LoadSheddingProperties props;
+    private final ObjectMapper objectMapper;
+    private final Map<LimitGroup, AdaptiveLimit> limits = new EnumMap<>(LimitGroup.class);
+    private final Map<LimitGroup, Counter> overloaded = new EnumMap<>(LimitGroup.class);
+    private final Map<LimitGroup, Counter> rateLimited = new EnumMap<>(LimitGroup.class);
+    private final UserTokenBuckets buckets;
+
+    public LoadSheddingFilter(LoadSheddingProperties props, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        LoadSheddingProperties.User u = props.getUser();
+        this.buckets = new UserTokenBuckets(u.getBurst(), u.getRatePerSecond(), u.getMaxTracked());
+
+        for (LimitGroup g : LimitGroup.values()) {
+            LoadSheddingProperties.Group cfg = props.group(g);
+            AdaptiveLimit limit = new AdaptiveLimit(cfg.getInitialLimit(), cfg.getMinLimit(), cfg.getMaxLimit());
+            limits.put(g, limit);
+            String tag = g.name().toLowerCase();
+            Gauge.builder("questgame.limiter.limit", limit, AdaptiveLimit::getLimit)
+                    .tag("group", tag).register(registry);
+            Gauge.builder("questgame.limiter.inflight", limit, AdaptiveLimit::getInflight)
+                    .tag("group", tag).register(registry);
+            overloaded.put(g, Counter.builder("questgame.limiter.rejections")
+                    .tag("group", tag).tag("reason", "overloaded").register(registry));
+            rateLimited.put(g, Counter.builder("questgame.limiter.rejections")
+                    .tag("group", tag).tag("reason", "user-rate").register(registry));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!props.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        LimitGroup group = LimitGroup.of(exchange.getRequest().getPath().pathWithinApplication().value());
+        if (group == null) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(clientAddress(exchange))
+                .flatMap(client -> admit(exchange, chain, group, client));
+    }
+
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain, LimitGroup group, String client) {
+        long waitNanos = buckets.tryConsume(client);
+        if (waitNanos > 0) {
+            rateLimited.get(group).increment();
+            long seconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+            return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, ErrorCode.RATE_LIMITED, seconds,
+                    "Слишком много запросов");
+        }
+
+        AdaptiveLimit limit = limits.get(group);
+        if (!limit.tryAcquire()) {
+            overloaded.get(group).increment();
+            log.debug("503 {}: inflight={} limit={}", group, limit.getInflight(), limit.getLimit());
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, ErrorCode.OVERLOADED,
+                    Math.max(1, props.getRetryAfter().toSeconds()), "Сервер перегружен, повторите позже");
+        }
+
+        int inflightAtStart = limit.getInflight();
+        long started = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            limit.release();
+            // клиент ушёл сам — о задержке сервера это ничего не говорит
+            if (signal == SignalType.CANCEL) return;
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean dropped = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            limit.onSample(System.nanoTime() - started, dropped, inflightAtStart);
+        });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, ErrorCode code,
+                              long retryAfterSeconds, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        ApiError body = ApiError.of(exchange.getRequest().getPath().value(), status.value(),
+                status.getReasonPhrase(), code.name(), message, Map.of());
+        try {
+            DataBuffer buffer = response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body));
+            return response.writeWith(Mono.just(buffer));
+        } catch (JsonProcessingException e) {
+            return response.setComplete();
+        }
+    }
+
+    private static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote == null || remote.getAddress() == null ? "anonymous" : remote.getAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.questgame.limit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки сброса нагрузки (app.limits.*).
+ */
+@ConfigurationProperties(prefix = "app.limits")
+public class LoadSheddingProperties {
+    /** Выключатель фильтра целиком. */
+    private boolean enabled = true;
+    /** Значение Retry-After при 503. */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private Group gameplay = new Group(50, 5, 500);
+    private Group auth = new Group(20, 2, 200);
+    private Group pages = new Group(50, 5, 500);
+    private User user = new User();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getRetryAfter() { return retryAfter; }
+    public void setRetryAfter(Duration retryAfter) { this.retryAfter = retryAfter; }
+
+    public Group getGameplay() { return gameplay; }
+    public void setGameplay(Group gameplay) { this.gameplay = gameplay; }
+
+    public Group getAuth() { return auth; }
+    public void setAuth(Group auth) { this.auth = auth; }
+
+    public Group getPages() { return pages; }
+    public void setPages(Group pages) { this.pages = pages; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Group group(LimitGroup g) {
+        return switch (g) {
+            case GAMEPLAY -> gameplay;
+            case AUTH -> auth;
+            case PAGES -> pages;
+        };
+    }
+
+    /** Границы адаптивного лимита одновременных запросов. */
+    public static class Group {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+
+        public Group() {
+        }
+
+        public Group(int initialLimit, int minLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        public int getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+        public int getMinLimit() { return minLimit; }
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+        public int getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+    }
+
+    /** Токен-бакет на пользователя (или IP для анонимных). */
+    public static class User {
+        /** Размер всплеска. */
+        private int burst = 40;
+        /** Устойчивая скорость, запросов в секунду. */
+        private double ratePerSecond = 20;
+        /** Сколько бакетов держать до чистки простаивающих. */
+        private int maxTracked = 100_000;
+
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+
+        public double getRatePerSecond() { return ratePerSecond; }
+        public void setRatePerSecond(double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+
+        public int getMaxTracked() { return maxTracked; }
+        public void setMaxTracked(int maxTracked) { this.maxTracked = maxTracked; }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.questgame.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Токен-бакеты по пользователю: один клиент не может занять весь узел.
+ * Бакеты создаются лениво; когда их становится больше maxTracked, заполненные (простаивающие)
+ * выбрасываются — одним проходом не чаще, чем бакет успевает наполниться, а не на каждом запросе.
+ * Жёсткий предел карты — 2 × maxTracked: новые клиенты сверх него до следующей чистки делят
+ * один общий бакет.
+ */
+public class UserTokenBuckets {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxTracked;
+    private final int hardLimit;
+    private final long sweepIntervalNanos;
+    private final AtomicLong nextSweepAt = new AtomicLong(Long.MIN_VALUE);
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket overflow;
+
+    public UserTokenBuckets(int capacity, double refillPerSecond, int maxTracked) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры бакета: " + capacity + ", " + refillPerSecond);
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / 1e9;
+        this.maxTracked = maxTracked;
+        this.hardLimit = (int) Math.min(Integer.MAX_VALUE, 2L * Math.max(1, maxTracked));
+        // за это время любой нетронутый бакет наполняется и становится кандидатом на вытеснение
+        this.sweepIntervalNanos = (long) Math.ceil(capacity / tokensPerNano);
+        this.overflow = new Bucket(capacity, System.nanoTime());
+    }
+
+    /** 0 — токен взят; иначе через сколько наносекунд появится следующий. */
+    public long tryConsume(String key) {
+        return tryConsume(key, System.nanoTime());
+    }
+
+    long tryConsume(String key, long now) {
+        Bucket b = buckets.get(key);
+        if (b == null) {
+            if (buckets.size() > maxTracked) maybeEvictIdle(now);
+            b = buckets.size() < hardLimit ? buckets.computeIfAbsent(key, k -> new Bucket(capacity, now)) : overflow;
+        }
+        synchronized (b) {
+            b.refill(now);
+            if (b.tokens >= 1) {
+                b.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - b.tokens) / tokensPerNano);
+        }
+    }
+
+    int tracked() {
+        return buckets.size();
+    }
+
+    /** Проход по карте — только одному потоку и не чаще раза в sweepIntervalNanos. */
+    private void maybeEvictIdle(long now) {
+        long next = nextSweepAt.get();
+        if (now < next || !nextSweepAt.compareAndSet(next, now + sweepIntervalNanos)) return;
+        buckets.entrySet().removeIf(e -> {
+            Bucket b = e.getValue();
+            synchronized (b) {
+                b.refill(now);
+                return b.tokens >= capacity;
+            }
+        });
+    }
+
+    private final class Bucket {
+        double tokens;
+        long refilledAt;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        void refill(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+                refilledAt = now;
+            }
+        }
+    }
+}
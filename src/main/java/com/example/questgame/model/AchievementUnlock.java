@@ -0,0 +1,6 @@
+package com.example.questgame.model;
+
+import java.time.LocalDateTime;
+
+/** Строка achievements: игрок получил достижение. */
+public record AchievementUnlock(Long userId, String achievementId, LocalDateTime unlockedAt) {}
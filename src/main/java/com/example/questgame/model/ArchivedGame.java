@@ -0,0 +1,30 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Игра в холодном архиве: вся игра (состояние + инвентарь) — один сжатый blob.
+ * Поля для списка слотов дублируются открыто, чтобы список не распаковывал payload.
+ */
+@Data
+@Table("game_archive")
+public class ArchivedGame {
+    @Id
+    @Column("game_id")
+    private Long gameId;
+
+    private Long userId;
+    private String currentLocation;
+    private int health;
+    private String status;
+    private LocalDateTime updatedAt;
+    private LocalDateTime archivedAt;
+
+    /** gzip(JSON GameExportDto). */
+    private byte[] payload;
+}
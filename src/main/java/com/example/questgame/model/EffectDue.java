@@ -0,0 +1,4 @@
+package com.example.questgame.model;
+
+/** Проекция game_states для восстановления расписания эффектов: игра и момент досчёта. */
+public record EffectDue(Long id, Long effectsDue) {}
@@ -0,0 +1,22 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/** Агрегированный счётчик игровой статистики (metric + key -> value). */
+@Data
+@Table("game_stats")
+public class GameStat {
+    @Id
+    private Long id;
+
+    private String metric;
+
+    @Column("stat_key")
+    private String statKey;
+
+    @Column("stat_value")
+    private long statValue;
+}
@@ -4,13 +4,26 @@ import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.time.LocalDateTime;
+
 @Data
 @Table("game_states")
 public class GameState {
     @Id
     private Long id;
     private Long userId;
+    /** id пакета квеста (classpath:quests/&lt;id&gt;.json); граф локаций берётся из него. */
+    private String questId;
     private String currentLocation;
     private String plotProgress;
     private int health;
-}
\ No newline at end of file
+    /** Флаги и счётчики правил квеста ({@link com.example.questgame.quest.QuestVars}); null — нет. */
+    private String vars;
+    /** {@link GameStatus} — дублирует вывод из сюжета, чтобы список слотов не читал plot_progress. */
+    private String status;
+    /** Эффекты времени ({@link com.example.questgame.quest.TimedEffects}); null — нет. */
+    private String effects;
+    /** Когда строку нужно досчитать по эффектам (epoch millis); null — не нужно. */
+    private Long effectsDue;
+    private LocalDateTime updatedAt;
+}
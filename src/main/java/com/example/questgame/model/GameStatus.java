@@ -0,0 +1,8 @@
+package com.example.questgame.model;
+
+/** Статус партии (хранится строкой в game_states.status). */
+public enum GameStatus {
+    ACTIVE,
+    WON,
+    DEAD
+}
@@ -0,0 +1,6 @@
+package com.example.questgame.model;
+
+import java.time.LocalDateTime;
+
+/** Лёгкая проекция game_states для списка слотов (без plot_progress). */
+public record GameSummary(Long id, String currentLocation, int health, String status, LocalDateTime updatedAt) {}
@@ -0,0 +1,23 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/** Ответ на POST-команду по ключу "пользователь:Idempotency-Key"; response == null — ещё выполняется. */
+@Data
+@Table("idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    @Column("record_key")
+    private String recordKey;
+
+    private String fingerprint;
+    private String response;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/** Чекпоинт NDJSON-импорта: всё с id <= lastGameId уже записано. */
+@Data
+@Table("import_checkpoints")
+public class ImportCheckpoint {
+    @Id
+    @Column("job_id")
+    private String jobId;
+
+    @Column("last_game_id")
+    private Long lastGameId;
+
+    private long games;
+    private long items;
+    private LocalDateTime updatedAt;
+}
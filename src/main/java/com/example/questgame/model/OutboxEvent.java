@@ -0,0 +1,20 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/** Доменное событие игры в outbox: пишется в одной транзакции с изменением состояния. */
+@Data
+@Table("outbox_events")
+public class OutboxEvent {
+    @Id
+    private Long id;
+    private Long gameStateId;
+    private String eventType;
+    /** GameEventDto в JSON (без id — id даёт сама строка). */
+    private String payload;
+    private LocalDateTime createdAt;
+}
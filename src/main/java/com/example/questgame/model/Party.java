@@ -0,0 +1,19 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/** Партия: несколько игроков ведут одну игру (game_states) с общим инвентарём. */
+@Data
+@Table("parties")
+public class Party {
+    @Id
+    private Long id;
+    private Long gameStateId;
+    /** Создатель; ему принадлежит game_states.user_id. */
+    private Long leaderId;
+    private LocalDateTime createdAt;
+}
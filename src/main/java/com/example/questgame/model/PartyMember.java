@@ -0,0 +1,17 @@
+package com.example.questgame.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Table("party_members")
+public class PartyMember {
+    @Id
+    private Long id;
+    private Long partyId;
+    private Long userId;
+    private LocalDateTime joinedAt;
+}
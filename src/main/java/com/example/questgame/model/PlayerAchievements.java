@@ -0,0 +1,7 @@
+package com.example.questgame.model;
+
+/**
+ * Строка achievement_progress: прогресс игрока ({@link com.example.questgame.achievement.AchievementProgress})
+ * и id последнего учтённого события outbox.
+ */
+public record PlayerAchievements(Long userId, long lastEventId, String progress) {}
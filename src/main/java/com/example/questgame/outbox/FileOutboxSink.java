@@ -0,0 +1,69 @@
+package com.example.questgame.outbox;
+
+import com.example.questgame.dto.GameEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Локальный приёмник для тестов и отладки: каждое событие — строка JSON в конце файла.
+ * Батч дописывается и сбрасывается на диск до ответа relay, так что повтор даст дубль, но не потерю.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Path file;
+
+    public FileOutboxSink(Path file) {
+        this.file = file;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public Mono<Void> publish(List<GameEventDto> batch) {
+        return Mono.fromRunnable(() -> {
+                    synchronized (this) {
+                        append(file, batch);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /** Прочитать записанные события (в порядке доставки, с повторами). */
+    public static List<GameEventDto> read(Path file) throws IOException {
+        List<GameEventDto> out = new ArrayList<>();
+        if (!Files.exists(file)) return out;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) out.add(JSON.readValue(line, GameEventDto.class));
+        }
+        return out;
+    }
+
+    /** Дописать события строками JSON и дождаться записи на диск. */
+    public static void append(Path file, List<GameEventDto> batch) {
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC)) {
+            for (GameEventDto e : batch) {
+                w.write(JSON.writeValueAsString(e));
+                w.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.questgame.outbox;
+
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.model.OutboxEvent;
+import com.example.questgame.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись доменных событий рядом с изменением состояния: команда GameService идёт в одной
+ * R2DBC-транзакции, и события фиксируются (или откатываются) вместе с game_states и инвентарём.
+ * Во внешние системы их отдаёт {@link OutboxRelay} — на пути запроса двойной записи нет.
+ */
+@Component
+public class GameOutbox {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final OutboxRepository repository;
+    private final TransactionalOperator tx;
+
+    public GameOutbox(OutboxRepository repository, TransactionalOperator tx) {
+        this.repository = repository;
+        this.tx = tx;
+    }
+
+    /** Без таблицы и транзакций: воспроизведение трасс и движок на хранилище в памяти. */
+    public static GameOutbox disabled() {
+        return new GameOutbox(null, null);
+    }
+
+    /** Выполнить команду в одной транзакции (без менеджера транзакций — как есть). */
+    public <T> Mono<T> transactional(Mono<T> command) {
+        return tx == null ? command : tx.transactional(command);
+    }
+
+    /** Дописать события хода; вызывать внутри {@link #transactional}. */
+    public Mono<Void> append(List<GameEventDto> events) {
+        if (repository == null || events.isEmpty()) return Mono.empty();
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> rows = new ArrayList<>(events.size());
+        for (GameEventDto e : events) {
+            OutboxEvent row = new OutboxEvent();
+            row.setGameStateId(e.getGameStateId());
+            row.setEventType(e.getType());
+            row.setPayload(encode(e));
+            row.setCreatedAt(now);
+            rows.add(row);
+        }
+        // по одной вставке подряд: id outbox повторяет порядок событий хода
+        return repository.saveAll(rows).then();
+    }
+
+    static String encode(GameEventDto e) {
+        try {
+            return JSON.writeValueAsString(e);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Не удалось закодировать событие " + e.getType(), ex);
+        }
+    }
+
+    static GameEventDto decode(OutboxEvent row) throws JsonProcessingException {
+        GameEventDto e = JSON.readValue(row.getPayload(), GameEventDto.class);
+        e.setId(row.getId());
+        return e;
+    }
+}
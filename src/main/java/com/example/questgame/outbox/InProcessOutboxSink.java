@@ -0,0 +1,45 @@
+package com.example.questgame.outbox;
+
+import com.example.questgame.dto.GameEventDto;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Потребители событий внутри процесса. Обработчик вызывается по одному событию, следующее — после
+ * завершения его Mono; ошибка любого обработчика возвращает батч в outbox для всех (повтор по id).
+ */
+@Component
+public class InProcessOutboxSink implements OutboxSink {
+
+    private record Consumer(String name, Function<GameEventDto, Mono<Void>> handler) {}
+
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+    /** Подписать обработчик; dispose() отписывает. */
+    public Disposable subscribe(String name, Function<GameEventDto, Mono<Void>> handler) {
+        Consumer c = new Consumer(name, handler);
+        consumers.add(c);
+        return () -> consumers.remove(c);
+    }
+
+    public int consumerCount() {
+        return consumers.size();
+    }
+
+    @Override
+    public Mono<Void> publish(List<GameEventDto> batch) {
+        if (consumers.isEmpty()) return Mono.empty();
+        return Flux.fromIterable(batch)
+                .concatMap(e -> Flux.fromIterable(consumers)
+                        .concatMap(c -> Mono.defer(() -> c.handler().apply(e))
+                                .onErrorMap(err -> new IllegalStateException(
+                                        "outbox: потребитель " + c.name() + " не принял событие " + e.getId(), err))))
+                .then();
+    }
+}
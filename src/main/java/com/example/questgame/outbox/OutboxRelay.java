@@ -0,0 +1,150 @@
+package com.example.questgame.outbox;
+
+import com.example.questgame.config.OutboxProperties;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.model.OutboxEvent;
+import com.example.questgame.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay outbox: по таймеру забирает самые старые события батчами, отдаёт их всем приёмникам по очереди
+ * и только потом удаляет. Упал приёмник или процесс между публикацией и удалением — батч уйдёт повторно
+ * (доставка «хотя бы раз»). Порядок внутри игры держится порядком id: ходы одной игры не пересекаются,
+ * а строка, закоммиченная позже соседей с большим id, остаётся в таблице и уйдёт следующим разбором.
+ * Рассчитан на один relay на базу: два экземпляра выдали бы одни и те же события дважды.
+ * <p>
+ * Метрики: questgame.outbox.lag (возраст самого старого недоставленного события, мс),
+ * questgame.outbox.pending, questgame.outbox.delivered, questgame.outbox.failures.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxProperties props;
+    private final OutboxRepository repository;
+    private final List<OutboxSink> sinks;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter delivered;
+    private final Counter failures;
+    private volatile Disposable task;
+
+    public OutboxRelay(OutboxProperties props, OutboxRepository repository, List<OutboxSink> sinks,
+                       MeterRegistry registry) {
+        this.props = props;
+        this.repository = repository;
+        this.sinks = List.copyOf(sinks);
+        Gauge.builder("questgame.outbox.lag", lagMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .description("Возраст самого старого недоставленного события outbox")
+                .register(registry);
+        Gauge.builder("questgame.outbox.pending", pending, AtomicLong::get)
+                .description("Недоставленных событий outbox на последнем разборе")
+                .register(registry);
+        this.delivered = Counter.builder("questgame.outbox.delivered").register(registry);
+        this.failures = Counter.builder("questgame.outbox.failures").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (task != null || !props.isEnabled()) return;
+        task = Flux.interval(props.getPollInterval(), props.getPollInterval(), Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> drain().onErrorResume(e -> Mono.empty()), 1)
+                .subscribe();
+        log.info("outbox: relay запущен, приёмников {}", sinks.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable t = task;
+        if (t != null) t.dispose();
+    }
+
+    /**
+     * Разобрать хвост до конца: батч за батчем, пока приходят полные. Возвращает число доставленных;
+     * ошибка приёмника останавливает разбор, недоставленный батч остаётся в таблице.
+     */
+    public Mono<Long> drain() {
+        int batchSize = Math.max(1, props.getBatchSize());
+        return relayBatch(batchSize)
+                .expand(n -> n < batchSize ? Mono.empty() : relayBatch(batchSize))
+                .reduce(0L, Long::sum)
+                .flatMap(n -> repository.count()
+                        .doOnNext(left -> {
+                            pending.set(left);
+                            if (left == 0) lagMillis.set(0);
+                        })
+                        .thenReturn(n))
+                .doOnError(e -> {
+                    failures.increment();
+                    log.warn("outbox: доставка не удалась, батч будет повторён: {}", e.toString());
+                });
+    }
+
+    public long lagMillis() {
+        return lagMillis.get();
+    }
+
+    public long pending() {
+        return pending.get();
+    }
+
+    private Mono<Long> relayBatch(int batchSize) {
+        return repository.findBatch(batchSize)
+                .collectList()
+                .flatMap(rows -> {
+                    if (rows.isEmpty()) {
+                        lagMillis.set(0);
+                        return Mono.just(0L);
+                    }
+                    lagMillis.set(ageMillis(rows.get(0)));
+                    List<GameEventDto> batch = decode(rows);
+                    List<Long> ids = rows.stream().map(OutboxEvent::getId).toList();
+                    return Flux.fromIterable(sinks)
+                            .concatMap(sink -> sink.publish(batch))
+                            .then(repository.deleteAllById(ids))
+                            .then(Mono.fromCallable(() -> {
+                                delivered.increment(rows.size());
+                                return (long) rows.size();
+                            }));
+                });
+    }
+
+    /** Битая строка не должна держать очередь: она пропускается с ошибкой в логе и удаляется с батчем. */
+    private static List<GameEventDto> decode(List<OutboxEvent> rows) {
+        List<GameEventDto> out = new ArrayList<>(rows.size());
+        for (OutboxEvent row : rows) {
+            try {
+                out.add(GameOutbox.decode(row));
+            } catch (Exception e) {
+                log.error("outbox: событие id={} не разобрано и пропущено: {}", row.getId(), e.toString());
+            }
+        }
+        return out;
+    }
+
+    private static long ageMillis(OutboxEvent row) {
+        if (row.getCreatedAt() == null) return 0;
+        return Math.max(0, Duration.between(row.getCreatedAt(), LocalDateTime.now()).toMillis());
+    }
+}
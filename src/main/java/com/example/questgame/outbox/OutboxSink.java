@@ -0,0 +1,15 @@
+package com.example.questgame.outbox;
+
+import com.example.questgame.dto.GameEventDto;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Приёмник событий outbox. Батч приходит в порядке записи (внутри игры — в порядке ходов);
+ * ошибка публикации — батч придёт ещё раз целиком, поэтому приёмник должен терпеть повторы по id.
+ */
+public interface OutboxSink {
+
+    Mono<Void> publish(List<GameEventDto> batch);
+}
@@ -0,0 +1,10 @@
+package com.example.questgame.quest;
+
+/** Скомпилированное условие исхода ({@link RuleCompiler#condition}). */
+@FunctionalInterface
+public interface Condition {
+
+    Condition ALWAYS = ctx -> true;
+
+    boolean test(RuleContext ctx);
+}
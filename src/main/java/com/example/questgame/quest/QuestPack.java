@@ -0,0 +1,369 @@
+package com.example.questgame.quest;
+
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.PlotText;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Проверенный и неизменяемый пакет квеста: граф локаций с действиями и исходами, предметы,
+ * рецепты, загадка. Один экземпляр на пакет разделяют все игры этого квеста; горячая перезагрузка
+ * строит новый экземпляр, а команды, начатые на старом, спокойно доигрывают на нём.
+ * Коды сообщений заранее упакованы в PlotText — в горячем пути строки не собираются.
+ */
+public final class QuestPack {
+
+    private final String id;
+    private final String title;
+    private final Instant loadedAt;
+    private final Location start;
+    private final int startHealth;
+    private final String startText;
+    private final int maxHealth;
+    private final Map<String, Location> locations;
+    private final Map<String, Location> byName;
+    private final Map<String, String> normalizer;
+    private final Map<String, Use> uses;
+    private final Map<String, GameService.CraftRecipe> recipes;
+    private final Riddle riddle;
+    private final Map<String, Map<String, String>> messages;
+
+    private QuestPack(String id, String title, Location start, int startHealth, String startText, int maxHealth,
+                      Map<String, Location> locations, Map<String, String> normalizer, Map<String, Use> uses,
+                      Map<String, GameService.CraftRecipe> recipes, Riddle riddle,
+                      Map<String, Map<String, String>> messages) {
+        this.id = id;
+        this.title = title;
+        this.loadedAt = Instant.now();
+        this.start = start;
+        this.startHealth = startHealth;
+        this.startText = startText;
+        this.maxHealth = maxHealth;
+        this.locations = locations;
+        Map<String, Location> names = new HashMap<>();
+        for (Location l : locations.values()) names.put(l.name().toLowerCase(Locale.ROOT), l);
+        this.byName = Map.copyOf(names);
+        this.normalizer = normalizer;
+        this.uses = uses;
+        this.recipes = recipes;
+        this.riddle = riddle;
+        this.messages = messages;
+    }
+
+    public String id() { return id; }
+    public String title() { return title; }
+    public Instant loadedAt() { return loadedAt; }
+    public Location start() { return start; }
+    public int startHealth() { return startHealth; }
+    /** Стартовое сообщение (уже в формате PlotText). */
+    public String startText() { return startText; }
+    public int maxHealth() { return maxHealth; }
+    public Map<String, Location> locations() { return locations; }
+    public Map<String, GameService.CraftRecipe> recipes() { return recipes; }
+    /** null — в квесте нет загадки. */
+    public Riddle riddle() { return riddle; }
+    public Map<String, Map<String, String>> messages() { return messages; }
+
+    /**
+     * Локация по названию из game_states: точное совпадение, затем вхождение (старые записи
+     * вроде «тёмный лес»), иначе стартовая.
+     */
+    public Location locationOf(String storedName) {
+        if (storedName == null) return start;
+        String s = storedName.toLowerCase(Locale.ROOT);
+        Location exact = byName.get(s);
+        if (exact != null) return exact;
+        for (Location l : locations.values()) {
+            if (s.contains(l.nameLower)) return l;
+        }
+        return start;
+    }
+
+    public Location location(String key) {
+        return locations.get(key);
+    }
+
+    /** Ключ действия по вводу игрока (ключ или синоним, без учёта регистра); null — не распознано. */
+    public String normalize(String raw) {
+        return raw == null ? null : normalizer.get(raw.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /** Эффект применения предмета по имени (lower-case); null — предмет квесту неизвестен. */
+    public Use useOf(String itemNameLower) {
+        return uses.get(itemNameLower);
+    }
+
+    // ==========================
+    //          Граф
+    // ==========================
+
+    /** Пункт меню локации. */
+    public record Choice(String key, String label) {}
+
+    public static final class Location {
+        private final String key;
+        private final String name;
+        private final String nameLower;
+        private final List<String> actionKeys;
+        private final List<Choice> menu;
+        private final Map<String, Action> actions;
+
+        private Location(String key, String name, List<Choice> menu, Map<String, Action> actions) {
+            this.key = key;
+            this.name = name;
+            this.nameLower = name.toLowerCase(Locale.ROOT);
+            this.menu = List.copyOf(menu);
+            this.actionKeys = menu.stream().map(Choice::key).toList();
+            this.actions = Map.copyOf(actions);
+        }
+
+        public String key() { return key; }
+        /** Название для game_states.current_location. */
+        public String name() { return name; }
+        /** Ключи действий — один неизменяемый список на локацию. */
+        public List<String> actionKeys() { return actionKeys; }
+        public List<Choice> menu() { return menu; }
+
+        /** null — действия в этой локации нет. */
+        public Action action(String key) {
+            return actions.get(key);
+        }
+    }
+
+    public static final class Action {
+        private final int roll;
+        private final long cooldown;
+        private final List<Outcome> outcomes;
+
+        private Action(int roll, long cooldown, List<Outcome> outcomes) {
+            this.roll = roll;
+            this.cooldown = cooldown;
+            this.outcomes = List.copyOf(outcomes);
+        }
+
+        /** Границы броска кубика; 0 — действие без случайности. */
+        public int roll() { return roll; }
+
+        /** Перезарядка после исхода, мс; 0 — нет. */
+        public long cooldown() { return cooldown; }
+
+        /** Первый исход, чьё условие выполнено; null — ни один не подошёл. */
+        public Outcome choose(RuleContext ctx) {
+            for (Outcome o : outcomes) {
+                if (o.when().test(ctx)) return o;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * message — уже упакованный PlotText; moveTo — ключ локации или null (остаться);
+     * remove — имена предметов в нижнем регистре; vars — изменения флагов и счётчиков по порядку;
+     * timed — эффекты времени (яд, баффы).
+     */
+    public record Outcome(Condition when, String message, int health, String moveTo,
+                          List<GameService.Item> grant, List<String> remove, List<QuestVars.Op> vars,
+                          List<TimedEffects.Op> timed) {}
+
+    /** message — упакованный PlotText; consume — предмет исчезает после применения; timed — эффекты времени. */
+    public record Use(String message, int health, boolean consume, List<TimedEffects.Op> timed) {}
+
+    /** prompt — код вопроса (по нему видно, что загадка задана); correct/wrong — упакованный PlotText. */
+    public record Riddle(String locationKey, String prompt, String question, List<String> options,
+                         String answerLower, GameService.Item reward, int penalty, String correct, String wrong) {}
+
+    // ==========================
+    //     Сборка и проверка
+    // ==========================
+
+    /** Проверить описание и собрать пакет; ошибка — ValidationException с указанием места. */
+    public static QuestPack compile(QuestPackDef def) {
+        if (def == null || blank(def.id())) throw invalid("?", "нет id");
+        String id = def.id();
+        if (!id.matches("[a-z0-9_-]{1,32}")) throw invalid(id, "id должен быть [a-z0-9_-]{1,32}");
+
+        Map<String, GameService.Item> items = new HashMap<>();
+        Map<String, Use> uses = new HashMap<>();
+        for (Map.Entry<String, QuestPackDef.ItemDef> e : nz(def.items()).entrySet()) {
+            QuestPackDef.ItemDef it = e.getValue();
+            if (it == null || blank(it.name())) throw invalid(id, "у предмета " + e.getKey() + " нет name");
+            items.put(e.getKey(), new GameService.Item(it.name(), it.description() == null ? "" : it.description()));
+            if (it.use() != null) {
+                if (blank(it.use().message())) throw invalid(id, "у применения " + e.getKey() + " нет message");
+                uses.putIfAbsent(it.name().toLowerCase(Locale.ROOT), new Use(PlotText.of(it.use().message()),
+                        nz(it.use().health()), Boolean.TRUE.equals(it.use().consume()),
+                        useEffects(id, "применение " + e.getKey(), it.use().effects())));
+            }
+        }
+
+        Map<String, String> normalizer = new HashMap<>();
+        Map<String, String> labels = new HashMap<>();
+        for (Map.Entry<String, QuestPackDef.ActionDef> e : nz(def.actions()).entrySet()) {
+            String key = e.getKey();
+            QuestPackDef.ActionDef a = e.getValue();
+            labels.put(key, a == null || blank(a.label()) ? key : a.label());
+            normalizer.putIfAbsent(key.toLowerCase(Locale.ROOT), key);
+            if (a != null && a.synonyms() != null) {
+                for (String syn : a.synonyms()) normalizer.putIfAbsent(syn.toLowerCase(Locale.ROOT), key);
+            }
+        }
+
+        Map<String, QuestPackDef.LocationDef> locDefs = nz(def.locations());
+        if (locDefs.isEmpty()) throw invalid(id, "нет локаций");
+        Map<String, Location> locations = new LinkedHashMap<>();
+        for (Map.Entry<String, QuestPackDef.LocationDef> e : locDefs.entrySet()) {
+            String where = "локация " + e.getKey();
+            QuestPackDef.LocationDef ld = e.getValue();
+            if (ld == null || blank(ld.name())) throw invalid(id, where + ": нет name");
+            List<Choice> menu = new ArrayList<>();
+            Map<String, Action> actions = new HashMap<>();
+            for (Map.Entry<String, QuestPackDef.ChoiceDef> c : nz(ld.actions()).entrySet()) {
+                String key = c.getKey();
+                if (!labels.containsKey(key)) throw invalid(id, where + ": действие " + key + " не описано в actions");
+                QuestPackDef.ChoiceDef cd = c.getValue();
+                if (cd == null || cd.outcomes() == null || cd.outcomes().isEmpty()) {
+                    throw invalid(id, where + ": у действия " + key + " нет исходов");
+                }
+                List<Outcome> outcomes = new ArrayList<>();
+                for (QuestPackDef.OutcomeDef o : cd.outcomes()) {
+                    outcomes.add(outcome(id, where + "/" + key, o, items, locDefs.keySet()));
+                }
+                long cooldown;
+                try {
+                    cooldown = blank(cd.cooldown()) ? 0 : RuleCompiler.duration(cd.cooldown());
+                } catch (IllegalArgumentException ex) {
+                    throw invalid(id, where + "/" + key + ": cooldown " + ex.getMessage());
+                }
+                menu.add(new Choice(key, labels.get(key)));
+                actions.put(key, new Action(Math.max(0, nz(cd.roll())), cooldown, outcomes));
+            }
+            locations.put(e.getKey(), new Location(e.getKey(), ld.name(), menu, actions));
+        }
+
+        QuestPackDef.Start start = def.start();
+        if (start == null || !locations.containsKey(start.location())) throw invalid(id, "start.location не найдена");
+        if (blank(start.message())) throw invalid(id, "нет start.message");
+
+        Map<String, GameService.CraftRecipe> recipes = new LinkedHashMap<>();
+        for (Map.Entry<String, QuestPackDef.RecipeDef> e : nz(def.recipes()).entrySet()) {
+            QuestPackDef.RecipeDef r = e.getValue();
+            String where = "рецепт " + e.getKey();
+            if (r == null || r.requires() == null || r.requires().isEmpty()) throw invalid(id, where + ": нет requires");
+            List<String> requires = new ArrayList<>();
+            for (String req : r.requires()) requires.add(item(id, where, req, items).name());
+            recipes.put(e.getKey(), new GameService.CraftRecipe(e.getKey(), blank(r.title()) ? e.getKey() : r.title(),
+                    List.copyOf(requires), item(id, where, r.result(), items)));
+        }
+
+        Riddle riddle = null;
+        QuestPackDef.RiddleDef rd = def.riddle();
+        if (rd != null) {
+            if (!locations.containsKey(rd.location())) throw invalid(id, "riddle.location не найдена");
+            if (blank(rd.prompt()) || blank(rd.answer()) || blank(rd.correct()) || blank(rd.wrong())) {
+                throw invalid(id, "riddle: нужны prompt, answer, correct и wrong");
+            }
+            riddle = new Riddle(rd.location(), rd.prompt(), rd.question() == null ? "" : rd.question(),
+                    rd.options() == null ? List.of() : List.copyOf(rd.options()),
+                    rd.answer().trim().toLowerCase(Locale.ROOT),
+                    rd.reward() == null ? null : item(id, "riddle", rd.reward(), items),
+                    nz(rd.penalty()), PlotText.of(rd.correct()), PlotText.of(rd.wrong()));
+        }
+
+        Map<String, Map<String, String>> messages = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> e : nz(def.messages()).entrySet()) {
+            for (String code : nz(e.getValue()).keySet()) {
+                if (!code.startsWith(id + ".") && !code.startsWith("end." + id + ".") && !code.startsWith("item.")) {
+                    throw invalid(id, "код " + code + " должен начинаться с " + id + ". или end." + id + ".");
+                }
+            }
+            messages.put(e.getKey().toLowerCase(Locale.ROOT), Map.copyOf(nz(e.getValue())));
+        }
+
+        int maxHealth = def.maxHealth() == null ? 100 : def.maxHealth();
+        int startHealth = start.health() == null ? maxHealth : start.health();
+        return new QuestPack(id, blank(def.title()) ? id : def.title(), locations.get(start.location()),
+                startHealth, PlotText.of(start.message()), maxHealth, Collections.unmodifiableMap(locations),
+                Map.copyOf(normalizer), Map.copyOf(uses), Collections.unmodifiableMap(recipes), riddle,
+                Map.copyOf(messages));
+    }
+
+    private static Outcome outcome(String id, String where, QuestPackDef.OutcomeDef o,
+                                   Map<String, GameService.Item> items, Set<String> locationKeys) {
+        if (o == null || blank(o.message())) throw invalid(id, where + ": у исхода нет message");
+        Condition when;
+        RuleCompiler.Effects fx;
+        try {
+            when = RuleCompiler.condition(o.when(), key -> {
+                GameService.Item it = items.get(key);
+                return it == null ? null : it.name().toLowerCase(Locale.ROOT);
+            });
+            fx = RuleCompiler.effects(o.effects());
+        } catch (IllegalArgumentException e) {
+            throw invalid(id, where + ": " + e.getMessage());
+        }
+        if (fx.moveTo() != null && !locationKeys.contains(fx.moveTo())) {
+            throw invalid(id, where + ": move " + fx.moveTo() + " — такой локации нет");
+        }
+        List<GameService.Item> grant = new ArrayList<>();
+        for (String g : fx.grant()) grant.add(item(id, where, g, items));
+        return new Outcome(when, PlotText.of(o.message()), fx.health(), fx.moveTo(),
+                List.copyOf(grant), names(id, where, fx.remove(), items), fx.vars(), fx.timed());
+    }
+
+    /** У применения предмета в do — только эффекты времени; здоровье задаётся полем health. */
+    private static List<TimedEffects.Op> useEffects(String id, String where, String src) {
+        RuleCompiler.Effects fx;
+        try {
+            fx = RuleCompiler.effects(src);
+        } catch (IllegalArgumentException e) {
+            throw invalid(id, where + ": " + e.getMessage());
+        }
+        if (fx.health() != 0 || fx.moveTo() != null || !fx.grant().isEmpty() || !fx.remove().isEmpty()
+                || !fx.vars().isEmpty()) {
+            throw invalid(id, where + ": в do допустимы только poison, buff и cure");
+        }
+        return fx.timed();
+    }
+
+    /** Ключи предметов -> имена в нижнем регистре (так их сравнивает движок). */
+    private static List<String> names(String id, String where, List<String> keys, Map<String, GameService.Item> items) {
+        List<String> out = new ArrayList<>();
+        for (String k : nzl(keys)) out.add(item(id, where, k, items).name().toLowerCase(Locale.ROOT));
+        return List.copyOf(out);
+    }
+
+    private static GameService.Item item(String id, String where, String key, Map<String, GameService.Item> items) {
+        GameService.Item it = key == null ? null : items.get(key);
+        if (it == null) throw invalid(id, where + ": предмет " + key + " не описан в items");
+        return it;
+    }
+
+    private static ValidationException invalid(String id, String what) {
+        return new ValidationException("Пакет квеста " + id + ": " + what);
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static int nz(Integer v) {
+        return v == null ? 0 : v;
+    }
+
+    private static <K, V> Map<K, V> nz(Map<K, V> m) {
+        return m == null ? Map.of() : m;
+    }
+
+    private static <T> List<T> nzl(List<T> l) {
+        return l == null ? List.of() : l;
+    }
+}
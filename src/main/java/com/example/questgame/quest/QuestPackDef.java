@@ -0,0 +1,57 @@
+package com.example.questgame.quest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-описание пакета квеста (classpath:quests/&lt;id&gt;.json) как есть, до проверки.
+ * Ссылки на предметы и локации — по ключам из items/locations; порядок ключей в JSON сохраняется
+ * (порядок действий в меню локации, порядок рецептов). messages — тексты пакета по языкам
+ * (язык -&gt; код -&gt; текст), коды начинаются с "&lt;id&gt;." или "end.&lt;id&gt;.".
+ */
+public record QuestPackDef(
+        String id,
+        String title,
+        Start start,
+        Integer maxHealth,
+        Map<String, ItemDef> items,
+        Map<String, ActionDef> actions,
+        Map<String, LocationDef> locations,
+        Map<String, RecipeDef> recipes,
+        RiddleDef riddle,
+        Map<String, Map<String, String>> messages) {
+
+    public record Start(String location, Integer health, String message) {}
+
+    /** use — эффект «применить предмет»; без него предмет применить нельзя. */
+    public record ItemDef(String name, String description, UseDef use) {}
+
+    /** do — эффекты времени при применении (poison/buff/cure на языке {@link RuleCompiler}). */
+    public record UseDef(String message, Integer health, Boolean consume, @JsonProperty("do") String effects) {}
+
+    /** Подпись действия в меню и синонимы для разбора ввода. */
+    public record ActionDef(String label, List<String> synonyms) {}
+
+    /** name — название локации, как оно хранится в game_states.current_location. */
+    public record LocationDef(String name, Map<String, ChoiceDef> actions) {}
+
+    /**
+     * roll &gt; 0 — перед выбором исхода бросается кубик [0, roll); cooldown — перезарядка действия
+     * после исхода ("30s", "2m"), пусто — без неё.
+     */
+    public record ChoiceDef(Integer roll, String cooldown, List<OutcomeDef> outcomes) {}
+
+    /**
+     * Исход действия: выбирается первый, чьё условие when выполнено (пусто — всегда).
+     * when и do пишутся на языке правил {@link RuleCompiler}.
+     */
+    public record OutcomeDef(String when, String message, @JsonProperty("do") String effects) {}
+
+    public record RecipeDef(String title, List<String> requires, String result) {}
+
+    /** Загадка: prompt — код сообщения-вопроса в сюжете, после которого принимается ответ. */
+    public record RiddleDef(String location, String prompt, String question, List<String> options, String answer,
+                            String reward, Integer penalty, String correct, String wrong) {}
+}
@@ -0,0 +1,136 @@
+package com.example.questgame.quest;
+
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.exception.NotFoundException;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.service.MessageCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Реестр пакетов квестов. Пакет читается при первом обращении и дальше один экземпляр разделяют
+ * все игры квеста — память растёт с числом пакетов, а не игр. {@link #reload} собирает пакет заново
+ * и подменяет ссылку атомарно: игра не останавливается, команды в полёте доигрывают на старой версии,
+ * следующие берут новую. Ошибка в новом пакете оставляет старый.
+ */
+@Component
+public class QuestPacks {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestPacks.class);
+
+    private static final String CLASSPATH_DIR = "quests/";
+    private static final String SUFFIX = ".json";
+
+    private final QuestProperties props;
+    private final ObjectMapper objectMapper;
+    private final MessageCatalog messages;
+    private final ConcurrentHashMap<String, AtomicReference<QuestPack>> packs = new ConcurrentHashMap<>();
+
+    public QuestPacks(QuestProperties props, ObjectMapper objectMapper, MessageCatalog messages) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.messages = messages;
+    }
+
+    public String defaultId() {
+        return props.getDefaultId();
+    }
+
+    /** Пакет по id (null/пусто — квест по умолчанию); неизвестный id — NotFoundException. */
+    public QuestPack get(String questId) {
+        String id = questId == null || questId.isBlank() ? props.getDefaultId() : questId;
+        AtomicReference<QuestPack> ref = packs.get(id);
+        if (ref == null) {
+            // computeIfAbsent: одновременные первые обращения читают пакет один раз
+            ref = packs.computeIfAbsent(id, k -> new AtomicReference<>(load(k)));
+        }
+        return ref.get();
+    }
+
+    /** Перечитать пакет и подменить его для всех игр; возвращает новую версию. */
+    public QuestPack reload(String questId) {
+        QuestPack fresh = load(questId);
+        AtomicReference<QuestPack> ref = packs.computeIfAbsent(questId, k -> new AtomicReference<>(fresh));
+        QuestPack previous = ref.getAndSet(fresh);
+        log.info("quests: пакет {} перезагружен (был загружен {})", questId,
+                previous == fresh ? "впервые" : previous.loadedAt());
+        return fresh;
+    }
+
+    /** Уже загруженные пакеты. */
+    public List<QuestPack> loaded() {
+        List<QuestPack> out = new ArrayList<>();
+        packs.values().forEach(ref -> out.add(ref.get()));
+        return out;
+    }
+
+    /** id всех доступных пакетов: classpath:quests/ и внешний каталог. */
+    public List<String> available() {
+        TreeSet<String> ids = new TreeSet<>();
+        try {
+            for (Resource r : new PathMatchingResourcePatternResolver().getResources("classpath*:" + CLASSPATH_DIR + "*" + SUFFIX)) {
+                String name = r.getFilename();
+                if (name != null) ids.add(name.substring(0, name.length() - SUFFIX.length()));
+            }
+        } catch (IOException e) {
+            log.warn("quests: не удалось просмотреть classpath: {}", e.toString());
+        }
+        Path dir = externalDir();
+        if (dir != null && Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.map(p -> p.getFileName().toString())
+                        .filter(n -> n.endsWith(SUFFIX))
+                        .forEach(n -> ids.add(n.substring(0, n.length() - SUFFIX.length())));
+            } catch (IOException e) {
+                log.warn("quests: не удалось просмотреть {}: {}", dir, e.toString());
+            }
+        }
+        return List.copyOf(ids);
+    }
+
+    private QuestPack load(String id) {
+        if (!id.matches("[a-z0-9_-]{1,32}")) throw new NotFoundException("Quest", id);
+        QuestPackDef def;
+        try (InputStream in = open(id)) {
+            if (in == null) throw new NotFoundException("Quest", id);
+            def = objectMapper.readValue(in, QuestPackDef.class);
+        } catch (IOException e) {
+            throw new ValidationException("Пакет квеста " + id + " не читается: " + e.getMessage());
+        }
+        if (!id.equals(def.id())) throw new ValidationException("Пакет квеста " + id + ": id в файле — " + def.id());
+        QuestPack pack = QuestPack.compile(def);
+        messages.register(pack.messages());
+        log.info("quests: загружен пакет {} ({} локаций)", id, pack.locations().size());
+        return pack;
+    }
+
+    /** Внешний каталог перекрывает classpath. */
+    private InputStream open(String id) throws IOException {
+        Path dir = externalDir();
+        if (dir != null) {
+            Path file = dir.resolve(id + SUFFIX);
+            if (Files.isRegularFile(file)) return Files.newInputStream(file);
+        }
+        return QuestPacks.class.getClassLoader().getResourceAsStream(CLASSPATH_DIR + id + SUFFIX);
+    }
+
+    private Path externalDir() {
+        String dir = props.getDir();
+        return dir == null || dir.isBlank() ? null : Path.of(dir);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.questgame.quest;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Флаги и счётчики игры (game_states.vars) в виде "имя=значение;…". Нулевые значения не хранятся,
+ * поэтому флаг — это просто счётчик 0/1, а игра без переменных хранит null.
+ */
+public final class QuestVars {
+
+    private final TreeMap<String, Integer> values = new TreeMap<>();
+
+    private QuestVars() {
+    }
+
+    public static QuestVars parse(String stored) {
+        QuestVars v = new QuestVars();
+        if (stored == null || stored.isEmpty()) return v;
+        for (String pair : stored.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            try {
+                v.put(pair.substring(0, eq), Integer.parseInt(pair.substring(eq + 1)));
+            } catch (NumberFormatException ignored) {
+                // битую пару пропускаем: переменная считается нулевой
+            }
+        }
+        return v;
+    }
+
+    public int get(String name) {
+        Integer v = values.get(name);
+        return v == null ? 0 : v;
+    }
+
+    public void apply(Op op) {
+        put(op.name(), op.set() ? op.value() : get(op.name()) + op.value());
+    }
+
+    /** Для game_states.vars; null — переменных нет. */
+    public String encode() {
+        if (values.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder(values.size() * 12);
+        for (Map.Entry<String, Integer> e : values.entrySet()) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    private void put(String name, int value) {
+        if (value == 0) values.remove(name);
+        else values.put(name, value);
+    }
+
+    /** set — присвоить value, иначе прибавить value (в том числе отрицательное). */
+    public record Op(String name, boolean set, int value) {}
+}
@@ -0,0 +1,314 @@
+package com.example.questgame.quest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Мини-язык правил пакета квеста. Текст разбирается один раз при загрузке пакета: условие
+ * превращается в дерево лямбд, эффекты сводятся в готовый план. Во время хода ничего не
+ * разбирается и не интерпретируется, проверка условия не аллоцирует.
+ * <p>
+ * Условие ("when"):
+ * <pre>
+ *   has(sword) || has(light_blade)
+ *   !has(artifact) &amp;&amp; health &lt;= 20
+ *   roll &gt;= 7 &amp;&amp; flag(witch_met) &amp;&amp; count(leeches) &lt; 3
+ *   event(dragon_sleeps) || buff(vigor)
+ * </pre>
+ * has — предмет по ключу из items; health/roll/count(x) сравниваются с числом (&lt; &lt;= &gt; &gt;= == !=);
+ * flag(x) — count(x) != 0; event(x) — идёт мировое событие x; buff(x) — действует бафф x
+ * (buff(poison) — игрок отравлен); есть !, &amp;&amp;, || и скобки.
+ * <p>
+ * Эффекты ("do"), через «;»:
+ * <pre>
+ *   health -50; grant sword; remove artifact; move castle; set witch_met; clear witch_met; inc leeches; dec leeches 2
+ *   poison 3 every 10s for 1m; buff vigor 2m; cure poison
+ * </pre>
+ * grant выдаёт предмет, только если его ещё нет; remove забирает один экземпляр. poison, buff и cure —
+ * эффекты времени ({@link TimedEffects}); длительность — число с единицей ms, s, m или h.
+ */
+public final class RuleCompiler {
+
+    private static final Condition NEVER = ctx -> false;
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * Скомпилировать условие; пусто — {@link Condition#ALWAYS}. itemName — имя предмета (lower-case)
+     * по ключу или null, если ключ не описан.
+     */
+    public static Condition condition(String src, Function<String, String> itemName) {
+        if (src == null || src.isBlank()) return Condition.ALWAYS;
+        Parser p = new Parser(src);
+        Condition c = p.or(itemName);
+        p.expectEnd();
+        return c;
+    }
+
+    /** Скомпилировать эффекты в план; ключи предметов и локаций проверяет вызывающий. */
+    public static Effects effects(String src) {
+        Effects.Builder b = new Effects.Builder();
+        if (src == null || src.isBlank()) return b.build();
+        Parser p = new Parser(src);
+        do {
+            if (p.peekIs(";") || p.atEnd()) continue;
+            int at = p.pos();
+            String verb = p.ident();
+            switch (verb) {
+                case "health" -> b.health += p.number();
+                case "grant" -> b.grant.add(p.ident());
+                case "remove" -> b.remove.add(p.ident());
+                case "move" -> {
+                    if (b.moveTo != null) throw p.error(at, "move указан дважды");
+                    b.moveTo = p.ident();
+                }
+                case "set" -> b.vars.add(new QuestVars.Op(p.ident(), true, 1));
+                case "clear" -> b.vars.add(new QuestVars.Op(p.ident(), true, 0));
+                case "inc", "dec" -> {
+                    String name = p.ident();
+                    int by = p.atEnd() || p.peekIs(";") ? 1 : p.number();
+                    b.vars.add(new QuestVars.Op(name, false, verb.equals("inc") ? by : -by));
+                }
+                case "poison" -> {
+                    int damage = p.number();
+                    p.keyword("every");
+                    long every = p.duration();
+                    p.keyword("for");
+                    b.timed.add(new TimedEffects.Op(TimedEffects.Kind.POISON, TimedEffects.POISON, damage, every, p.duration()));
+                }
+                case "buff" -> {
+                    String name = p.ident();
+                    if (name.equals(TimedEffects.POISON)) throw p.error(at, "бафф не может называться poison");
+                    b.timed.add(new TimedEffects.Op(TimedEffects.Kind.BUFF, name, 0, 0, p.duration()));
+                }
+                case "cure" -> b.timed.add(new TimedEffects.Op(TimedEffects.Kind.CURE, p.ident(), 0, 0, 0));
+                default -> throw p.error(at, "неизвестный эффект " + verb);
+            }
+        } while (p.accept(";"));
+        p.expectEnd();
+        return b.build();
+    }
+
+    /** Длительность вида 500ms, 30s, 2m, 1h в миллисекундах (перезарядка действия в пакете). */
+    public static long duration(String src) {
+        Parser p = new Parser(src);
+        long millis = p.duration();
+        p.expectEnd();
+        return millis;
+    }
+
+    /**
+     * План эффектов исхода: grant/remove — ключи предметов, moveTo — ключ локации или null,
+     * timed — эффекты времени по порядку.
+     */
+    public record Effects(int health, String moveTo, List<String> grant, List<String> remove,
+                          List<QuestVars.Op> vars, List<TimedEffects.Op> timed) {
+
+        private static final class Builder {
+            int health;
+            String moveTo;
+            final List<String> grant = new ArrayList<>();
+            final List<String> remove = new ArrayList<>();
+            final List<QuestVars.Op> vars = new ArrayList<>();
+            final List<TimedEffects.Op> timed = new ArrayList<>();
+
+            Effects build() {
+                return new Effects(health, moveTo, List.copyOf(grant), List.copyOf(remove), List.copyOf(vars),
+                        List.copyOf(timed));
+            }
+        }
+    }
+
+    // ==========================
+    //      Разбор и сборка
+    // ==========================
+
+    private static final class Parser {
+        private final String src;
+        private int pos;
+
+        Parser(String src) {
+            this.src = src;
+        }
+
+        int pos() {
+            skipSpaces();
+            return pos;
+        }
+
+        Condition or(Function<String, String> items) {
+            Condition left = and(items);
+            while (accept("||")) {
+                Condition a = left, b = and(items);
+                left = c -> a.test(c) || b.test(c);
+            }
+            return left;
+        }
+
+        Condition and(Function<String, String> items) {
+            Condition left = not(items);
+            while (accept("&&")) {
+                Condition a = left, b = not(items);
+                left = c -> a.test(c) && b.test(c);
+            }
+            return left;
+        }
+
+        Condition not(Function<String, String> items) {
+            if (accept("!")) {
+                Condition inner = not(items);
+                if (inner == Condition.ALWAYS) return NEVER;
+                if (inner == NEVER) return Condition.ALWAYS;
+                return c -> !inner.test(c);
+            }
+            return atom(items);
+        }
+
+        Condition atom(Function<String, String> items) {
+            if (accept("(")) {
+                Condition inner = or(items);
+                expect(")");
+                return inner;
+            }
+            int at = pos();
+            String word = ident();
+            switch (word) {
+                case "true":
+                    return Condition.ALWAYS;
+                case "false":
+                    return NEVER;
+                case "has": {
+                    String key = arg();
+                    String name = items.apply(key);
+                    if (name == null) throw error(at, "предмет " + key + " не описан в items");
+                    return c -> c.has(name);
+                }
+                case "flag": {
+                    String name = arg();
+                    return c -> c.var(name) != 0;
+                }
+                case "event": {
+                    String name = arg();
+                    return c -> c.event(name);
+                }
+                case "buff": {
+                    String name = arg();
+                    return c -> c.buff(name);
+                }
+                case "health":
+                    return compare(RuleContext::health);
+                case "roll":
+                    return compare(RuleContext::roll);
+                case "count": {
+                    String name = arg();
+                    return compare(c -> c.var(name));
+                }
+                default:
+                    throw error(at, "неизвестное условие " + word);
+            }
+        }
+
+        /** Оператор выбирается здесь, один раз: на каждый вариант — своя лямбда. */
+        private Condition compare(ToIntFunction<RuleContext> left) {
+            int at = pos();
+            String op = operator();
+            int n = number();
+            return switch (op) {
+                case "<" -> c -> left.applyAsInt(c) < n;
+                case "<=" -> c -> left.applyAsInt(c) <= n;
+                case ">" -> c -> left.applyAsInt(c) > n;
+                case ">=" -> c -> left.applyAsInt(c) >= n;
+                case "==" -> c -> left.applyAsInt(c) == n;
+                case "!=" -> c -> left.applyAsInt(c) != n;
+                default -> throw error(at, "ожидалось сравнение");
+            };
+        }
+
+        private String arg() {
+            expect("(");
+            String key = ident();
+            expect(")");
+            return key;
+        }
+
+        private String operator() {
+            for (String op : new String[]{"<=", ">=", "==", "!=", "<", ">"}) {
+                if (accept(op)) return op;
+            }
+            throw error(pos(), "ожидалось сравнение");
+        }
+
+        String ident() {
+            int start = pos();
+            while (pos < src.length() && (Character.isLetterOrDigit(src.charAt(pos)) || src.charAt(pos) == '_')) pos++;
+            if (pos == start) throw error(start, "ожидалось имя");
+            return src.substring(start, pos);
+        }
+
+        int number() {
+            int start = pos();
+            if (pos < src.length() && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+            int digits = pos;
+            while (pos < src.length() && Character.isDigit(src.charAt(pos))) pos++;
+            if (pos == digits) throw error(start, "ожидалось число");
+            try {
+                return Integer.parseInt(src, start, pos, 10);
+            } catch (NumberFormatException e) {
+                throw error(start, "слишком большое число");
+            }
+        }
+
+        void keyword(String word) {
+            int at = pos();
+            if (!ident().equals(word)) throw error(at, "ожидалось «" + word + "»");
+        }
+
+        long duration() {
+            int at = pos();
+            long n = number();
+            if (n <= 0) throw error(at, "длительность должна быть положительной");
+            int unitAt = pos;
+            while (pos < src.length() && Character.isLetter(src.charAt(pos))) pos++;
+            return switch (src.substring(unitAt, pos)) {
+                case "ms" -> n;
+                case "s" -> n * 1_000;
+                case "m" -> n * 60_000;
+                case "h" -> n * 3_600_000;
+                default -> throw error(unitAt, "ожидалась единица времени ms, s, m или h");
+            };
+        }
+
+        boolean peekIs(String token) {
+            return src.startsWith(token, pos());
+        }
+
+        boolean accept(String token) {
+            if (!peekIs(token)) return false;
+            pos += token.length();
+            return true;
+        }
+
+        void expect(String token) {
+            if (!accept(token)) throw error(pos(), "ожидалось «" + token + "»");
+        }
+
+        boolean atEnd() {
+            return pos() >= src.length();
+        }
+
+        void expectEnd() {
+            if (!atEnd()) throw error(pos(), "лишний текст");
+        }
+
+        IllegalArgumentException error(int at, String what) {
+            return new IllegalArgumentException("«" + src + "», позиция " + (at + 1) + ": " + what);
+        }
+
+        private void skipSpaces() {
+            while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+        }
+    }
+}
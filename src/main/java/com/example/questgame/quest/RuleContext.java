@@ -0,0 +1,30 @@
+package com.example.questgame.quest;
+
+/**
+ * Что видят условия пакета во время хода: инвентарь, здоровье, бросок кубика, флаги, счётчики,
+ * мировые события и баффы.
+ * Один экземпляр на команду; условия только читают его.
+ */
+public interface RuleContext {
+
+    /** Есть ли предмет (имя в нижнем регистре). */
+    boolean has(String itemNameLower);
+
+    int health();
+
+    /** Бросок кубика действия; 0, если действие без броска. */
+    int roll();
+
+    /** Значение счётчика; флаг — счётчик со значением 0/1, неизвестное имя — 0. */
+    int var(String name);
+
+    /** Идёт ли сейчас мировое событие; по умолчанию — нет. */
+    default boolean event(String name) {
+        return false;
+    }
+
+    /** Действует ли на игрока бафф (buff(poison) — яд); по умолчанию — нет. */
+    default boolean buff(String name) {
+        return false;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.questgame.quest;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Эффекты времени игры (game_states.effects): отсчёт регенерации, яд, баффы и перезарядки
+ * действий. Хранятся только моменты (epoch millis), поэтому ничего не «тикает»: здоровье на любой
+ * момент вычисляется из отметок ({@link #advance}), бафф активен, пока его срок не прошёл.
+ * Формат: "r=…;p=урон,период,следующий тик,конец;b.имя=конец;c.действие=конец"; null — эффектов нет.
+ */
+public final class TimedEffects {
+
+    /** Вид эффекта исхода или применения предмета. */
+    public enum Kind { POISON, BUFF, CURE }
+
+    /**
+     * Эффект из правил пакета: POISON — amount урона каждые every мс в течение duration мс;
+     * BUFF — бафф name на duration мс; CURE — снять бафф name (name "poison" — яд).
+     */
+    public record Op(Kind kind, String name, int amount, long every, long duration) {}
+
+    /** Регенерация: amount здоровья каждые every мс до максимума; amount 0 — выключена. */
+    public record Regen(int amount, long every) {
+        public static final Regen OFF = new Regen(0, 0);
+
+        public boolean on() {
+            return amount > 0 && every > 0;
+        }
+    }
+
+    public static final String POISON = "poison";
+
+    // 0 — регенерация ещё не отсчитывается
+    private long regenAt;
+    // poisonUntil 0 — яда нет
+    private int poisonDamage;
+    private long poisonEvery;
+    private long poisonNext;
+    private long poisonUntil;
+    private final TreeMap<String, Long> buffs = new TreeMap<>();
+    private final TreeMap<String, Long> cooldowns = new TreeMap<>();
+
+    private TimedEffects() {
+    }
+
+    public static TimedEffects parse(String stored) {
+        TimedEffects fx = new TimedEffects();
+        if (stored == null || stored.isEmpty()) return fx;
+        for (String pair : stored.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            String key = pair.substring(0, eq);
+            String value = pair.substring(eq + 1);
+            try {
+                if (key.equals("r")) {
+                    fx.regenAt = Long.parseLong(value);
+                } else if (key.equals("p")) {
+                    String[] p = value.split(",");
+                    if (p.length != 4) continue;
+                    fx.poisonDamage = Integer.parseInt(p[0]);
+                    fx.poisonEvery = Math.max(1, Long.parseLong(p[1]));
+                    fx.poisonNext = Long.parseLong(p[2]);
+                    fx.poisonUntil = Long.parseLong(p[3]);
+                } else if (key.startsWith("b.")) {
+                    fx.buffs.put(key.substring(2), Long.parseLong(value));
+                } else if (key.startsWith("c.")) {
+                    fx.cooldowns.put(key.substring(2), Long.parseLong(value));
+                }
+            } catch (NumberFormatException ignored) {
+                // битую пару пропускаем: эффекта просто нет
+            }
+        }
+        return fx;
+    }
+
+    /** Для game_states.effects; null — хранить нечего. */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(64);
+        if (regenAt != 0) sb.append("r=").append(regenAt);
+        if (poisonUntil != 0) {
+            if (!sb.isEmpty()) sb.append(';');
+            sb.append("p=").append(poisonDamage).append(',').append(poisonEvery).append(',')
+                    .append(poisonNext).append(',').append(poisonUntil);
+        }
+        append(sb, "b.", buffs);
+        append(sb, "c.", cooldowns);
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    public void apply(Op op, long now) {
+        switch (op.kind()) {
+            case POISON -> {
+                // новый яд заменяет прежний: отсчёт тиков — от момента отравления
+                poisonDamage = op.amount();
+                poisonEvery = Math.max(1, op.every());
+                poisonNext = now + poisonEvery;
+                poisonUntil = now + op.duration();
+            }
+            case BUFF -> buffs.merge(op.name(), now + op.duration(), Math::max);
+            case CURE -> {
+                if (POISON.equals(op.name())) poisonUntil = 0;
+                else buffs.remove(op.name());
+            }
+        }
+    }
+
+    /** Запустить перезарядку действия. */
+    public void cooldown(String action, long durationMillis, long now) {
+        cooldowns.put(action, now + durationMillis);
+    }
+
+    /** Сколько ещё ждать действия, мс; 0 — можно. */
+    public long cooldownLeft(String action, long now) {
+        Long until = cooldowns.get(action);
+        return until == null ? 0 : Math.max(0, until - now);
+    }
+
+    /** Активен ли бафф; buff(poison) — отравлен ли игрок. */
+    public boolean buff(String name, long now) {
+        if (POISON.equals(name)) return poisonUntil > now;
+        Long until = buffs.get(name);
+        return until != null && until > now;
+    }
+
+    /**
+     * Довести здоровье до момента now: тики яда и регенерации по порядку времени (при совпадении
+     * сначала регенерация), до нуля — и дальше ничего. Истёкшие эффекты удаляются.
+     * Результат не зависит от того, сколькими шагами дойти до now.
+     */
+    public int advance(int health, int maxHealth, Regen regen, long now) {
+        if (!regen.on()) regenAt = 0;
+        else if (regenAt == 0) regenAt = now;
+        while (poisonUntil != 0 && health > 0 && poisonNext <= Math.min(now, poisonUntil)) {
+            health = regenerate(health, maxHealth, regen, poisonNext);
+            health = Math.max(0, health - poisonDamage);
+            poisonNext += poisonEvery;
+        }
+        if (health > 0) health = regenerate(health, maxHealth, regen, now);
+        if (poisonUntil != 0 && (health <= 0 || poisonNext > poisonUntil)) poisonUntil = 0;
+        buffs.values().removeIf(until -> until <= now);
+        cooldowns.values().removeIf(until -> until <= now);
+        return health;
+    }
+
+    /**
+     * Ближайший момент, когда сохранённая строка устаревает так, что это видно снаружи: смерть
+     * от яда или его последний тик. Регенерация, баффы и перезарядки вычисляются при чтении
+     * и в расписание не попадают. Long.MAX_VALUE — планировать нечего.
+     */
+    public long nextDue(int health, int maxHealth, Regen regen) {
+        if (poisonUntil == 0 || health <= 0) return Long.MAX_VALUE;
+        TimedEffects sim = parse(encode());
+        int h = health;
+        while (sim.poisonUntil != 0) {
+            long at = sim.poisonNext;
+            h = sim.advance(h, maxHealth, regen, at);
+            if (h <= 0 || sim.poisonUntil == 0) return at;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * До какого момента здоровье может меняться само (идёт яд или регенерация ниже максимума) —
+     * с запасом; 0 — не меняется.
+     */
+    public long changingUntil(int health, int maxHealth, Regen regen) {
+        if (health <= 0) return 0;
+        long until = 0;
+        int missing = maxHealth - health;
+        if (poisonUntil != 0) {
+            until = poisonUntil;
+            missing = maxHealth;
+        }
+        if (regen.on() && missing > 0) {
+            long ticks = (missing + regen.amount() - 1) / regen.amount();
+            until = Math.max(until, Math.max(regenAt, until) + ticks * regen.every());
+        }
+        return until;
+    }
+
+    private int regenerate(int health, int maxHealth, Regen regen, long to) {
+        if (!regen.on() || to < regenAt + regen.every()) return health;
+        long ticks = (to - regenAt) / regen.every();
+        regenAt += ticks * regen.every();
+        if (health >= maxHealth) return health;
+        return (int) Math.min(maxHealth, health + ticks * regen.amount());
+    }
+
+    private static void append(StringBuilder sb, String prefix, Map<String, Long> values) {
+        for (Map.Entry<String, Long> e : values.entrySet()) {
+            if (!sb.isEmpty()) sb.append(';');
+            sb.append(prefix).append(e.getKey()).append('=').append(e.getValue());
+        }
+    }
+}
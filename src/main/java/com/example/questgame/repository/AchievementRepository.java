@@ -0,0 +1,83 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.AchievementUnlock;
+import com.example.questgame.model.PlayerAchievements;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Прогресс и полученные достижения игроков. Запись — многострочными INSERT на батч событий outbox;
+ * повтор того же батча перезаписывает прогресс и не дублирует достижения.
+ */
+@Repository
+public class AchievementRepository {
+
+    private final DatabaseClient db;
+
+    public AchievementRepository(DatabaseClient db) {
+        this.db = db;
+    }
+
+    public Flux<PlayerAchievements> findProgress(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Flux.empty();
+        return db.sql("SELECT user_id, last_event_id, progress FROM achievement_progress WHERE user_id IN (:ids)")
+                .bind("ids", userIds)
+                .map((row, meta) -> new PlayerAchievements(row.get("user_id", Long.class),
+                        row.get("last_event_id", Long.class), row.get("progress", String.class)))
+                .all();
+    }
+
+    public Flux<AchievementUnlock> findUnlocks(Long userId) {
+        return db.sql("SELECT user_id, achievement_id, unlocked_at FROM achievements WHERE user_id = :user"
+                        + " ORDER BY unlocked_at, achievement_id")
+                .bind("user", userId)
+                .map((row, meta) -> new AchievementUnlock(row.get("user_id", Long.class),
+                        row.get("achievement_id", String.class), row.get("unlocked_at", LocalDateTime.class)))
+                .all();
+    }
+
+    public Mono<Long> upsertProgress(List<PlayerAchievements> rows) {
+        if (rows.isEmpty()) return Mono.just(0L);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO achievement_progress (user_id, last_event_id, progress, updated_at) VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sql.append(',');
+            sql.append("(:user").append(i).append(", :last").append(i).append(", :progress").append(i)
+                    .append(", :updated)");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE last_event_id = VALUES(last_event_id), progress = VALUES(progress),"
+                + " updated_at = VALUES(updated_at)");
+
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString()).bind("updated", LocalDateTime.now());
+        for (int i = 0; i < rows.size(); i++) {
+            PlayerAchievements r = rows.get(i);
+            spec = spec.bind("user" + i, r.userId())
+                    .bind("last" + i, r.lastEventId())
+                    .bind("progress" + i, r.progress());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> insertUnlocks(List<AchievementUnlock> unlocks) {
+        if (unlocks.isEmpty()) return Mono.just(0L);
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO achievements (user_id, achievement_id, unlocked_at) VALUES ");
+        for (int i = 0; i < unlocks.size(); i++) {
+            if (i > 0) sql.append(',');
+            sql.append("(:user").append(i).append(", :id").append(i).append(", :at").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString());
+        for (int i = 0; i < unlocks.size(); i++) {
+            AchievementUnlock u = unlocks.get(i);
+            spec = spec.bind("user" + i, u.userId())
+                    .bind("id" + i, u.achievementId())
+                    .bind("at" + i, u.unlockedAt());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.ArchivedGame;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface GameArchiveRepository extends R2dbcRepository<ArchivedGame, Long> {
+
+    /** Архивные копии игр, которые так и остались в горячей таблице (их изменили во время архивации). */
+    @Modifying
+    @Query("""
+           DELETE a FROM game_archive a
+           JOIN game_states g ON g.id = a.game_id
+           WHERE a.game_id IN (:gameIds)
+           """)
+    Mono<Integer> deleteStillHot(@Param("gameIds") Collection<Long> gameIds);
+}
@@ -0,0 +1,119 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.ArchivedGame;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Многострочные INSERT для массовой загрузки (импорт/восстановление/архив).
+ * Идентификаторы сохраняются; повтор того же батча перезаписывает строки, поэтому импорт идемпотентен.
+ */
+@Repository
+public class GameBulkRepository {
+
+    // значение по умолчанию столбца quest_id — для строк из выгрузок до пакетов квестов
+    private static final String DEFAULT_QUEST = "classic";
+
+    private final DatabaseClient db;
+
+    public GameBulkRepository(DatabaseClient db) {
+        this.db = db;
+    }
+
+    public Mono<Long> upsertStates(List<GameState> states) {
+        if (states.isEmpty()) return Mono.just(0L);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO game_states (id, user_id, quest_id, current_location, plot_progress, health, vars, status, updated_at) VALUES ");
+        for (int i = 0; i < states.size(); i++) {
+            if (i > 0) sql.append(',');
+            sql.append("(:id").append(i).append(", :user").append(i).append(", :quest").append(i).append(", :loc").append(i)
+                    .append(", :plot").append(i).append(", :health").append(i).append(", :vars").append(i).append(", :status").append(i)
+                    .append(", :updated").append(i).append(')');
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE user_id = VALUES(user_id), quest_id = VALUES(quest_id),"
+                + " current_location = VALUES(current_location),"
+                + " plot_progress = VALUES(plot_progress), health = VALUES(health), vars = VALUES(vars), status = VALUES(status),"
+                + " updated_at = VALUES(updated_at)");
+
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString());
+        for (int i = 0; i < states.size(); i++) {
+            GameState s = states.get(i);
+            spec = bind(spec, "id" + i, s.getId(), Long.class);
+            spec = bind(spec, "user" + i, s.getUserId(), Long.class);
+            spec = bind(spec, "quest" + i, s.getQuestId() == null ? DEFAULT_QUEST : s.getQuestId(), String.class);
+            spec = bind(spec, "loc" + i, s.getCurrentLocation(), String.class);
+            spec = bind(spec, "plot" + i, s.getPlotProgress(), String.class);
+            spec = spec.bind("health" + i, s.getHealth());
+            spec = bind(spec, "vars" + i, s.getVars(), String.class);
+            spec = bind(spec, "status" + i, s.getStatus() == null ? "ACTIVE" : s.getStatus(), String.class);
+            spec = bind(spec, "updated" + i, s.getUpdatedAt() == null ? LocalDateTime.now() : s.getUpdatedAt(),
+                    LocalDateTime.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> upsertItems(List<InventoryItem> items) {
+        if (items.isEmpty()) return Mono.just(0L);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO inventory_items (id, game_state_id, name, description) VALUES ");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) sql.append(',');
+            sql.append("(:id").append(i).append(", :gs").append(i).append(", :name").append(i)
+                    .append(", :descr").append(i).append(')');
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE game_state_id = VALUES(game_state_id), name = VALUES(name),"
+                + " description = VALUES(description)");
+
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString());
+        for (int i = 0; i < items.size(); i++) {
+            InventoryItem it = items.get(i);
+            spec = bind(spec, "id" + i, it.getId(), Long.class);
+            spec = bind(spec, "gs" + i, it.getGameStateId(), Long.class);
+            spec = bind(spec, "name" + i, it.getName(), String.class);
+            spec = bind(spec, "descr" + i, it.getDescription(), String.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    /** Архивные копии батчем; повторная архивация той же игры перезаписывает строку. */
+    public Mono<Long> upsertArchived(List<ArchivedGame> games) {
+        if (games.isEmpty()) return Mono.just(0L);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO game_archive (game_id, user_id, current_location, health, status, updated_at, archived_at, payload) VALUES ");
+        for (int i = 0; i < games.size(); i++) {
+            if (i > 0) sql.append(',');
+            sql.append("(:id").append(i).append(", :user").append(i).append(", :loc").append(i)
+                    .append(", :health").append(i).append(", :status").append(i).append(", :updated").append(i)
+                    .append(", :archived").append(i).append(", :payload").append(i).append(')');
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE user_id = VALUES(user_id), current_location = VALUES(current_location),"
+                + " health = VALUES(health), status = VALUES(status), updated_at = VALUES(updated_at),"
+                + " archived_at = VALUES(archived_at), payload = VALUES(payload)");
+
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString());
+        for (int i = 0; i < games.size(); i++) {
+            ArchivedGame g = games.get(i);
+            spec = spec.bind("id" + i, g.getGameId());
+            spec = bind(spec, "user" + i, g.getUserId(), Long.class);
+            spec = bind(spec, "loc" + i, g.getCurrentLocation(), String.class);
+            spec = spec.bind("health" + i, g.getHealth());
+            spec = bind(spec, "status" + i, g.getStatus() == null ? "ACTIVE" : g.getStatus(), String.class);
+            spec = bind(spec, "updated" + i, g.getUpdatedAt() == null ? g.getArchivedAt() : g.getUpdatedAt(),
+                    LocalDateTime.class);
+            spec = spec.bind("archived" + i, g.getArchivedAt());
+            spec = spec.bind("payload" + i, g.getPayload());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+}
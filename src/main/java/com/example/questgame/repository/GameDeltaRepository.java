@@ -0,0 +1,93 @@
+package com.example.questgame.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Журнал дельт шагов (game_deltas) с ключом (game_state_id, step).
+ * Составной ключ Spring Data R2DBC не умеет — поэтому DatabaseClient, как в GameBulkRepository.
+ */
+@Repository
+public class GameDeltaRepository {
+
+    private final DatabaseClient db;
+
+    public GameDeltaRepository(DatabaseClient db) {
+        this.db = db;
+    }
+
+    /** Записанная дельта с номером шага игры. */
+    public record Row(long step, byte[] payload) {}
+
+    /** Дописать дельту следующим шагом и срезать всё старше depth последних шагов. */
+    public Mono<Long> append(Long gameStateId, byte[] payload, int depth) {
+        return db.sql("""
+                      INSERT INTO game_deltas (game_state_id, step, payload, created_at)
+                      SELECT :gameStateId, COALESCE(MAX(step), 0) + 1, :payload, CURRENT_TIMESTAMP(6)
+                      FROM game_deltas WHERE game_state_id = :gameStateId
+                      """)
+                .bind("gameStateId", gameStateId)
+                .bind("payload", payload)
+                .fetch().rowsUpdated()
+                .then(db.sql("""
+                             DELETE FROM game_deltas
+                             WHERE game_state_id = :gameStateId
+                               AND step <= (SELECT m FROM (SELECT MAX(step) - :depth AS m
+                                                           FROM game_deltas
+                                                           WHERE game_state_id = :gameStateId) t)
+                             """)
+                        .bind("gameStateId", gameStateId)
+                        .bind("depth", depth)
+                        .fetch().rowsUpdated());
+    }
+
+    /** Последние шаги игры, от новых к старым. */
+    public Flux<Row> findLatest(Long gameStateId, int limit) {
+        return db.sql("""
+                      SELECT step, payload FROM game_deltas
+                      WHERE game_state_id = :gameStateId
+                      ORDER BY step DESC
+                      LIMIT :limit
+                      """)
+                .bind("gameStateId", gameStateId)
+                .bind("limit", limit)
+                .map((row, meta) -> new Row(row.get("step", Long.class), row.get("payload", byte[].class)))
+                .all();
+    }
+
+    /** Шаги после step (их откатывает rewind), от новых к старым. */
+    public Flux<Row> findAfter(Long gameStateId, long step) {
+        return db.sql("""
+                      SELECT step, payload FROM game_deltas
+                      WHERE game_state_id = :gameStateId AND step > :step
+                      ORDER BY step DESC
+                      """)
+                .bind("gameStateId", gameStateId)
+                .bind("step", step)
+                .map((row, meta) -> new Row(row.get("step", Long.class), row.get("payload", byte[].class)))
+                .all();
+    }
+
+    public Mono<Long> deleteFrom(Long gameStateId, long fromStep) {
+        return db.sql("DELETE FROM game_deltas WHERE game_state_id = :gameStateId AND step >= :step")
+                .bind("gameStateId", gameStateId)
+                .bind("step", fromStep)
+                .fetch().rowsUpdated();
+    }
+
+    /** Журнал игр, которых больше нет в game_states (ушли в архив). */
+    public Mono<Long> deleteOrphans(Collection<Long> gameStateIds) {
+        if (gameStateIds.isEmpty()) return Mono.just(0L);
+        return db.sql("""
+                      DELETE FROM game_deltas
+                      WHERE game_state_id IN (:ids)
+                        AND NOT EXISTS (SELECT 1 FROM game_states g WHERE g.id = game_deltas.game_state_id)
+                      """)
+                .bind("ids", gameStateIds)
+                .fetch().rowsUpdated();
+    }
+}
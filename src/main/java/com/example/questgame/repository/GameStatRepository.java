@@ -0,0 +1,22 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.GameStat;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+public interface GameStatRepository extends R2dbcRepository<GameStat, Long> {
+
+    /** Атомарно прибавить дельту к счётчику (создаёт строку, если её ещё нет). */
+    @Modifying
+    @Query("""
+           INSERT INTO game_stats (metric, stat_key, stat_value)
+           VALUES (:metric, :statKey, :delta)
+           ON DUPLICATE KEY UPDATE stat_value = stat_value + :delta
+           """)
+    Mono<Integer> increment(@Param("metric") String metric,
+                            @Param("statKey") String statKey,
+                            @Param("delta") long delta);
+}
@@ -1,10 +1,114 @@
 package com.example.questgame.repository;
 
+import com.example.questgame.model.EffectDue;
 import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameSummary;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-//Заменить Flux на Mono - ЗАМЕНИЛ
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 public interface GameStateRepository extends R2dbcRepository<GameState, Long> {
-    Mono<GameState> findByUserId(Long userId);
+
+    /** Последний изменённый слот пользователя (индекс user_id, updated_at, id). */
+    @Query("""
+           SELECT * FROM game_states
+           WHERE user_id = :userId
+           ORDER BY updated_at DESC, id DESC
+           LIMIT 1
+           """)
+    Mono<GameState> findLatestByUserId(@Param("userId") Long userId);
+
+    /** Первая страница слотов (горячие игры и архив: архивная игра восстановится при открытии). */
+    @Query("""
+           SELECT id, current_location, health, status, updated_at FROM (
+               (SELECT id, current_location, health, status, updated_at
+                FROM game_states
+                WHERE user_id = :userId
+                ORDER BY updated_at DESC, id DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT game_id AS id, current_location, health, status, updated_at
+                FROM game_archive
+                WHERE user_id = :userId
+                ORDER BY updated_at DESC, game_id DESC
+                LIMIT :limit)
+           ) s
+           ORDER BY updated_at DESC, id DESC
+           LIMIT :limit
+           """)
+    Flux<GameSummary> findSummaries(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /** Следующая страница слотов: keyset по (updated_at, id), без OFFSET. */
+    @Query("""
+           SELECT id, current_location, health, status, updated_at FROM (
+               (SELECT id, current_location, health, status, updated_at
+                FROM game_states
+                WHERE user_id = :userId
+                  AND (updated_at < :updatedAt OR (updated_at = :updatedAt AND id < :id))
+                ORDER BY updated_at DESC, id DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT game_id AS id, current_location, health, status, updated_at
+                FROM game_archive
+                WHERE user_id = :userId
+                  AND (updated_at < :updatedAt OR (updated_at = :updatedAt AND game_id < :id))
+                ORDER BY updated_at DESC, game_id DESC
+                LIMIT :limit)
+           ) s
+           ORDER BY updated_at DESC, id DESC
+           LIMIT :limit
+           """)
+    Flux<GameSummary> findSummariesAfter(@Param("userId") Long userId,
+                                         @Param("updatedAt") LocalDateTime updatedAt,
+                                         @Param("id") Long id,
+                                         @Param("limit") int limit);
+
+    /** Страница для потоковой выгрузки: keyset по id, без долгоживущего курсора. */
+    @Query("""
+           SELECT * FROM game_states
+           WHERE id > :afterId
+           ORDER BY id
+           LIMIT :limit
+           """)
+    Flux<GameState> findPageAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /** Игры с запланированным досчётом эффектов — для восстановления расписания после рестарта. */
+    @Query("""
+           SELECT id, effects_due FROM game_states
+           WHERE effects_due IS NOT NULL
+           """)
+    Flux<EffectDue> findEffectsDue();
+
+    /** Кандидаты в архив: завершённые или давно не менявшиеся игры, keyset по id. */
+    @Query("""
+           SELECT * FROM game_states
+           WHERE id > :afterId
+             AND (status <> 'ACTIVE' OR updated_at < :idleBefore)
+           ORDER BY id
+           LIMIT :limit
+           """)
+    Flux<GameState> findArchiveCandidates(@Param("afterId") long afterId,
+                                          @Param("idleBefore") LocalDateTime idleBefore,
+                                          @Param("limit") int limit);
+
+    /**
+     * Удалить заархивированные строки. Игру, изменённую после чтения батча (updated_at > readAt),
+     * не трогаем — её архивная копия устарела и будет удалена.
+     */
+    @Modifying
+    @Query("""
+           DELETE FROM game_states
+           WHERE id IN (:ids)
+             AND updated_at <= :readAt
+             AND (status <> 'ACTIVE' OR updated_at < :idleBefore)
+           """)
+    Mono<Integer> deleteArchived(@Param("ids") Collection<Long> ids,
+                                 @Param("readAt") LocalDateTime readAt,
+                                 @Param("idleBefore") LocalDateTime idleBefore);
 }
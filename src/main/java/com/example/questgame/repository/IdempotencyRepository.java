@@ -0,0 +1,46 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.IdempotencyRecord;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ключи idempotency_keys. created_at ставят часы БД, и срок жизни считается теми же часами
+ * (CURRENT_TIMESTAMP(6) - ttl), а не часами узла: расхождение часов или часового пояса
+ * между узлом и БД не делает ключ вечным и не выпускает его раньше срока.
+ */
+public interface IdempotencyRepository extends R2dbcRepository<IdempotencyRecord, String> {
+
+    /** Занять ключ: 1 — этот узел выполняет команду, 0 — ключ уже занят. */
+    @Modifying
+    @Query("""
+           INSERT IGNORE INTO idempotency_keys (record_key, fingerprint, created_at)
+           VALUES (:recordKey, :fingerprint, CURRENT_TIMESTAMP(6))
+           """)
+    Mono<Integer> claim(@Param("recordKey") String recordKey, @Param("fingerprint") String fingerprint);
+
+    @Modifying
+    @Query("""
+           UPDATE idempotency_keys SET response = :response
+           WHERE record_key = :recordKey
+           """)
+    Mono<Integer> complete(@Param("recordKey") String recordKey, @Param("response") String response);
+
+    @Modifying
+    @Query("""
+           DELETE FROM idempotency_keys
+           WHERE record_key = :recordKey
+             AND created_at < TIMESTAMPADD(MICROSECOND, -:ttlMicros, CURRENT_TIMESTAMP(6))
+           """)
+    Mono<Integer> deleteExpired(@Param("recordKey") String recordKey, @Param("ttlMicros") long ttlMicros);
+
+    @Modifying
+    @Query("""
+           DELETE FROM idempotency_keys
+           WHERE created_at < TIMESTAMPADD(MICROSECOND, -:ttlMicros, CURRENT_TIMESTAMP(6))
+           """)
+    Mono<Integer> deleteOlderThan(@Param("ttlMicros") long ttlMicros);
+}
@@ -0,0 +1,24 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.ImportCheckpoint;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+public interface ImportCheckpointRepository extends R2dbcRepository<ImportCheckpoint, String> {
+
+    /** Сдвинуть чекпоинт вперёд (строка создаётся при первом батче). */
+    @Modifying
+    @Query("""
+           INSERT INTO import_checkpoints (job_id, last_game_id, games, items, updated_at)
+           VALUES (:jobId, :lastGameId, :games, :items, CURRENT_TIMESTAMP(6))
+           ON DUPLICATE KEY UPDATE last_game_id = :lastGameId, games = games + :games,
+                                   items = items + :items, updated_at = CURRENT_TIMESTAMP(6)
+           """)
+    Mono<Integer> advance(@Param("jobId") String jobId,
+                          @Param("lastGameId") long lastGameId,
+                          @Param("games") long games,
+                          @Param("items") long items);
+}
@@ -1,12 +1,15 @@
 package com.example.questgame.repository;
 
 import com.example.questgame.model.InventoryItem;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.data.repository.query.Param;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface InventoryItemRepository extends R2dbcRepository<InventoryItem, Long> {
 
     @Query("""
@@ -26,5 +29,29 @@ public interface InventoryItemRepository extends R2dbcRepository<InventoryItem,
     Mono<InventoryItem> findFirstByGameStateIdAndNameIgnoreCase(@Param("gameStateId") Long gameStateId,
                                                                 @Param("name") String name);
 
+    @Query("""
+           SELECT id, game_state_id, name, description
+           FROM inventory_items
+           WHERE game_state_id IN (:gameStateIds)
+           ORDER BY game_state_id, id
+           """)
+    Flux<InventoryItem> findByGameStateIdIn(@Param("gameStateIds") Collection<Long> gameStateIds);
+
+    /** Инвентарь игр, чьих строк в game_states уже нет (после архивации батча). */
+    @Modifying
+    @Query("""
+           DELETE FROM inventory_items
+           WHERE game_state_id IN (:gameStateIds)
+             AND NOT EXISTS (SELECT 1 FROM game_states g WHERE g.id = inventory_items.game_state_id)
+           """)
+    Mono<Integer> deleteOrphans(@Param("gameStateIds") Collection<Long> gameStateIds);
+
+    /** Весь инвентарь игр (импорт заменяет его содержимым выгрузки). */
+    @Modifying
+    @Query("""
+           DELETE FROM inventory_items
+           WHERE game_state_id IN (:gameStateIds)
+           """)
+    Mono<Integer> deleteByGameStateIdIn(@Param("gameStateIds") Collection<Long> gameStateIds);
 
 }
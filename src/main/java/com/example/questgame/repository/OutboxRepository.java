@@ -0,0 +1,18 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.OutboxEvent;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+
+public interface OutboxRepository extends R2dbcRepository<OutboxEvent, Long> {
+
+    /** Самые старые недоставленные события (по первичному ключу). */
+    @Query("""
+           SELECT * FROM outbox_events
+           ORDER BY id
+           LIMIT :limit
+           """)
+    Flux<OutboxEvent> findBatch(@Param("limit") int limit);
+}
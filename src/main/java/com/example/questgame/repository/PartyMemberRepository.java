@@ -0,0 +1,13 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.PartyMember;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface PartyMemberRepository extends R2dbcRepository<PartyMember, Long> {
+
+    Flux<PartyMember> findByPartyId(Long partyId);
+
+    Mono<Void> deleteByPartyIdAndUserId(Long partyId, Long userId);
+}
@@ -0,0 +1,7 @@
+package com.example.questgame.repository;
+
+import com.example.questgame.model.Party;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+public interface PartyRepository extends R2dbcRepository<Party, Long> {
+}
@@ -1,5 +1,6 @@
 package com.example.questgame.security;
 
+import com.example.questgame.config.AdminProperties;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpCookie;
 import org.springframework.http.HttpHeaders;
@@ -27,11 +28,18 @@ import java.util.Set;
 public class JwtWebFilter implements WebFilter {
 
     private final JwtService jwtService;
+    private final AdminProperties adminProperties;
 
-    public JwtWebFilter(JwtService jwtService) {
+    public JwtWebFilter(JwtService jwtService, AdminProperties adminProperties) {
         this.jwtService = jwtService;
+        this.adminProperties = adminProperties;
     }
 
+    private static final List<SimpleGrantedAuthority> USER_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    private static final List<SimpleGrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
     private static final Set<String> PUBLIC_PREFIXES = Set.of(
             "/api/auth", "/login", "/register",
             "/css", "/js", "/images", "/webjars", "/favicon.ico", "/static",
@@ -55,7 +63,7 @@ public class JwtWebFilter implements WebFilter {
                 Authentication auth = new UsernamePasswordAuthenticationToken(
                         email,
                         null,
-                        List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                        adminProperties.isAdmin(email) ? ADMIN_AUTHORITIES : USER_AUTHORITIES
                 );
                 return chain.filter(exchange)
                         .contextWrite(ReactiveSecurityContextHolder.withAuthentication(auth));
@@ -28,6 +28,7 @@ public class SecurityConfig {
                 .authorizeExchange(auth -> auth
                         .pathMatchers("/", "/api/auth/**", "/login", "/register", "/game").permitAll()
                         .pathMatchers("/css/**", "/js/**", "/images/**", "/webjars/**", "/favicon.ico", "/static/**").permitAll()
+                        .pathMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyExchange().authenticated()
                 )
                 .exceptionHandling(e -> e.authenticationEntryPoint((exchange, ex) -> {
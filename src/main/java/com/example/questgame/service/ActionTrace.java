@@ -0,0 +1,78 @@
+package com.example.questgame.service;
+
+import com.example.questgame.model.GameState;
+
+import java.util.Arrays;
+
+/**
+ * Запись одной команды для трассы: что вызвано, в какой момент, с какими параметрами, какие значения выпали
+ * у {@link GameRandom} и какие мировые события шли. Пока запись выключена, используется общий {@link #OFF} — он только
+ * пробрасывает броски. Экземпляр живёт в пределах одной команды и не разделяется между потоками.
+ */
+public final class ActionTrace {
+
+    /** Команды движка в трассе; code — байт в файле. */
+    public enum Command {
+        PROGRESS(1), RIDDLE(2), CRAFT(3), USE(4), RESTART(5);
+
+        final byte code;
+
+        Command(int code) {
+            this.code = (byte) code;
+        }
+
+        static Command of(int code) {
+            for (Command c : values()) {
+                if (c.code == code) return c;
+            }
+            throw new IllegalStateException("Неизвестная команда в трассе: " + code);
+        }
+    }
+
+    static final ActionTrace OFF = new ActionTrace(null, null, null, 0, new String[0]);
+
+    private final ActionTraceRecorder recorder;
+    final Command command;
+    final Long gameStateId;
+    final long now;
+    final String[] params;
+    private int[] draws = new int[0];
+    private int drawCount;
+    private String world = "";
+
+    ActionTrace(ActionTraceRecorder recorder, Command command, Long gameStateId, long now, String[] params) {
+        this.recorder = recorder;
+        this.command = command;
+        this.gameStateId = gameStateId;
+        this.now = now;
+        this.params = params;
+    }
+
+    /** Бросок через random с запоминанием результата. */
+    int nextInt(GameRandom random, int bound) {
+        int v = random.nextInt(bound);
+        if (recorder != null) {
+            if (drawCount == draws.length) draws = Arrays.copyOf(draws, Math.max(2, drawCount * 2));
+            draws[drawCount++] = v;
+        }
+        return v;
+    }
+
+    /** Мировые события, которые видел ход: при воспроизведении они восстанавливаются до команды. */
+    void world(WorldSnapshot snapshot, long nowMillis) {
+        if (recorder != null) world = snapshot.encode(nowMillis);
+    }
+
+    String world() {
+        return world;
+    }
+
+    int[] draws() {
+        return Arrays.copyOf(draws, drawCount);
+    }
+
+    /** Команда сохранила состояние: в трассу уходит запись с хешем результата. */
+    void finish(GameState saved, StepDelta delta) {
+        if (recorder != null) recorder.completed(this, ActionTraceRecorder.stateHash(saved, delta));
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Трасса игровых команд (app.trace.enabled): на каждую сохранённую команду — id игры, команда,
+ * параметры, момент команды, броски {@link GameRandom}, активные мировые события и хеш получившегося состояния. Перед первой командой игры
+ * в файл пишется её снимок (состояние + инвентарь), так что файл воспроизводится сам по себе
+ * ({@link TraceReplayer}). Поток запроса только кодирует запись в байты и кладёт в очередь;
+ * на диск пишет отдельный поток. Очередь переполнена — запись отбрасывается, запрос не ждёт.
+ * <p>
+ * Формат: "QTRC", версия, регенерация (сколько и раз в сколько мс), затем записи 'S' (снимок)
+ * и 'C' (команда); числа — varint, строки — varint-длина + UTF-8.
+ */
+@Component
+public class ActionTraceRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionTraceRecorder.class);
+
+    static final int MAGIC = 0x51545243; // "QTRC"
+    // 2: в снимке id квеста; 3: флаги и счётчики; 4: мировые события; 5: момент команды и эффекты времени
+    static final byte VERSION = 5;
+    static final byte SNAPSHOT = 'S';
+    static final byte COMMAND = 'C';
+
+    private static final DateTimeFormatter FILE_TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final TraceProperties props;
+    private final EffectsProperties effects;
+    // игры, чей снимок уже в файле
+    private final Set<Long> seen = ConcurrentHashMap.newKeySet();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean active;
+    private volatile BlockingQueue<byte[]> queue;
+    private volatile Thread writer;
+    private volatile Path file;
+
+    public ActionTraceRecorder(TraceProperties props, EffectsProperties effects) {
+        this.props = props;
+        this.effects = effects;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (active || !props.isEnabled()) return;
+        DataOutputStream out;
+        try {
+            Path dir = Path.of(props.getDir());
+            Files.createDirectories(dir);
+            file = dir.resolve("trace-" + LocalDateTime.now().format(FILE_TS) + ".bin");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            // регенерация влияет на исход команд, но в записи команды её нет
+            writeVarLong(out, Math.max(0, effects.getRegenAmount()));
+            writeVarLong(out, Math.max(0, effects.getRegenEvery().toMillis()));
+        } catch (IOException e) {
+            log.warn("trace: не удалось открыть файл трассы: {}", e.toString());
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, props.getQueueCapacity()));
+        seen.clear();
+        active = true;
+        Thread t = new Thread(() -> drain(out), "action-trace-writer");
+        t.setDaemon(true);
+        t.start();
+        writer = t;
+        log.info("trace: запись команд в {}", file);
+    }
+
+    /** Остановить приём записей и дописать очередь на диск. */
+    @PreDestroy
+    public synchronized void stop() {
+        active = false;
+        Thread t = writer;
+        if (t == null) return;
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        log.info("trace: записано {}, отброшено {}", recorded.sum(), dropped.sum());
+    }
+
+    public boolean isActive() { return active; }
+
+    public Path currentFile() { return file; }
+
+    public long recordedCount() { return recorded.sum(); }
+
+    public long droppedCount() { return dropped.sum(); }
+
+    // ==========================
+    //       Горячий путь
+    // ==========================
+
+    /** Начало команды; при выключенной записи — общий пустой объект без аллокаций. */
+    public ActionTrace begin(ActionTrace.Command command, Long gameStateId, long now, String... params) {
+        if (!active) return ActionTrace.OFF;
+        return new ActionTrace(this, command, gameStateId, now, params);
+    }
+
+    /** true ровно один раз на игру — вызывающий должен прислать снимок. */
+    public boolean needsSnapshot(Long gameStateId) {
+        return active && gameStateId != null && seen.add(gameStateId);
+    }
+
+    /** Новая игра: снимок без инвентаря, дочитывать ничего не нужно. */
+    public void created(GameState state) {
+        if (needsSnapshot(state.getId())) snapshot(state, List.of());
+    }
+
+    /** Состояние изменилось мимо трассы (undo) — перед следующей командой нужен новый снимок. */
+    public void forget(Long gameStateId) {
+        seen.remove(gameStateId);
+    }
+
+    public void snapshot(GameState state, List<InventoryItem> items) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(64 + items.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeByte(SNAPSHOT);
+            writeVarLong(out, state.getId());
+            writeVarLong(out, state.getUserId() == null ? 0 : state.getUserId() + 1);
+            writeString(out, state.getQuestId());
+            writeString(out, state.getCurrentLocation());
+            writeString(out, state.getPlotProgress());
+            writeVarLong(out, state.getHealth());
+            writeString(out, state.getVars());
+            writeString(out, state.getStatus());
+            writeString(out, state.getEffects());
+            writeVarLong(out, items.size());
+            for (InventoryItem it : items) {
+                writeVarLong(out, it.getId());
+                writeString(out, it.getName());
+                writeString(out, it.getDescription());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать снимок", e);
+        }
+        if (!enqueue(buf.toByteArray())) seen.remove(state.getId());
+    }
+
+    /** Вызывается из {@link ActionTrace#finish} после сохранения состояния. */
+    protected void completed(ActionTrace trace, int stateHash) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeByte(COMMAND);
+            writeVarLong(out, trace.gameStateId);
+            out.writeByte(trace.command.code);
+            writeVarLong(out, trace.params.length);
+            for (String p : trace.params) writeString(out, p);
+            writeVarLong(out, trace.now);
+            int[] draws = trace.draws();
+            writeVarLong(out, draws.length);
+            for (int d : draws) writeVarLong(out, d);
+            writeString(out, trace.world());
+            out.writeInt(stateHash);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать команду", e);
+        }
+        enqueue(buf.toByteArray());
+    }
+
+    private boolean enqueue(byte[] record) {
+        BlockingQueue<byte[]> q = queue;
+        if (active && q != null && q.offer(record)) {
+            recorded.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void drain(DataOutputStream out) {
+        long limit = props.getMaxFileSize().toBytes();
+        long flushMs = Math.max(1, props.getFlushInterval().toMillis());
+        long written = 0;
+        BlockingQueue<byte[]> q = queue;
+        try (out) {
+            while (active || !q.isEmpty()) {
+                byte[] r = q.poll(flushMs, TimeUnit.MILLISECONDS);
+                if (r == null) {
+                    out.flush();
+                    continue;
+                }
+                out.write(r);
+                written += r.length;
+                if (written >= limit) {
+                    active = false;
+                    log.warn("trace: файл {} достиг {} байт, запись остановлена", file, written);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            active = false;
+            log.warn("trace: ошибка записи, трасса остановлена: {}", e.toString());
+        } catch (InterruptedException e) {
+            active = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==========================
+    //     Хеш и примитивы формата
+    // ==========================
+
+    /** FNV-1a по полям состояния и изменениям инвентаря за шаг. */
+    static int stateHash(GameState state, StepDelta delta) {
+        int h = 0x811C9DC5;
+        h = mix(h, Integer.toString(state.getHealth()));
+        h = mix(h, state.getCurrentLocation());
+        h = mix(h, state.getVars());
+        h = mix(h, state.getPlotProgress());
+        h = mix(h, state.getStatus());
+        h = mix(h, state.getEffects());
+        for (GameService.Item it : delta.added()) {
+            h = mix(h, it.name());
+            h = mix(h, it.description());
+        }
+        h = mix(h, "-");
+        for (GameService.Item it : delta.removed()) {
+            h = mix(h, it.name());
+            h = mix(h, it.description());
+        }
+        return h;
+    }
+
+    private static int mix(int h, String v) {
+        if (v != null) {
+            for (int i = 0; i < v.length(); i++) {
+                h = (h ^ v.charAt(i)) * 0x01000193;
+            }
+        }
+        return (h ^ 0xFF) * 0x01000193;
+    }
+
+    static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IllegalStateException("Слишком длинный varint");
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.quest.TimedEffects;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Расписание эффектов времени: у игры не больше одного таймера — на ближайший момент, когда её
+ * строку нужно досчитать ({@link TimedEffects#nextDue}). Таймеры лежат в {@link TimingWheel},
+ * перепланирование — отмена и вставка за O(1), без Reactor-таймера на игру. Запись без эффектов
+ * (таймера нет и не нужен) и повтор того же срока проходят без блокировки — по карте таймеров;
+ * колесо (оно не потокобезопасно) трогается только под своей блокировкой.
+ * Расписание только в памяти: после рестарта его восстанавливает {@link TimedEffectsService}
+ * по game_states.effects_due.
+ */
+@Component
+public class EffectScheduler {
+
+    private final EffectsProperties props;
+    private final TimedEffects.Regen regen;
+    private final TimingWheel<Long> wheel;
+    private final ConcurrentHashMap<Long, TimingWheel.Timer<Long>> timers = new ConcurrentHashMap<>();
+    // меняет колесо и карту таймеров; читать карту можно без неё
+    private final ReentrantLock wheelLock = new ReentrantLock();
+
+    public EffectScheduler(EffectsProperties props) {
+        this.props = props;
+        this.regen = new TimedEffects.Regen(props.getRegenAmount(), props.getRegenEvery().toMillis());
+        this.wheel = new TimingWheel<>(Math.max(1, props.getTick().toMillis()), props.getWheelSize(),
+                System.currentTimeMillis());
+    }
+
+    /** Колесо выключено, регенерации нет — для тестов и воспроизведения трасс. */
+    public static EffectScheduler disabled() {
+        EffectsProperties off = new EffectsProperties();
+        off.setEnabled(false);
+        return new EffectScheduler(off);
+    }
+
+    public TimedEffects.Regen regen() {
+        return regen;
+    }
+
+    /** Запланировать досчёт игры на dueMillis вместо прежнего; Long.MAX_VALUE — снять таймер. */
+    public void schedule(Long gameStateId, long dueMillis) {
+        if (gameStateId == null || !props.isEnabled()) return;
+        TimingWheel.Timer<Long> current = timers.get(gameStateId);
+        // большинство команд: эффектов нет и не было, или срок не сдвинулся
+        if (current == null ? dueMillis == Long.MAX_VALUE : current.due == dueMillis) return;
+        wheelLock.lock();
+        try {
+            TimingWheel.Timer<Long> old = dueMillis == Long.MAX_VALUE ? timers.remove(gameStateId) : timers.get(gameStateId);
+            if (old != null) {
+                if (old.due == dueMillis) return;
+                wheel.cancel(old);
+            }
+            if (dueMillis != Long.MAX_VALUE) timers.put(gameStateId, wheel.schedule(gameStateId, dueMillis));
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /** Продвинуть колесо до nowMillis; id игр, чей срок наступил (их таймеры сняты). */
+    public List<Long> due(long nowMillis) {
+        if (!props.isEnabled()) return List.of();
+        List<Long> out = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            wheel.advance(nowMillis, id -> {
+                timers.remove(id);
+                out.add(id);
+            });
+        } finally {
+            wheelLock.unlock();
+        }
+        return out;
+    }
+
+    /** Сколько игр ждут досчёта; без блокировки колеса. */
+    public int scheduled() {
+        return timers.size();
+    }
+}
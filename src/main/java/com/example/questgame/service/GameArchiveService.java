@@ -0,0 +1,247 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.ArchiveProperties;
+import com.example.questgame.dto.GameExportDto;
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.model.ArchivedGame;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.repository.GameArchiveRepository;
+import com.example.questgame.repository.GameBulkRepository;
+import com.example.questgame.repository.GameDeltaRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.storage.GameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Холодный архив: завершённые (WON/DEAD) и заброшенные игры переезжают из game_states/inventory_items
+ * в game_archive — по одному сжатому blob на игру. Задача идёт батчами по id с паузой между ними,
+ * горячие строки удаляются только после записи архива. Обращение к архивной игре по id
+ * (GameService.findState) прозрачно возвращает её в горячие таблицы. С хранилищем в памяти
+ * ({@link GameStore#durable()} — false) задача не запускается: горячих таблиц у неё нет.
+ */
+@Service
+public class GameArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(GameArchiveService.class);
+
+    private final ArchiveProperties props;
+    private final GameStore store;
+    private final GameStateRepository gameStateRepository;
+    private final InventoryItemRepository inventoryItemRepository;
+    private final GameArchiveRepository archiveRepository;
+    private final GameBulkRepository bulkRepository;
+    private final GameDeltaRepository deltaRepository;
+    private final GameVersions versions;
+    private final ObjectMapper objectMapper;
+    // одновременные обращения к одной архивной игре ждут одного восстановления
+    private final ConcurrentHashMap<Long, Mono<GameState>> restoring = new ConcurrentHashMap<>();
+    private volatile Disposable task;
+
+    public GameArchiveService(ArchiveProperties props,
+                              GameStore store,
+                              GameStateRepository gameStateRepository,
+                              InventoryItemRepository inventoryItemRepository,
+                              GameArchiveRepository archiveRepository,
+                              GameBulkRepository bulkRepository,
+                              GameDeltaRepository deltaRepository,
+                              GameVersions versions,
+                              ObjectMapper objectMapper) {
+        this.props = props;
+        this.store = store;
+        this.gameStateRepository = gameStateRepository;
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.archiveRepository = archiveRepository;
+        this.bulkRepository = bulkRepository;
+        this.deltaRepository = deltaRepository;
+        this.versions = versions;
+        this.objectMapper = objectMapper;
+    }
+
+    // ==========================
+    //          Архивация
+    // ==========================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (task != null || !props.isEnabled() || !store.durable()) return;
+        task = Flux.interval(props.getInterval(), props.getInterval(), Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> runOnce()
+                        .onErrorResume(e -> {
+                            log.warn("archive: запуск не удался: {}", e.toString());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable t = task;
+        if (t != null) t.dispose();
+    }
+
+    /** Один проход по таблице: сколько игр ушло в архив. */
+    public Mono<Long> runOnce() {
+        LocalDateTime idleBefore = LocalDateTime.now().minus(props.getIdleAfter());
+        int batch = Math.max(1, props.getBatchSize());
+        long started = System.nanoTime();
+        return archiveBatch(0L, idleBefore, batch)
+                .expand(b -> b.full() && b.seen() < props.getMaxGamesPerRun()
+                        ? archiveBatch(b.lastId(), idleBefore, batch)
+                                .map(next -> next.after(b))
+                                .delaySubscription(props.getPauseBetweenBatches())
+                        : Mono.empty())
+                .reduce(0L, (sum, b) -> sum + b.archived())
+                .doOnNext(n -> {
+                    if (n > 0) {
+                        log.info("archive: {} игр за {} мс", n, (System.nanoTime() - started) / 1_000_000);
+                    }
+                });
+    }
+
+    /**
+     * Батч: сжатые копии пишутся одним INSERT, затем удаляются горячие строки. Игру, изменённую
+     * после чтения батча, DELETE пропустит (условие по updated_at) — её устаревшую копию убираем из архива.
+     */
+    private Mono<Batch> archiveBatch(long afterId, LocalDateTime idleBefore, int size) {
+        return Mono.defer(() -> {
+            LocalDateTime readAt = LocalDateTime.now();
+            return gameStateRepository.findArchiveCandidates(afterId, idleBefore, size)
+                    .collectList()
+                    .flatMap(states -> {
+                        if (states.isEmpty()) return Mono.just(new Batch(afterId, 0, 0, false));
+                        List<Long> ids = states.stream().map(GameState::getId).toList();
+                        long lastId = ids.get(ids.size() - 1);
+                        return inventoryItemRepository.findByGameStateIdIn(ids)
+                                .collectMultimap(InventoryItem::getGameStateId)
+                                .map(byGame -> {
+                                    List<ArchivedGame> out = new ArrayList<>(states.size());
+                                    for (GameState s : states) {
+                                        out.add(toArchived(GameTransferService.toExport(s, byGame), readAt));
+                                    }
+                                    return out;
+                                })
+                                .flatMap(bulkRepository::upsertArchived)
+                                .then(gameStateRepository.deleteArchived(ids, readAt, idleBefore))
+                                .flatMap(deleted -> inventoryItemRepository.deleteOrphans(ids)
+                                        .then(archiveRepository.deleteStillHot(ids))
+                                        // журнал отмены заархивированной игре не нужен
+                                        .then(deltaRepository.deleteOrphans(ids))
+                                        // версии ушедших игр в памяти не нужны; у оставшихся горячими
+                                        // тег лишь сменится на не меньший
+                                        .doOnSuccess(__ -> ids.forEach(versions::forget))
+                                        .thenReturn(new Batch(lastId, states.size(), deleted, states.size() == size)));
+                    });
+        });
+    }
+
+    // ==========================
+    //        Восстановление
+    // ==========================
+
+    /** Вернуть игру из архива в горячие таблицы; пусто, если в архиве её нет. */
+    public Mono<GameState> restore(Long gameStateId) {
+        if (gameStateId == null) return Mono.empty();
+        return Mono.defer(() -> {
+            Mono<GameState> fresh = doRestore(gameStateId)
+                    .doFinally(s -> restoring.remove(gameStateId))
+                    .cache();
+            Mono<GameState> existing = restoring.putIfAbsent(gameStateId, fresh);
+            return existing != null ? existing : fresh;
+        });
+    }
+
+    private Mono<GameState> doRestore(Long gameStateId) {
+        return archiveRepository.findById(gameStateId)
+                .flatMap(archived -> {
+                    GameExportDto game = decode(archived.getPayload());
+                    GameState state = GameTransferService.toState(game);
+                    List<InventoryItem> items = new ArrayList<>();
+                    if (game.getInventory() != null) {
+                        for (InventoryItemDto i : game.getInventory()) {
+                            InventoryItem it = new InventoryItem();
+                            it.setId(i.getId());
+                            it.setGameStateId(game.getId());
+                            it.setName(i.getName());
+                            it.setDescription(i.getDescription());
+                            items.add(it);
+                        }
+                    }
+                    return bulkRepository.upsertStates(List.of(state))
+                            .then(bulkRepository.upsertItems(items))
+                            .then(archiveRepository.deleteById(gameStateId))
+                            .then(gameStateRepository.findById(gameStateId))
+                            .doOnNext(restored -> {
+                                versions.bump(gameStateId);
+                                log.debug("archive: игра {} восстановлена", gameStateId);
+                            });
+                });
+    }
+
+    // ==========================
+    //          Формат blob
+    // ==========================
+
+    private ArchivedGame toArchived(GameExportDto game, LocalDateTime archivedAt) {
+        ArchivedGame a = new ArchivedGame();
+        a.setGameId(game.getId());
+        a.setUserId(game.getUserId());
+        a.setCurrentLocation(game.getCurrentLocation());
+        a.setHealth(game.getHealth() == null ? 0 : game.getHealth());
+        a.setStatus(game.getStatus());
+        a.setUpdatedAt(game.getUpdatedAt());
+        a.setArchivedAt(archivedAt);
+        a.setPayload(encode(game));
+        return a;
+    }
+
+    byte[] encode(GameExportDto game) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+        int level = props.getCompressionLevel();
+        try (OutputStream out = new GZIPOutputStream(buf) {{ def.setLevel(level); }}) {
+            objectMapper.writeValue(out, game);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось упаковать игру " + game.getId(), e);
+        }
+        return buf.toByteArray();
+    }
+
+    GameExportDto decode(byte[] payload) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(in, GameExportDto.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Повреждённая запись архива", e);
+        }
+    }
+
+    /** seen — сколько игр просмотрено с начала запуска (для maxGamesPerRun). */
+    private record Batch(long lastId, long seen, long archived, boolean full) {
+        Batch after(Batch previous) {
+            return new Batch(lastId, previous.seen + seen, archived, full);
+        }
+    }
+}
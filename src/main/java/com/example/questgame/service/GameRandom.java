@@ -0,0 +1,23 @@
+package com.example.questgame.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Источник случайности и времени движка. Вынесен в бин, чтобы броски и момент команды можно
+ * было записать в трассу и подставить те же значения при воспроизведении.
+ */
+@Component
+public class GameRandom {
+
+    /** Равномерно в [0, bound). */
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    /** Момент команды (epoch millis): от него считаются эффекты времени и мировые события. */
+    public long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -1,142 +1,216 @@
 package com.example.questgame.service;
 
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.dto.GameSlotDto;
+import com.example.questgame.dto.GameSlotPageDto;
+import com.example.questgame.dto.GameStepDto;
+import com.example.questgame.exception.ForbiddenException;
 import com.example.questgame.exception.NotFoundException;
 import com.example.questgame.exception.ValidationException;
+import com.example.questgame.facade.LastKnownGood;
 import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameStatus;
+import com.example.questgame.model.GameSummary;
 import com.example.questgame.model.InventoryItem;
-import com.example.questgame.repository.GameStateRepository;
-import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPack;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.quest.QuestVars;
+import com.example.questgame.quest.RuleContext;
+import com.example.questgame.quest.TimedEffects;
+import com.example.questgame.repository.GameDeltaRepository;
+import com.example.questgame.storage.GameStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.LongFunction;
 
 @Service
 public class GameService {
 
     private static final Logger log = LoggerFactory.getLogger(GameService.class);
 
-    private final GameStateRepository gameStateRepository;
-    private final InventoryItemRepository inventoryItemRepository;
+    private final GameStore store;
+    private final GameStatsService stats;
+    private final GameVersions versions;
+    private final GameArchiveService archive;
+    private final GameDeltaRepository deltas;
+    private final UndoProperties undo;
+    private final GameRandom random;
+    private final ActionTraceRecorder trace;
+    private final QuestPacks quests;
+    private final WorldEventService world;
+    private final GameOutbox outbox;
+    private final EffectScheduler effects;
+    private final LastKnownGood snapshots;
 
-    // ---- Локации (технические ключи)
-    private static final String LOC_FOREST  = "forest";
-    private static final String LOC_CASTLE  = "castle";
-    private static final String LOC_CAVE    = "cave";
-    private static final String LOC_VILLAGE = "village";
-
-    // ---- Стартовые/игровые константы
-    private static final String STARTING_TEXT = "Вы просыпаетесь в древнем лесу. Вокруг густая листва и странные звуки. Выберите путь.";
-    private static final int MAX_HEALTH = 100;
     private static final int MIN_HEALTH = 0;
-
-    private static final String RIDDLE_QUESTION = "Что имеет голову, но не имеет тела?";
-    @SuppressWarnings("unused")
-    private static final List<String> RIDDLE_OPTIONS = List.of("сыр", "лук", "капуста");
-    private static final String RIDDLE_CORRECT = "сыр";
-    private static final String RIDDLE_PROMPT_MARK = "[RIDDLE]";
-
-    // ---- Рецепты крафта (статичны)
-    private static final Map<String, CraftRecipe> RECIPES = Map.of(
-            "potion_from_herb", new CraftRecipe(
-                    "potion_from_herb", "Сварить зелье",
-                    List.of("трава", "фляга"),
-                    new Item("зелье", "Зелье лечения (+30 HP)")
-            ),
-            "light_blade", new CraftRecipe(
-                    "light_blade","Клинок света",
-                    List.of("меч", "артефакт"),
-                    new Item("клинок света","Оружие из артефакта. Поможет против дракона.")
-            )
-    );
-
-    public GameService(GameStateRepository gameStateRepository, InventoryItemRepository inventoryItemRepository) {
-        this.gameStateRepository = gameStateRepository;
-        this.inventoryItemRepository = inventoryItemRepository;
+    private static final int MAX_SLOTS_PAGE = 100;
+
+    // до каталога сообщений загадка помечалась в тексте
+    private static final String LEGACY_RIDDLE_MARK = "[RIDDLE]";
+    // коды завершающих сообщений (победа/смерть) начинаются с "end." — так и в пакетах квестов
+    private static final String END_CODE_PREFIX = "end.";
+    private static final String DEAD_CODE = "end.dead";
+    private static final String UNAVAILABLE = PlotText.of("action.unavailable");
+    // нераспознанный ввод в событиях шага: сырой текст раздувал бы словарь действий аналитики
+    private static final String UNKNOWN_ACTION = "unknown";
+    // шаг, записанный эффектами времени (смерть от яда, досчёт по расписанию), а не игроком
+    private static final String EFFECTS_ACTION = "effects";
+
+    public GameService(GameStore store, GameStatsService stats, GameVersions versions, GameArchiveService archive,
+                       GameDeltaRepository deltas, UndoProperties undo,
+                       GameRandom random, ActionTraceRecorder trace, QuestPacks quests, WorldEventService world,
+                       GameOutbox outbox, EffectScheduler effects, LastKnownGood snapshots) {
+        this.store = store;
+        this.stats = stats;
+        this.versions = versions;
+        this.archive = archive;
+        this.deltas = deltas;
+        this.undo = undo;
+        this.random = random;
+        this.trace = trace;
+        this.quests = quests;
+        this.world = world;
+        this.outbox = outbox;
+        this.effects = effects;
+        this.snapshots = snapshots;
     }
 
     // ==========================
     //           API
     // ==========================
 
-    /** Читаемая метка действия по ключу. */
-    public String labelOf(String actionKey) {
-        return Action.fromKey(actionKey).map(a -> a.label).orElse(actionKey);
+    /** Пакет квеста игры — общий неизменяемый экземпляр на все игры квеста. */
+    public QuestPack packOf(GameState state) {
+        return quests.get(state.getQuestId());
+    }
+
+    /** Текущая локация игры в графе её квеста. */
+    public QuestPack.Location locationOf(GameState state) {
+        return packOf(state).locationOf(state.getCurrentLocation());
     }
 
     /** Доступные ключи действий для текущей локации — реактивно. */
     public Flux<String> getAvailableActionKeys(GameState state) {
-        String loc = locKey(state.getCurrentLocation());
-        return switch (loc) {
-            case LOC_FOREST  -> Flux.just(
-                    Action.GO_CASTLE.key,
-                    Action.SEARCH_TREASURE.key,
-                    Action.RUN_AWAY.key,
-                    Action.GO_CAVE.key,
-                    Action.GO_VILLAGE.key
-            );
-            case LOC_CAVE    -> Flux.just(
-                    Action.SOLVE_RIDDLE.key,
-                    Action.GO_VILLAGE.key
-            );
-            case LOC_VILLAGE -> Flux.just(
-                    Action.RETURN_ARTIFACT.key,
-                    Action.GO_CAVE.key,
-                    Action.RUN_AWAY.key
-            );
-            case LOC_CASTLE  -> Flux.just(
-                    Action.FIGHT_DRAGON.key,
-                    Action.SOLVE_RIDDLE.key,
-                    Action.RUN_AWAY.key
-            );
-            default          -> Flux.just(Action.RUN_AWAY.key);
-        };
+        return Flux.fromIterable(actionKeysOf(state));
+    }
+
+    /** Ключи действий локации: один неизменяемый экземпляр списка на локацию (годится как ключ кэша). */
+    public List<String> actionKeysOf(GameState state) {
+        return locationOf(state).actionKeys();
     }
 
     public boolean isTerminal(GameState gs) {
         if (gs.getHealth() <= 0) return true;
-        String msg = Optional.ofNullable(gs.getPlotProgress()).orElse("").toLowerCase(Locale.ROOT);
-        return msg.contains("конец!") || msg.contains("игра окончена");
+        return containsGameOver(gs.getPlotProgress());
     }
 
     public boolean riddlePromptActive(GameState gs) {
         String msg = Optional.ofNullable(gs.getPlotProgress()).orElse("");
-        return msg.contains(RIDDLE_PROMPT_MARK);
+        QuestPack.Riddle riddle = packOf(gs).riddle();
+        return (riddle != null && PlotText.hasCode(msg, riddle.prompt())) || msg.contains(LEGACY_RIDDLE_MARK);
     }
 
     // ---- State / inventory ----
 
     public Mono<GameState> createNewGame(Long userId) {
-        GameState state = new GameState();
-        state.setUserId(userId);
-        state.setCurrentLocation("лес");
-        state.setPlotProgress(STARTING_TEXT);
-        state.setHealth(100);
-        return gameStateRepository.save(state);
+        return createNewGame(userId, null);
+    }
+
+    /** Новая игра в квесте questId (null — квест по умолчанию); неизвестный квест — NotFoundException. */
+    public Mono<GameState> createNewGame(Long userId, String questId) {
+        return Mono.fromCallable(() -> quests.get(questId))
+                .flatMap(pack -> {
+                    GameState state = new GameState();
+                    state.setUserId(userId);
+                    state.setQuestId(pack.id());
+                    state.setCurrentLocation(pack.start().name());
+                    state.setPlotProgress(pack.startText());
+                    state.setHealth(pack.startHealth());
+                    return save(state);
+                })
+                .doOnNext(this::rememberSnapshot)
+                .doOnNext(trace::created);
     }
 
-    /** Сохраняем совместимость по сигнатуре. */
+    /** Последний изменённый слот пользователя (пусто, если слотов нет). */
     public Mono<GameState> getUserGames(Long userId) {
-        return gameStateRepository.findByUserId(userId);
+        return store.findLatestByUser(userId);
+    }
+
+    /** Страница слотов пользователя: keyset по (updated_at, id), цена не зависит от номера страницы. */
+    public Mono<GameSlotPageDto> listSlots(Long userId, String cursor, int limit) {
+        int size = clamp(limit, 1, MAX_SLOTS_PAGE);
+        Flux<GameSummary> page;
+        if (cursor == null || cursor.isBlank()) {
+            page = store.findSummaries(userId, size + 1);
+        } else {
+            SlotCursor c = SlotCursor.decode(cursor);
+            page = store.findSummariesAfter(userId, c.updatedAt(), c.id(), size + 1);
+        }
+        return page.collectList().map(rows -> {
+            boolean more = rows.size() > size;
+            List<GameSummary> items = more ? rows.subList(0, size) : rows;
+            String next = null;
+            if (more) {
+                GameSummary last = items.get(items.size() - 1);
+                next = new SlotCursor(last.updatedAt(), last.id()).encode();
+            }
+            return new GameSlotPageDto(
+                    items.stream()
+                            .map(g -> new GameSlotDto(g.id(), g.currentLocation(), g.health(), g.status(), g.updatedAt()))
+                            .toList(),
+                    next);
+        });
     }
 
+    /** Слот, принадлежащий пользователю; чужой слот — ForbiddenException. */
+    public Mono<GameState> findOwnedState(Long userId, Long gameStateId) {
+        return findState(gameStateId)
+                .flatMap(gs -> Objects.equals(gs.getUserId(), userId)
+                        ? Mono.just(gs)
+                        : Mono.error(new ForbiddenException("Слот принадлежит другому пользователю")));
+    }
+
+    /** Игра для показа: эффекты времени (регенерация, яд) досчитаны на текущий момент, в БД не пишется. */
     public Mono<GameState> byId(Long gameStateId) {
-        return findState(gameStateId);
+        return findState(gameStateId)
+                .doOnNext(state -> settle(state, System.currentTimeMillis()))
+                .doOnNext(this::rememberSnapshot);
     }
 
+    /** Игра по id; если она ушла в холодный архив — сначала возвращается в горячие таблицы. */
     public Mono<GameState> findState(Long gameStateId) {
-        return gameStateRepository.findById(gameStateId)
+        return store.findState(gameStateId)
+                .switchIfEmpty(Mono.defer(() -> store.durable() ? archive.restore(gameStateId) : Mono.empty()))
                 .switchIfEmpty(Mono.error(new NotFoundException("GameState", gameStateId)));
     }
 
+    /**
+     * findState для команды: при включённой трассе перед первой командой игры пишется её снимок,
+     * затем эффекты времени досчитываются на момент команды. Если игрок за это время умер от яда,
+     * смерть записывается отдельным шагом, и команда видит уже завершённую игру.
+     */
+    private Mono<GameState> loadForCommand(Long gameStateId, long now) {
+        return findState(gameStateId)
+                .flatMap(state -> trace.needsSnapshot(state.getId())
+                        ? store.findItems(state.getId())
+                                .collectList()
+                                .doOnNext(items -> trace.snapshot(state, items))
+                                .thenReturn(state)
+                        : Mono.just(state))
+                .flatMap(state -> applyEffects(state, now, false));
+    }
+
     public Flux<InventoryItem> listInventory(Long gameStateId) {
-        return inventoryItemRepository.findByGameStateId(gameStateId);
+        return store.findItems(gameStateId);
     }
 
     /** Имена предметов как Flux<String> (lower-case, без пустых). */
@@ -148,9 +222,7 @@ public class GameService {
     }
 
     public Mono<Boolean> hasItem(Long gameStateId, String name) {
-        return inventoryItemRepository
-                .findFirstByGameStateIdAndNameIgnoreCase(gameStateId, name)
-                .hasElement();
+        return store.findItemByName(gameStateId, name).hasElement();
     }
 
     public Mono<Void> addItemToInventory(Long gameStateId, String name, String description) {
@@ -158,7 +230,9 @@ public class GameService {
         item.setGameStateId(gameStateId);
         item.setName(name);
         item.setDescription(description);
-        return inventoryItemRepository.save(item).then();
+        return store.saveItem(item)
+                .doOnSuccess(__ -> versions.bump(gameStateId))
+                .then();
     }
 
     public Mono<Void> grantItemIfAbsent(Long gameStateId, String name, String description) {
@@ -168,34 +242,64 @@ public class GameService {
     }
 
     public Mono<Void> removeOneItemByName(Long gameStateId, String name) {
-        return inventoryItemRepository.findFirstByGameStateIdAndNameIgnoreCase(gameStateId, name)
+        return store.findItemByName(gameStateId, name)
                 .switchIfEmpty(Mono.error(new NotFoundException("InventoryItem(name)", name)))
-                .flatMap(i -> inventoryItemRepository.deleteById(i.getId()));
+                .flatMap(i -> store.deleteItem(i.getId()))
+                .doOnSuccess(__ -> versions.bump(gameStateId));
     }
 
-    private Mono<Void> removeAllInventory(Long gameStateId) {
-        return inventoryItemRepository.findByGameStateId(gameStateId)
-                .flatMap(i -> inventoryItemRepository.deleteById(i.getId()))
+    /** grantItemIfAbsent с отметкой в дельте шага (только если предмет действительно добавлен). */
+    private Mono<Void> grant(Long gameStateId, String name, String description, StepDelta.Builder delta) {
+        return hasItem(gameStateId, name)
+                .flatMap(exists -> {
+                    if (exists) return Mono.<Void>empty();
+                    delta.added(name, description);
+                    return addItemToInventory(gameStateId, name, description);
+                });
+    }
+
+    /** removeOneItemByName с отметкой удалённого экземпляра в дельте шага. */
+    private Mono<Void> removeOne(Long gameStateId, String name, StepDelta.Builder delta) {
+        return store.findItemByName(gameStateId, name)
+                .switchIfEmpty(Mono.error(new NotFoundException("InventoryItem(name)", name)))
+                .flatMap(i -> {
+                    delta.removed(i.getName(), i.getDescription());
+                    return store.deleteItem(i.getId());
+                })
+                .doOnSuccess(__ -> versions.bump(gameStateId));
+    }
+
+    private Mono<Void> removeAllInventory(Long gameStateId, StepDelta.Builder delta) {
+        return store.findItems(gameStateId)
+                .flatMap(i -> {
+                    delta.removed(i.getName(), i.getDescription());
+                    return store.deleteItem(i.getId());
+                })
                 .then();
     }
 
     public Mono<GameState> restartGame(Long gameStateId) {
-        return findState(gameStateId)
-                .flatMap(state -> removeAllInventory(gameStateId)
-                        .then(Mono.defer(() -> {
-                            state.setHealth(100);
-                            state.setCurrentLocation("лес");
-                            state.setPlotProgress(STARTING_TEXT);
-                            return gameStateRepository.save(state);
-                        })));
+        return command(gameStateId, now -> loadForCommand(gameStateId, now)
+                .flatMap(state -> {
+                    QuestPack pack = packOf(state);
+                    StepDelta.Builder delta = begin(state);
+                    ActionTrace step = trace.begin(ActionTrace.Command.RESTART, gameStateId, now);
+                    return removeAllInventory(gameStateId, delta)
+                            .then(Mono.defer(() -> {
+                                state.setHealth(pack.startHealth());
+                                state.setCurrentLocation(pack.start().name());
+                                state.setPlotProgress(pack.startText());
+                                state.setVars(null);
+                                state.setEffects(null);
+                                return saveStep(state, delta, step, "restart");
+                            }));
+                }));
     }
 
     // ---- Plot ----
 
     public Mono<GameState> updatePlot(Long gameStateId, String rawChoice) {
-        final String choiceKey = normalizeChoice(rawChoice);
-
-        return findState(gameStateId)
+        return command(gameStateId, now -> loadForCommand(gameStateId, now)
                 .switchIfEmpty(Mono.error(new IllegalStateException("GameState not found: " + gameStateId)))
                 .flatMap(state -> {
                     if (isTerminal(state)) {
@@ -203,177 +307,133 @@ public class GameService {
                         return Mono.just(state);
                     }
 
-                    final String loc = locKey(state.getCurrentLocation());
+                    final QuestPack pack = packOf(state);
+                    final QuestPack.Location loc = pack.locationOf(state.getCurrentLocation());
+                    final String choiceKey = normalizeChoice(pack, rawChoice);
+                    final StepDelta.Builder delta = begin(state);
+                    final ActionTrace step = trace.begin(ActionTrace.Command.PROGRESS, gameStateId, now,
+                            rawChoice == null ? "" : rawChoice);
+
+                    log.debug("updatePlot: stateId={}, quest={}, loc={}, choiceRaw={}, choiceKey={}, allowed={}",
+                            state.getId(), pack.id(), loc.key(), rawChoice, choiceKey, loc.actionKeys());
+
+                    final QuestPack.Action action = loc.action(choiceKey);
+                    if (action == null) {
+                        state.setPlotProgress(UNAVAILABLE);
+                        return saveStep(state, delta, step, UNKNOWN_ACTION);
+                    }
+
+                    final TimedEffects fx = TimedEffects.parse(state.getEffects());
+                    long wait = fx.cooldownLeft(choiceKey, now);
+                    if (wait > 0) {
+                        state.setPlotProgress(PlotText.of("action.cooldown", Long.toString((wait + 999) / 1000)));
+                        return saveStep(state, delta, step, choiceKey);
+                    }
+
+                    return listInventoryNames(state.getId())
+                            .collect(HashSet<String>::new, HashSet::add) // Mono<HashSet<String>>
+                            .flatMap(items -> {
+                                int rolled = action.roll() > 0 ? step.nextInt(random, action.roll()) : 0;
+                                QuestVars vars = QuestVars.parse(state.getVars());
+                                // снимок мировых событий — один на ход, момент — момент команды
+                                WorldSnapshot w = world.snapshot();
+                                step.world(w, now);
+                                QuestPack.Outcome o = action.choose(
+                                        new StepContext(items, state.getHealth(), rolled, vars, w, fx, now));
+                                if (o == null) {
+                                    state.setPlotProgress(UNAVAILABLE);
+                                    return saveStep(state, delta, step, choiceKey);
+                                }
+                                recordStats(loc.key(), choiceKey, action, o, state.getHealth());
 
-                    return getAvailableActionKeys(state).collectList()
-                            .flatMap(keys -> {
-                                final Set<String> allowed = new HashSet<>(keys);
-                                log.debug("updatePlot: stateId={}, loc={}, choiceRaw={}, choiceKey={}, allowed={}",
-                                        state.getId(), state.getCurrentLocation(), rawChoice, choiceKey, allowed);
+                                int newHealth = clamp(state.getHealth() + o.health(), MIN_HEALTH, pack.maxHealth());
+                                state.setHealth(newHealth);
+                                state.setPlotProgress(o.message());
+                                if (o.moveTo() != null) {
+                                    state.setCurrentLocation(pack.location(o.moveTo()).name());
+                                }
+                                if (!o.vars().isEmpty()) {
+                                    o.vars().forEach(vars::apply);
+                                    state.setVars(vars.encode());
+                                }
+                                if (!o.timed().isEmpty() || action.cooldown() > 0) {
+                                    o.timed().forEach(op -> fx.apply(op, now));
+                                    if (action.cooldown() > 0) fx.cooldown(choiceKey, action.cooldown(), now);
+                                    state.setEffects(fx.encode());
+                                }
+                                if (newHealth <= 0 && !PlotText.hasCode(o.message(), DEAD_CODE)) {
+                                    state.setPlotProgress(PlotText.prepend(o.message(), PlotText.of(DEAD_CODE)));
+                                }
 
-                                if (!allowed.contains(choiceKey)) {
-                                    state.setPlotProgress("Действие недоступно здесь. Выберите один из предложенных вариантов.");
-                                    return gameStateRepository.save(state);
+                                Mono<Void> ops = Mono.empty();
+                                for (Item it : o.grant()) {
+                                    ops = ops.then(grant(state.getId(), it.name(), it.description(), delta));
                                 }
+                                for (String name : o.remove()) {
+                                    ops = ops.then(removeOne(state.getId(), name, delta)
+                                            .onErrorResume(__ -> Mono.empty()));
+                                }
+
+                                log.debug("updatePlot: apply outcome stateId={} -> health={}, newLoc={}, msg={}",
+                                        state.getId(), newHealth, state.getCurrentLocation(), state.getPlotProgress());
 
-                                return listInventoryNames(state.getId())
-                                        .collect(HashSet::new, HashSet::add) // Mono<HashSet<String>>
-                                        .flatMap(items -> {
-                                            boolean hasSword      = items.contains("меч");
-                                            boolean hasArtifact   = items.contains("артефакт");
-                                            boolean hasLightBlade = items.contains("клинок света");
-
-                                            Event e = decide(loc, choiceKey, hasSword, hasArtifact, hasLightBlade);
-
-                                            int newHealth = clamp(state.getHealth() + e.deltaHealth(), MIN_HEALTH, MAX_HEALTH);
-                                            state.setHealth(newHealth);
-                                            state.setPlotProgress(e.message());
-                                            if (e.newLocation() != null) {
-                                                state.setCurrentLocation(humanLocationName(e.newLocation()));
-                                            }
-                                            if (newHealth <= 0 && (e.message() == null
-                                                    || !e.message().toLowerCase(Locale.ROOT).contains("игра окончена"))) {
-                                                state.setPlotProgress(
-                                                        (e.message() == null ? "" : e.message()) + " Вы умерли. Игра окончена.");
-                                            }
-
-                                            Mono<Void> ops = Mono.empty();
-
-                                            if (e.itemToGrant() != null) {
-                                                var it = e.itemToGrant();
-                                                String name = it.name() == null ? "" : it.name();
-                                                String desc = it.description() == null ? "" : it.description();
-                                                if (!name.isBlank()) {
-                                                    ops = ops.then(grantItemIfAbsent(state.getId(), name, desc));
-                                                }
-                                            }
-                                            if (e.removeArtifact()) {
-                                                ops = ops.then(removeOneItemByName(state.getId(), "артефакт")
-                                                        .onErrorResume(__ -> Mono.empty()));
-                                            }
-                                            if (e.grantSwordIfMissing()) {
-                                                ops = ops.then(grantItemIfAbsent(state.getId(), "меч", "Острый меч для боя"));
-                                            }
-
-                                            log.debug("updatePlot: apply event stateId={} -> health={}, newLoc={}, msg={}",
-                                                    state.getId(), newHealth, state.getCurrentLocation(), state.getPlotProgress());
-
-                                            return ops.then(gameStateRepository.save(state));
-                                        })
-                                        .doOnError(err -> log.debug("updatePlot ERROR: {}", err.toString(), err));
-                            });
+                                return ops.then(saveStep(state, delta, step, choiceKey));
+                            })
+                            .doOnError(err -> log.debug("updatePlot ERROR: {}", err.toString(), err));
                 })
-                .log("GameService.updatePlot");
-    }
-
-    private Event decide(String loc, String choiceKey, boolean hasSword, boolean hasArtifact, boolean hasLightBlade) {
-        return switch (loc) {
-            case LOC_FOREST -> switch (choiceKey) {
-                case "go_castle" -> new Event(
-                        "Вы подошли к замку. У входа — дракон. Если у вас есть меч/клинок — сражайтесь, иначе попробуйте решить загадку.",
-                        0, null, LOC_CASTLE, false, false);
-                case "search_treasure" -> {
-                    int roll = ThreadLocalRandom.current().nextInt(10);
-                    if (roll >= 7) {
-                        yield new Event("Вы нашли меч! Но волк нападает. Здоровье -20.",
-                                -20, new Item("меч", "Острый меч для боя"), LOC_FOREST, false, false);
-                    } else if (roll >= 5) {
-                        yield new Event("Вы нашли траву с сильным ароматом. Похоже, из неё можно сварить зелье.",
-                                0, new Item("трава", "Ингредиент для зелья"), LOC_FOREST, false, false);
-                    } else if (roll >= 3) {
-                        yield new Event("Вы нашли пустую флягу. Пригодится для алхимии.",
-                                0, new Item("фляга", "Ингредиент для зелья"), LOC_FOREST, false, false);
-                    } else {
-                        yield new Event("Вы нашли зелье! Здоровье +30.",
-                                +30, new Item("зелье", "Зелье лечения"), LOC_FOREST, false, false);
-                    }
-                }
-                case "run_away" -> new Event("Вы бежите по лесу, но всё ещё тут. Попробуйте другой путь.",
-                        0, null, LOC_FOREST, false, false);
-                case "go_cave" -> new Event("Вы в тёмной пещере. Здесь можно попытаться решить загадку.",
-                        0, null, LOC_CAVE, false, false);
-                case "go_village" -> new Event("Вы в деревне. Жители просят найти артефакт в пещере.",
-                        0, null, LOC_VILLAGE, false, false);
-                default -> new Event("Действие недоступно здесь. Выберите один из предложенных вариантов.",
-                        0, null, LOC_FOREST, false, false);
-            };
-            case LOC_CAVE -> switch (choiceKey) {
-                case "solve_riddle" -> new Event(
-                        RIDDLE_PROMPT_MARK + " Загадка: " + RIDDLE_QUESTION + " Выберите ответ.",
-                        0, null, LOC_CAVE, false, false);
-                case "go_village" -> new Event("Вы вернулись в деревню. Жители ждут артефакт.",
-                        0, null, LOC_VILLAGE, false, false);
-                default -> new Event("Здесь это нельзя. Попробуйте решить загадку или вернуться в деревню.",
-                        0, null, LOC_CAVE, false, false);
-            };
-            case LOC_VILLAGE -> switch (choiceKey) {
-                case "return_artifact" -> {
-                    if (!hasArtifact) {
-                        String reason = hasLightBlade
-                                ? "Вы перековали артефакт в Клинок света — жители впечатлены, но артефакта нет."
-                                : "У вас нет артефакта. Сначала найдите его в пещере.";
-                        yield new Event(reason, 0, null, LOC_VILLAGE, false, false);
-                    }
-                    yield new Event("Вы вернули артефакт. Жители благодарят и дают вам зелье. Пора к замку.",
-                            0, new Item("зелье", "Зелье лечения"), LOC_VILLAGE, true, true);
-                }
-                case "go_cave" -> new Event("Вы снова в пещере.", 0, null, LOC_CAVE, false, false);
-                case "run_away" -> new Event("Вы уходите из деревни и вскоре снова оказываетесь в лесу.",
-                        0, null, LOC_FOREST, false, false);
-                default -> new Event("Действие недоступно. Доступны: вернуть артефакт (если он у вас), вернуться в пещеру или уйти.",
-                        0, null, LOC_VILLAGE, false, false);
-            };
-            case LOC_CASTLE -> switch (choiceKey) {
-                case "fight_dragon" -> {
-                    if (hasLightBlade || hasSword) {
-                        String end = hasLightBlade
-                                ? "Клинок света пронзает чешую дракона. Победа и сокровища. Конец!"
-                                : "С мечом вы побеждаете дракона после тяжёлой схватки. Конец!";
-                        yield new Event(end, 0, null, LOC_CASTLE, false, false);
-                    } else {
-                        yield new Event("У вас нет оружия! Дракон ранит вас. Здоровье -50. Попробуйте решить загадку или найти/создать оружие.",
-                                -50, null, LOC_CASTLE, false, false);
-                    }
-                }
-                case "solve_riddle" -> new Event("Загадка решена: иногда у дракона больше голов, чем тел. Но вы получили ожог. Здоровье -10.",
-                        -10, null, LOC_CASTLE, false, false);
-                case "run_away" -> new Event("Вы отступили к лесу, чтобы подготовиться.",
-                        0, null, LOC_FOREST, false, false);
-                default -> new Event("Действие недоступно у замка. Сражайтесь, решайте загадку или отступайте.",
-                        0, null, LOC_CASTLE, false, false);
-            };
-            default -> new Event("Вы в неизвестном месте. Попробуйте вернуться в лес.",
-                    0, null, LOC_FOREST, false, false);
-        };
+                .log("GameService.updatePlot"));
     }
 
     public Mono<GameState> answerRiddle(Long gameStateId, String rawAnswer) {
         String answer = (rawAnswer == null ? "" : rawAnswer.trim().toLowerCase(Locale.ROOT));
 
-        return findState(gameStateId).flatMap(state -> {
-            if (!LOC_CAVE.equals(locKey(state.getCurrentLocation()))) return Mono.just(state);
+        return command(gameStateId, now -> loadForCommand(gameStateId, now).flatMap(state -> {
+            QuestPack pack = packOf(state);
+            QuestPack.Riddle riddle = pack.riddle();
+            if (riddle == null || !riddle.locationKey().equals(pack.locationOf(state.getCurrentLocation()).key())) {
+                return Mono.just(state);
+            }
 
-            if (answer.equals(RIDDLE_CORRECT)) {
-                state.setPlotProgress("Верно! Вы нашли артефакт среди камней. Возвращайтесь в деревню за наградой.");
-                return grantItemIfAbsent(state.getId(), "артефакт", "Древний артефакт")
-                        .then(gameStateRepository.save(state));
+            boolean correct = answer.equals(riddle.answerLower());
+            stats.recordRiddle(correct);
+            StepDelta.Builder delta = begin(state);
+            ActionTrace step = trace.begin(ActionTrace.Command.RIDDLE, gameStateId, now, rawAnswer == null ? "" : rawAnswer);
+            if (correct) {
+                state.setPlotProgress(riddle.correct());
+                Item reward = riddle.reward();
+                Mono<Void> grantReward = reward == null ? Mono.empty()
+                        : grant(state.getId(), reward.name(), reward.description(), delta);
+                return grantReward.then(saveStep(state, delta, step, "riddle"));
             } else {
-                state.setHealth(clamp(state.getHealth() - 30, MIN_HEALTH, MAX_HEALTH));
-                state.setPlotProgress("Неверно. Монстр из тени атакует. Здоровье -30. Попробуйте снова.");
-                return gameStateRepository.save(state);
+                int after = state.getHealth() - riddle.penalty();
+                if (state.getHealth() > 0 && after <= 0) stats.recordDeath(riddle.locationKey());
+                state.setHealth(clamp(after, MIN_HEALTH, pack.maxHealth()));
+                state.setPlotProgress(riddle.wrong());
+                return saveStep(state, delta, step, "riddle");
             }
-        });
+        }));
     }
 
-    /** Доступные рецепты крафта: реактивно и эффективно. */
+    /** Доступные рецепты крафта по id игры (рецепты зависят от квеста игры). */
     public Flux<CraftRecipe> getAvailableCrafts(Long gameStateId) {
         if (gameStateId == null) {
             return Flux.empty();
         }
+        return findState(gameStateId)
+                .flatMapMany(this::getAvailableCrafts)
+                .onErrorResume(e -> Flux.empty());
+    }
 
-        return listInventoryNames(gameStateId)
+    /** Доступные рецепты крафта: реактивно и эффективно. */
+    public Flux<CraftRecipe> getAvailableCrafts(GameState state) {
+        if (state == null || state.getId() == null) {
+            return Flux.empty();
+        }
+        Collection<CraftRecipe> recipes = packOf(state).recipes().values();
+
+        return listInventoryNames(state.getId())
                 .collect(HashSet::new, HashSet::add) // Mono<HashSet<String>>
-                .flatMapMany(items -> Flux.fromIterable(RECIPES.values())
+                .flatMapMany(items -> Flux.fromIterable(recipes)
                         .filter(Objects::nonNull)
                         .filter(r -> {
                             String resultLower = r.result() == null || r.result().name() == null
@@ -393,51 +453,53 @@ public class GameService {
     }
 
     public Mono<GameState> craft(Long gameStateId, String recipeKey) {
-        CraftRecipe recipe = RECIPES.get(recipeKey);
-        if (recipe == null) return findState(gameStateId);
-
-        return findState(gameStateId).flatMap(state ->
-                listInventoryNames(state.getId())
-                        .collect(HashSet::new, HashSet::add)
-                        .flatMap(itemsLower -> {
-                            String resultLower = recipe.result().name() == null ? "" : recipe.result().name().toLowerCase(Locale.ROOT);
-
-                            if (itemsLower.contains(resultLower)) {
-                                state.setPlotProgress("У вас уже есть: " + recipe.result().name() + ". Крафт не требуется.");
-                                return gameStateRepository.save(state);
-                            }
-
-                            boolean ok = recipe.requires().stream()
-                                    .map(req -> req == null ? "" : req.toLowerCase(Locale.ROOT))
-                                    .allMatch(itemsLower::contains);
-                            if (!ok) {
-                                state.setPlotProgress("Не хватает компонентов: " + String.join(", ", recipe.requires()) + ".");
-                                return gameStateRepository.save(state);
-                            }
-
-                            Mono<Void> remove = Mono.empty();
-                            for (String req : recipe.requires()) {
-                                // удаляем по одному экземпляру, молча игнорируя отсутствие
-                                remove = remove.then(removeOneItemByName(state.getId(), req)
-                                        .onErrorResume(__ -> Mono.empty()));
-                            }
-                            Item out = recipe.result();
-                            return remove
-                                    .then(grantItemIfAbsent(state.getId(), out.name(), out.description()))
-                                    .then(Mono.defer(() -> {
-                                        state.setPlotProgress("Вы создали: " + out.name() + ". " + state.getPlotProgress());
-                                        return gameStateRepository.save(state);
-                                    }));
-                        })
-        );
+        return command(gameStateId, now -> loadForCommand(gameStateId, now).flatMap(state -> {
+            CraftRecipe recipe = recipeKey == null ? null : packOf(state).recipes().get(recipeKey);
+            if (recipe == null) return Mono.just(state);
+
+            return listInventoryNames(state.getId())
+                    .collect(HashSet::new, HashSet::add)
+                    .flatMap(itemsLower -> {
+                        StepDelta.Builder delta = begin(state);
+                        ActionTrace step = trace.begin(ActionTrace.Command.CRAFT, gameStateId, now, recipeKey);
+                        String resultLower = recipe.result().name() == null ? "" : recipe.result().name().toLowerCase(Locale.ROOT);
+
+                        if (itemsLower.contains(resultLower)) {
+                            state.setPlotProgress(PlotText.of("craft.already_have", recipe.result().name()));
+                            return saveStep(state, delta, step, "craft:" + recipeKey);
+                        }
+
+                        boolean ok = recipe.requires().stream()
+                                .map(req -> req == null ? "" : req.toLowerCase(Locale.ROOT))
+                                .allMatch(itemsLower::contains);
+                        if (!ok) {
+                            state.setPlotProgress(PlotText.of("craft.missing", String.join(",", recipe.requires())));
+                            return saveStep(state, delta, step, "craft:" + recipeKey);
+                        }
+
+                        Mono<Void> remove = Mono.empty();
+                        for (String req : recipe.requires()) {
+                            // удаляем по одному экземпляру, молча игнорируя отсутствие
+                            remove = remove.then(removeOne(state.getId(), req, delta)
+                                    .onErrorResume(__ -> Mono.empty()));
+                        }
+                        Item out = recipe.result();
+                        return remove
+                                .then(grant(state.getId(), out.name(), out.description(), delta))
+                                .then(Mono.defer(() -> {
+                                    stats.recordCraft(recipe.key());
+                                    state.setPlotProgress(PlotText.prepend(PlotText.of("craft.done", out.name()), state.getPlotProgress()));
+                                    return saveStep(state, delta, step, "craft:" + recipeKey);
+                                }));
+                    });
+        }));
     }
 
     public Mono<GameState> useItem(Long gameStateId, Long itemId) {
-        Mono<GameState> stateMono = findState(gameStateId);
-        Mono<InventoryItem> itemMono = inventoryItemRepository.findById(itemId)
+        Mono<InventoryItem> itemMono = store.findItem(itemId)
                 .switchIfEmpty(Mono.error(new NotFoundException("InventoryItem", itemId)));
 
-        return Mono.zip(stateMono, itemMono).flatMap(tuple -> {
+        return command(gameStateId, now -> Mono.zip(loadForCommand(gameStateId, now), itemMono).flatMap(tuple -> {
             GameState state = tuple.getT1();
             InventoryItem item = tuple.getT2();
 
@@ -450,69 +512,295 @@ public class GameService {
                     .orElse("(безымянный)");
 
             String prevProgress = Optional.ofNullable(state.getPlotProgress()).orElse("");
+            StepDelta.Builder delta = begin(state);
+            // id предмета при воспроизведении другой — в трассу идут имя и описание
+            ActionTrace step = trace.begin(ActionTrace.Command.USE, gameStateId, now,
+                    Objects.requireNonNullElse(item.getName(), ""), Objects.requireNonNullElse(item.getDescription(), ""));
+
+            QuestPack.Use use = packOf(state).useOf(name);
+            if (use == null) {
+                state.setPlotProgress(PlotText.prepend(PlotText.of("use.unknown", name), prevProgress));
+                return saveStep(state, delta, step, "use:" + name);
+            }
+            state.setHealth(clamp(state.getHealth() + use.health(), MIN_HEALTH, packOf(state).maxHealth()));
+            state.setPlotProgress(PlotText.prepend(use.message(), prevProgress));
+            if (!use.timed().isEmpty()) {
+                TimedEffects fx = TimedEffects.parse(state.getEffects());
+                use.timed().forEach(op -> fx.apply(op, now));
+                state.setEffects(fx.encode());
+            }
+            if (!use.consume()) return saveStep(state, delta, step, "use:" + name);
+            delta.removed(item.getName(), item.getDescription());
+            return store.deleteItem(item.getId())
+                    .then(saveStep(state, delta, step, "use:" + name));
+        }));
+    }
+
+    // ---- Эффекты времени ----
+
+    /**
+     * Досчитать игры, чей срок наступил по расписанию {@link EffectScheduler} (смерть от яда, конец яда).
+     * Каждая игра перечитывается и записывается своей командой (ход игрока между тиком и записью
+     * не затирается), смерть уходит в outbox как обычно; удалённые игры пропускаются.
+     * Число записанных игр.
+     */
+    public Mono<Long> applyDueEffects(Collection<Long> gameStateIds) {
+        return Flux.fromIterable(gameStateIds)
+                .concatMap(id -> command(id, now -> store.findState(id)
+                        .flatMap(state -> applyEffects(state, now, true))))
+                .count();
+    }
+
+    /** Досчитать эффекты на now; шаг пишется, если игрок от них умер или досчёт идёт по расписанию (always). */
+    private Mono<GameState> applyEffects(GameState state, long now, boolean always) {
+        if (state.getEffects() == null && !effects.regen().on() && !always) return Mono.just(state);
+        StepDelta.Builder delta = begin(state);
+        boolean died = settle(state, now);
+        if (died) stats.recordDeath(locationOf(state).key());
+        if (!died && !always) return Mono.just(state);
+        return saveStep(state, delta, ActionTrace.OFF, EFFECTS_ACTION);
+    }
+
+    /** Довести эффекты времени до now: регенерация, тики яда, истёкшие баффы; true — игрок умер от них. */
+    private boolean settle(GameState state, long now) {
+        TimedEffects.Regen regen = effects.regen();
+        if ((state.getEffects() == null && !regen.on()) || isTerminal(state)) return false;
+        TimedEffects fx = TimedEffects.parse(state.getEffects());
+        state.setHealth(fx.advance(state.getHealth(), packOf(state).maxHealth(), regen, now));
+        state.setEffects(fx.encode());
+        if (state.getHealth() > 0) return false;
+        state.setPlotProgress(PlotText.prepend(PlotText.of("effects.poison_dead"), PlotText.of(DEAD_CODE)));
+        return true;
+    }
+
+    // ---- Undo / rewind ----
 
-            switch (name) {
-                case "зелье" -> {
-                    int newHealth = clamp(
-                            state.getHealth() + 30,
-                            MIN_HEALTH,
-                            MAX_HEALTH
-                    );
-                    state.setHealth(newHealth);
-                    state.setPlotProgress("Вы использовали зелье. Здоровье +30.\n" + prevProgress);
-                    return inventoryItemRepository.deleteById(item.getId())
-                            .then(gameStateRepository.save(state));
-                }
-                case "трава", "фляга" -> {
-                    state.setPlotProgress("Это компонент. Используйте крафт, чтобы получить зелье.\n" + prevProgress);
-                    return gameStateRepository.save(state);
-                }
-                case "меч", "клинок света", "артефакт" -> {
-                    state.setPlotProgress("Этот предмет нельзя использовать напрямую сейчас.\n" + prevProgress);
-                    return gameStateRepository.save(state);
-                }
-                default -> {
-                    state.setPlotProgress("Неизвестный предмет: " + name + ".\n" + prevProgress);
-                    return gameStateRepository.save(state);
-                }
+    /** Отменить последние steps шагов игры (не глубже app.undo.depth). */
+    public Mono<GameState> undo(Long gameStateId, int steps) {
+        if (!store.durable()) return Mono.error(noJournal());
+        if (steps < 1 || steps > Math.max(1, undo.getDepth())) {
+            return Mono.error(new ValidationException("steps должен быть в диапазоне 1.." + Math.max(1, undo.getDepth())));
+        }
+        return command(gameStateId, now -> findState(gameStateId)
+                .flatMap(state -> deltas.findLatest(gameStateId, steps)
+                        .collectList()
+                        .flatMap(rows -> applyReverse(state, rows, "undo"))));
+    }
+
+    /** Откатить игру к состоянию сразу после шага step (поддержка); 0 — ко всем хранимым шагам. */
+    public Mono<GameState> rewindTo(Long gameStateId, long step) {
+        if (!store.durable()) return Mono.error(noJournal());
+        if (step < 0) return Mono.error(new ValidationException("step не может быть отрицательным"));
+        return command(gameStateId, now -> findState(gameStateId)
+                .flatMap(state -> deltas.findAfter(gameStateId, step)
+                        .collectList()
+                        .flatMap(rows -> applyReverse(state, rows, "rewind"))));
+    }
+
+    /** Хранимые шаги игры, от новых к старым. */
+    public Flux<GameStepDto> history(Long gameStateId) {
+        if (!store.durable()) return Flux.empty();
+        return deltas.findLatest(gameStateId, Math.max(1, undo.getDepth()))
+                .map(row -> {
+                    StepDelta d = StepDelta.decode(row.payload());
+                    return new GameStepDto(row.step(), d.healthDelta(), d.prevLocation(),
+                            d.added().stream().map(Item::name).toList(),
+                            d.removed().stream().map(Item::name).toList());
+                });
+    }
+
+    /** Журнал отмены — таблица БД; у хранилища в памяти его нет. */
+    private static ValidationException noJournal() {
+        return new ValidationException("Отмена недоступна: игры хранятся в памяти (app.storage.backend=memory)");
+    }
+
+    /**
+     * Дельты приходят от новых к старым — в этом же порядке их и обращаем. Вызывается внутри
+     * {@link #command}: обратные операции с инвентарём, удаление дельт, состояние и события outbox
+     * (шаг с action "undo"/"rewind" и обратными предметами) фиксируются вместе или не фиксируются вовсе.
+     */
+    private Mono<GameState> applyReverse(GameState state, List<GameDeltaRepository.Row> rows, String action) {
+        if (rows.isEmpty()) return Mono.just(state);
+        Long id = state.getId();
+        int maxHealth = packOf(state).maxHealth();
+        String statusBefore = state.getStatus();
+        StepDelta.Builder reverse = begin(state);
+        Mono<Void> ops = Mono.empty();
+        for (GameDeltaRepository.Row row : rows) {
+            StepDelta d = StepDelta.decode(row.payload());
+            state.setHealth(clamp(state.getHealth() - d.healthDelta(), MIN_HEALTH, maxHealth));
+            if (d.prevLocation() != null) state.setCurrentLocation(d.prevLocation());
+            if (d.prevVars() != null) state.setVars(d.prevVars().isEmpty() ? null : d.prevVars());
+            if (d.plotPrepended()) {
+                state.setPlotProgress(PlotText.dropFirst(state.getPlotProgress()));
+            } else if (d.prevPlot() != null) {
+                state.setPlotProgress(d.prevPlot());
             }
-        });
+            for (Item it : d.added()) {
+                reverse.removed(it.name(), it.description());
+                ops = ops.then(removeOneItemByName(id, it.name()).onErrorResume(NotFoundException.class, __ -> Mono.empty()));
+            }
+            for (Item it : d.removed()) {
+                reverse.added(it.name(), it.description());
+                ops = ops.then(addItemToInventory(id, it.name(), it.description()));
+            }
+        }
+        long oldest = rows.get(rows.size() - 1).step();
+        log.debug("undo: stateId={} откат шагов {}..{}", id, oldest, rows.get(0).step());
+        return ops.then(deltas.deleteFrom(id, oldest))
+                .then(save(state))
+                .flatMap(saved -> {
+                    StepDelta d = reverse.finish(saved.getHealth(), saved.getCurrentLocation(),
+                            saved.getPlotProgress(), saved.getVars());
+                    return outbox.append(domainEvents(saved, statusBefore, d, action)).thenReturn(saved);
+                })
+                // откат идёт мимо трассы: следующая команда запишет свежий снимок
+                .doOnNext(saved -> trace.forget(id));
     }
 
     // ==========================
     //        ВСПОМОГАТЕЛЬНОЕ
     // ==========================
 
-    private String normalizeChoice(String raw) {
+    private String normalizeChoice(QuestPack pack, String raw) {
         if (raw == null) return "";
-        return Action.normalize(raw).map(a -> a.key)
-                .orElse(raw.trim().toLowerCase(Locale.ROOT));
+        String key = pack.normalize(raw);
+        return key != null ? key : raw.trim().toLowerCase(Locale.ROOT);
     }
 
-    private String humanLocationName(String locKey) {
-        return switch (locKey) {
-            case LOC_FOREST  -> "лес";
-            case LOC_CASTLE  -> "замок";
-            case LOC_CAVE    -> "пещера";
-            case LOC_VILLAGE -> "деревня";
-            default -> "неизвестно";
-        };
+    /** Счётчики статистики по исходу шага (только память, без БД). */
+    private void recordStats(String loc, String choiceKey, QuestPack.Action action, QuestPack.Outcome o, int healthBefore) {
+        stats.recordAction(loc, choiceKey);
+        // находка — предмет, выпавший на броске (поиск сокровищ и подобное)
+        if (action.roll() > 0 && !o.grant().isEmpty()) {
+            stats.recordTreasure(o.grant().get(0).name());
+        }
+        if (healthBefore > 0 && healthBefore + o.health() <= 0) {
+            stats.recordDeath(loc);
+        }
     }
 
-    private String locKey(String currentLocationHuman) {
-        if (currentLocationHuman == null) return LOC_FOREST;
-        String s = currentLocationHuman.toLowerCase(Locale.ROOT);
-        if (s.contains("лес"))     return LOC_FOREST;
-        if (s.contains("замок"))   return LOC_CASTLE;
-        if (s.contains("пещера"))  return LOC_CAVE;
-        if (s.contains("деревня")) return LOC_VILLAGE;
-        return LOC_FOREST;
+    /**
+     * Единая точка записи состояния: проставляем время изменения, статус для списка слотов и момент
+     * досчёта эффектов; после записи игра перепланируется в {@link EffectScheduler}.
+     */
+    private Mono<GameState> save(GameState state) {
+        state.setUpdatedAt(LocalDateTime.now());
+        state.setStatus(statusOf(state).name());
+        // эффекты времени кончаются вместе с игрой
+        if (!GameStatus.ACTIVE.name().equals(state.getStatus())) state.setEffects(null);
+        TimedEffects fx = state.getEffects() == null ? null : TimedEffects.parse(state.getEffects());
+        int maxHealth = fx == null ? 0 : packOf(state).maxHealth();
+        long due = fx == null ? Long.MAX_VALUE : fx.nextDue(state.getHealth(), maxHealth, effects.regen());
+        long changingUntil = fx == null ? 0 : fx.changingUntil(state.getHealth(), maxHealth, effects.regen());
+        state.setEffectsDue(due == Long.MAX_VALUE ? null : due);
+        return store.saveState(state)
+                .doOnSuccess(saved -> {
+                    Long id = saved == null ? state.getId() : saved.getId();
+                    effects.schedule(id, due);
+                    versions.changing(id, changingUntil);
+                    versions.bump(id);
+                });
+    }
+
+    private static StepDelta.Builder begin(GameState state) {
+        return StepDelta.begin(state.getHealth(), state.getCurrentLocation(), state.getPlotProgress(), state.getVars());
+    }
+
+    /**
+     * save + события outbox, дельта шага для отмены и запись в трассу. Всё пишется в транзакции команды
+     * ({@link #command}): сбой записи дельты откатывает и шаг, чтобы не остался шаг, который нельзя отменить.
+     * action — метка команды для события шага: ключ действия, "riddle", "craft:ключ", "use:предмет", "restart".
+     */
+    private Mono<GameState> saveStep(GameState state, StepDelta.Builder delta, ActionTrace step, String action) {
+        String statusBefore = state.getStatus();
+        return save(state).flatMap(saved -> {
+            StepDelta d = delta.finish(saved.getHealth(), saved.getCurrentLocation(), saved.getPlotProgress(), saved.getVars());
+            step.finish(saved, d);
+            // outbox и журнал отмены — таблицы БД рядом с игрой; хранилищу в памяти их не с чем коммитить
+            if (!store.durable()) return Mono.just(saved);
+            Mono<Void> events = outbox.append(domainEvents(saved, statusBefore, d, action));
+            if (d.isEmpty() || undo.getDepth() <= 0) return events.thenReturn(saved);
+            return events.then(deltas.append(saved.getId(), d.encode(), undo.getDepth())).thenReturn(saved);
+        });
+    }
+
+    /**
+     * Команда целиком — одна транзакция: состояние, инвентарь и события outbox фиксируются вместе.
+     * Версия поднимается ещё раз после коммита: чтение между записью и коммитом видело старые строки.
+     * Тогда же запоминается снимок для GET при недоступной БД — незакоммиченное в него не попадает.
+     * body получает момент команды — один на всю команду (его же видит трасса).
+     */
+    private Mono<GameState> command(Long gameStateId, LongFunction<Mono<GameState>> body) {
+        Mono<GameState> run = Mono.defer(() -> body.apply(random.now()));
+        return (store.durable() ? outbox.transactional(run) : run)
+                .doOnSuccess(saved -> {
+                    versions.bump(gameStateId);
+                    if (saved != null) rememberSnapshot(saved);
+                });
+    }
+
+    /** Снимок для отдачи GET при недоступной БД; хранилищу в памяти он не нужен. */
+    private void rememberSnapshot(GameState state) {
+        if (store.durable()) snapshots.remember(state);
+    }
+
+    /**
+     * События хода для outbox: сам шаг (для аналитики), выданные предметы, переход, смерть и победа
+     * (только в момент перехода статуса).
+     */
+    private List<GameEventDto> domainEvents(GameState saved, String statusBefore, StepDelta d, String action) {
+        List<GameEventDto> out = new ArrayList<>(3);
+        long at = System.currentTimeMillis();
+        GameEventDto stepEvent = event(GameEventDto.STEP, saved, at);
+        stepEvent.setAction(action);
+        stepEvent.setOutcome(PlotText.firstCode(saved.getPlotProgress()));
+        stepEvent.setHealthDelta(d.healthDelta());
+        stepEvent.setHealth(saved.getHealth());
+        stepEvent.setFrom(d.prevLocation());
+        if (!d.added().isEmpty()) stepEvent.setItems(d.added().stream().map(Item::name).toList());
+        if (!d.removed().isEmpty()) stepEvent.setRemoved(d.removed().stream().map(Item::name).toList());
+        out.add(stepEvent);
+        for (Item it : d.added()) {
+            GameEventDto e = event(GameEventDto.ITEM_GRANTED, saved, at);
+            e.setItem(it.name());
+            out.add(e);
+        }
+        if (d.prevLocation() != null) {
+            GameEventDto e = event(GameEventDto.LOCATION_CHANGED, saved, at);
+            e.setFrom(d.prevLocation());
+            out.add(e);
+        }
+        String status = saved.getStatus();
+        if (!status.equals(statusBefore)) {
+            if (GameStatus.DEAD.name().equals(status)) out.add(event(GameEventDto.PLAYER_DIED, saved, at));
+            if (GameStatus.WON.name().equals(status)) out.add(event(GameEventDto.GAME_WON, saved, at));
+        }
+        return out;
+    }
+
+    private static GameEventDto event(String type, GameState state, long at) {
+        GameEventDto e = new GameEventDto();
+        e.setType(type);
+        e.setGameStateId(state.getId());
+        e.setUserId(state.getUserId());
+        e.setQuestId(state.getQuestId());
+        e.setLocation(state.getCurrentLocation());
+        e.setAt(at);
+        return e;
+    }
+
+    private GameStatus statusOf(GameState gs) {
+        if (gs.getHealth() <= 0) return GameStatus.DEAD;
+        return isTerminal(gs) ? GameStatus.WON : GameStatus.ACTIVE;
     }
 
     private int clamp(int v, int min, int max) { return Math.max(min, Math.min(max, v)); }
 
+    /** Завершающее сообщение: код end.* или (в старых записях) текст с «конец!»/«игра окончена». */
     private boolean containsGameOver(String msg) {
         if (msg == null) return false;
+        if (PlotText.hasCode(msg, END_CODE_PREFIX)) return true;
         String m = msg.toLowerCase(Locale.ROOT);
         return m.contains("конец!") || m.contains("игра окончена");
     }
@@ -521,56 +809,33 @@ public class GameService {
     //     Типы для сюжета/крафта
     // ==========================
 
-    private record Event(String message, int deltaHealth, Item itemToGrant, String newLocation,
-                         boolean removeArtifact, boolean grantSwordIfMissing) {}
-
     public record Item(String name, String description) {}
 
-    public record CraftRecipe(String key, String title, List<String> requires, Item result) {}
-
-    // ==========================
-    //     ЕДИНЫЙ ИСТОЧНИК ДЕЙСТВИЙ
-    // ==========================
-
-    /** Описание действий: канонический ключ, лейбл для UI, синонимы для нормализации ввода. */
-    private enum Action {
-        GO_CASTLE      ("go_castle",       "Идти в замок",         "идти в замок", "go to castle"),
-        SEARCH_TREASURE("search_treasure", "Искать сокровища",     "искать сокровища", "search for treasure"),
-        RUN_AWAY       ("run_away",        "Бежать",                "бежать", "run away"),
-        GO_CAVE        ("go_cave",         "Идти в пещеру",         "идти в пещеру", "go to cave"),
-        GO_VILLAGE     ("go_village",      "Идти в деревню",        "идти в деревню", "go to village"),
-        SOLVE_RIDDLE   ("solve_riddle",    "Решить загадку",        "решить загадку", "solve riddle"),
-        FIGHT_DRAGON   ("fight_dragon",    "Сражаться с драконом",  "сражаться с драконом", "fight dragon"),
-        RETURN_ARTIFACT("return_artifact", "Вернуться с артефактом","вернуться с артефактом", "return with artifact");
-
-        public final String key;
-        public final String label;
-        public final List<String> synonyms;
-
-        Action(String key, String label, String... synonyms) {
-            this.key = key;
-            this.label = label;
-            this.synonyms = List.of(synonyms);
+    /** Что видят условия пакета на этом ходу; один объект на команду. */
+    private record StepContext(Set<String> items, int health, int roll, QuestVars vars,
+                               WorldSnapshot world, TimedEffects timed, long now) implements RuleContext {
+        @Override
+        public boolean has(String itemNameLower) {
+            return items.contains(itemNameLower);
         }
 
-        private static final Map<String, Action> BY_KEY =
-                Arrays.stream(values()).collect(Collectors.toMap(a -> a.key, a -> a));
-
-        private static final Map<String, Action> NORMALIZER =
-                Arrays.stream(values())
-                        .flatMap(a -> {
-                            Stream<String> s = Stream.concat(Stream.of(a.key), a.synonyms.stream());
-                            return s.map(x -> Map.entry(x.toLowerCase(Locale.ROOT), a));
-                        })
-                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a,b)->a));
+        @Override
+        public int var(String name) {
+            return vars.get(name);
+        }
 
-        public static Optional<Action> fromKey(String key) {
-            return Optional.ofNullable(BY_KEY.get(key));
+        @Override
+        public boolean event(String name) {
+            return world.isActive(name, now);
         }
 
-        public static Optional<Action> normalize(String raw) {
-            if (raw == null) return Optional.empty();
-            return Optional.ofNullable(NORMALIZER.get(raw.trim().toLowerCase(Locale.ROOT)));
+        @Override
+        public boolean buff(String name) {
+            return timed.buff(name, now);
         }
     }
+
+    public record CraftRecipe(String key, String title, List<String> requires, Item result) {}
+
+
 }
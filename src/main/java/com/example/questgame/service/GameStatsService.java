@@ -0,0 +1,187 @@
+package com.example.questgame.service;
+
+import com.example.questgame.dto.GameStatsDto;
+import com.example.questgame.model.GameStat;
+import com.example.questgame.repository.GameStatRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Живая агрегированная статистика игры.
+ * Горячий путь — только инкремент LongAdder в памяти; в БД (game_stats) фоновой задачей
+ * раз в несколько секунд уходят накопленные дельты.
+ */
+@Service
+public class GameStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(GameStatsService.class);
+
+    public static final String RIDDLE_CORRECT = "correct";
+    public static final String RIDDLE_WRONG = "wrong";
+
+    /** Группы счётчиков. */
+    public enum Metric { ACTIONS, TREASURE, RIDDLES, DEATHS, CRAFTS }
+
+    private final GameStatRepository repository;
+    private final Duration flushInterval;
+    private final Map<Metric, ConcurrentHashMap<String, Counter>> counters = new EnumMap<>(Metric.class);
+
+    private volatile Disposable flushTask;
+
+    public GameStatsService(GameStatRepository repository,
+                            @Value("${app.stats.flush-interval:5s}") Duration flushInterval) {
+        this.repository = repository;
+        this.flushInterval = flushInterval;
+        for (Metric m : Metric.values()) {
+            counters.put(m, new ConcurrentHashMap<>());
+        }
+    }
+
+    // ==========================
+    //     Горячий путь (память)
+    // ==========================
+
+    public void recordAction(String locationKey, String actionKey) {
+        increment(Metric.ACTIONS, locationKey + ":" + actionKey);
+    }
+
+    public void recordTreasure(String itemName) {
+        increment(Metric.TREASURE, itemName);
+    }
+
+    public void recordRiddle(boolean correct) {
+        increment(Metric.RIDDLES, correct ? RIDDLE_CORRECT : RIDDLE_WRONG);
+    }
+
+    public void recordDeath(String locationKey) {
+        increment(Metric.DEATHS, locationKey);
+    }
+
+    public void recordCraft(String recipeKey) {
+        increment(Metric.CRAFTS, recipeKey);
+    }
+
+    public void increment(Metric metric, String key) {
+        if (key == null) return;
+        ConcurrentHashMap<String, Counter> byKey = counters.get(metric);
+        Counter c = byKey.get(key);
+        if (c == null) {
+            c = byKey.computeIfAbsent(key, k -> new Counter());
+        }
+        c.adder.increment();
+    }
+
+    /** Снимок всех счётчиков из памяти (без обращения к БД). */
+    public GameStatsDto snapshot() {
+        Map<String, Long> riddles = totals(Metric.RIDDLES);
+        long ok = riddles.getOrDefault(RIDDLE_CORRECT, 0L);
+        long all = ok + riddles.getOrDefault(RIDDLE_WRONG, 0L);
+        return new GameStatsDto(
+                totals(Metric.ACTIONS),
+                totals(Metric.TREASURE),
+                riddles,
+                all == 0 ? null : (double) ok / all,
+                totals(Metric.DEATHS),
+                totals(Metric.CRAFTS)
+        );
+    }
+
+    private Map<String, Long> totals(Metric metric) {
+        Map<String, Long> out = new TreeMap<>();
+        counters.get(metric).forEach((k, c) -> out.put(k, c.total()));
+        return out;
+    }
+
+    // ==========================
+    //       Фоновый сброс
+    // ==========================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (flushTask != null) return;
+        flushTask = loadPersisted()
+                .thenMany(Flux.interval(flushInterval, flushInterval, Schedulers.parallel()))
+                .onBackpressureDrop()
+                .concatMap(tick -> flush(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable task = flushTask;
+        if (task != null) {
+            task.dispose();
+            flush().block(flushInterval);
+        }
+    }
+
+    /** Подтянуть накопленные в БД значения, чтобы счётчики переживали рестарт. */
+    Mono<Void> loadPersisted() {
+        return repository.findAll()
+                .doOnNext(this::applyPersisted)
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Не удалось загрузить game_stats: {}", e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private void applyPersisted(GameStat row) {
+        Metric metric;
+        try {
+            metric = Metric.valueOf(row.getMetric().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return;
+        }
+        counters.get(metric).computeIfAbsent(row.getStatKey(), k -> new Counter()).persisted = row.getStatValue();
+    }
+
+    /** Сбросить в БД дельты, накопленные с прошлого успешного сброса. */
+    Mono<Void> flush() {
+        return Flux.fromIterable(counters.entrySet())
+                .concatMap(byMetric -> Flux.fromIterable(byMetric.getValue().entrySet())
+                        .concatMap(e -> flushOne(byMetric.getKey(), e.getKey(), e.getValue())))
+                .then();
+    }
+
+    private Mono<Void> flushOne(Metric metric, String key, Counter c) {
+        long sum = c.adder.sum();
+        long delta = sum - c.flushed;
+        if (delta <= 0) return Mono.empty();
+        return repository.increment(metric.name().toLowerCase(Locale.ROOT), key, delta)
+                .doOnSuccess(__ -> c.flushed = sum)
+                .then()
+                .onErrorResume(e -> {
+                    // дельта останется несброшенной и уйдёт следующей попыткой
+                    log.debug("flush game_stats {}:{} failed: {}", metric, key, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private static final class Counter {
+        final LongAdder adder = new LongAdder();
+        /** Значение из БД на момент старта. */
+        volatile long persisted;
+        /** Часть adder, уже записанная в БД (меняется только потоком сброса). */
+        volatile long flushed;
+
+        long total() { return persisted + adder.sum(); }
+    }
+}
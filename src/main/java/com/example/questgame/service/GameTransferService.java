@@ -0,0 +1,206 @@
+package com.example.questgame.service;
+
+import com.example.questgame.dto.GameExportDto;
+import com.example.questgame.dto.ImportReportDto;
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.ImportCheckpoint;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.repository.GameBulkRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.ImportCheckpointRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потоковая выгрузка/загрузка всех игр с инвентарём (NDJSON) для бэкапов, миграций и аналитики.
+ * Выгрузка читает страницами по id только по мере спроса подписчика, загрузка пишет
+ * многострочными INSERT с ограниченной параллельностью и двигает чекпоинт по порядку батчей.
+ * Работает с таблицами БД напрямую, мимо {@link com.example.questgame.storage.GameStore}: игры
+ * хранилища в памяти (app.storage.backend=memory) не выгружаются и не загружаются.
+ */
+@Service
+public class GameTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(GameTransferService.class);
+
+    public static final int MAX_PAGE = 5_000;
+    public static final int MAX_CONCURRENCY = 16;
+
+    private final GameStateRepository gameStateRepository;
+    private final InventoryItemRepository inventoryItemRepository;
+    private final GameBulkRepository bulkRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final GameVersions versions;
+    private final ActionTraceRecorder trace;
+
+    public GameTransferService(GameStateRepository gameStateRepository,
+                               InventoryItemRepository inventoryItemRepository,
+                               GameBulkRepository bulkRepository,
+                               ImportCheckpointRepository checkpointRepository,
+                               GameVersions versions,
+                               ActionTraceRecorder trace) {
+        this.gameStateRepository = gameStateRepository;
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.bulkRepository = bulkRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.versions = versions;
+        this.trace = trace;
+    }
+
+    // ==========================
+    //          Экспорт
+    // ==========================
+
+    /**
+     * Все игры по возрастанию id; следующая страница запрашивается только после того, как подписчик съел текущую.
+     * Страницы разворачиваются через expand — курсор двигается в цикле, без вложенных concat на каждую страницу.
+     */
+    public Flux<GameExportDto> exportAll(long afterId, int pageSize) {
+        int size = requireRange(pageSize, MAX_PAGE, "pageSize");
+        return loadPage(afterId, size)
+                .expand(page -> page.size() < size ? Mono.empty() : loadPage(page.get(page.size() - 1).getId(), size))
+                .concatMapIterable(page -> page, 1);
+    }
+
+    /** Страница состояний + инвентарь одним IN-запросом (без N+1). */
+    private Mono<List<GameExportDto>> loadPage(long afterId, int size) {
+        return gameStateRepository.findPageAfter(afterId, size)
+                .collectList()
+                .flatMap(states -> {
+                    if (states.isEmpty()) return Mono.just(List.<GameExportDto>of());
+                    List<Long> ids = states.stream().map(GameState::getId).toList();
+                    return inventoryItemRepository.findByGameStateIdIn(ids)
+                            .collectMultimap(InventoryItem::getGameStateId)
+                            .map(byGame -> states.stream().map(s -> toExport(s, byGame)).toList());
+                });
+    }
+
+    static GameExportDto toExport(GameState s, Map<Long, Collection<InventoryItem>> byGame) {
+        Collection<InventoryItem> items = byGame.getOrDefault(s.getId(), List.of());
+        return new GameExportDto(
+                s.getId(), s.getUserId(), s.getCurrentLocation(), s.getPlotProgress(), s.getHealth(),
+                s.getStatus(), s.getUpdatedAt(),
+                items.stream().map(i -> new InventoryItemDto(i.getId(), i.getName(), i.getDescription())).toList(),
+                s.getQuestId(), s.getVars(), s.getEffects());
+    }
+
+    // ==========================
+    //          Импорт
+    // ==========================
+
+    /**
+     * Импорт потока в формате экспорта. Записи должны идти по возрастанию id (как их отдаёт экспорт):
+     * чекпоинт хранит последний целиком записанный id, и при повторе с тем же jobId всё до него пропускается.
+     */
+    public Mono<ImportReportDto> importAll(String jobId, Flux<GameExportDto> records, int batchSize, int concurrency) {
+        if (jobId == null || jobId.isBlank()) {
+            return Mono.error(new ValidationException("jobId обязателен"));
+        }
+        int size = requireRange(batchSize, MAX_PAGE, "batchSize");
+        int parallel = requireRange(concurrency, MAX_CONCURRENCY, "concurrency");
+
+        return checkpointRepository.findById(jobId)
+                .map(ImportCheckpoint::getLastGameId)
+                .defaultIfEmpty(0L)
+                .flatMap(resumeAfter -> {
+                    long started = System.nanoTime();
+                    AtomicLong games = new AtomicLong();
+                    AtomicLong items = new AtomicLong();
+                    AtomicLong lastId = new AtomicLong(resumeAfter);
+                    if (resumeAfter > 0) {
+                        log.info("import {}: продолжаем после id={}", jobId, resumeAfter);
+                    }
+
+                    return records
+                            .filter(r -> r.getId() != null && r.getId() > resumeAfter)
+                            .buffer(size)
+                            // батчи пишутся параллельно, но результаты приходят в исходном порядке —
+                            // чекпоинт никогда не обгоняет незаписанный батч
+                            .flatMapSequential(this::writeBatch, parallel)
+                            .concatMap(b -> checkpointRepository.advance(jobId, b.lastId(), b.games(), b.items())
+                                    .doOnSuccess(__ -> {
+                                        games.addAndGet(b.games());
+                                        items.addAndGet(b.items());
+                                        lastId.set(b.lastId());
+                                        log.debug("import {}: id<={} ({} games, {} rows/s)", jobId, b.lastId(),
+                                                games.get(), rowsPerSec(games.get() + items.get(), started));
+                                    }))
+                            .then(Mono.fromSupplier(() -> {
+                                long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+                                return new ImportReportDto(jobId, resumeAfter, lastId.get(), games.get(), items.get(),
+                                        elapsedMs, rowsPerSec(games.get() + items.get(), started));
+                            }));
+                });
+    }
+
+    private Mono<BatchResult> writeBatch(List<GameExportDto> batch) {
+        List<GameState> states = new ArrayList<>(batch.size());
+        List<InventoryItem> items = new ArrayList<>();
+        for (GameExportDto r : batch) {
+            states.add(toState(r));
+            if (r.getInventory() == null) continue;
+            for (InventoryItemDto i : r.getInventory()) {
+                InventoryItem it = new InventoryItem();
+                it.setId(i.getId());
+                it.setGameStateId(r.getId());
+                it.setName(i.getName());
+                it.setDescription(i.getDescription());
+                items.add(it);
+            }
+        }
+        long last = batch.get(batch.size() - 1).getId();
+        List<Long> ids = states.stream().map(GameState::getId).toList();
+        return bulkRepository.upsertStates(states)
+                // инвентарь игры заменяется целиком: ни старых предметов, которых нет в выгрузке,
+                // ни дублей предметов без id при повторном прогоне
+                .then(inventoryItemRepository.deleteByGameStateIdIn(ids))
+                .then(bulkRepository.upsertItems(items))
+                // импорт мог перезаписать живые игры — их ETag больше не актуальны
+                .doOnSuccess(__ -> states.forEach(st -> {
+                    versions.bump(st.getId());
+                    trace.forget(st.getId());
+                }))
+                .thenReturn(new BatchResult(last, states.size(), items.size()));
+    }
+
+    static GameState toState(GameExportDto r) {
+        GameState s = new GameState();
+        s.setId(r.getId());
+        s.setUserId(r.getUserId());
+        s.setQuestId(r.getQuestId());
+        s.setVars(r.getVars());
+        s.setEffects(r.getEffects());
+        s.setCurrentLocation(r.getCurrentLocation());
+        s.setPlotProgress(r.getPlotProgress());
+        s.setHealth(r.getHealth() == null ? 0 : r.getHealth());
+        s.setStatus(r.getStatus());
+        s.setUpdatedAt(r.getUpdatedAt());
+        return s;
+    }
+
+    private static double rowsPerSec(long rows, long startedNanos) {
+        double sec = (System.nanoTime() - startedNanos) / 1e9;
+        return sec <= 0 ? rows : rows / sec;
+    }
+
+    private static int requireRange(int v, int max, String name) {
+        if (v < 1 || v > max) {
+            throw new ValidationException(name + " должен быть в диапазоне 1.." + max);
+        }
+        return v;
+    }
+
+    private record BatchResult(long lastId, long games, long items) {}
+}
@@ -0,0 +1,123 @@
+package com.example.questgame.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии игр в памяти для ETag/If-None-Match.
+ * GameService поднимает версию после каждой записи; проверка 304 не трогает БД.
+ * В ETag входит случайная «эпоха» процесса, поэтому после рестарта старые ETag просто не совпадут.
+ * Пока здоровье игры меняется само (регенерация, яд — см. {@link #changing}), в ETag добавляется
+ * текущая секунда: ответ не устаревает больше чем на секунду.
+ * <p>
+ * Версия — значение общего счётчика записей, так что самые старые версии принадлежат давно не
+ * менявшимся играм. Сверх {@link #DEFAULT_MAX_TRACKED} игр они вытесняются, а порог вытеснения
+ * становится версией всех неотслеживаемых игр: она не меньше любой выданной им раньше и совпадает
+ * со старой, только если игра с тех пор не менялась.
+ * <p>
+ * Версии знает только этот узел: запись через другой узел здесь не видна, и тег отсюда может
+ * подтвердить устаревшее состояние. Рассчитано на один узел (или липкую маршрутизацию по игре).
+ */
+@Component
+public class GameVersions {
+
+    public static final int DEFAULT_MAX_TRACKED = 100_000;
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final int maxTracked;
+    private final AtomicLong writes = new AtomicLong();
+    // версия игр, которых нет в versions (вытеснены, забыты или не менялись с запуска); только растёт
+    private final AtomicLong floor = new AtomicLong();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+    // до какого момента (epoch millis) состояние игры меняется без записи
+    private final ConcurrentHashMap<Long, Long> changing = new ConcurrentHashMap<>();
+
+    public GameVersions() {
+        this(DEFAULT_MAX_TRACKED);
+    }
+
+    GameVersions(int maxTracked) {
+        this.maxTracked = Math.max(2, maxTracked);
+    }
+
+    /** Вызывать после того, как изменение записано. */
+    public void bump(Long gameStateId) {
+        if (gameStateId == null) return;
+        versions.put(gameStateId, writes.incrementAndGet());
+        if (versions.size() > maxTracked) evictOldest();
+    }
+
+    /** Состояние меняется со временем до untilMillis; 0 — не меняется. */
+    public void changing(Long gameStateId, long untilMillis) {
+        if (gameStateId == null) return;
+        if (untilMillis <= 0) changing.remove(gameStateId);
+        else changing.put(gameStateId, untilMillis);
+        // живые отметки держат только игры с идущими эффектами; истёкшие выбрасываются пачкой
+        if (changing.size() > maxTracked) {
+            long now = System.currentTimeMillis();
+            changing.values().removeIf(until -> until <= now);
+        }
+    }
+
+    public long version(Long gameStateId) {
+        if (gameStateId == null) return 0L;
+        Long v = versions.get(gameStateId);
+        return v != null ? v : floor.get();
+    }
+
+    /** Сильный ETag текущей версии игры (в кавычках, как требует HTTP). */
+    public String etag(Long gameStateId) {
+        return "\"" + epoch + "-" + gameStateId + "-" + version(gameStateId) + clock(gameStateId) + "\"";
+    }
+
+    /** ETag представления, зависящего не только от версии (например, от языка текста). */
+    public String etag(Long gameStateId, String variant) {
+        return "\"" + epoch + "-" + gameStateId + "-" + version(gameStateId) + clock(gameStateId) + "-" + variant + "\"";
+    }
+
+    int tracked() {
+        return versions.size();
+    }
+
+    /**
+     * Выбросить игры, не менявшиеся последние maxTracked/2 записей. Порог поднимается до удаления:
+     * читатель, не нашедший игру, уже видит версию не меньше её последней. Проход — не чаще раза
+     * на maxTracked/2 записей.
+     */
+    private void evictOldest() {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            long threshold = writes.get() - maxTracked / 2;
+            if (threshold <= floor.get()) return;
+            floor.accumulateAndGet(threshold, Math::max);
+            versions.values().removeIf(v -> v <= threshold);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private String clock(Long gameStateId) {
+        Long until = gameStateId == null ? null : changing.get(gameStateId);
+        if (until == null) return "";
+        long now = System.currentTimeMillis();
+        if (now < until) return "." + now / 1000;
+        changing.remove(gameStateId, until);
+        return "";
+    }
+
+    /** Забыть игру (например, после удаления или архивации); её версия становится не меньше прежней. */
+    public void forget(Long gameStateId) {
+        if (gameStateId == null) return;
+        Long v = versions.get(gameStateId);
+        if (v != null) {
+            floor.accumulateAndGet(v, Math::max);
+            versions.remove(gameStateId, v);
+        }
+        changing.remove(gameStateId);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.IdempotencyProperties;
+import com.example.questgame.exception.BusinessRuleException;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.repository.IdempotencyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Повтор POST-команды с тем же Idempotency-Key возвращает сохранённый ответ, а не выполняет её заново.
+ * Ответ хранится сериализованным по ключу (пользователь, ключ) с TTL и ограничением размера;
+ * одновременные дубликаты подписываются на то же выполнение и ждут его результата.
+ * В режиме DB ключ дополнительно занимается в таблице idempotency_keys, чтобы дубликат
+ * на другом узле дождался ответа первого узла.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final IdempotencyProperties props;
+    private final IdempotencyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Disposable purgeTask;
+
+    public IdempotencyService(IdempotencyProperties props, IdempotencyRepository repository, ObjectMapper objectMapper) {
+        this.props = props;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Выполнить команду не более одного раза на ключ.
+     *
+     * @param user        владелец ключа (ключи разных пользователей не пересекаются)
+     * @param key         значение Idempotency-Key; null/пусто — команда выполняется как обычно
+     * @param fingerprint описание запроса; тот же ключ с другим запросом — ошибка
+     */
+    public <T> Mono<T> execute(String user, String key, String fingerprint, Class<T> type, Supplier<Mono<T>> action) {
+        if (key == null || key.isBlank()) {
+            return Mono.defer(action);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new ValidationException(HEADER + " длиннее " + MAX_KEY_LENGTH + " символов"));
+        }
+        String id = user + ":" + key;
+        return Mono.defer(() -> {
+            Entry entry = acquire(id, fingerprint, () -> Mono.defer(action).map(this::write));
+            if (!entry.fingerprint.equals(fingerprint)) {
+                return Mono.error(new ValidationException(HEADER + " уже использован для другого запроса"));
+            }
+            return entry.result.map(json -> read(json, type));
+        });
+    }
+
+    /** Существующая живая запись или новая (она и выполнит команду). */
+    private Entry acquire(String id, String fingerprint, Supplier<Mono<String>> action) {
+        long now = System.nanoTime();
+        while (true) {
+            Entry fresh = new Entry(fingerprint, now + props.getTtl().toNanos());
+            fresh.result = run(id, fresh, action).cache();
+            Entry existing = entries.putIfAbsent(id, fresh);
+            if (existing == null) {
+                if (entries.size() > props.getMaxEntries()) {
+                    evict(now);
+                }
+                return fresh;
+            }
+            if (existing.expiresAt - now > 0) {
+                return existing;
+            }
+            entries.remove(id, existing);
+        }
+    }
+
+    private Mono<String> run(String id, Entry entry, Supplier<Mono<String>> action) {
+        Mono<String> result = props.getStore() == IdempotencyProperties.Store.DB
+                ? runShared(id, entry.fingerprint, action)
+                : action.get();
+        // упавшая команда не запоминается: повтор с тем же ключом выполнит её снова
+        return result.doOnError(e -> entries.remove(id, entry));
+    }
+
+    // ==========================
+    //   Таблица (несколько узлов)
+    // ==========================
+
+    private Mono<String> runShared(String id, String fingerprint, Supplier<Mono<String>> action) {
+        return repository.deleteExpired(id, ttlMicros())
+                .then(repository.claim(id, fingerprint))
+                .flatMap(claimed -> claimed > 0
+                        ? action.get()
+                                .flatMap(json -> repository.complete(id, json).thenReturn(json))
+                                .onErrorResume(e -> repository.deleteById(id).then(Mono.error(e)))
+                        : awaitOtherNode(id, fingerprint));
+    }
+
+    private Mono<String> awaitOtherNode(String id, String fingerprint) {
+        return repository.findById(id)
+                .switchIfEmpty(Mono.error(new Pending()))
+                .flatMap(r -> {
+                    if (!fingerprint.equals(r.getFingerprint())) {
+                        return Mono.error(new ValidationException(HEADER + " уже использован для другого запроса"));
+                    }
+                    return r.getResponse() == null ? Mono.<String>error(new Pending()) : Mono.just(r.getResponse());
+                })
+                .retryWhen(Retry.fixedDelay(maxPolls(), props.getPollInterval())
+                        .filter(Pending.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) ->
+                                new BusinessRuleException("Запрос с этим " + HEADER + " ещё выполняется, повторите позже")));
+    }
+
+    /** Срок жизни ключа для SQL: граница считается часами БД, теми же, что поставили created_at. */
+    private long ttlMicros() {
+        return props.getTtl().toNanos() / 1_000;
+    }
+
+    private long maxPolls() {
+        return Math.max(1, props.getPollTimeout().toMillis() / Math.max(1, props.getPollInterval().toMillis()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (purgeTask != null || props.getStore() != IdempotencyProperties.Store.DB) return;
+        purgeTask = Flux.interval(props.getTtl(), props.getTtl(), Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> repository.deleteOlderThan(ttlMicros())
+                        .doOnNext(n -> log.debug("idempotency: удалено {} просроченных ключей", n))
+                        .onErrorResume(e -> {
+                            log.warn("idempotency: не удалось почистить таблицу: {}", e.toString());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable task = purgeTask;
+        if (task != null) task.dispose();
+    }
+
+    // ==========================
+    //          Память
+    // ==========================
+
+    /** Сначала просроченные; если не помогло — самые старые, с запасом 10%, чтобы не чистить на каждой вставке. */
+    private void evict(long now) {
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt - now <= 0);
+        int excess = entries.size() - props.getMaxEntries();
+        if (excess <= 0) return;
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                .limit(excess + props.getMaxEntries() / 10L)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать сохранённый ответ", e);
+        }
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final long expiresAt;
+        Mono<String> result;
+
+        Entry(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /** Другой узел ещё выполняет команду. */
+    private static final class Pending extends RuntimeException {
+        Pending() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.questgame.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Каталог сюжетных сообщений (messages/plot_ru.properties, messages/plot_en.properties).
+ * Бандлы читаются в память один раз при старте; в БД хранятся только коды (см. {@link PlotText}),
+ * текст собирается на языке запроса при построении DTO. Неизвестный язык — русский.
+ */
+@Component
+public class MessageCatalog {
+
+    public static final Locale DEFAULT_LOCALE = Locale.forLanguageTag("ru");
+
+    private static final String BASENAME = "messages/plot";
+    private static final List<Locale> SUPPORTED = List.of(DEFAULT_LOCALE, Locale.ENGLISH);
+    private static final String ITEM_PREFIX = "item.";
+
+    // язык -> базовый бандл (код -> шаблон с {0}, {1}...) + тексты пакетов квестов, дополняемые при их загрузке
+    private final Map<String, Bundle> bundles = new HashMap<>();
+
+    public MessageCatalog() {
+        for (Locale l : SUPPORTED) {
+            bundles.put(l.getLanguage(), new Bundle(load(BASENAME + "_" + l.getLanguage() + ".properties"),
+                    new ConcurrentHashMap<>()));
+        }
+    }
+
+    /** Тексты пакета квеста (язык -> код -> шаблон); повторная регистрация перезаписывает коды. */
+    public void register(Map<String, Map<String, String>> byLanguage) {
+        byLanguage.forEach((lang, texts) -> {
+            Bundle target = bundles.get(lang);
+            if (target != null) target.packs().putAll(texts);
+        });
+    }
+
+    /** Поддерживаемый язык, ближайший к запрошенному. */
+    public Locale supported(Locale requested) {
+        if (requested != null) {
+            for (Locale l : SUPPORTED) {
+                if (l.getLanguage().equals(requested.getLanguage())) return l;
+            }
+        }
+        return DEFAULT_LOCALE;
+    }
+
+    /** Текст сохранённого прогресса на нужном языке; сообщения идут по строкам, старый текст — как есть. */
+    public String resolve(String stored, Locale locale) {
+        if (stored == null || stored.isEmpty()) return "";
+        if (stored.indexOf(PlotText.CODE_MARK) < 0) return stored;
+        Bundle bundle = bundle(locale);
+        StringBuilder sb = new StringBuilder(stored.length() * 4);
+        for (PlotText.Line line : PlotText.parse(stored)) {
+            if (!sb.isEmpty()) sb.append('\n');
+            sb.append(line.code() == null ? line.literal() : format(bundle, line.code(), line.args()));
+        }
+        return sb.toString();
+    }
+
+    public String message(String code, Locale locale, String... args) {
+        return format(bundle(locale), code, List.of(args));
+    }
+
+    private Bundle bundle(Locale locale) {
+        return bundles.get(supported(locale).getLanguage());
+    }
+
+    /** Базовый бандл и тексты пакетов одного языка. */
+    private record Bundle(Map<String, String> base, Map<String, String> packs) {
+        String get(String code) {
+            String t = base.get(code);
+            return t != null ? t : packs.get(code);
+        }
+
+        String getOrDefault(String code, String fallback) {
+            String t = get(code);
+            return t != null ? t : fallback;
+        }
+    }
+
+    /** Подстановка {i}; параметр-предмет переводится по item.&lt;имя&gt;, список предметов — через запятую. */
+    private static String format(Bundle bundle, String code, List<String> args) {
+        String template = bundle.get(code);
+        if (template == null) return code;
+        if (args.isEmpty()) return template;
+        StringBuilder sb = new StringBuilder(template.length() + 32);
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            int close = c == '{' ? template.indexOf('}', i) : -1;
+            if (close > i + 1) {
+                int n = parseIndex(template, i + 1, close);
+                if (n >= 0) {
+                    if (n < args.size()) sb.append(localizeArg(bundle, args.get(n)));
+                    i = close + 1;
+                    continue;
+                }
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private static int parseIndex(String s, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private static String localizeArg(Bundle bundle, String arg) {
+        if (arg.indexOf(',') < 0) return bundle.getOrDefault(ITEM_PREFIX + arg, arg);
+        StringBuilder sb = new StringBuilder(arg.length() * 2);
+        for (String part : arg.split(",")) {
+            if (!sb.isEmpty()) sb.append(", ");
+            String p = part.trim();
+            sb.append(bundle.getOrDefault(ITEM_PREFIX + p, p));
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> load(String path) {
+        Properties props = new Properties();
+        try (InputStream in = MessageCatalog.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) throw new IllegalStateException("Нет бандла сообщений: " + path);
+            props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать " + path, e);
+        }
+        Map<String, String> out = new HashMap<>(props.size() * 2);
+        props.forEach((k, v) -> out.put((String) k, (String) v));
+        return Map.copyOf(out);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.PartyProperties;
+import com.example.questgame.dto.PartyDto;
+import com.example.questgame.dto.PartyEventDto;
+import com.example.questgame.exception.BusinessRuleException;
+import com.example.questgame.exception.ForbiddenException;
+import com.example.questgame.exception.NotFoundException;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.facade.GameDtoFacade;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.Party;
+import com.example.questgame.model.PartyMember;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.PartyMemberRepository;
+import com.example.questgame.repository.PartyRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Партии: несколько игроков ведут одну игру, голосуют за действия и делят инвентарь.
+ * <p>
+ * Живые партии держатся в памяти ({@link PartySession}): все команды партии идут через её очередь
+ * по одной, а новое состояние рендерится один раз и рассылается подписчикам. Сессия открывается
+ * при первом обращении и закрывается, когда в ней нет подписчиков, команд и голосов.
+ * Состояние для рассылки рендерится на языке по умолчанию: подписчиков много, команда одна.
+ */
+@Service
+public class PartyService {
+
+    private final PartyRepository partyRepository;
+    private final PartyMemberRepository memberRepository;
+    private final GameService gameService;
+    private final GameDtoFacade facade;
+    private final QuestPacks quests;
+    private final PartyProperties props;
+    private final ConcurrentHashMap<Long, PartySession> sessions = new ConcurrentHashMap<>();
+
+    public PartyService(PartyRepository partyRepository, PartyMemberRepository memberRepository,
+                        GameService gameService, GameDtoFacade facade, QuestPacks quests, PartyProperties props) {
+        this.partyRepository = partyRepository;
+        this.memberRepository = memberRepository;
+        this.gameService = gameService;
+        this.facade = facade;
+        this.quests = quests;
+        this.props = props;
+    }
+
+    /** Новая партия: новая игра, создатель — лидер и первый участник. */
+    public Mono<PartyDto> create(Long userId, String questId) {
+        return gameService.createNewGame(userId, questId)
+                .flatMap(game -> {
+                    Party party = new Party();
+                    party.setGameStateId(game.getId());
+                    party.setLeaderId(userId);
+                    party.setCreatedAt(LocalDateTime.now());
+                    return partyRepository.save(party);
+                })
+                .flatMap(party -> saveMember(party.getId(), userId)
+                        .thenReturn(new PartyDto(party.getId(), party.getGameStateId(), party.getLeaderId(),
+                                List.of(userId))));
+    }
+
+    public Mono<PartyDto> get(Long partyId, Long userId) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            return Mono.just(s.toDto());
+        });
+    }
+
+    public Mono<PartyDto> join(Long partyId, Long userId) {
+        return withSession(partyId, s -> {
+            if (s.isMember(userId)) return Mono.just(s.toDto());
+            if (!s.addMember(userId, props.getMaxMembers())) {
+                return Mono.error(new BusinessRuleException("В партии нет свободных мест"));
+            }
+            return saveMember(partyId, userId)
+                    .doOnError(e -> s.removeMember(userId))
+                    .then(Mono.fromSupplier(() -> {
+                        s.publishMembers();
+                        return s.toDto();
+                    }));
+        });
+    }
+
+    public Mono<PartyDto> leave(Long partyId, Long userId) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            return memberRepository.deleteByPartyIdAndUserId(partyId, userId)
+                    .then(Mono.fromSupplier(() -> {
+                        s.removeMember(userId);
+                        s.publishMembers();
+                        closeIfIdle(s);
+                        return s.toDto();
+                    }));
+        });
+    }
+
+    /**
+     * Голос за действие. Пока большинства нет — возвращается событие vote с раскладом голосов;
+     * как только за одно действие голосует больше половины партии, ход ставится в очередь
+     * и возвращается событие state с его результатом.
+     */
+    public Mono<PartyEventDto> vote(Long partyId, Long userId, String rawAction) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            String key = quests.get(s.questId()).normalize(rawAction);
+            if (key == null) {
+                if (rawAction == null || rawAction.isBlank()) {
+                    return Mono.error(new ValidationException("Не указано действие"));
+                }
+                key = rawAction.trim().toLowerCase(Locale.ROOT);
+            }
+            PartySession.Tally tally = s.vote(userId, key);
+            if (tally.decided() == null) return Mono.just(s.publishVotes(tally.votes()));
+            String action = tally.decided();
+            return run(s, () -> gameService.updatePlot(s.gameStateId(), action));
+        });
+    }
+
+    public Mono<PartyEventDto> craft(Long partyId, Long userId, String recipeKey) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            return run(s, () -> gameService.craft(s.gameStateId(), recipeKey));
+        });
+    }
+
+    public Mono<PartyEventDto> useItem(Long partyId, Long userId, Long itemId) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            return run(s, () -> gameService.useItem(s.gameStateId(), itemId));
+        });
+    }
+
+    public Mono<PartyEventDto> answerRiddle(Long partyId, Long userId, String answer) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            return run(s, () -> gameService.answerRiddle(s.gameStateId(), answer));
+        });
+    }
+
+    /**
+     * События партии для участника: текущее состояние, затем живые события. Подписка идёт через
+     * {@link #withSession}: только что закрытую сессию заменит новая. Подписчик, отставший больше
+     * чем на app.party.event-buffer событий, получает ошибку и переподключается за свежим снимком.
+     */
+    public Flux<PartyEventDto> events(Long partyId, Long userId) {
+        return withSession(partyId, s -> {
+            requireMember(s, userId);
+            return s.subscribe(() -> {
+                PartyEventDto last = s.lastState();
+                return last != null
+                        ? Mono.just(last)
+                        : gameService.findState(s.gameStateId()).flatMap(facade::from).map(s::snapshot);
+            }, props.getEventBuffer(), () -> closeIfIdle(s));
+        }).flatMapMany(events -> events);
+    }
+
+    /** Сколько партий сейчас открыто в памяти. */
+    public int openSessions() {
+        return sessions.size();
+    }
+
+    // ==========================
+    //        Вспомогательные
+    // ==========================
+
+    private Mono<PartyEventDto> run(PartySession s, Supplier<Mono<GameState>> command) {
+        return s.submit(() -> command.get().flatMap(facade::from).map(s::publishState), props.getMaxPendingCommands())
+                .doFinally(sig -> closeIfIdle(s));
+    }
+
+    /** Операция над сессией; если сессию успели закрыть — откроем новую и повторим. */
+    private <T> Mono<T> withSession(Long partyId, Function<PartySession, Mono<T>> op) {
+        return Mono.defer(() -> session(partyId).flatMap(op))
+                .retryWhen(Retry.max(3).filter(PartySession.Closed.class::isInstance));
+    }
+
+    private Mono<PartySession> session(Long partyId) {
+        PartySession open = sessions.get(partyId);
+        if (open != null) return Mono.just(open);
+        return partyRepository.findById(partyId)
+                .switchIfEmpty(Mono.error(new NotFoundException("Party", partyId)))
+                .flatMap(party -> Mono.zip(
+                        memberRepository.findByPartyId(partyId).map(PartyMember::getUserId).collectList(),
+                        gameService.findState(party.getGameStateId()).map(GameState::getQuestId))
+                        .map(t -> sessions.computeIfAbsent(partyId,
+                                id -> new PartySession(party, t.getT1(), t.getT2()))));
+    }
+
+    private void closeIfIdle(PartySession s) {
+        if (s.closeIfIdle()) sessions.remove(s.partyId(), s);
+    }
+
+    private static void requireMember(PartySession s, Long userId) {
+        if (!s.isMember(userId)) throw new ForbiddenException("Вы не участник этой партии");
+    }
+
+    private Mono<PartyMember> saveMember(Long partyId, Long userId) {
+        PartyMember m = new PartyMember();
+        m.setPartyId(partyId);
+        m.setUserId(userId);
+        m.setJoinedAt(LocalDateTime.now());
+        return memberRepository.save(m);
+    }
+}
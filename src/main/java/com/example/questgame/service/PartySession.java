@@ -0,0 +1,210 @@
+package com.example.questgame.service;
+
+import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.dto.PartyDto;
+import com.example.questgame.dto.PartyEventDto;
+import com.example.questgame.exception.BusinessRuleException;
+import com.example.questgame.model.Party;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Живая партия в памяти: участники, голоса, очередь команд и рассылка событий.
+ * Команды партии выполняются строго по одной (concatMap по очереди), поэтому ходы разных игроков
+ * не гоняются за одно состояние игры. События уходят через multicast-sink без ожидания подписчиков:
+ * у каждого подписчика своя ограниченная очередь, и медленный клиент не тормозит остальных —
+ * переполнив очередь, он получает ошибку и переподключается за свежим снимком, а не теряет события молча.
+ */
+final class PartySession {
+
+    /** Сессия уже закрыта — PartyService откроет новую и повторит. */
+    static final class Closed extends RuntimeException {
+        Closed() {
+            super("party session closed", null, false, false);
+        }
+    }
+
+    /** decided — ключ действия, набравшего большинство (голоса сброшены); иначе null и текущий расклад. */
+    record Tally(String decided, Map<String, Integer> votes) {}
+
+    private static final Sinks.EmitFailureHandler RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final Party party;
+    private final String questId;
+    private final Set<Long> members;
+    private final Map<Long, String> votes = new HashMap<>();
+    private final Sinks.Many<PartyEventDto> events = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Many<Mono<Void>> commands = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicLong seq = new AtomicLong();
+    private volatile PartyEventDto lastState;
+    private int pending;
+    private boolean closed;
+
+    PartySession(Party party, List<Long> members, String questId) {
+        this.party = party;
+        this.questId = questId;
+        this.members = new LinkedHashSet<>(members);
+        commands.asFlux().concatMap(job -> job, 1).subscribe();
+    }
+
+    Long partyId() { return party.getId(); }
+    Long gameStateId() { return party.getGameStateId(); }
+    String questId() { return questId; }
+    PartyEventDto lastState() { return lastState; }
+
+    synchronized boolean isMember(Long userId) {
+        return members.contains(userId);
+    }
+
+    /** Занять место; false — партия полна. */
+    synchronized boolean addMember(Long userId, int max) {
+        if (members.contains(userId)) return true;
+        if (members.size() >= max) return false;
+        members.add(userId);
+        return true;
+    }
+
+    synchronized void removeMember(Long userId) {
+        members.remove(userId);
+        votes.remove(userId);
+    }
+
+    synchronized PartyDto toDto() {
+        return new PartyDto(party.getId(), party.getGameStateId(), party.getLeaderId(), List.copyOf(members));
+    }
+
+    synchronized int memberCount() {
+        return members.size();
+    }
+
+    /** Голос участника; большинство — больше половины текущего состава. */
+    synchronized Tally vote(Long userId, String actionKey) {
+        votes.put(userId, actionKey);
+        Map<String, Integer> tally = new TreeMap<>();
+        for (String a : votes.values()) tally.merge(a, 1, Integer::sum);
+        int need = members.size() / 2 + 1;
+        for (Map.Entry<String, Integer> e : tally.entrySet()) {
+            if (e.getValue() >= need) {
+                votes.clear();
+                return new Tally(e.getKey(), Map.of());
+            }
+        }
+        return new Tally(null, tally);
+    }
+
+    /**
+     * Поставить команду в очередь партии. Результат — то, что вернула команда; отмена подписки
+     * на результат команду не отменяет (ход уже принят).
+     */
+    <T> Mono<T> submit(Supplier<Mono<T>> work, int maxPending) {
+        Sinks.One<T> result = Sinks.one();
+        synchronized (this) {
+            if (closed) return Mono.error(new Closed());
+            if (pending >= maxPending) {
+                return Mono.error(new BusinessRuleException("Партия занята: слишком много команд в очереди"));
+            }
+            pending++;
+        }
+        Mono<Void> job = Mono.defer(work)
+                .doOnSuccess(v -> {
+                    if (v == null) result.tryEmitEmpty();
+                    else result.tryEmitValue(v);
+                })
+                .doOnError(result::tryEmitError)
+                .doFinally(s -> {
+                    synchronized (this) {
+                        pending--;
+                    }
+                })
+                .then()
+                .onErrorResume(e -> Mono.empty());
+        commands.emitNext(job, RETRY);
+        return result.asMono();
+    }
+
+    PartyEventDto publishState(GameStateDto state) {
+        PartyEventDto e = new PartyEventDto(PartyEventDto.STATE, partyId(), seq.incrementAndGet(), state, null, null);
+        lastState = e;
+        events.emitNext(e, RETRY);
+        return e;
+    }
+
+    PartyEventDto publishVotes(Map<String, Integer> tally) {
+        PartyEventDto e = new PartyEventDto(PartyEventDto.VOTE, partyId(), seq.incrementAndGet(), null, tally, null);
+        events.emitNext(e, RETRY);
+        return e;
+    }
+
+    PartyEventDto publishMembers() {
+        PartyEventDto e = new PartyEventDto(PartyEventDto.MEMBERS, partyId(), seq.incrementAndGet(), null, null,
+                memberCount());
+        events.emitNext(e, RETRY);
+        return e;
+    }
+
+    /** Снимок для нового подписчика, пока ни одной команды ещё не было. */
+    PartyEventDto snapshot(GameStateDto state) {
+        PartyEventDto e = new PartyEventDto(PartyEventDto.STATE, partyId(), seq.get(), state, null, null);
+        if (lastState == null) lastState = e;
+        return e;
+    }
+
+    /**
+     * Подписать на события: к sink подписываемся сразу (в очередь подписчика до buffer событий), и только
+     * потом берём initial — события, случившиеся пока грузится снимок, не теряются. Поток: снимок, затем
+     * накопленные и живые события; состояния не новее снимка пропускаются — снимок их уже содержит.
+     * Очередь переполнена — поток завершается ошибкой. onEnd вызывается, когда
+     * подписчик уже отписан от sink. {@link Closed} — сессия закрыта, подписка не оформлена.
+     */
+    Mono<Flux<PartyEventDto>> subscribe(Supplier<Mono<PartyEventDto>> initial, int buffer, Runnable onEnd) {
+        return Mono.fromCallable(() -> {
+            Sinks.Many<PartyEventDto> mine = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<PartyEventDto>get(Math.max(1, buffer)).get());
+            Disposable feed;
+            // под той же блокировкой, что closeIfIdle: закрытие не проскочит между проверкой и подпиской
+            synchronized (this) {
+                if (closed) throw new Closed();
+                feed = events.asFlux().subscribe(e -> {
+                    if (mine.tryEmitNext(e).isFailure()) {
+                        mine.tryEmitError(new BusinessRuleException("Подписчик отстал от событий партии, переподключитесь"));
+                    }
+                });
+            }
+            return Mono.defer(initial)
+                    .flatMapMany(first -> mine.asFlux()
+                            .filter(e -> !PartyEventDto.STATE.equals(e.getType()) || e.getSeq() > first.getSeq())
+                            .startWith(first))
+                    .doFinally(sig -> {
+                        feed.dispose();
+                        onEnd.run();
+                    });
+        });
+    }
+
+    /** Закрыть, если никто не подписан, очередь пуста и голосов нет; true — закрыта. */
+    synchronized boolean closeIfIdle() {
+        if (closed) return true;
+        if (pending > 0 || !votes.isEmpty() || events.currentSubscriberCount() > 0) return false;
+        closed = true;
+        commands.tryEmitComplete();
+        return true;
+    }
+
+    synchronized List<Long> memberIds() {
+        return new ArrayList<>(members);
+    }
+}
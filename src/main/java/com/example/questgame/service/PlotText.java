@@ -0,0 +1,81 @@
+package com.example.questgame.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Компактная запись сюжетного текста в game_states.plot_progress: вместо готовой фразы —
+ * код сообщения из каталога и параметры, например {@code @forest.sword} или {@code @craft.done|меч}.
+ * Несколько сообщений (новое поверх предыдущего) разделяются переводом строки.
+ * Строка без '@' — старый сохранённый текст, он показывается как есть.
+ */
+public final class PlotText {
+
+    static final char CODE_MARK = '@';
+    static final char ARG_SEP = '|';
+    static final char LINE_SEP = '\n';
+
+    private PlotText() {}
+
+    /** Одно сообщение: код и параметры (разделители внутри параметров заменяются пробелом). */
+    public static String of(String code, String... args) {
+        StringBuilder sb = new StringBuilder(1 + code.length() + args.length * 8).append(CODE_MARK).append(code);
+        for (String a : args) {
+            sb.append(ARG_SEP).append(a == null ? "" : a.replace(ARG_SEP, ' ').replace(LINE_SEP, ' '));
+        }
+        return sb.toString();
+    }
+
+    /** Новое сообщение поверх предыдущих (как раньше «текст\n» + прежний прогресс). */
+    public static String prepend(String line, String previous) {
+        return previous == null || previous.isEmpty() ? line : line + LINE_SEP + previous;
+    }
+
+    /** Обратное к prepend: убрать верхнее сообщение. */
+    public static String dropFirst(String stored) {
+        if (stored == null) return "";
+        int nl = stored.indexOf(LINE_SEP);
+        return nl < 0 ? "" : stored.substring(nl + 1);
+    }
+
+    /** Есть ли среди сообщений код, начинающийся с префикса (точный код — тоже префикс). */
+    public static boolean hasCode(String stored, String codePrefix) {
+        if (stored == null || stored.isEmpty()) return false;
+        for (Line l : parse(stored)) {
+            if (l.code() != null && l.code().startsWith(codePrefix)) return true;
+        }
+        return false;
+    }
+
+    /** Код верхнего сообщения; null — пусто или старый текст. */
+    public static String firstCode(String stored) {
+        if (stored == null || stored.isEmpty() || stored.charAt(0) != CODE_MARK) return null;
+        int end = stored.length();
+        int nl = stored.indexOf(LINE_SEP);
+        if (nl >= 0) end = nl;
+        int arg = stored.indexOf(ARG_SEP);
+        if (arg >= 0 && arg < end) end = arg;
+        return stored.substring(1, end);
+    }
+
+    static List<Line> parse(String stored) {
+        List<Line> out = new ArrayList<>(2);
+        int start = 0;
+        while (start <= stored.length()) {
+            int end = stored.indexOf(LINE_SEP, start);
+            if (end < 0) end = stored.length();
+            String line = stored.substring(start, end);
+            if (!line.isEmpty() && line.charAt(0) == CODE_MARK) {
+                String[] parts = line.substring(1).split("\\" + ARG_SEP, -1);
+                out.add(new Line(parts[0], List.of(parts).subList(1, parts.length), null));
+            } else {
+                out.add(new Line(null, List.of(), line));
+            }
+            start = end + 1;
+        }
+        return out;
+    }
+
+    /** Код с параметрами либо (code == null) старый текст как есть. */
+    record Line(String code, List<String> args, String literal) {}
+}
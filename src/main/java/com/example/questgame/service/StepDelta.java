@@ -0,0 +1,189 @@
+package com.example.questgame.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Обратимое изменение игры за одну команду: сдвиг здоровья, смена локации, добавленные и удалённые
+ * предметы, прежний сюжетный код и прежние флаги/счётчики квеста. Полная копия состояния не хранится — отмена применяет дельты
+ * в обратном порядке. Двоичный формат: флаги, zigzag-varint здоровья, локация и предметы словарными
+ * байтами (произвольные строки — UTF), прежний plot_progress — только если команда его не дописала сверху.
+ * prevVars — только если команда меняла переменные ("" — их не было); старые дельты этого флага не знают.
+ */
+public record StepDelta(int healthDelta, String prevLocation, String prevPlot, boolean plotPrepended,
+                        List<GameService.Item> added, List<GameService.Item> removed, String prevVars) {
+
+    private static final byte VERSION = 1;
+
+    private static final int F_LOCATION = 1;
+    private static final int F_PLOT = 1 << 1;
+    private static final int F_PREPENDED = 1 << 2;
+    private static final int F_VARS = 1 << 3;
+
+    // словари частых значений: индекс + 1 вместо строки, 0 — дальше строка как есть
+    private static final List<String> LOCATIONS = List.of("лес", "пещера", "деревня", "замок");
+    private static final List<GameService.Item> ITEMS = List.of(
+            new GameService.Item("меч", "Острый меч для боя"),
+            new GameService.Item("трава", "Ингредиент для зелья"),
+            new GameService.Item("фляга", "Ингредиент для зелья"),
+            new GameService.Item("зелье", "Зелье лечения"),
+            new GameService.Item("зелье", "Зелье лечения (+30 HP)"),
+            new GameService.Item("артефакт", "Древний артефакт"),
+            new GameService.Item("клинок света", "Оружие из артефакта. Поможет против дракона."));
+
+    public boolean isEmpty() {
+        return healthDelta == 0 && prevLocation == null && prevPlot == null && !plotPrepended
+                && added.isEmpty() && removed.isEmpty() && prevVars == null;
+    }
+
+    /** Начать запись: снимок полей до команды; предметы отмечаются по ходу. */
+    public static Builder begin(int health, String location, String plot) {
+        return begin(health, location, plot, null);
+    }
+
+    public static Builder begin(int health, String location, String plot, String vars) {
+        return new Builder(health, location, plot, vars);
+    }
+
+    public static final class Builder {
+        private final int health;
+        private final String location;
+        private final String plot;
+        private final String vars;
+        private final List<GameService.Item> added = new ArrayList<>(2);
+        private final List<GameService.Item> removed = new ArrayList<>(2);
+
+        private Builder(int health, String location, String plot, String vars) {
+            this.health = health;
+            this.location = location;
+            this.plot = plot;
+            this.vars = vars;
+        }
+
+        public void added(String name, String description) {
+            added.add(new GameService.Item(name, description));
+        }
+
+        public void removed(String name, String description) {
+            removed.add(new GameService.Item(name, description));
+        }
+
+        /** Дельта по состоянию после команды (переменные не менялись). */
+        public StepDelta finish(int newHealth, String newLocation, String newPlot) {
+            return finish(newHealth, newLocation, newPlot, vars);
+        }
+
+        public StepDelta finish(int newHealth, String newLocation, String newPlot, String newVars) {
+            String before = plot == null ? "" : plot;
+            String after = newPlot == null ? "" : newPlot;
+            boolean samePlot = before.equals(after);
+            boolean prepended = !samePlot && !before.isEmpty() && after.endsWith(PlotText.LINE_SEP + before);
+            return new StepDelta(
+                    newHealth - health,
+                    Objects.equals(location, newLocation) ? null : location,
+                    samePlot || prepended ? null : before,
+                    prepended,
+                    List.copyOf(added),
+                    List.copyOf(removed),
+                    Objects.equals(vars, newVars) ? null : Objects.requireNonNullElse(vars, ""));
+        }
+    }
+
+    // ==========================
+    //       Двоичный формат
+    // ==========================
+
+    public byte[] encode() {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeByte(VERSION);
+            int flags = (prevLocation != null ? F_LOCATION : 0)
+                    | (prevPlot != null ? F_PLOT : 0)
+                    | (plotPrepended ? F_PREPENDED : 0)
+                    | (prevVars != null ? F_VARS : 0);
+            out.writeByte(flags);
+            writeVarInt(out, (healthDelta << 1) ^ (healthDelta >> 31));
+            if (prevLocation != null) {
+                int idx = LOCATIONS.indexOf(prevLocation);
+                out.writeByte(idx + 1);
+                if (idx < 0) out.writeUTF(prevLocation);
+            }
+            if (prevPlot != null) out.writeUTF(prevPlot);
+            writeItems(out, added);
+            writeItems(out, removed);
+            if (prevVars != null) out.writeUTF(prevVars);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось закодировать дельту", e);
+        }
+        return buf.toByteArray();
+    }
+
+    public static StepDelta decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION) throw new IllegalStateException("Неизвестная версия дельты: " + version);
+            int flags = in.readUnsignedByte();
+            int zz = readVarInt(in);
+            int health = (zz >>> 1) ^ -(zz & 1);
+            String location = null;
+            if ((flags & F_LOCATION) != 0) {
+                int idx = in.readUnsignedByte();
+                location = idx == 0 ? in.readUTF() : LOCATIONS.get(idx - 1);
+            }
+            String plot = (flags & F_PLOT) != 0 ? in.readUTF() : null;
+            List<GameService.Item> added = readItems(in);
+            List<GameService.Item> removed = readItems(in);
+            String vars = (flags & F_VARS) != 0 ? in.readUTF() : null;
+            return new StepDelta(health, location, plot, (flags & F_PREPENDED) != 0, added, removed, vars);
+        } catch (IOException e) {
+            throw new IllegalStateException("Повреждённая дельта", e);
+        }
+    }
+
+    private static void writeItems(DataOutputStream out, List<GameService.Item> items) throws IOException {
+        writeVarInt(out, items.size());
+        for (GameService.Item it : items) {
+            int idx = ITEMS.indexOf(it);
+            out.writeByte(idx + 1);
+            if (idx < 0) {
+                out.writeUTF(it.name() == null ? "" : it.name());
+                out.writeUTF(it.description() == null ? "" : it.description());
+            }
+        }
+    }
+
+    private static List<GameService.Item> readItems(DataInputStream in) throws IOException {
+        int n = readVarInt(in);
+        if (n == 0) return List.of();
+        List<GameService.Item> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int idx = in.readUnsignedByte();
+            out.add(idx == 0 ? new GameService.Item(in.readUTF(), in.readUTF()) : ITEMS.get(idx - 1));
+        }
+        return List.copyOf(out);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IllegalStateException("Слишком длинный varint");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.storage.GameStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Двигатель колеса эффектов: раз в тик продвигает {@link EffectScheduler} и отдаёт созревшие игры
+ * в {@link GameService#applyDueEffects} батчами по app.effects.batch-size. Один интервал на процесс,
+ * сколько бы игр ни было под эффектами. При старте расписание восстанавливается из {@link GameStore}
+ * (в БД — по game_states.effects_due; просроченные сработают на первом тике).
+ */
+@Service
+public class TimedEffectsService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimedEffectsService.class);
+    // батч не записался (БД недоступна) — повтор позже, а не на каждом тике
+    private static final long RETRY_DELAY_MS = 30_000;
+
+    private final EffectsProperties props;
+    private final EffectScheduler scheduler;
+    private final GameService gameService;
+    private final GameStore store;
+    private volatile Disposable task;
+
+    public TimedEffectsService(EffectsProperties props, EffectScheduler scheduler, GameService gameService,
+                               GameStore store) {
+        this.props = props;
+        this.scheduler = scheduler;
+        this.gameService = gameService;
+        this.store = store;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (task != null || !props.isEnabled()) return;
+        Mono<Long> restore = store.findEffectsDue()
+                .doOnNext(d -> scheduler.schedule(d.id(), d.effectsDue()))
+                .count()
+                .doOnNext(n -> {
+                    if (n > 0) log.info("effects: восстановлено расписание {} игр", n);
+                })
+                .onErrorResume(e -> {
+                    log.warn("effects: расписание не восстановлено: {}", e.toString());
+                    return Mono.empty();
+                });
+        task = restore.thenMany(Flux.interval(props.getTick(), Schedulers.parallel()))
+                .onBackpressureDrop()
+                .concatMap(tick -> runOnce(System.currentTimeMillis()), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable t = task;
+        if (t != null) t.dispose();
+    }
+
+    /** Продвинуть колесо до nowMillis и досчитать созревшие игры; сколько игр записано. */
+    public Mono<Long> runOnce(long nowMillis) {
+        List<Long> due = scheduler.due(nowMillis);
+        if (due.isEmpty()) return Mono.just(0L);
+        int batch = Math.max(1, props.getBatchSize());
+        return Flux.fromIterable(due)
+                .buffer(batch)
+                .concatMap(ids -> gameService.applyDueEffects(ids)
+                        .onErrorResume(e -> {
+                            log.warn("effects: батч из {} игр не применён: {}", ids.size(), e.toString());
+                            ids.forEach(id -> scheduler.schedule(id, nowMillis + RETRY_DELAY_MS));
+                            return Mono.just(0L);
+                        }))
+                .reduce(0L, Long::sum);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.questgame.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Иерархическое хешированное колесо таймеров (как в Kafka/Netty): уровень i — size корзин по
+ * tick·size^i мс. Таймер кладётся в корзину самого мелкого уровня, чей оборот его накрывает;
+ * когда время доходит до корзины верхнего уровня, её таймеры спускаются ниже. Вставка и отмена —
+ * O(1) (корзина — двусвязный список, таймер знает свою корзину), цена продвижения — число тиков.
+ * <p>
+ * Срабатывание — не раньше due и не позже чем через tick после него. Не потокобезопасно:
+ * владелец сам сериализует вызовы.
+ */
+final class TimingWheel<T> {
+
+    /** Запланированный таймер; отменяется через {@link TimingWheel#cancel}, пока не сработал. */
+    static final class Timer<T> {
+        final T payload;
+        final long due;
+        private Bucket<T> bucket;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(T payload, long due) {
+            this.payload = payload;
+            this.due = due;
+        }
+
+        private boolean detach() {
+            if (bucket == null) return false;
+            bucket.unlink(this);
+            return true;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private final Timer<T> head = new Timer<>(null, 0);
+        private int count;
+
+        Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void add(Timer<T> t) {
+            t.bucket = this;
+            t.prev = head.prev;
+            t.next = head;
+            head.prev.next = t;
+            head.prev = t;
+            count++;
+        }
+
+        void unlink(Timer<T> t) {
+            t.prev.next = t.next;
+            t.next.prev = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+            count--;
+        }
+
+        /** Вынуть все таймеры по порядку вставки. */
+        Timer<T> drain() {
+            if (count == 0) return null;
+            Timer<T> first = head.next;
+            head.prev.next = null;
+            for (Timer<T> t = first; t != null; t = t.next) t.bucket = null;
+            head.prev = head;
+            head.next = head;
+            count = 0;
+            return first;
+        }
+    }
+
+    private static final int MAX_LEVELS = 12;
+
+    private final long tick;
+    private final int size;
+    // длительность корзины на каждом уровне: tick, tick·size, tick·size², …
+    private final List<Long> spans = new ArrayList<>();
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    // просроченные в момент вставки — сработают при ближайшем продвижении
+    private final Bucket<T> overdue = new Bucket<>();
+    private long now;
+    private int scheduled;
+
+    TimingWheel(long tickMillis, int size, long startMillis) {
+        if (tickMillis <= 0 || size < 2) throw new IllegalArgumentException("tick > 0 и size >= 2");
+        this.tick = tickMillis;
+        this.size = size;
+        this.now = Math.floorDiv(startMillis, tickMillis) * tickMillis;
+        addLevel();
+    }
+
+    /** Начало текущего тика: всё с due раньше него уже выдано. */
+    long now() {
+        return now;
+    }
+
+    int size() {
+        return scheduled;
+    }
+
+    Timer<T> schedule(T payload, long dueMillis) {
+        Timer<T> t = new Timer<>(payload, dueMillis);
+        place(t);
+        scheduled++;
+        return t;
+    }
+
+    /** Отменить таймер этого колеса; false — уже сработал или отменён. */
+    boolean cancel(Timer<T> t) {
+        if (!t.detach()) return false;
+        scheduled--;
+        return true;
+    }
+
+    /** Продвинуть время до nowMillis и выдать всё, чей due прошёл; число выданных. */
+    int advance(long nowMillis, Consumer<T> due) {
+        int fired = fire(overdue, due);
+        while (now + tick <= nowMillis) {
+            fired += fire(levels.get(0)[slot(now, 0)], due);
+            now += tick;
+            // корзины верхних уровней, чьё время началось, спускаются вниз — сверху вниз
+            for (int level = levels.size() - 1; level >= 1; level--) {
+                long span = spans.get(level);
+                if (now % span == 0) cascade(levels.get(level)[slot(now, level)]);
+            }
+        }
+        return fired;
+    }
+
+    private void place(Timer<T> t) {
+        if (t.due < now) {
+            overdue.add(t);
+            return;
+        }
+        for (int level = 0; ; level++) {
+            if (level == levels.size()) {
+                if (levels.size() == MAX_LEVELS) {
+                    // дальше горизонта колеса: ждём в верхней корзине, при спуске разложится заново
+                    levels.get(level - 1)[slot(now + spans.get(level - 1) * (size - 1), level - 1)].add(t);
+                    return;
+                }
+                addLevel();
+            }
+            long span = spans.get(level);
+            long levelStart = Math.floorDiv(now, span) * span;
+            if (t.due < levelStart + span * size) {
+                levels.get(level)[slot(t.due, level)].add(t);
+                return;
+            }
+        }
+    }
+
+    private void cascade(Bucket<T> bucket) {
+        for (Timer<T> t = bucket.drain(); t != null; ) {
+            Timer<T> next = t.next;
+            t.prev = t.next = null;
+            place(t);
+            t = next;
+        }
+    }
+
+    private int fire(Bucket<T> bucket, Consumer<T> due) {
+        int n = 0;
+        for (Timer<T> t = bucket.drain(); t != null; ) {
+            Timer<T> next = t.next;
+            t.prev = t.next = null;
+            scheduled--;
+            n++;
+            due.accept(t.payload);
+            t = next;
+        }
+        return n;
+    }
+
+    private int slot(long at, int level) {
+        return (int) Math.floorMod(Math.floorDiv(at, spans.get(level)), (long) size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addLevel() {
+        long span = spans.isEmpty() ? tick : Math.multiplyExact(spans.get(spans.size() - 1), (long) size);
+        Bucket<T>[] buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) buckets[i] = new Bucket<>();
+        spans.add(span);
+        levels.add(buckets);
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Воспроизведение трассы {@link ActionTraceRecorder} через движок на хранилище в памяти: снимки
+ * засевают хранилище, команды идут подряд с записанными бросками и моментом {@link GameRandom}, после каждой
+ * хеш состояния сверяется с записанным. Без сети и БД — скорость упирается только в GameService.
+ * <p>
+ * Запуск на собранном jar:
+ * {@code java -cp questgame.jar -Dloader.main=com.example.questgame.service.TraceReplayer
+ * org.springframework.boot.loader.launch.PropertiesLauncher traces/trace-....bin}
+ */
+public final class TraceReplayer {
+
+    private static final int MAX_REPORTED = 10;
+
+    private final InMemoryStore store = new InMemoryStore();
+    private final ReplayRandom random = new ReplayRandom();
+    private final HashCapture capture = new HashCapture();
+    private final WorldEventService world = new WorldEventService(new WorldProperties(), new MessageCatalog());
+    private GameService engine;
+
+    /** Движок строится по заголовку файла: регенерация должна быть той же, что при записи. */
+    private GameService engine(int regenAmount, long regenEveryMillis) {
+        UndoProperties noUndo = new UndoProperties();
+        noUndo.setDepth(0);
+        EffectsProperties effects = new EffectsProperties();
+        effects.setEnabled(false);
+        effects.setRegenAmount(regenAmount);
+        effects.setRegenEvery(Duration.ofMillis(regenEveryMillis));
+        // архив, журнал отмены, outbox, колесо эффектов и снимки для GET не нужны: игры без снимка пропускаются,
+        // дельты и события не пишутся, эффекты досчитываются командами
+        return new GameService(new R2dbcGameStore(store.states(), store.inventory()), new GameStatsService(null, Duration.ZERO),
+                new GameVersions(), null, null, noUndo, random, capture,
+                new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()), world,
+                GameOutbox.disabled(), new EffectScheduler(effects), LastKnownGood.disabled());
+    }
+
+    /**
+     * commands — выполнено команд; mismatches — хеш или броски не совпали либо команда упала;
+     * skipped — команды игр без снимка в файле (например, снимок отброшен при переполнении очереди).
+     */
+    public record Report(long commands, long mismatches, long skipped, long games, long nanos, List<String> details) {
+        public double commandsPerSecond() {
+            return nanos == 0 ? 0 : commands * 1e9 / nanos;
+        }
+    }
+
+    public Report replay(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return replay(in);
+        }
+    }
+
+    public Report replay(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, 1 << 16));
+        if (in.readInt() != ActionTraceRecorder.MAGIC) throw new IllegalStateException("Это не файл трассы");
+        byte version = in.readByte();
+        if (version != ActionTraceRecorder.VERSION) throw new IllegalStateException("Неизвестная версия трассы: " + version);
+        int regenAmount = (int) ActionTraceRecorder.readVarLong(in);
+        engine = engine(regenAmount, ActionTraceRecorder.readVarLong(in));
+
+        long commands = 0, mismatches = 0, skipped = 0, games = 0;
+        List<String> details = new ArrayList<>();
+        long started = System.nanoTime();
+        while (true) {
+            int type = in.read();
+            if (type < 0) break;
+            try {
+                if (type == ActionTraceRecorder.SNAPSHOT) {
+                    readSnapshot(in);
+                    games++;
+                    continue;
+                }
+                if (type != ActionTraceRecorder.COMMAND) throw new IllegalStateException("Неизвестная запись: " + type);
+                Long id = ActionTraceRecorder.readVarLong(in);
+                ActionTrace.Command command = ActionTrace.Command.of(in.readByte());
+                String[] params = new String[(int) ActionTraceRecorder.readVarLong(in)];
+                for (int i = 0; i < params.length; i++) params[i] = ActionTraceRecorder.readString(in);
+                long now = ActionTraceRecorder.readVarLong(in);
+                int[] draws = new int[(int) ActionTraceRecorder.readVarLong(in)];
+                for (int i = 0; i < draws.length; i++) draws[i] = (int) ActionTraceRecorder.readVarLong(in);
+                String worldEvents = ActionTraceRecorder.readString(in);
+                int expected = in.readInt();
+
+                if (store.state(id) == null) {
+                    skipped++;
+                    continue;
+                }
+                commands++;
+                world.restore(worldEvents.isEmpty() ? List.of() : List.of(worldEvents.split(",")));
+                String problem = execute(id, command, params, now, draws, expected);
+                if (problem != null) {
+                    mismatches++;
+                    if (details.size() < MAX_REPORTED) {
+                        details.add("игра " + id + " " + command + List.of(params) + ": " + problem);
+                    }
+                }
+            } catch (EOFException e) {
+                // оборванная последняя запись (процесс остановлен во время записи)
+                break;
+            }
+        }
+        return new Report(commands, mismatches, skipped, games, System.nanoTime() - started, List.copyOf(details));
+    }
+
+    /** null — совпало, иначе описание расхождения. */
+    private String execute(Long id, ActionTrace.Command command, String[] params, long now, int[] draws, int expected) {
+        random.load(draws, now);
+        capture.reset();
+        try {
+            Mono<GameState> call = switch (command) {
+                case PROGRESS -> engine.updatePlot(id, params[0]);
+                case RIDDLE -> engine.answerRiddle(id, params[0]);
+                case CRAFT -> engine.craft(id, params[0]);
+                case RESTART -> engine.restartGame(id);
+                case USE -> {
+                    Long itemId = store.findItem(id, params[0], params[1]);
+                    yield itemId == null
+                            ? Mono.error(new IllegalStateException("нет предмета в инвентаре"))
+                            : engine.useItem(id, itemId);
+                }
+            };
+            call.block();
+        } catch (RuntimeException e) {
+            return e.toString();
+        }
+        if (!capture.done) return "команда не сохранила состояние";
+        if (random.remaining() > 0) return "использовано меньше бросков, чем записано";
+        if (capture.hash != expected) {
+            return String.format("хеш %08x, в трассе %08x", capture.hash, expected);
+        }
+        return null;
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        GameState s = new GameState();
+        s.setId(ActionTraceRecorder.readVarLong(in));
+        long user = ActionTraceRecorder.readVarLong(in);
+        s.setUserId(user == 0 ? null : user - 1);
+        s.setQuestId(ActionTraceRecorder.readString(in));
+        s.setCurrentLocation(ActionTraceRecorder.readString(in));
+        s.setPlotProgress(ActionTraceRecorder.readString(in));
+        s.setHealth((int) ActionTraceRecorder.readVarLong(in));
+        String vars = ActionTraceRecorder.readString(in);
+        s.setVars(vars.isEmpty() ? null : vars);
+        s.setStatus(ActionTraceRecorder.readString(in));
+        String effects = ActionTraceRecorder.readString(in);
+        s.setEffects(effects.isEmpty() ? null : effects);
+        int n = (int) ActionTraceRecorder.readVarLong(in);
+        List<InventoryItem> items = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            InventoryItem it = new InventoryItem();
+            it.setId(ActionTraceRecorder.readVarLong(in));
+            it.setGameStateId(s.getId());
+            it.setName(ActionTraceRecorder.readString(in));
+            it.setDescription(ActionTraceRecorder.readString(in));
+            items.add(it);
+        }
+        store.put(s, items);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Использование: TraceReplayer <файл трассы>");
+            System.exit(2);
+        }
+        // движок логирует каждый шаг; при воспроизведении это только шум и потеря скорости
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        Report r = new TraceReplayer().replay(Path.of(args[0]));
+        System.out.printf(Locale.ROOT, "игр: %d, команд: %d, расхождений: %d, пропущено: %d, %.0f команд/с%n",
+                r.games(), r.commands(), r.mismatches(), r.skipped(), r.commandsPerSecond());
+        r.details().forEach(System.out::println);
+        System.exit(r.mismatches() == 0 ? 0 : 1);
+    }
+
+    // ==========================
+    //   Подстановки для движка
+    // ==========================
+
+    /** Отдаёт записанные броски по порядку и момент команды; лишний бросок — расхождение. */
+    private static final class ReplayRandom extends GameRandom {
+        private int[] draws = new int[0];
+        private int next;
+        private long now;
+
+        void load(int[] draws, long now) {
+            this.draws = draws;
+            this.next = 0;
+            this.now = now;
+        }
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        int remaining() {
+            return draws.length - next;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            if (next >= draws.length) throw new IllegalStateException("движок запросил больше бросков, чем записано");
+            return draws[next++];
+        }
+    }
+
+    /** Вместо записи в файл запоминает хеш последней команды. */
+    private static final class HashCapture extends ActionTraceRecorder {
+        private boolean done;
+        private int hash;
+
+        HashCapture() {
+            super(null, null);
+        }
+
+        void reset() {
+            done = false;
+        }
+
+        @Override
+        public ActionTrace begin(ActionTrace.Command command, Long gameStateId, long now, String... params) {
+            return new ActionTrace(this, command, gameStateId, now, params);
+        }
+
+        @Override
+        public boolean needsSnapshot(Long gameStateId) {
+            return false;
+        }
+
+        @Override
+        protected void completed(ActionTrace trace, int stateHash) {
+            done = true;
+            hash = stateHash;
+        }
+    }
+
+    /**
+     * Игры и инвентарь в обычных картах за прокси репозиториев — ровно те методы, что вызывает
+     * GameService в командах. Однопоточное: движок над Mono.just выполняется синхронно в block().
+     */
+    static final class InMemoryStore {
+        private final Map<Long, GameState> states = new HashMap<>();
+        private final Map<Long, TreeMap<Long, InventoryItem>> inventory = new HashMap<>();
+        private final Map<Long, InventoryItem> itemsById = new HashMap<>();
+        private long stateSeq;
+        private long itemSeq;
+
+        void put(GameState state, List<InventoryItem> items) {
+            TreeMap<Long, InventoryItem> old = inventory.remove(state.getId());
+            if (old != null) old.keySet().forEach(itemsById::remove);
+            states.put(state.getId(), state);
+            stateSeq = Math.max(stateSeq, state.getId());
+            TreeMap<Long, InventoryItem> own = new TreeMap<>();
+            for (InventoryItem it : items) {
+                own.put(it.getId(), it);
+                itemsById.put(it.getId(), it);
+                itemSeq = Math.max(itemSeq, it.getId());
+            }
+            inventory.put(state.getId(), own);
+        }
+
+        GameState state(Long id) {
+            return states.get(id);
+        }
+
+        Long findItem(Long gameStateId, String name, String description) {
+            for (InventoryItem it : inventory.getOrDefault(gameStateId, new TreeMap<>()).values()) {
+                if (Objects.equals(nz(it.getName()), name) && Objects.equals(nz(it.getDescription()), description)) {
+                    return it.getId();
+                }
+            }
+            return null;
+        }
+
+        GameStateRepository states() {
+            return proxy(GameStateRepository.class, (method, args) -> switch (method) {
+                case "findById" -> Mono.justOrEmpty(args[0] instanceof Long id ? states.get(id) : null);
+                case "save" -> {
+                    GameState s = (GameState) args[0];
+                    if (s.getId() == null) s.setId(++stateSeq);
+                    states.put(s.getId(), s);
+                    inventory.computeIfAbsent(s.getId(), k -> new TreeMap<>());
+                    yield Mono.just(s);
+                }
+                default -> throw new UnsupportedOperationException("InMemoryStore: " + method);
+            });
+        }
+
+        InventoryItemRepository inventory() {
+            return proxy(InventoryItemRepository.class, (method, args) -> switch (method) {
+                case "findById" -> Mono.justOrEmpty(args[0] instanceof Long id ? itemsById.get(id) : null);
+                case "findByGameStateId" -> Flux.fromIterable(
+                        new ArrayList<>(inventory.getOrDefault((Long) args[0], new TreeMap<>()).values()));
+                case "findFirstByGameStateIdAndNameIgnoreCase" -> {
+                    InventoryItem found = null;
+                    for (InventoryItem it : inventory.getOrDefault((Long) args[0], new TreeMap<>()).values()) {
+                        if (it.getName() != null && it.getName().equalsIgnoreCase((String) args[1])) {
+                            found = it;
+                            break;
+                        }
+                    }
+                    yield Mono.justOrEmpty(found);
+                }
+                case "save" -> {
+                    InventoryItem it = (InventoryItem) args[0];
+                    if (it.getId() == null) it.setId(++itemSeq);
+                    itemsById.put(it.getId(), it);
+                    inventory.computeIfAbsent(it.getGameStateId(), k -> new TreeMap<>()).put(it.getId(), it);
+                    yield Mono.just(it);
+                }
+                case "deleteById" -> {
+                    if (args[0] instanceof Long id) {
+                        InventoryItem it = itemsById.remove(id);
+                        if (it != null) inventory.getOrDefault(it.getGameStateId(), new TreeMap<>()).remove(id);
+                    }
+                    yield Mono.<Void>empty();
+                }
+                default -> throw new UnsupportedOperationException("InMemoryStore: " + method);
+            });
+        }
+
+        private static String nz(String s) {
+            return s == null ? "" : s;
+        }
+
+        private interface Handler {
+            Object invoke(String method, Object[] args);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return (T) Proxy.newProxyInstance(TraceReplayer.class.getClassLoader(), new Class<?>[]{type},
+                    (p, m, args) -> switch (m.getName()) {
+                        case "toString" -> "InMemory" + type.getSimpleName();
+                        case "hashCode" -> System.identityHashCode(p);
+                        case "equals" -> p == args[0];
+                        default -> handler.invoke(m.getName(), args);
+                    });
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.PreEncodedWorldEvent;
+import com.example.questgame.dto.WorldEventDto;
+import com.example.questgame.exception.NotFoundException;
+import com.example.questgame.exception.ValidationException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Мировые события: общие для всех игроков модификаторы правил на время («дракон спит — бой в замке
+ * легче»). Правила пакетов видят их через event(x), читая неизменяемый {@link WorldSnapshot}
+ * без блокировок; начало и конец события подменяют снимок целиком.
+ * <p>
+ * Объявления уходят всем подключённым клиентам через один общий hot-поток. JSON объявления
+ * кодируется один раз при публикации, а не на каждого подписчика.
+ */
+@Service
+public class WorldEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(WorldEventService.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int SINK_SHARDS = 64;
+
+    private final WorldProperties props;
+    private final MessageCatalog messages;
+    private final AtomicReference<WorldSnapshot> snapshot = new AtomicReference<>(WorldSnapshot.EMPTY);
+    // Один логический hot-поток, разложенный на несколько sink: подписка копирует массив
+    // подписчиков своего sink (copy-on-write), и при 100k клиентов один общий массив делал бы
+    // каждую подписку O(n). Эмиссия — только под монитором сервиса, во все части по очереди.
+    private final Sinks.Many<PreEncodedWorldEvent>[] sinks;
+    private final AtomicInteger nextSink = new AtomicInteger();
+    private volatile Disposable task;
+
+    public WorldEventService(WorldProperties props, MessageCatalog messages) {
+        this.props = props;
+        this.messages = messages;
+        this.sinks = newSinks(SINK_SHARDS);
+    }
+
+    /** Текущий снимок; команда берёт его один раз и видит согласованный набор событий. */
+    public WorldSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (task != null || !props.isEnabled() || props.getEvents().isEmpty()) return;
+        task = Flux.interval(props.getInterval(), props.getInterval(), Schedulers.parallel())
+                .onBackpressureDrop()
+                .subscribe(tick -> {
+                    List<String> names = new ArrayList<>(props.getEvents().keySet());
+                    String name = names.get(ThreadLocalRandom.current().nextInt(names.size()));
+                    try {
+                        start(name, null);
+                    } catch (RuntimeException e) {
+                        log.warn("world: событие {} не запущено: {}", name, e.toString());
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable t = task;
+        if (t != null) t.dispose();
+    }
+
+    /**
+     * Начать событие или продлить уже идущее; duration null — длительность из app.world.events.
+     * Событие кончается само по таймеру, но правила перестают его видеть ровно в момент конца.
+     */
+    public synchronized WorldSnapshot.Active start(String name, Duration duration) {
+        if (name == null) throw new ValidationException("Не указано событие");
+        if (!props.getEvents().containsKey(name)) throw new NotFoundException("WorldEvent", name);
+        Duration d = duration != null ? duration : props.getEvents().get(name);
+        if (d.isNegative() || d.isZero()) throw new ValidationException("Длительность события должна быть положительной");
+
+        long until = System.currentTimeMillis() + d.toMillis();
+        WorldSnapshot current = snapshot.get();
+        PreEncodedWorldEvent announcement = encode(new WorldEventDto(WorldEventDto.STARTED, name,
+                messages.message("world." + name, MessageCatalog.DEFAULT_LOCALE), until, current.nextVersion()));
+        WorldSnapshot.Active active = new WorldSnapshot.Active(name, until, announcement);
+        snapshot.set(current.with(active));
+        emit(announcement);
+        log.info("world: {} до {}", name, Instant.ofEpochMilli(until));
+
+        Mono.delay(d).subscribe(x -> expire(name, until));
+        return active;
+    }
+
+    /** Завершить событие досрочно; false — оно не шло. */
+    public synchronized boolean end(String name) {
+        WorldSnapshot current = snapshot.get();
+        if (!current.isActive(name, System.currentTimeMillis())) return false;
+        publishEnded(current, name);
+        return true;
+    }
+
+    /**
+     * Поток для клиента: сначала идущие события, затем живые объявления. Подписка на sink
+     * делается раньше чтения снимка, поэтому событие на стыке может прийти дважды — клиент
+     * отбрасывает его по version. Медленный клиент, переполнивший буфер, отключается
+     * и при переподключении получает свежий снимок.
+     */
+    public Flux<PreEncodedWorldEvent> events() {
+        Sinks.Many<PreEncodedWorldEvent> sink = sinks[Math.floorMod(nextSink.getAndIncrement(), sinks.length)];
+        return Flux.merge(sink.asFlux(),
+                        Flux.defer(() -> Flux.fromIterable(snapshot.get().active(System.currentTimeMillis())))
+                                .map(WorldSnapshot.Active::announcement))
+                .onBackpressureBuffer(props.getSubscriberBuffer());
+    }
+
+    public int subscriberCount() {
+        int n = 0;
+        for (Sinks.Many<PreEncodedWorldEvent> sink : sinks) n += sink.currentSubscriberCount();
+        return n;
+    }
+
+    /** Для воспроизведения трассы: ровно эти события активны, без объявлений и таймеров. */
+    synchronized void restore(Collection<String> names) {
+        WorldSnapshot next = WorldSnapshot.EMPTY;
+        for (String name : names) next = next.with(new WorldSnapshot.Active(name, Long.MAX_VALUE, null));
+        snapshot.set(next);
+    }
+
+    private synchronized void expire(String name, long until) {
+        WorldSnapshot current = snapshot.get();
+        WorldSnapshot.Active a = current.get(name);
+        // событие продлили или уже завершили — этот таймер не его
+        if (a == null || a.untilMillis() != until) return;
+        publishEnded(current, name);
+    }
+
+    private void publishEnded(WorldSnapshot current, String name) {
+        PreEncodedWorldEvent ended = encode(new WorldEventDto(WorldEventDto.ENDED, name,
+                messages.message("world." + name + ".ended", MessageCatalog.DEFAULT_LOCALE), null,
+                current.nextVersion()));
+        snapshot.set(current.without(name));
+        emit(ended);
+        log.info("world: {} закончилось", name);
+    }
+
+    private void emit(PreEncodedWorldEvent event) {
+        for (Sinks.Many<PreEncodedWorldEvent> sink : sinks) sink.tryEmitNext(event);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Sinks.Many<PreEncodedWorldEvent>[] newSinks(int n) {
+        Sinks.Many<PreEncodedWorldEvent>[] out = new Sinks.Many[n];
+        for (int i = 0; i < n; i++) out[i] = Sinks.many().multicast().directBestEffort();
+        return out;
+    }
+
+    private static PreEncodedWorldEvent encode(WorldEventDto dto) {
+        try {
+            return new PreEncodedWorldEvent(dto, JSON.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось закодировать мировое событие", e);
+        }
+    }
+}
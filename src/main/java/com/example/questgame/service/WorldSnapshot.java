@@ -0,0 +1,80 @@
+package com.example.questgame.service;
+
+import com.example.questgame.dto.PreEncodedWorldEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок мировых событий: какие активны и до какого момента. Правила читают его
+ * без блокировок, {@link WorldEventService} подменяет снимок целиком. Истёкшее событие считается
+ * неактивным сразу, даже если новый снимок без него ещё не опубликован.
+ */
+public final class WorldSnapshot {
+
+    public static final WorldSnapshot EMPTY = new WorldSnapshot(Map.of(), 0);
+
+    /** Активное событие: конец (epoch millis) и готовое объявление для новых подписчиков. */
+    public record Active(String name, long untilMillis, PreEncodedWorldEvent announcement) {}
+
+    private final Map<String, Active> active;
+    private final long version;
+
+    private WorldSnapshot(Map<String, Active> active, long version) {
+        this.active = active;
+        this.version = version;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public boolean isActive(String name, long nowMillis) {
+        Active a = active.get(name);
+        return a != null && a.untilMillis() > nowMillis;
+    }
+
+    Active get(String name) {
+        return active.get(name);
+    }
+
+    /** Активные на момент now, по имени. */
+    public List<Active> active(long nowMillis) {
+        List<Active> out = new ArrayList<>(active.size());
+        for (Active a : active.values()) {
+            if (a.untilMillis() > nowMillis) out.add(a);
+        }
+        out.sort((a, b) -> a.name().compareTo(b.name()));
+        return out;
+    }
+
+    /** Имена активных через запятую — так снимок попадает в трассу команды. */
+    String encode(long nowMillis) {
+        if (active.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder();
+        for (Active a : active(nowMillis)) {
+            if (!sb.isEmpty()) sb.append(',');
+            sb.append(a.name());
+        }
+        return sb.toString();
+    }
+
+    WorldSnapshot with(Active a) {
+        Map<String, Active> next = new HashMap<>(active);
+        next.put(a.name(), a);
+        return new WorldSnapshot(Map.copyOf(next), version + 1);
+    }
+
+    WorldSnapshot without(String name) {
+        Map<String, Active> next = new HashMap<>(active);
+        next.remove(name);
+        return new WorldSnapshot(Map.copyOf(next), version + 1);
+    }
+
+    /** Версия следующего снимка — для объявления, которое в него войдёт. */
+    long nextVersion() {
+        return version + 1;
+    }
+}
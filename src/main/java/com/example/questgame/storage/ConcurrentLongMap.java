@@ -0,0 +1,224 @@
+package com.example.questgame.storage;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Потокобезопасная карта long → V без упаковки ключей: ключи лежат в long[] с открытой адресацией
+ * (линейное пробирование, удаление сдвигом — без надгробий). Карта разбита на сегменты со своим
+ * {@link StampedLock}: чтение идёт оптимистично, без блокировки, и повторяется под блокировкой
+ * чтения, только если сегмент в это время менялся. null в значениях не хранится.
+ */
+final class ConcurrentLongMap<V> {
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentLongMap(int expectedSize) {
+        segments = new Segment[SEGMENTS];
+        int perSegment = Math.max(4, expectedSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment<>(perSegment);
+    }
+
+    V get(long key) {
+        long h = mix(key);
+        return segment(h).get(key, h);
+    }
+
+    /** Прежнее значение или null. */
+    V put(long key, V value) {
+        if (value == null) throw new NullPointerException("value");
+        long h = mix(key);
+        return segment(h).put(key, h, value);
+    }
+
+    /** Удалённое значение или null. */
+    V remove(long key) {
+        long h = mix(key);
+        return segment(h).remove(key, h);
+    }
+
+    /** Значение по ключу; если его нет — созданное factory (под блокировкой сегмента, один раз). */
+    V computeIfAbsent(long key, LongFunction<V> factory) {
+        long h = mix(key);
+        Segment<V> s = segment(h);
+        V v = s.get(key, h);
+        return v != null ? v : s.computeIfAbsent(key, h, factory);
+    }
+
+    int size() {
+        int n = 0;
+        for (Segment<V> s : segments) n += s.size();
+        return n;
+    }
+
+    private Segment<V> segment(long h) {
+        // старшие биты — на сегмент, младшие — на ячейку внутри него
+        return segments[(int) (h >>> 58) & (SEGMENTS - 1)];
+    }
+
+    private static long mix(long key) {
+        // финализатор SplitMix64: последовательные id расходятся по всей таблице
+        long h = key;
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /** Таблица сегмента; при росте заменяется целиком, ключи и значения всегда одного поколения. */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table;
+        private int size;
+
+        Segment(int expected) {
+            table = new Table(Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, long h) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Object v = find(table, key, h);
+                if (lock.validate(stamp)) return (V) v;
+            }
+            stamp = lock.readLock();
+            try {
+                return (V) find(table, key, h);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V put(long key, long h, V value) {
+            long stamp = lock.writeLock();
+            try {
+                return insert(key, h, value, true);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V computeIfAbsent(long key, long h, LongFunction<V> factory) {
+            long stamp = lock.writeLock();
+            try {
+                @SuppressWarnings("unchecked")
+                V existing = (V) find(table, key, h);
+                if (existing != null) return existing;
+                V created = factory.apply(key);
+                if (created != null) insert(key, h, created, false);
+                return created;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, long h) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int mask = t.keys.length - 1;
+                for (int i = (int) h & mask; t.values[i] != null; i = (i + 1) & mask) {
+                    if (t.keys[i] != key) continue;
+                    V old = (V) t.values[i];
+                    shiftBack(t, i);
+                    size--;
+                    return old;
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Поиск без блокировки: при оптимистичном чтении таблица может меняться под ногами, поэтому
+         * проходов не больше длины таблицы, а результат проверяет validate.
+         */
+        private static Object find(Table t, long key, long h) {
+            int mask = t.keys.length - 1;
+            int i = (int) h & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object v = t.values[i];
+                if (v == null) return null;
+                if (t.keys[i] == key) return v;
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V insert(long key, long h, V value, boolean replace) {
+            Table t = table;
+            int mask = t.keys.length - 1;
+            int i = (int) h & mask;
+            for (; t.values[i] != null; i = (i + 1) & mask) {
+                if (t.keys[i] == key) {
+                    V old = (V) t.values[i];
+                    if (replace) t.values[i] = value;
+                    return old;
+                }
+            }
+            t.keys[i] = key;
+            t.values[i] = value;
+            // заполнение не выше 1/2: цепочки пробирования короткие
+            if (++size * 2 > t.keys.length) grow();
+            return null;
+        }
+
+        private void grow() {
+            Table old = table;
+            Table t = new Table(old.keys.length * 2);
+            int mask = t.keys.length - 1;
+            for (int j = 0; j < old.keys.length; j++) {
+                if (old.values[j] == null) continue;
+                int i = (int) mix(old.keys[j]) & mask;
+                while (t.values[i] != null) i = (i + 1) & mask;
+                t.keys[i] = old.keys[j];
+                t.values[i] = old.values[j];
+            }
+            table = t;
+        }
+
+        /** Удаление из цепочки: следующие элементы, которые могут занять дыру, сдвигаются в неё. */
+        private static void shiftBack(Table t, int hole) {
+            int mask = t.keys.length - 1;
+            int i = hole;
+            while (true) {
+                i = (i + 1) & mask;
+                if (t.values[i] == null) break;
+                int home = (int) mix(t.keys[i]) & mask;
+                // элемент остаётся, если его «дом» лежит циклически в (hole, i]
+                boolean stays = hole <= i ? (hole < home && home <= i) : (hole < home || home <= i);
+                if (stays) continue;
+                t.keys[hole] = t.keys[i];
+                t.values[hole] = t.values[i];
+                hole = i;
+            }
+            t.values[hole] = null;
+            t.keys[hole] = 0;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.questgame.storage;
+
+import com.example.questgame.model.EffectDue;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameSummary;
+import com.example.questgame.model.InventoryItem;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Хранилище игр и инвентаря, над которым работает GameService. Реализация выбирается
+ * app.storage.backend: {@link R2dbcGameStore} — таблицы game_states/inventory_items,
+ * {@link InMemoryGameStore} — только память процесса (один узел, тесты, симуляторы).
+ * Ключи — long: реализации не обязаны упаковывать их на каждом обращении.
+ * <p>
+ * Через хранилище идёт горячий путь: команды, GET игры и инвентаря, слоты, колесо эффектов.
+ * Архив, журнал отмены (undo, rewind, история), outbox и выгрузка/загрузка работают с таблицами
+ * БД напрямую и доступны только при {@link #durable()}.
+ */
+public interface GameStore {
+
+    Mono<GameState> findState(long gameStateId);
+
+    /** Записать состояние; без id — новая игра, id назначает хранилище. */
+    Mono<GameState> saveState(GameState state);
+
+    /** Последний изменённый слот пользователя. */
+    Mono<GameState> findLatestByUser(long userId);
+
+    /** Первая страница слотов пользователя, от новых к старым по (updated_at, id). */
+    Flux<GameSummary> findSummaries(long userId, int limit);
+
+    /** Следующая страница слотов: строго после (updatedAt, id). */
+    Flux<GameSummary> findSummariesAfter(long userId, LocalDateTime updatedAt, long id, int limit);
+
+    Flux<InventoryItem> findItems(long gameStateId);
+
+    /** Первый предмет игры с таким именем без учёта регистра. */
+    Mono<InventoryItem> findItemByName(long gameStateId, String name);
+
+    Mono<InventoryItem> findItem(long itemId);
+
+    /** Записать предмет; без id — новый, id назначает хранилище. */
+    Mono<InventoryItem> saveItem(InventoryItem item);
+
+    Mono<Void> deleteItem(long itemId);
+
+    /** Игры с запланированными эффектами времени — для восстановления колеса при старте. */
+    Flux<EffectDue> findEffectsDue();
+
+    /**
+     * Игры лежат в БД рядом с архивом, журналом отмены и outbox. false — хранилище в памяти:
+     * этих таблиц у него нет, и GameService их не трогает.
+     */
+    default boolean durable() {
+        return true;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.questgame.storage;
+
+import com.example.questgame.model.EffectDue;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameSummary;
+import com.example.questgame.model.InventoryItem;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link GameStore} в памяти процесса: игры и инвентарь в {@link ConcurrentLongMap} по id, без
+ * упаковки ключей и без сети. Состояние хранится копией и отдаётся копией — команды меняют
+ * полученный объект, как строку из БД. Инвентарь игры компактный: массивы id, имён и описаний,
+ * заменяемые целиком при изменении (чтение без блокировок), предметы собираются при чтении.
+ * После рестарта пусто; архива, журнала отмены, outbox и выгрузки нет ({@link #durable()} — false):
+ * это хранилище покрывает только горячий путь.
+ */
+public class InMemoryGameStore implements GameStore {
+
+    private static final Comparator<Slot> NEWEST_FIRST = Comparator
+            .comparing(Slot::updatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparingLong(Slot::id)
+            .reversed();
+
+    private final ConcurrentLongMap<GameState> states;
+    private final ConcurrentLongMap<Inventory> inventories;
+    // id предмета → инвентарь игры, где он лежит
+    private final ConcurrentLongMap<Inventory> itemOwners;
+    // слоты пользователя по (updatedAt, id) от новых к старым — как индекс (user_id, updated_at, id) в MySQL
+    private final ConcurrentLongMap<NavigableSet<Slot>> users;
+    private final AtomicLong stateSeq = new AtomicLong();
+    private final AtomicLong itemSeq = new AtomicLong();
+
+    public InMemoryGameStore(int expectedGames) {
+        this.states = new ConcurrentLongMap<>(expectedGames);
+        this.inventories = new ConcurrentLongMap<>(expectedGames);
+        this.itemOwners = new ConcurrentLongMap<>(expectedGames * 4);
+        this.users = new ConcurrentLongMap<>(expectedGames);
+    }
+
+    @Override
+    public boolean durable() {
+        return false;
+    }
+
+    @Override
+    public Mono<GameState> findState(long gameStateId) {
+        return Mono.fromSupplier(() -> {
+            GameState s = states.get(gameStateId);
+            return s == null ? null : copy(s);
+        });
+    }
+
+    @Override
+    public Mono<GameState> saveState(GameState state) {
+        return Mono.fromSupplier(() -> {
+            if (state.getId() == null) state.setId(stateSeq.incrementAndGet());
+            else stateSeq.accumulateAndGet(state.getId(), Math::max);
+            long id = state.getId();
+            GameState old = states.put(id, copy(state));
+            if (state.getUserId() != null) {
+                users.computeIfAbsent(state.getUserId(), u -> new ConcurrentSkipListSet<>(NEWEST_FIRST))
+                        .add(new Slot(state.getUpdatedAt(), id));
+            }
+            if (old != null && old.getUserId() != null) {
+                NavigableSet<Slot> was = users.get(old.getUserId());
+                Slot previous = new Slot(old.getUpdatedAt(), id);
+                if (was != null && !previous.matches(old.getUserId(), state)) was.remove(previous);
+            }
+            return state;
+        });
+    }
+
+    @Override
+    public Mono<GameState> findLatestByUser(long userId) {
+        return summaries(userId, null, 0, 1).next().flatMap(s -> findState(s.id()));
+    }
+
+    @Override
+    public Flux<GameSummary> findSummaries(long userId, int limit) {
+        return summaries(userId, null, 0, limit);
+    }
+
+    @Override
+    public Flux<GameSummary> findSummariesAfter(long userId, LocalDateTime updatedAt, long id, int limit) {
+        return summaries(userId, updatedAt, id, limit);
+    }
+
+    @Override
+    public Flux<InventoryItem> findItems(long gameStateId) {
+        return Flux.defer(() -> {
+            Inventory inv = inventories.get(gameStateId);
+            return inv == null ? Flux.empty() : Flux.fromIterable(inv.items.all(gameStateId));
+        });
+    }
+
+    @Override
+    public Mono<InventoryItem> findItemByName(long gameStateId, String name) {
+        return Mono.fromSupplier(() -> {
+            Inventory inv = inventories.get(gameStateId);
+            if (inv == null || name == null) return null;
+            Items items = inv.items;
+            for (int i = 0; i < items.ids.length; i++) {
+                if (name.equalsIgnoreCase(items.names[i])) return items.item(i, gameStateId);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Mono<InventoryItem> findItem(long itemId) {
+        return Mono.fromSupplier(() -> {
+            Inventory inv = itemOwners.get(itemId);
+            if (inv == null) return null;
+            Items items = inv.items;
+            int i = items.indexOf(itemId);
+            return i < 0 ? null : items.item(i, inv.gameStateId);
+        });
+    }
+
+    @Override
+    public Mono<InventoryItem> saveItem(InventoryItem item) {
+        return Mono.fromSupplier(() -> {
+            Objects.requireNonNull(item.getGameStateId(), "gameStateId");
+            if (item.getId() == null) item.setId(itemSeq.incrementAndGet());
+            else itemSeq.accumulateAndGet(item.getId(), Math::max);
+            long id = item.getId();
+            Inventory target = inventories.computeIfAbsent(item.getGameStateId(), Inventory::new);
+            Inventory previous = itemOwners.put(id, target);
+            if (previous != null && previous != target) previous.remove(id);
+            target.put(id, item.getName(), item.getDescription());
+            return item;
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteItem(long itemId) {
+        return Mono.fromRunnable(() -> {
+            Inventory inv = itemOwners.remove(itemId);
+            if (inv != null) inv.remove(itemId);
+        });
+    }
+
+    /** Колесо восстанавливается при старте, а после рестарта игр в памяти нет. */
+    @Override
+    public Flux<EffectDue> findEffectsDue() {
+        return Flux.empty();
+    }
+
+    /**
+     * Слоты пользователя от новых к старым; after == null — с начала, иначе строго после (after, afterId).
+     * Страница — limit шагов по индексу от позиции курсора, сколько бы слотов ни было у пользователя.
+     * Слот, который параллельное сохранение той же игры не успело убрать, не совпадает с состоянием:
+     * он пропускается и удаляется.
+     */
+    private Flux<GameSummary> summaries(long userId, LocalDateTime after, long afterId, int limit) {
+        return Flux.defer(() -> {
+            NavigableSet<Slot> slots = users.get(userId);
+            if (slots == null || limit <= 0) return Flux.empty();
+            NavigableSet<Slot> from = after == null ? slots : slots.tailSet(new Slot(after, afterId), false);
+            List<GameSummary> out = new ArrayList<>(Math.min(limit, 64));
+            for (Iterator<Slot> it = from.iterator(); it.hasNext() && out.size() < limit; ) {
+                Slot slot = it.next();
+                GameState s = states.get(slot.id());
+                if (!slot.matches(userId, s)) {
+                    it.remove();
+                    continue;
+                }
+                out.add(new GameSummary(slot.id(), s.getCurrentLocation(), s.getHealth(), s.getStatus(), s.getUpdatedAt()));
+            }
+            return Flux.fromIterable(out);
+        });
+    }
+
+    private static GameState copy(GameState s) {
+        GameState c = new GameState();
+        c.setId(s.getId());
+        c.setUserId(s.getUserId());
+        c.setQuestId(s.getQuestId());
+        c.setCurrentLocation(s.getCurrentLocation());
+        c.setPlotProgress(s.getPlotProgress());
+        c.setHealth(s.getHealth());
+        c.setVars(s.getVars());
+        c.setStatus(s.getStatus());
+        c.setEffects(s.getEffects());
+        c.setEffectsDue(s.getEffectsDue());
+        c.setUpdatedAt(s.getUpdatedAt());
+        return c;
+    }
+
+    /** Неизменяемый снимок инвентаря: параллельные массивы в порядке добавления. */
+    private record Items(long[] ids, String[] names, String[] descriptions) {
+        static final Items EMPTY = new Items(new long[0], new String[0], new String[0]);
+
+        int indexOf(long id) {
+            for (int i = 0; i < ids.length; i++) if (ids[i] == id) return i;
+            return -1;
+        }
+
+        InventoryItem item(int i, long gameStateId) {
+            InventoryItem it = new InventoryItem();
+            it.setId(ids[i]);
+            it.setGameStateId(gameStateId);
+            it.setName(names[i]);
+            it.setDescription(descriptions[i]);
+            return it;
+        }
+
+        List<InventoryItem> all(long gameStateId) {
+            List<InventoryItem> out = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) out.add(item(i, gameStateId));
+            return out;
+        }
+    }
+
+    /** Инвентарь одной игры: читатели берут текущий снимок, писатели заменяют его под монитором. */
+    private static final class Inventory {
+        final long gameStateId;
+        volatile Items items = Items.EMPTY;
+
+        Inventory(long gameStateId) {
+            this.gameStateId = gameStateId;
+        }
+
+        synchronized void put(long id, String name, String description) {
+            Items cur = items;
+            int i = cur.indexOf(id);
+            if (i >= 0) {
+                String[] names = cur.names.clone();
+                String[] descriptions = cur.descriptions.clone();
+                names[i] = name;
+                descriptions[i] = description;
+                items = new Items(cur.ids, names, descriptions);
+                return;
+            }
+            int n = cur.ids.length;
+            long[] ids = Arrays.copyOf(cur.ids, n + 1);
+            String[] names = Arrays.copyOf(cur.names, n + 1);
+            String[] descriptions = Arrays.copyOf(cur.descriptions, n + 1);
+            ids[n] = id;
+            names[n] = name;
+            descriptions[n] = description;
+            items = new Items(ids, names, descriptions);
+        }
+
+        synchronized void remove(long id) {
+            Items cur = items;
+            int i = cur.indexOf(id);
+            if (i < 0) return;
+            items = new Items(without(cur.ids, i), without(cur.names, i), without(cur.descriptions, i));
+        }
+
+        private static long[] without(long[] a, int i) {
+            long[] out = new long[a.length - 1];
+            System.arraycopy(a, 0, out, 0, i);
+            System.arraycopy(a, i + 1, out, i, a.length - i - 1);
+            return out;
+        }
+
+        private static String[] without(String[] a, int i) {
+            String[] out = new String[a.length - 1];
+            System.arraycopy(a, 0, out, 0, i);
+            System.arraycopy(a, i + 1, out, i, a.length - i - 1);
+            return out;
+        }
+    }
+
+    /** Позиция игры в индексе пользователя. */
+    private record Slot(LocalDateTime updatedAt, long id) {
+
+        boolean matches(long userId, GameState s) {
+            return s != null && s.getUserId() != null && s.getUserId() == userId
+                    && Objects.equals(s.getUpdatedAt(), updatedAt);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.questgame.storage;
+
+import com.example.questgame.model.EffectDue;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameSummary;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/** {@link GameStore} над R2DBC-репозиториями (со сроками и предохранителем БД). */
+public class R2dbcGameStore implements GameStore {
+
+    private final GameStateRepository states;
+    private final InventoryItemRepository items;
+
+    public R2dbcGameStore(GameStateRepository states, InventoryItemRepository items) {
+        this.states = states;
+        this.items = items;
+    }
+
+    @Override
+    public Mono<GameState> findState(long gameStateId) {
+        return states.findById(gameStateId);
+    }
+
+    @Override
+    public Mono<GameState> saveState(GameState state) {
+        return states.save(state);
+    }
+
+    @Override
+    public Mono<GameState> findLatestByUser(long userId) {
+        return states.findLatestByUserId(userId);
+    }
+
+    @Override
+    public Flux<GameSummary> findSummaries(long userId, int limit) {
+        return states.findSummaries(userId, limit);
+    }
+
+    @Override
+    public Flux<GameSummary> findSummariesAfter(long userId, LocalDateTime updatedAt, long id, int limit) {
+        return states.findSummariesAfter(userId, updatedAt, id, limit);
+    }
+
+    @Override
+    public Flux<InventoryItem> findItems(long gameStateId) {
+        return items.findByGameStateId(gameStateId);
+    }
+
+    @Override
+    public Mono<InventoryItem> findItemByName(long gameStateId, String name) {
+        return items.findFirstByGameStateIdAndNameIgnoreCase(gameStateId, name);
+    }
+
+    @Override
+    public Mono<InventoryItem> findItem(long itemId) {
+        return items.findById(itemId);
+    }
+
+    @Override
+    public Mono<InventoryItem> saveItem(InventoryItem item) {
+        return items.save(item);
+    }
+
+    @Override
+    public Mono<Void> deleteItem(long itemId) {
+        return items.deleteById(itemId);
+    }
+
+    @Override
+    public Flux<EffectDue> findEffectsDue() {
+        return states.findEffectsDue();
+    }
+}
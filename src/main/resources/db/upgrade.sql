@@ -0,0 +1,88 @@
+-- Обновление уже развёрнутой БД до schema.sql. schema.sql создаёт только отсутствующие таблицы
+-- (CREATE TABLE IF NOT EXISTS), а spring.sql.init.mode=never — приложение схему не трогает.
+-- Каждый шаг проверяет information_schema и повторный запуск ничего не меняет:
+--   mysql questgame < src/main/resources/db/upgrade.sql
+
+-- Слоты с keyset-пагинацией: статус, время изменения и индекс (user_id, updated_at, id)
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'game_states' AND column_name = 'status') = 0,
+              'ALTER TABLE game_states ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT ''ACTIVE''',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'game_states' AND column_name = 'updated_at') = 0,
+              'ALTER TABLE game_states ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'game_states'
+                 AND index_name = 'idx_game_states_user_updated') = 0,
+              'ALTER TABLE game_states ADD INDEX idx_game_states_user_updated (user_id, updated_at, id)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Экспорт и архив читают инвентарь пачкой игр: индекс по game_state_id
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'inventory_items'
+                 AND index_name = 'idx_inventory_items_game') = 0,
+              'ALTER TABLE inventory_items ADD INDEX idx_inventory_items_game (game_state_id)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Квесты из пакетов: пакет игры
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'game_states'
+                 AND column_name = 'quest_id') = 0,
+              'ALTER TABLE game_states ADD COLUMN quest_id VARCHAR(32) NOT NULL DEFAULT ''classic''',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Правила квестов: переменные игры
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'game_states'
+                 AND column_name = 'vars') = 0,
+              'ALTER TABLE game_states ADD COLUMN vars VARCHAR(1024)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Эффекты времени: эффекты игры, срок ближайшего и индекс для восстановления колеса
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'game_states'
+                 AND column_name = 'effects') = 0,
+              'ALTER TABLE game_states ADD COLUMN effects VARCHAR(512)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'game_states'
+                 AND column_name = 'effects_due') = 0,
+              'ALTER TABLE game_states ADD COLUMN effects_due BIGINT',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'game_states'
+                 AND index_name = 'idx_game_states_effects_due') = 0,
+              'ALTER TABLE game_states ADD INDEX idx_game_states_effects_due (effects_due)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -6,13 +6,94 @@ CREATE TABLE IF NOT EXISTS users (
 CREATE TABLE IF NOT EXISTS game_states (
                                            id BIGINT AUTO_INCREMENT PRIMARY KEY,
                                            user_id BIGINT NOT NULL,
+                                           quest_id VARCHAR(32) NOT NULL DEFAULT 'classic',
                                            current_location VARCHAR(255),
                                            plot_progress TEXT,
-                                           health INT
+                                           health INT,
+                                           vars VARCHAR(1024),
+                                           status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE',
+                                           effects VARCHAR(512),
+                                           effects_due BIGINT,
+                                           updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+                                           INDEX idx_game_states_user_updated (user_id, updated_at, id),
+                                           INDEX idx_game_states_effects_due (effects_due)
 );
 CREATE TABLE IF NOT EXISTS inventory_items (
                                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
                                                game_state_id BIGINT NOT NULL,
                                                name VARCHAR(255),
-                                               description TEXT
-);
\ No newline at end of file
+                                               description TEXT,
+                                               INDEX idx_inventory_items_game (game_state_id)
+);
+CREATE TABLE IF NOT EXISTS game_stats (
+                                          id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                          metric VARCHAR(32) NOT NULL,
+                                          stat_key VARCHAR(128) NOT NULL,
+                                          stat_value BIGINT NOT NULL DEFAULT 0,
+                                          UNIQUE KEY uk_game_stats_metric_key (metric, stat_key)
+);
+CREATE TABLE IF NOT EXISTS import_checkpoints (
+                                                  job_id VARCHAR(64) PRIMARY KEY,
+                                                  last_game_id BIGINT NOT NULL,
+                                                  games BIGINT NOT NULL DEFAULT 0,
+                                                  items BIGINT NOT NULL DEFAULT 0,
+                                                  updated_at DATETIME(6) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+                                                record_key VARCHAR(320) PRIMARY KEY,
+                                                fingerprint VARCHAR(512) NOT NULL,
+                                                response MEDIUMTEXT,
+                                                created_at DATETIME(6) NOT NULL,
+                                                INDEX idx_idempotency_created (created_at)
+);
+CREATE TABLE IF NOT EXISTS game_archive (
+                                            game_id BIGINT PRIMARY KEY,
+                                            user_id BIGINT NOT NULL,
+                                            current_location VARCHAR(255),
+                                            health INT,
+                                            status VARCHAR(16) NOT NULL,
+                                            updated_at DATETIME(6) NOT NULL,
+                                            archived_at DATETIME(6) NOT NULL,
+                                            payload MEDIUMBLOB NOT NULL,
+                                            INDEX idx_game_archive_user_updated (user_id, updated_at, game_id)
+);
+CREATE TABLE IF NOT EXISTS game_deltas (
+                                           game_state_id BIGINT NOT NULL,
+                                           step BIGINT NOT NULL,
+                                           payload VARBINARY(1024) NOT NULL,
+                                           created_at DATETIME(6) NOT NULL,
+                                           PRIMARY KEY (game_state_id, step)
+);
+CREATE TABLE IF NOT EXISTS parties (
+                                       id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                       game_state_id BIGINT NOT NULL,
+                                       leader_id BIGINT NOT NULL,
+                                       created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+                                       UNIQUE KEY uk_parties_game (game_state_id)
+);
+CREATE TABLE IF NOT EXISTS party_members (
+                                             id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                             party_id BIGINT NOT NULL,
+                                             user_id BIGINT NOT NULL,
+                                             joined_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+                                             UNIQUE KEY uk_party_members (party_id, user_id)
+);
+CREATE TABLE IF NOT EXISTS outbox_events (
+                                             id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                             game_state_id BIGINT NOT NULL,
+                                             event_type VARCHAR(32) NOT NULL,
+                                             payload VARCHAR(1024) NOT NULL,
+                                             created_at DATETIME(6) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS achievement_progress (
+                                                    user_id BIGINT PRIMARY KEY,
+                                                    last_event_id BIGINT NOT NULL DEFAULT 0,
+                                                    progress VARCHAR(2048) NOT NULL,
+                                                    updated_at DATETIME(6) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS achievements (
+                                            user_id BIGINT NOT NULL,
+                                            achievement_id VARCHAR(64) NOT NULL,
+                                            unlocked_at DATETIME(6) NOT NULL,
+                                            PRIMARY KEY (user_id, achievement_id)
+);
@@ -0,0 +1,221 @@
+const gameStateId = Number(document.querySelector('[data-game-id]')?.dataset.gameId);
+
+function needAuthRedirect(resp) {
+  if (resp.status === 401 || resp.status === 403 || resp.status === 302) {
+    window.location.href = '/api/auth/login';
+    return true;
+  }
+  return false;
+}
+
+function rebuildActions(list) {
+  const box = document.getElementById('actions');
+  box.innerHTML = '';
+  list.forEach(a => {
+    const btn = document.createElement('button');
+    btn.className = 'btn';
+    btn.textContent = a.label;
+    btn.dataset.key = a.key;
+    btn.addEventListener('click', () => sendChoice(a.key));
+    box.appendChild(btn);
+  });
+}
+
+function showTerminal() {
+  document.getElementById('actions').innerHTML = '';
+  document.getElementById('end-block').style.display = 'block';
+  document.getElementById('restart-btn').onclick = restartGame;
+}
+
+function renderRiddle(riddle) {
+  const block = document.getElementById('riddle');
+  const none = document.getElementById('no-riddle');
+  const q = document.getElementById('riddle-question');
+  const opts = document.getElementById('riddle-options');
+
+  if (!riddle) {
+    block.style.display = 'none';
+    none.style.display = 'block';
+    opts.innerHTML = '';
+    return;
+  }
+
+  q.textContent = riddle.question;
+  opts.innerHTML = '';
+  riddle.options.forEach(opt => {
+    const b = document.createElement('button');
+    b.className = 'btn';
+    b.textContent = opt;
+    b.addEventListener('click', () => answerRiddle(opt));
+    opts.appendChild(b);
+  });
+  none.style.display = 'none';
+  block.style.display = 'block';
+}
+
+function renderCrafts(crafts) {
+  const box = document.getElementById('craft-list');
+  box.innerHTML = '';
+  if (!crafts || crafts.length === 0) {
+    box.innerHTML = '<span class="muted">Нет доступных рецептов.</span>';
+    return;
+  }
+  crafts.forEach(c => {
+    const wrap = document.createElement('div');
+    wrap.className = 'craft-row';
+    const text = document.createElement('span');
+    text.textContent = `${c.title} (нужно: ${c.requires.join(', ')}) → ${c.result.name}`;
+    const btn = document.createElement('button');
+    btn.className = 'btn btn--ghost';
+    btn.textContent = 'Скрафтить';
+    btn.onclick = () => craft(c.key);
+    wrap.appendChild(text);
+    wrap.appendChild(btn);
+    box.appendChild(wrap);
+  });
+}
+
+function updateUIFromState(data) {
+  document.getElementById('game-description').innerText = data.plotProgress;
+  document.getElementById('health-value').innerText = data.health;
+  document.getElementById('location-value').innerText = data.currentLocation;
+
+  if (data.terminal) {
+    showTerminal();
+  } else {
+    document.getElementById('end-block').style.display = 'none';
+    if (Array.isArray(data.actions)) rebuildActions(data.actions);
+  }
+
+  // загадка
+  renderRiddle(data.riddle);
+
+  // крафт (может прийти сразу в ответе)
+  if (Array.isArray(data.crafts)) {
+    renderCrafts(data.crafts);
+  } else {
+    loadCrafts();
+  }
+}
+
+function loadInventory() {
+  fetch(`/api/games/${gameStateId}/inventory`, { credentials: 'include' })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(items => {
+            const ul = document.getElementById('inventory');
+            ul.innerHTML = '';
+            if (!items.length) { ul.innerHTML = '<li class="muted">Инвентарь пуст.</li>'; return; }
+            items.forEach(it => {
+              const li = document.createElement('li');
+              const name = (it.name || '').toLowerCase();
+              li.textContent = `${it.name}: ${it.description || ''} `;
+              if (name === 'зелье') {
+                const useBtn = document.createElement('button');
+                useBtn.className = 'btn btn--ghost';
+                useBtn.textContent = 'Использовать';
+                useBtn.addEventListener('click', () => useItem(it.id));
+                li.appendChild(useBtn);
+              }
+              ul.appendChild(li);
+            });
+          })
+          .catch(() => {});
+}
+
+function loadCrafts() {
+  fetch(`/api/games/${gameStateId}/craft/available`, { credentials: 'include' })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => renderCrafts(data))
+          .catch(() => {});
+}
+
+function useItem(itemId) {
+  fetch(`/api/games/${gameStateId}/inventory/use?itemId=${itemId}`, {
+    method: 'POST', credentials: 'include'
+  })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => { updateUIFromState(data); loadInventory(); loadCrafts(); })
+          .catch(() => alert('Не удалось использовать предмет.'));
+}
+
+function sendChoice(choiceKey) {
+  const url = `/api/games/progress?gameStateId=${gameStateId}&choice=${encodeURIComponent(choiceKey)}`;
+  fetch(url, { method: 'POST', credentials: 'include' })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => { updateUIFromState(data); loadInventory(); loadCrafts(); })
+          .catch(() => alert('Ошибка запроса. Проверьте аутентификацию.'));
+}
+
+function answerRiddle(answer) {
+  const url = `/api/games/riddle/answer?gameStateId=${gameStateId}&answer=${encodeURIComponent(answer)}`;
+  fetch(url, { method: 'POST', credentials: 'include' })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => { updateUIFromState(data); loadInventory(); loadCrafts(); })
+          .catch(() => alert('Не удалось ответить на загадку.'));
+}
+
+function craft(recipeKey) {
+  fetch(`/api/games/${gameStateId}/craft?recipeKey=${encodeURIComponent(recipeKey)}`, {
+    method: 'POST', credentials: 'include'
+  })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => { updateUIFromState(data); loadInventory(); loadCrafts(); })
+          .catch(() => alert('Не удалось скрафтить.'));
+}
+
+function restartGame() {
+  fetch('/api/games/restart?gameStateId=' + gameStateId, {
+    method: 'POST', credentials: 'include'
+  })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => { updateUIFromState(data); loadInventory(); loadCrafts(); })
+          .catch(() => alert('Не удалось перезапустить игру.'));
+}
+
+function newSlot() {
+  fetch('/api/games/slots', { method: 'POST', credentials: 'include' })
+          .then(r => { if (needAuthRedirect(r)) return Promise.reject(); return r.ok ? r.json() : Promise.reject(r); })
+          .then(data => { window.location.href = '/game?slot=' + data.id; })
+          .catch(() => alert('Не удалось создать новую игру.'));
+}
+
+document.getElementById('new-slot-btn').onclick = newSlot;
+
+// стартовые серверные кнопки
+document.querySelectorAll('#actions .btn').forEach(btn => {
+  const key = btn.getAttribute('data-key');
+  btn.addEventListener('click', () => sendChoice(key));
+});
+
+// мировые события: общий поток для всех игроков; версия отсекает повтор на стыке снимка и живых событий
+const worldEvents = new Map();
+let worldVersion = 0;
+
+function renderWorldEvents() {
+  const box = document.getElementById('world-events');
+  if (!box) return;
+  box.textContent = Array.from(worldEvents.values()).join(' ');
+  box.style.display = worldEvents.size ? '' : 'none';
+}
+
+function listenWorldEvents() {
+  if (!window.EventSource) return;
+  const source = new EventSource('/api/world/events', { withCredentials: true });
+  // после переподключения сервер заново пришлёт идущие события
+  source.onopen = () => { worldEvents.clear(); worldVersion = 0; renderWorldEvents(); };
+  const onEvent = e => {
+    const ev = JSON.parse(e.data);
+    if (ev.version <= worldVersion) return;
+    worldVersion = ev.version;
+    if (ev.type === 'started') worldEvents.set(ev.name, ev.message);
+    else worldEvents.delete(ev.name);
+    renderWorldEvents();
+  };
+  source.addEventListener('started', onEvent);
+  source.addEventListener('ended', onEvent);
+}
+
+// первичная загрузка
+loadInventory();
+loadCrafts();
+listenWorldEvents();
@@ -0,0 +1,170 @@
+package com.example.questgame.achievement;
+
+import com.example.questgame.config.AchievementProperties;
+import com.example.questgame.dto.AchievementDto;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.model.AchievementUnlock;
+import com.example.questgame.model.PlayerAchievements;
+import com.example.questgame.repository.AchievementRepository;
+import com.example.questgame.service.MessageCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AchievementServiceTest {
+
+    private AchievementRepository repository;
+    private AchievementService service;
+    private final List<AchievementUnlock> unlocked = new ArrayList<>();
+    private long nextId = 1;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(AchievementRepository.class);
+        when(repository.findProgress(any())).thenReturn(Flux.empty());
+        when(repository.upsertProgress(anyList())).thenAnswer(i -> Mono.just((long) i.<List<?>>getArgument(0).size()));
+        when(repository.insertUnlocks(anyList())).thenAnswer(i -> {
+            unlocked.addAll(i.getArgument(0));
+            return Mono.just((long) i.<List<?>>getArgument(0).size());
+        });
+        service = new AchievementService(new AchievementProperties(), repository, new ObjectMapper(), new MessageCatalog());
+    }
+
+    @Test
+    void events_unlockIncrementally_andBatchIsWrittenOnce() {
+        List<GameEventDto> batch = List.of(
+                step(7L, 1L, "craft:potion_from_herb", "craft.done", 80),
+                event(GameEventDto.ITEM_GRANTED, 7L, 1L),
+                step(7L, 1L, "go_castle", "forest.castle", 1),
+                step(7L, 1L, "craft:light_blade", "craft.done", 1),
+                step(8L, 2L, "craft:light_blade", "craft.done", 50));
+        service.publish(batch).block();
+
+        assertThat(unlocked).extracting(AchievementUnlock::userId, AchievementUnlock::achievementId)
+                .containsExactly(tuple(7L, "last_breath"),
+                        tuple(7L, "master_crafter"));
+        verify(repository, times(1)).findProgress(any());
+        ArgumentCaptor<List<PlayerAchievements>> rows = captor();
+        verify(repository).upsertProgress(rows.capture());
+        assertThat(rows.getValue()).extracting(PlayerAchievements::userId, PlayerAchievements::progress)
+                .containsExactly(tuple(7L, "u=master_crafter,last_breath;e.1=4"),
+                        tuple(8L, "s.master_crafter=2;e.2=5"));
+
+        // повтор того же батча relay: события уже учтены
+        service.publish(batch).block();
+        assertThat(unlocked).hasSize(2);
+    }
+
+    @Test
+    void unless_spoilsOnlyThatGame_andCountersResumeFromStoredProgress() {
+        when(repository.findProgress(any())).thenReturn(Flux.just(new PlayerAchievements(7L, 100, "c.stubborn=2")));
+        nextId = 101;
+
+        service.publish(List.of(
+                step(7L, 1L, "use:зелье", "use.potion", 60),
+                event(GameEventDto.GAME_WON, 7L, 1L),
+                event(GameEventDto.GAME_WON, 7L, 2L),
+                event(GameEventDto.PLAYER_DIED, 7L, 3L))).block();
+
+        assertThat(unlocked).extracting(AchievementUnlock::achievementId).containsExactly("no_potions", "stubborn");
+
+        when(repository.findUnlocks(7L)).thenReturn(Flux.fromIterable(unlocked));
+        List<AchievementDto> view = service.forUser(7L, Locale.ENGLISH).block();
+        assertThat(view).filteredOn(AchievementDto::isUnlocked).extracting(AchievementDto::getId)
+                .containsExactlyInAnyOrder("no_potions", "stubborn");
+        assertThat(view).filteredOn(a -> a.getId().equals("stubborn")).singleElement()
+                .satisfies(a -> assertThat(a.getTitle()).isEqualTo("Die three times"));
+    }
+
+    @Test
+    void lateEventOfAnotherGame_isCounted_redeliveryIsNot() {
+        GameEventDto early = step(7L, 1L, "craft:potion_from_herb", "craft.done", 80);
+        GameEventDto later = step(7L, 2L, "craft:light_blade", "craft.done", 50);
+        // событие игры 1 закоммичено позже события игры 2 с большим id — relay отдаст его следующим разбором
+        service.publish(List.of(later)).block();
+        service.publish(List.of(early)).block();
+        service.publish(List.of(early, later)).block();
+
+        ArgumentCaptor<List<PlayerAchievements>> rows = captor();
+        verify(repository, times(2)).upsertProgress(rows.capture());
+        assertThat(rows.getValue()).extracting(PlayerAchievements::lastEventId, PlayerAchievements::progress)
+                .containsExactly(tuple(2L, "u=master_crafter;e.2=2;e.1=1"));
+        assertThat(unlocked).extracting(AchievementUnlock::achievementId).containsExactly("master_crafter");
+    }
+
+    @Test
+    void deliveredIds_areBoundedPerPlayer_andSurviveEncode() {
+        AchievementProgress p = AchievementProgress.parse(service.catalog(), 0, null);
+        for (long game = 1; game <= AchievementProgress.TRACKED_GAMES + 2; game++) {
+            assertThat(p.accept(100 + game, game)).isTrue();
+        }
+        // две самые давние игры вытеснены в общий порог
+        AchievementProgress restored = AchievementProgress.parse(service.catalog(), p.lastEventId(), p.encode());
+        assertThat(restored.accept(102L, 2L)).isFalse();
+        assertThat(restored.accept(90L, 99L)).isFalse();
+        assertThat(restored.accept(120L, 20L)).isFalse();
+        assertThat(restored.accept(103L, 99L)).isTrue();
+        assertThat(restored.encode().split("e\\.", -1)).hasSize(AchievementProgress.TRACKED_GAMES + 1);
+
+        // прогресс, записанный до отметок по играм: учтено всё до lastEventId
+        AchievementProgress legacy = AchievementProgress.parse(service.catalog(), 50, "c.stubborn=1");
+        assertThat(legacy.accept(50L, 1L)).isFalse();
+        assertThat(legacy.accept(51L, 1L)).isTrue();
+    }
+
+    @Test
+    void index_routesOnlyInterestedTypes_andBadDefinitionsFail() {
+        Achievements catalog = service.catalog();
+        assertThat(catalog.triggeredBy(GameEventDto.STEP)).extracting(Achievements.Achievement::id)
+                .containsExactly("dragon_without_sword", "master_crafter", "last_breath");
+        assertThat(catalog.spoiledBy(GameEventDto.STEP)).extracting(Achievements.Achievement::id)
+                .containsExactly("no_potions");
+        assertThat(catalog.interested(GameEventDto.ITEM_GRANTED)).isFalse();
+
+        assertThatThrownBy(() -> Achievements.compile(new AchievementsDef(Map.of("x",
+                new AchievementsDef.AchievementDef("step", Map.of("mood", "ok"), null, null, null, null)), null)))
+                .isInstanceOf(ValidationException.class).hasMessageContaining("mood");
+        assertThatThrownBy(() -> Achievements.compile(new AchievementsDef(Map.of("x",
+                new AchievementsDef.AchievementDef("step", null, 2, "action", List.of("a"), null)), null)))
+                .hasMessageContaining("count и each");
+    }
+
+    private GameEventDto step(Long userId, Long gameId, String action, String outcome, int health) {
+        GameEventDto e = event(GameEventDto.STEP, userId, gameId);
+        e.setAction(action);
+        e.setOutcome(outcome);
+        e.setHealth(health);
+        return e;
+    }
+
+    private GameEventDto event(String type, Long userId, Long gameId) {
+        GameEventDto e = new GameEventDto();
+        e.setId(nextId++);
+        e.setType(type);
+        e.setUserId(userId);
+        e.setGameStateId(gameId);
+        e.setAt(1_760_000_000_000L);
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArgumentCaptor<List<T>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.questgame.analytics;
+
+import com.example.questgame.config.AnalyticsProperties;
+import com.example.questgame.dto.GameEventDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class AnalyticsExporterTest {
+
+    private static final Instant H13 = Instant.parse("2026-10-19T13:00:00Z");
+    private static final Instant H14 = Instant.parse("2026-10-19T14:00:00Z");
+    private static final Instant DAY = Instant.parse("2026-10-19T00:00:00Z");
+
+    @TempDir Path dir;
+
+    @Test
+    void closedHours_becomeColumnFiles_andQueriesReadOnlyNeededColumns() throws Exception {
+        AnalyticsExporter exporter = exporter(Duration.ofMinutes(5));
+        GameEventDto cave = step(1, H13.plusSeconds(10), "go_cave", "пещера", 0, List.of());
+        GameEventDto search = step(2, H13.plusSeconds(20), "search_treasure", "пещера", 0, List.of("меч"));
+        GameEventDto fight = step(3, H14.plusSeconds(5), "fight_dragon", "замок", -70, List.of());
+        exporter.publish(List.of(cave, search)).block();
+        exporter.publish(List.of(search, fight)).block(); // повтор батча relay
+
+        // 14-й час ещё идёт — закрывается только 13-й, и лишь после seal-delay
+        assertThat(exporter.seal(H14.plus(Duration.ofMinutes(6)).toEpochMilli())).isEqualTo(1);
+        assertThat(exporter.seal(H14.plus(Duration.ofMinutes(66)).toEpochMilli())).isEqualTo(1);
+        assertThat(names()).containsExactly("events-2026-10-19T13.qcol", "events-2026-10-19T14.qcol");
+
+        AnalyticsQuery q = new AnalyticsQuery(dir);
+        assertThat(q.countBy("action", DAY, DAY.plus(Duration.ofDays(1))))
+                .containsOnly(entry("go_cave", 1L), entry("search_treasure", 1L), entry("fight_dragon", 1L));
+        assertThat(q.sumBy("location", "healthDelta", DAY, DAY.plus(Duration.ofDays(1))))
+                .containsOnly(entry("пещера", 0L), entry("замок", -70L));
+        assertThat(q.countBy("items", DAY, DAY.plus(Duration.ofDays(1)))).containsOnly(entry("меч", 1L));
+
+        // граница внутри часа: читается ещё и колонка at
+        assertThat(q.countBy("action", H13.plusSeconds(15), H14)).containsOnly(entry("search_treasure", 1L));
+
+        AnalyticsQuery actionsOnly = new AnalyticsQuery(dir);
+        actionsOnly.countBy("action", DAY, DAY.plus(Duration.ofDays(1)));
+        long fileBytes = 0;
+        for (Path p : actionsOnly.files(DAY, DAY.plus(Duration.ofDays(1)))) fileBytes += Files.size(p);
+        assertThat(actionsOnly.bytesRead()).isPositive().isLessThan(fileBytes / 4);
+    }
+
+    @Test
+    void lateEvent_goesToNextPartOfClosedHour() throws Exception {
+        AnalyticsExporter exporter = exporter(Duration.ZERO);
+        exporter.publish(List.of(step(1, H13.plusSeconds(1), "go_cave", "пещера", 0, List.of()))).block();
+        exporter.seal(H14.toEpochMilli());
+        exporter.publish(List.of(step(2, H13.plusSeconds(2), "go_village", "деревня", 0, List.of()))).block();
+        exporter.seal(H14.toEpochMilli());
+
+        assertThat(names()).containsExactly("events-2026-10-19T13-2.qcol", "events-2026-10-19T13.qcol");
+        assertThat(new AnalyticsQuery(dir).countBy("location", H13, H14))
+                .containsOnly(entry("пещера", 1L), entry("деревня", 1L));
+    }
+
+    private AnalyticsExporter exporter(Duration sealDelay) {
+        AnalyticsProperties props = new AnalyticsProperties();
+        props.setEnabled(true);
+        props.setDir(dir.toString());
+        props.setSealDelay(sealDelay);
+        return new AnalyticsExporter(props);
+    }
+
+    private List<String> names() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static GameEventDto step(long id, Instant at, String action, String location, int health, List<String> items) {
+        GameEventDto e = new GameEventDto();
+        e.setId(id);
+        e.setType(GameEventDto.STEP);
+        e.setGameStateId(1L);
+        e.setUserId(7L);
+        e.setQuestId("classic");
+        e.setAction(action);
+        e.setLocation(location);
+        e.setHealthDelta(health);
+        e.setItems(items.isEmpty() ? null : items);
+        e.setAt(at.toEpochMilli());
+        return e;
+    }
+}
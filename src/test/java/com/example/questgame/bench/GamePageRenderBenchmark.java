@@ -0,0 +1,135 @@
+package com.example.questgame.bench;
+
+import com.example.questgame.QuestGameApplication;
+import com.example.questgame.config.TestSecurityConfig;
+import com.example.questgame.dto.GameSlotDto;
+import com.example.questgame.dto.GameSlotPageDto;
+import com.example.questgame.model.GameState;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.security.JwtService;
+import com.example.questgame.security.JwtWebFilter;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер TTFB и полного времени рендера /game при медленной БД (задержки заданы моками).
+ * Запуск: mvn test -Pbench
+ */
+@Tag("benchmark")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = QuestGameApplication.class
+)
+@ActiveProfiles("test")
+@Import(TestSecurityConfig.class)
+class GamePageRenderBenchmark {
+
+    private static final Duration DB_LATENCY = Duration.ofMillis(40);
+    private static final int WARMUP = 50;
+    private static final int ROUNDS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean private GameService gameService;
+    @MockBean private UserService userService;
+    @MockBean private JwtService jwtService;
+    @MockBean private JwtWebFilter jwtWebFilter;
+    @Autowired private QuestPacks quests;
+
+    @BeforeEach
+    void stubs() {
+        Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
+                .thenAnswer(inv -> inv.<WebFilterChain>getArgument(1).filter(inv.getArgument(0)));
+        Mockito.when(jwtService.parseEmail(Mockito.anyString())).thenReturn("bench@mail.com");
+
+        GameState state = new GameState();
+        state.setId(1L);
+        state.setUserId(7L);
+        state.setCurrentLocation("forest");
+        state.setPlotProgress("Вы стоите на опушке леса.");
+        state.setHealth(100);
+
+        Mockito.when(userService.findUserIdByEmail(Mockito.anyString()))
+                .thenAnswer(inv -> Mono.just(7L).delayElement(DB_LATENCY));
+        Mockito.when(gameService.getUserGames(7L))
+                .thenAnswer(inv -> Mono.just(state).delayElement(DB_LATENCY));
+        Mockito.when(gameService.locationOf(Mockito.any(GameState.class)))
+                .thenReturn(quests.get(null).location("forest"));
+        Mockito.when(gameService.listSlots(Mockito.eq(7L), Mockito.isNull(), Mockito.anyInt()))
+                .thenAnswer(inv -> Mono.just(new GameSlotPageDto(
+                        List.of(new GameSlotDto(1L, "forest", 100, "ACTIVE", LocalDateTime.now())), null))
+                        .delayElement(DB_LATENCY));
+    }
+
+    @Test
+    @DisplayName("TTFB и полный рендер /game")
+    void measure() throws Exception {
+        HttpClient http = HttpClient.newHttpClient();
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game"))
+                .header("Cookie", "jwt=bench")
+                .build();
+
+        for (int i = 0; i < WARMUP; i++) {
+            once(http, req);
+        }
+        long[] ttfb = new long[ROUNDS];
+        long[] total = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long[] r = once(http, req);
+            ttfb[i] = r[0];
+            total[i] = r[1];
+        }
+        System.out.printf("/game (БД %d мс на запрос): TTFB p50=%.1f мс p95=%.1f мс; полный рендер p50=%.1f мс p95=%.1f мс%n",
+                DB_LATENCY.toMillis(), p(ttfb, 50), p(ttfb, 95), p(total, 50), p(total, 95));
+
+        assertThat(p(ttfb, 50)).isLessThan(p(total, 50));
+    }
+
+    /** [время до первого байта, время до конца тела] в наносекундах. */
+    private static long[] once(HttpClient http, HttpRequest req) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<InputStream> resp = http.send(req, HttpResponse.BodyHandlers.ofInputStream());
+        long first;
+        try (InputStream in = resp.body()) {
+            in.read();
+            first = System.nanoTime() - start;
+            in.readAllBytes();
+        }
+        assertThat(resp.statusCode()).isEqualTo(200);
+        return new long[]{first, System.nanoTime() - start};
+    }
+
+    private static double p(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int idx = Math.min(sorted.length - 1, sorted.length * percentile / 100);
+        return sorted[idx] / 1e6;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.questgame.bench;
+
+import ch.qos.logback.classic.Level;
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.PartyProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.PartyDto;
+import com.example.questgame.dto.PartyEventDto;
+import com.example.questgame.facade.GameDtoFacade;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.facade.StaticFragments;
+import com.example.questgame.limit.DatabaseBreakerProperties;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.Party;
+import com.example.questgame.model.PartyMember;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.PartyMemberRepository;
+import com.example.questgame.repository.PartyRepository;
+import com.example.questgame.service.ActionTraceRecorder;
+import com.example.questgame.service.EffectScheduler;
+import com.example.questgame.service.GameRandom;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameStatsService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.PartyService;
+import com.example.questgame.service.WorldEventService;
+import com.example.questgame.storage.InMemoryGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузка на партии: тысячи партий по 4 участника, в каждом раунде трое голосуют за ход
+ * одновременно, а четвёртый в это же время крафтит. В каждой партии есть «медленный» подписчик,
+ * который взял одно событие и больше не читает. Проверяется, что команды одной партии не
+ * пересекаются, быстрые подписчики видят каждое состояние, а медленный никого не тормозит.
+ * Хранилище — карты в памяти, так что замеряется сама партия, а не база.
+ * Запуск: mvn test -Pbench -Dtest=PartyLoadBenchmark
+ */
+@Tag("benchmark")
+class PartyLoadBenchmark {
+
+    private static final int PARTIES = 2_000;
+    private static final int MEMBERS = 4;
+    private static final int ROUNDS = 20;
+    private static final String[] ACTIONS = {"run_away", "search_treasure"};
+
+    @Test
+    @DisplayName("Партии: пропускная способность, задержка хода и изоляция медленного подписчика")
+    void load() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        PartyProperties props = new PartyProperties();
+        PartyService service = partyService(props, inFlight, overlaps);
+
+        List<PartyDto> parties = Flux.range(0, PARTIES)
+                .flatMap(i -> {
+                    long leader = i * 10L + 1;
+                    return service.create(leader, null).flatMap(p -> Flux.range(2, MEMBERS - 1)
+                            .concatMap(m -> service.join(p.getId(), i * 10L + m))
+                            .last());
+                }, 64)
+                .collectList()
+                .block();
+        assertThat(parties).hasSize(PARTIES);
+
+        Map<Long, AtomicLong> fastLastSeq = new ConcurrentHashMap<>();
+        AtomicLong fastEvents = new AtomicLong();
+        List<SlowMember> slow = new ArrayList<>();
+        for (PartyDto p : parties) {
+            for (int m = 0; m < MEMBERS - 1; m++) {
+                AtomicLong last = fastLastSeq.computeIfAbsent(p.getId() * 10 + m, k -> new AtomicLong());
+                service.events(p.getId(), p.getMembers().get(m)).subscribe(e -> {
+                    fastEvents.incrementAndGet();
+                    last.accumulateAndGet(e.getSeq(), Math::max);
+                });
+            }
+            SlowMember s = new SlowMember();
+            service.events(p.getId(), p.getMembers().get(MEMBERS - 1)).subscribe(s);
+            slow.add(s);
+        }
+        fastEvents.set(0);
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Map<Long, Long> finalSeq = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        Flux.fromIterable(parties)
+                .flatMap(p -> Flux.range(0, ROUNDS)
+                        .concatMap(r -> round(service, p, ACTIONS[r % ACTIONS.length], latencies, finalSeq))
+                        .subscribeOn(Schedulers.parallel()), 512)
+                .blockLast(Duration.ofMinutes(5));
+        long elapsed = System.nanoTime() - start;
+
+        long commands = (long) PARTIES * ROUNDS * 2;
+        long[] lat = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("партий %d x %d участников, раундов %d: %d команд за %d мс (%.0f команд/с)%n",
+                PARTIES, MEMBERS, ROUNDS, commands, elapsed / 1_000_000, commands * 1e9 / elapsed);
+        System.out.printf("задержка раунда (3 голоса + крафт): p50 %.2f мс, p99 %.2f мс, max %.2f мс%n",
+                lat[lat.length / 2] / 1e6, lat[(int) (lat.length * 0.99)] / 1e6, lat[lat.length - 1] / 1e6);
+        System.out.printf("событий быстрым подписчикам: %d; медленные получили по %d%n",
+                fastEvents.get(), slow.get(0).received.get());
+
+        assertThat(overlaps.get()).as("команды одной партии пересеклись").isZero();
+        assertThat(lat).hasSize(PARTIES * ROUNDS);
+        for (PartyDto p : parties) {
+            for (int m = 0; m < MEMBERS - 1; m++) {
+                assertThat(fastLastSeq.get(p.getId() * 10 + m).get()).isEqualTo(finalSeq.get(p.getId()));
+            }
+        }
+        assertThat(slow).allSatisfy(s -> assertThat(s.received.get()).isEqualTo(1));
+    }
+
+    /** Раунд партии: три голоса за одно действие и крафт четвёртого — все одновременно. */
+    private static Mono<Void> round(PartyService service, PartyDto p, String action,
+                                    ConcurrentLinkedQueue<Long> latencies, Map<Long, Long> finalSeq) {
+        long t0 = System.nanoTime();
+        List<Mono<PartyEventDto>> ops = new ArrayList<>();
+        for (int m = 0; m < MEMBERS - 1; m++) {
+            Long user = p.getMembers().get(m);
+            ops.add(Mono.defer(() -> service.vote(p.getId(), user, action)).subscribeOn(Schedulers.parallel()));
+        }
+        Long crafter = p.getMembers().get(MEMBERS - 1);
+        ops.add(Mono.defer(() -> service.craft(p.getId(), crafter, "potion_from_herb"))
+                .subscribeOn(Schedulers.parallel()));
+        return Flux.merge(ops)
+                .filter(e -> PartyEventDto.STATE.equals(e.getType()))
+                .doOnNext(e -> finalSeq.merge(p.getId(), e.getSeq(), Math::max))
+                .then(Mono.fromRunnable(() -> latencies.add(System.nanoTime() - t0)));
+    }
+
+    /** Подписчик, который взял одно событие и больше не читает. */
+    private static final class SlowMember extends BaseSubscriber<PartyEventDto> {
+        final AtomicInteger received = new AtomicInteger();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+        }
+
+        @Override
+        protected void hookOnNext(PartyEventDto value) {
+            received.incrementAndGet();
+        }
+    }
+
+    // ==========================
+    //     Сборка без базы
+    // ==========================
+
+    private static PartyService partyService(PartyProperties props, Map<Long, AtomicInteger> inFlight,
+                                             AtomicInteger overlaps) {
+        UndoProperties noUndo = new UndoProperties();
+        noUndo.setDepth(0);
+        QuestPacks quests = new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog());
+        // счётчик команд в полёте на игру: больше одной — очередь партии не сработала
+        GameService engine = new GameService(new InMemoryGameStore(1_000), new GameStatsService(null, Duration.ZERO),
+                new GameVersions(), null, null, noUndo, new GameRandom(),
+                new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()), quests,
+                new WorldEventService(new WorldProperties(), new MessageCatalog()), GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled()) {
+            @Override
+            public Mono<GameState> updatePlot(Long gameStateId, String rawChoice) {
+                return guarded(gameStateId, super.updatePlot(gameStateId, rawChoice));
+            }
+
+            @Override
+            public Mono<GameState> craft(Long gameStateId, String recipeKey) {
+                return guarded(gameStateId, super.craft(gameStateId, recipeKey));
+            }
+
+            private Mono<GameState> guarded(Long id, Mono<GameState> command) {
+                AtomicInteger n = inFlight.computeIfAbsent(id, k -> new AtomicInteger());
+                return Mono.defer(() -> {
+                    if (n.incrementAndGet() > 1) overlaps.incrementAndGet();
+                    return command;
+                }).doFinally(s -> n.decrementAndGet());
+            }
+        };
+        GameDtoFacade facade = new GameDtoFacade(engine, new StaticFragments(), new MessageCatalog(),
+                new LastKnownGood(new DatabaseBreakerProperties(), new GameVersions()));
+        return new PartyService(parties(), members(), engine, facade, quests, props);
+    }
+
+    private static PartyRepository parties() {
+        Map<Long, Party> rows = new ConcurrentHashMap<>();
+        AtomicLong seq = new AtomicLong();
+        return proxy(PartyRepository.class, (method, args) -> switch (method) {
+            case "findById" -> Mono.justOrEmpty(rows.get((Long) args[0]));
+            case "save" -> {
+                Party p = (Party) args[0];
+                if (p.getId() == null) p.setId(seq.incrementAndGet());
+                rows.put(p.getId(), p);
+                yield Mono.just(p);
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private static PartyMemberRepository members() {
+        Map<Long, List<PartyMember>> rows = new ConcurrentHashMap<>();
+        return proxy(PartyMemberRepository.class, (method, args) -> switch (method) {
+            case "findByPartyId" -> Flux.fromIterable(List.copyOf(rows.getOrDefault((Long) args[0], List.of())));
+            case "save" -> {
+                PartyMember m = (PartyMember) args[0];
+                rows.computeIfAbsent(m.getPartyId(), k -> new CopyOnWriteArrayList<>()).add(m);
+                yield Mono.just(m);
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(PartyLoadBenchmark.class.getClassLoader(), new Class<?>[]{type},
+                (p, m, args) -> switch (m.getName()) {
+                    case "toString" -> "InMemory" + type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> handler.invoke(m.getName(), args);
+                });
+    }
+}
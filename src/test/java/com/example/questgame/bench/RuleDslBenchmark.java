@@ -0,0 +1,142 @@
+package com.example.questgame.bench;
+
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.quest.QuestPack;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.quest.RuleCompiler;
+import com.example.questgame.quest.RuleContext;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.PlotText;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Выбор исхода по скомпилированным правилам пакета против того же выбора, написанного на Java
+ * (как было в GameService до пакетов), и против разбора текста правила на каждый ход.
+ * Запуск: mvn test -Pbench -Dtest=RuleDslBenchmark
+ */
+@Tag("benchmark")
+class RuleDslBenchmark {
+
+    private static final int WARMUP = 2_000_000;
+    private static final int ROUNDS = 10_000_000;
+
+    private static final String WIN_BLADE = PlotText.of("end.win_blade");
+    private static final String WIN_SWORD = PlotText.of("end.win_sword");
+    private static final String NO_WEAPON = PlotText.of("castle.no_weapon");
+    private static final String REFORGED = PlotText.of("village.artifact_reforged");
+    private static final String NO_ARTIFACT = PlotText.of("village.no_artifact");
+    private static final String RETURNED = PlotText.of("village.artifact_returned");
+    private static final String SWORD = PlotText.of("forest.sword");
+    private static final String HERB = PlotText.of("forest.herb");
+    private static final String FLASK = PlotText.of("forest.flask");
+    private static final String POTION = PlotText.of("forest.potion");
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @DisplayName("ns и байты на выбор исхода: правила пакета vs Java vs разбор на ходу")
+    void compare() {
+        QuestPack pack = new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()).get("classic");
+        QuestPack.Action fight = pack.location("castle").action("fight_dragon");
+        QuestPack.Action returnArtifact = pack.location("village").action("return_artifact");
+        QuestPack.Action search = pack.location("forest").action("search_treasure");
+
+        Ctx[] contexts = {
+                new Ctx(Set.of("меч"), 80, 9), new Ctx(Set.of("клинок света"), 40, 2),
+                new Ctx(Set.of("артефакт", "меч"), 100, 5), new Ctx(Set.of(), 10, 0),
+                new Ctx(Set.of("трава", "фляга"), 70, 3), new Ctx(Set.of("артефакт"), 90, 7)};
+
+        ToIntFunction<Ctx> compiled = c -> fight.choose(c).message().length()
+                + returnArtifact.choose(c).message().length()
+                + search.choose(c).message().length();
+        ToIntFunction<Ctx> handWritten = c -> fightJava(c).length() + returnJava(c).length() + searchJava(c).length();
+        Map<String, String> items = Map.of("sword", "меч", "light_blade", "клинок света", "artifact", "артефакт");
+        ToIntFunction<Ctx> reparsed = c -> (RuleCompiler.condition("has(light_blade)", items::get).test(c) ? 1 : 0)
+                + (RuleCompiler.condition("has(sword)", items::get).test(c) ? 1 : 0)
+                + (RuleCompiler.condition("!has(artifact) && has(light_blade)", items::get).test(c) ? 1 : 0)
+                + (RuleCompiler.condition("!has(artifact)", items::get).test(c) ? 1 : 0)
+                + (RuleCompiler.condition("roll >= 7", items::get).test(c) ? 1 : 0)
+                + (RuleCompiler.condition("roll >= 5", items::get).test(c) ? 1 : 0)
+                + (RuleCompiler.condition("roll >= 3", items::get).test(c) ? 1 : 0);
+
+        for (Ctx c : contexts) {
+            assertThat(fight.choose(c).message()).isEqualTo(fightJava(c));
+            assertThat(returnArtifact.choose(c).message()).isEqualTo(returnJava(c));
+            assertThat(search.choose(c).message()).isEqualTo(searchJava(c));
+        }
+
+        Result java = run(contexts, handWritten);
+        Result dsl = run(contexts, compiled);
+        Result parse = run(contexts, reparsed, ROUNDS / 20);
+
+        System.out.printf("Java вручную:        %6.1f ns/ход, %6.1f B/ход%n", java.nanos, java.bytes);
+        System.out.printf("правила пакета:      %6.1f ns/ход, %6.1f B/ход%n", dsl.nanos, dsl.bytes);
+        System.out.printf("разбор на каждый ход: %6.1f ns/ход, %6.1f B/ход%n", parse.nanos, parse.bytes);
+
+        assertThat(dsl.bytes).isLessThan(1.0);
+        assertThat(dsl.nanos).isLessThan(parse.nanos);
+    }
+
+    private record Result(double nanos, double bytes) {}
+
+    private Result run(Ctx[] contexts, ToIntFunction<Ctx> op) {
+        return run(contexts, op, ROUNDS);
+    }
+
+    private Result run(Ctx[] contexts, ToIntFunction<Ctx> op, int rounds) {
+        long tid = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < WARMUP / (ROUNDS / rounds); i++) sink += op.applyAsInt(contexts[i % contexts.length]);
+        long bytesBefore = threads.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) sink += op.applyAsInt(contexts[i % contexts.length]);
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(tid) - bytesBefore;
+        assertThat(sink).isPositive();
+        return new Result(nanos / (double) rounds, bytes / (double) rounds);
+    }
+
+    // ---- те же правила, написанные вручную ----
+
+    private static String fightJava(RuleContext c) {
+        if (c.has("клинок света")) return WIN_BLADE;
+        if (c.has("меч")) return WIN_SWORD;
+        return NO_WEAPON;
+    }
+
+    private static String returnJava(RuleContext c) {
+        if (!c.has("артефакт")) return c.has("клинок света") ? REFORGED : NO_ARTIFACT;
+        return RETURNED;
+    }
+
+    private static String searchJava(RuleContext c) {
+        int roll = c.roll();
+        if (roll >= 7) return SWORD;
+        if (roll >= 5) return HERB;
+        if (roll >= 3) return FLASK;
+        return POTION;
+    }
+
+    private record Ctx(Set<String> items, int health, int roll) implements RuleContext {
+        @Override
+        public boolean has(String itemNameLower) {
+            return items.contains(itemNameLower);
+        }
+
+        @Override
+        public int var(String name) {
+            return 0;
+        }
+    }
+}
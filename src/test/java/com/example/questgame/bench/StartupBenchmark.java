@@ -0,0 +1,168 @@
+package com.example.questgame.bench;
+
+import com.example.questgame.security.JwtService;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Холодный старт собранного приложения (target/fast-start из mvn -Pfast-start -DskipTests package)
+ * в трёх режимах: обычный jar, Spring AOT и AOT + AppCDS-архив. Для каждого — время от запуска JVM
+ * до готовности (строка «Started») и до первого успешного POST /api/games/progress — запросы идут
+ * с момента, когда Netty слушает порт. Для прогресса нужна БД с игрой bench.startup.game-id
+ * (по умолчанию 5 из data.sql); без неё печатается только готовность.
+ * Запуск: mvn test -Pbench -Dtest=StartupBenchmark [-Dbench.startup.runs=3 -Dbench.startup.args="--spring.r2dbc.url=..."]
+ */
+@Tag("benchmark")
+class StartupBenchmark {
+
+    private static final Path DIR = Path.of("target", "fast-start");
+    private static final Path JAR = DIR.resolve("questgame-0.0.1-SNAPSHOT.jar");
+    private static final Path CDS = DIR.resolve("application.jsa");
+    private static final Pattern PORT = Pattern.compile("Netty started on port (\\d+)");
+    private static final Duration PROGRESS_WAIT = Duration.ofSeconds(30);
+
+    private final int runs = Integer.getInteger("bench.startup.runs", 3);
+    private final long gameId = Long.getLong("bench.startup.game-id", 5L);
+    private final String choice = System.getProperty("bench.startup.choice", "go_cave");
+    private final List<String> extraArgs = Arrays.stream(System.getProperty("bench.startup.args", "").split(" "))
+            .filter(a -> !a.isBlank()).toList();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+
+    private record Result(long readyMillis, long progressMillis) {}
+
+    @Test
+    @DisplayName("Старт: обычный jar vs AOT vs AOT + CDS — до готовности и до первого /api/games/progress")
+    void startup() throws Exception {
+        Assumptions.assumeTrue(Files.isRegularFile(JAR) && Files.isRegularFile(CDS),
+                "нет target/fast-start: mvn -Pfast-start -DskipTests package");
+        String token = new JwtService(jwtSecret(), 3600).generateToken("test1@example.com");
+
+        print("обычный", measure(List.of(), token));
+        print("AOT", measure(List.of("-Dspring.aot.enabled=true"), token));
+        print("AOT + CDS", measure(List.of("-Dspring.aot.enabled=true",
+                "-XX:SharedArchiveFile=" + CDS.getFileName()), token));
+    }
+
+    private List<Result> measure(List<String> jvmFlags, String token) throws Exception {
+        List<Result> out = new ArrayList<>();
+        for (int i = 0; i < runs; i++) out.add(runOnce(jvmFlags, token));
+        return out;
+    }
+
+    private Result runOnce(List<String> jvmFlags, String token) throws Exception {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(jvmFlags);
+        cmd.addAll(List.of("-jar", JAR.getFileName().toString(),
+                "--spring.profiles.active=prod", "--server.port=0"));
+        cmd.addAll(extraArgs);
+
+        long start = System.nanoTime();
+        Process app = new ProcessBuilder(cmd).directory(DIR.toFile()).redirectErrorStream(true).start();
+        try {
+            CompletableFuture<Integer> port = new CompletableFuture<>();
+            CompletableFuture<Long> ready = new CompletableFuture<>();
+            Thread reader = new Thread(() -> watch(app.getInputStream(), start, port, ready), "startup-bench-log");
+            reader.setDaemon(true);
+            reader.start();
+
+            int p = port.get(2, TimeUnit.MINUTES);
+            long progress = firstProgress(p, token, start);
+            long readyMillis = ready.get(2, TimeUnit.MINUTES);
+            // вернуть игру в начало — следующий запуск сделает тот же шаг
+            if (progress >= 0) send(p, token, "/api/games/restart?gameStateId=" + gameId);
+            return new Result(readyMillis, progress);
+        } finally {
+            app.destroy();
+            if (!app.waitFor(30, TimeUnit.SECONDS)) app.destroyForcibly().waitFor();
+        }
+    }
+
+    /** Мс от старта до первого 2xx на progress; -1 — не дождались (нет БД или игры). */
+    private long firstProgress(int port, String token, long start) throws InterruptedException {
+        long deadline = System.nanoTime() + PROGRESS_WAIT.toNanos();
+        String path = "/api/games/progress?gameStateId=" + gameId + "&choice=" + choice;
+        while (System.nanoTime() < deadline) {
+            int status = send(port, token, path);
+            if (status >= 200 && status < 300) return (System.nanoTime() - start) / 1_000_000;
+            Thread.sleep(status < 0 ? 5 : 50);
+        }
+        return -1;
+    }
+
+    private int send(int port, String token, String path) throws InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(5))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        try {
+            return http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void watch(InputStream log, long start, CompletableFuture<Integer> port,
+                              CompletableFuture<Long> ready) {
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(log, StandardCharsets.UTF_8))) {
+            for (String line; (line = r.readLine()) != null; ) {
+                Matcher m = PORT.matcher(line);
+                if (m.find()) port.complete(Integer.parseInt(m.group(1)));
+                if (line.contains("Started QuestGameApplication")) ready.complete((System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException ignored) {
+            // процесс завершён
+        }
+        IllegalStateException gone = new IllegalStateException("приложение завершилось до готовности");
+        port.completeExceptionally(gone);
+        ready.completeExceptionally(gone);
+    }
+
+    private static String jwtSecret() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = StartupBenchmark.class.getResourceAsStream("/application.properties")) {
+            props.load(in);
+        }
+        return props.getProperty("app.jwt.secret");
+    }
+
+    private void print(String mode, List<Result> results) {
+        assertThat(results).hasSize(runs);
+        long ready = median(results.stream().mapToLong(Result::readyMillis).toArray());
+        long progress = median(results.stream().mapToLong(Result::progressMillis).toArray());
+        System.out.printf("%-10s готов: %5d мс   первый progress: %s%n", mode, ready,
+                progress < 0 ? "нет 2xx за " + PROGRESS_WAIT.toSeconds() + " с (нужна БД)" : progress + " мс");
+    }
+
+    private static long median(long[] values) {
+        long[] v = values.clone();
+        Arrays.sort(v);
+        return v[v.length / 2];
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.questgame.bench;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.ActionDto;
+import com.example.questgame.dto.CraftDto;
+import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.dto.ItemDto;
+import com.example.questgame.dto.PreEncodedCraft;
+import com.example.questgame.dto.PreEncodedRiddle;
+import com.example.questgame.dto.RiddleDto;
+import com.example.questgame.facade.GameDtoFacade;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.facade.StaticFragments;
+import com.example.questgame.limit.DatabaseBreakerProperties;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPack;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.GameDeltaRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.service.ActionTraceRecorder;
+import com.example.questgame.service.EffectScheduler;
+import com.example.questgame.service.GameArchiveService;
+import com.example.questgame.service.GameRandom;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameStatsService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.WorldEventService;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Аллокации на сборку и JSON-сериализацию одного GameStateDto:
+ * прежняя сборка (ActionDto/RiddleDto на каждый ответ) против общих заранее закодированных фрагментов.
+ * Запуск: mvn test -Pbench
+ */
+@Tag("benchmark")
+class StateResponseAllocationBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int ROUNDS = 200_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @DisplayName("Байты/ответ: прежняя сборка vs фрагменты")
+    void compare() throws Exception {
+        // Proxy вместо Mockito: вызов мока сам аллоцирует килобайты и смазал бы замер
+        Flux<InventoryItem> items = Flux.just(item("трава"), item("фляга"), item("меч"));
+        InventoryItemRepository inventory = (InventoryItemRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{InventoryItemRepository.class},
+                (proxy, method, args) -> items);
+        GameService gameService = new GameService(new R2dbcGameStore(Mockito.mock(GameStateRepository.class), inventory),
+                Mockito.mock(GameStatsService.class), new GameVersions(), Mockito.mock(GameArchiveService.class),
+                Mockito.mock(GameDeltaRepository.class), new UndoProperties(),
+                new GameRandom(), new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()),
+                new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()),
+                new WorldEventService(new WorldProperties(), new MessageCatalog()), GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled());
+        GameDtoFacade facade = new GameDtoFacade(gameService, new StaticFragments(), new MessageCatalog(),
+                new LastKnownGood(new DatabaseBreakerProperties(), new GameVersions()));
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        GameState forest = state("лес", "Вы на опушке леса. Выберите путь.");
+        GameState cave = state("пещера", "Перед вами сфинкс. [RIDDLE] Ответьте на загадку.");
+
+        for (GameState gs : List.of(forest, cave)) {
+            String legacyJson = mapper.writeValueAsString(legacy(gameService, gs).block());
+            String json = mapper.writeValueAsString(facade.from(gs).block());
+            assertThat(json).isEqualTo(legacyJson);
+
+            double legacyBuild = bytesPerOp(() -> legacy(gameService, gs).block());
+            double build = bytesPerOp(() -> facade.from(gs).block());
+            double legacyFull = bytesPerOp(() -> mapper.writeValueAsBytes(legacy(gameService, gs).block()));
+            double full = bytesPerOp(() -> mapper.writeValueAsBytes(facade.from(gs).block()));
+
+            System.out.printf("%-8s сборка DTO: %7.0f -> %7.0f B/ответ; сборка+JSON: %7.0f -> %7.0f B/ответ (%d B тела)%n",
+                    gs.getCurrentLocation(), legacyBuild, build, legacyFull, full, json.getBytes().length);
+            assertThat(full).isLessThan(legacyFull);
+        }
+    }
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private double bytesPerOp(Op op) throws Exception {
+        long tid = Thread.currentThread().getId();
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) sink = op.run();
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < ROUNDS; i++) sink = op.run();
+        long after = threads.getThreadAllocatedBytes(tid);
+        assertThat(sink).isNotNull();
+        return (after - before) / (double) ROUNDS;
+    }
+
+    /** Сборка DTO как до фрагментов: действия и загадка создаются на каждый ответ. */
+    private static Mono<GameStateDto> legacy(GameService gameService, GameState gs) {
+        boolean terminal = gameService.isTerminal(gs);
+        Mono<List<ActionDto>> actions = terminal ? Mono.just(List.of())
+                : Flux.fromIterable(gameService.locationOf(gs).menu())
+                .map(c -> new ActionDto(c.key(), c.label()))
+                .collectList();
+        QuestPack.Riddle def = gameService.packOf(gs).riddle();
+        PreEncodedRiddle riddle = (!terminal && gameService.riddlePromptActive(gs))
+                ? PreEncodedRiddle.of(new RiddleDto(def.question(), List.copyOf(def.options())))
+                : null;
+        return actions.flatMap(acts -> gameService.getAvailableCrafts(gs)
+                .collectList()
+                .map(recipes -> new GameStateDto(gs.getId(), gs.getPlotProgress(), gs.getHealth(),
+                        gs.getCurrentLocation(), acts, terminal, riddle,
+                        recipes.stream()
+                                .map(r -> PreEncodedCraft.of(new CraftDto(r.key(), r.title(), r.requires(),
+                                        new ItemDto(r.result().name(), r.result().description()))))
+                                .toList())));
+    }
+
+    private static InventoryItem item(String name) {
+        InventoryItem it = new InventoryItem();
+        it.setName(name);
+        return it;
+    }
+
+    private static GameState state(String location, String plot) {
+        GameState gs = new GameState();
+        gs.setId(1L);
+        gs.setUserId(1L);
+        gs.setCurrentLocation(location);
+        gs.setPlotProgress(plot);
+        gs.setHealth(100);
+        return gs;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.questgame.bench;
+
+import ch.qos.logback.classic.Level;
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.service.ActionTraceRecorder;
+import com.example.questgame.service.EffectScheduler;
+import com.example.questgame.service.GameRandom;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameStatsService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.TraceReplayer;
+import com.example.questgame.service.WorldEventService;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Цена записи трассы на команду (запись включена vs выключена, репозитории в памяти) и скорость
+ * воспроизведения записанного файла через TraceReplayer.
+ * Запуск: mvn test -Pbench -Dtest=TraceReplayBenchmark
+ */
+@Tag("benchmark")
+class TraceReplayBenchmark {
+
+    private static final int GAMES = 2_000;
+    private static final String[] SCRIPT = {"search_treasure", "search_treasure", "go_cave", "solve_riddle",
+            "go_village", "go_cave", "go_village", "run_away", "search_treasure", "go_castle", "run_away"};
+
+    @TempDir Path dir;
+
+    @Test
+    @DisplayName("Запись трассы: нс/команду; воспроизведение: команд/с")
+    void recordAndReplay() throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        play(new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()));  // прогрев
+        long off = play(new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()));
+
+        TraceProperties props = new TraceProperties();
+        props.setEnabled(true);
+        props.setDir(dir.toString());
+        ActionTraceRecorder recorder = new ActionTraceRecorder(props, new EffectsProperties());
+        recorder.start();
+        long on = play(recorder);
+        recorder.stop();
+
+        int commands = GAMES * SCRIPT.length;
+        long size = Files.size(recorder.currentFile());
+        System.out.printf("выкл: %d нс/команду, вкл: %d нс/команду, файл %d КБ (%.1f Б/запись), отброшено %d%n",
+                off / commands, on / commands, size / 1024, (double) size / recorder.recordedCount(), recorder.droppedCount());
+
+        new TraceReplayer().replay(recorder.currentFile()); // прогрев
+        TraceReplayer.Report r = new TraceReplayer().replay(recorder.currentFile());
+        assertThat(r.mismatches()).as(r.details().toString()).isZero();
+        System.out.printf("воспроизведение: %d команд за %d мс, %.0f команд/с%n",
+                r.commands(), r.nanos() / 1_000_000, r.commandsPerSecond());
+    }
+
+    /** Сценарий на GAMES играх; возвращает общее время в нс. */
+    private static long play(ActionTraceRecorder recorder) {
+        Map<Long, GameState> states = new HashMap<>();
+        Map<Long, List<InventoryItem>> items = new HashMap<>();
+        AtomicLong ids = new AtomicLong();
+        GameStateRepository stateRepo = proxy(GameStateRepository.class, (name, args) -> switch (name) {
+            case "findById" -> Mono.justOrEmpty(states.get((Long) args[0]));
+            case "save" -> {
+                GameState s = (GameState) args[0];
+                if (s.getId() == null) s.setId(ids.incrementAndGet());
+                states.put(s.getId(), s);
+                yield Mono.just(s);
+            }
+            default -> Flux.empty();
+        });
+        InventoryItemRepository inventory = proxy(InventoryItemRepository.class, (name, args) -> switch (name) {
+            case "findByGameStateId" -> Flux.fromIterable(new ArrayList<>(items.getOrDefault((Long) args[0], List.of())));
+            case "findFirstByGameStateIdAndNameIgnoreCase" -> Mono.justOrEmpty(items.getOrDefault((Long) args[0], List.of())
+                    .stream().filter(i -> i.getName().equalsIgnoreCase((String) args[1])).findFirst());
+            case "save" -> {
+                InventoryItem it = (InventoryItem) args[0];
+                it.setId(ids.incrementAndGet());
+                items.computeIfAbsent(it.getGameStateId(), k -> new ArrayList<>()).add(it);
+                yield Mono.just(it);
+            }
+            default -> Mono.empty();
+        });
+        UndoProperties noUndo = new UndoProperties();
+        noUndo.setDepth(0);
+        GameService engine = new GameService(new R2dbcGameStore(stateRepo, inventory), new GameStatsService(null, Duration.ZERO),
+                new GameVersions(), null, null, noUndo, new GameRandom(), recorder,
+                new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()),
+                new WorldEventService(new WorldProperties(), new MessageCatalog()), GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled());
+
+        long t0 = System.nanoTime();
+        for (int g = 0; g < GAMES; g++) {
+            Long id = engine.createNewGame((long) g).block().getId();
+            for (String choice : SCRIPT) engine.updatePlot(id, choice).block();
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(TraceReplayBenchmark.class.getClassLoader(), new Class<?>[]{type},
+                (p, m, args) -> handler.invoke(m.getName(), args));
+    }
+}
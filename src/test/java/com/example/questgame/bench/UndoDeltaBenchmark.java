@@ -0,0 +1,175 @@
+package com.example.questgame.bench;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.GameExportDto;
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.GameDeltaRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.service.ActionTraceRecorder;
+import com.example.questgame.service.EffectScheduler;
+import com.example.questgame.service.GameArchiveService;
+import com.example.questgame.service.GameRandom;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameStatsService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.PlotText;
+import com.example.questgame.service.StepDelta;
+import com.example.questgame.service.WorldEventService;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Размер дельты шага против полной копии игры и задержка отмены одного шага в движке
+ * (репозитории в памяти — замеряется только работа GameService, без сети и БД).
+ * Запуск: mvn test -Pbench -Dtest=UndoDeltaBenchmark
+ */
+@Tag("benchmark")
+class UndoDeltaBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int ROUNDS = 200_000;
+
+    @Test
+    @DisplayName("Байты дельты по типам шагов vs полная копия")
+    void encodeSize() throws Exception {
+        Map<String, StepDelta> steps = new LinkedHashMap<>();
+        steps.put("переход", StepDelta.begin(100, "лес", "@start").finish(100, "пещера", "@forest.cave"));
+        StepDelta.Builder sword = StepDelta.begin(100, "лес", "@forest.run");
+        sword.added("меч", "Острый меч для боя");
+        steps.put("находка+урон", sword.finish(80, "лес", "@forest.sword"));
+        StepDelta.Builder craft = StepDelta.begin(80, "лес", "@forest.sword");
+        craft.removed("меч", "Острый меч для боя");
+        craft.removed("артефакт", "Древний артефакт");
+        craft.added("клинок света", "Оружие из артефакта. Поможет против дракона.");
+        steps.put("крафт", craft.finish(80, "лес", PlotText.prepend(PlotText.of("craft.done", "клинок света"), "@forest.sword")));
+        StepDelta.Builder restart = StepDelta.begin(0, "замок", "@castle.no_weapon\n@end.dead");
+        for (String n : List.of("трава", "фляга", "зелье", "меч", "артефакт")) restart.removed(n, "Ингредиент для зелья");
+        steps.put("рестарт(5 предм.)", restart.finish(100, "лес", "@start"));
+
+        JsonMapper mapper = JsonMapper.builder().findAndAddModules().build();
+        int snapshot = mapper.writeValueAsBytes(new GameExportDto(1L, 1L, "замок", "@castle.no_weapon\n@end.dead", 80,
+                "ACTIVE", LocalDateTime.now(), List.of(new InventoryItemDto(10L, "меч", "Острый меч для боя"),
+                new InventoryItemDto(11L, "зелье", "Зелье лечения")), "classic", null, null)).length;
+
+        for (Map.Entry<String, StepDelta> e : steps.entrySet()) {
+            byte[] bytes = e.getValue().encode();
+            assertThat(StepDelta.decode(bytes)).isEqualTo(e.getValue());
+            System.out.printf("%-18s %3d B дельта (полная копия игры ~%d B)%n", e.getKey(), bytes.length, snapshot);
+        }
+
+        StepDelta d = steps.get("крафт");
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) sink = StepDelta.decode(d.encode());
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) sink = StepDelta.decode(d.encode());
+        long ns = (System.nanoTime() - t0) / ROUNDS;
+        assertThat(sink).isNotNull();
+        System.out.printf("encode+decode крафта: %d нс/шаг%n", ns);
+    }
+
+    @Test
+    @DisplayName("Задержка undo одного шага (крафт: 3 операции с инвентарём)")
+    void undoLatency() {
+        GameState state = new GameState();
+        state.setId(1L);
+        state.setUserId(1L);
+        state.setCurrentLocation("лес");
+        state.setHealth(80);
+
+        InventoryItem blade = new InventoryItem();
+        blade.setId(13L);
+        blade.setGameStateId(1L);
+        blade.setName("клинок света");
+
+        GameStateRepository states = proxy(GameStateRepository.class, (name, args) -> switch (name) {
+            case "findById" -> Mono.just(state);
+            case "save" -> Mono.just(args[0]);
+            default -> Flux.empty();
+        });
+        InventoryItemRepository inventory = proxy(InventoryItemRepository.class, (name, args) -> switch (name) {
+            case "findFirstByGameStateIdAndNameIgnoreCase" -> Mono.just(blade);
+            case "save" -> Mono.just(args[0]);
+            case "deleteById" -> Mono.empty();
+            default -> Flux.empty();
+        });
+
+        StepDelta.Builder craft = StepDelta.begin(80, "лес", "@forest.sword");
+        craft.removed("меч", "Острый меч для боя");
+        craft.removed("артефакт", "Древний артефакт");
+        craft.added("клинок света", "Оружие из артефакта. Поможет против дракона.");
+        String after = PlotText.prepend(PlotText.of("craft.done", "клинок света"), "@forest.sword");
+        GameDeltaRepository.Row row = new GameDeltaRepository.Row(7L, craft.finish(80, "лес", after).encode());
+
+        GameDeltaRepository deltas = new GameDeltaRepository(null) {
+            @Override
+            public Flux<Row> findLatest(Long gameStateId, int limit) {
+                return Flux.just(row);
+            }
+
+            @Override
+            public Mono<Long> deleteFrom(Long gameStateId, long fromStep) {
+                return Mono.just(1L);
+            }
+        };
+
+        GameService service = new GameService(new R2dbcGameStore(states, inventory), Mockito.mock(GameStatsService.class), new GameVersions(),
+                Mockito.mock(GameArchiveService.class), deltas, new UndoProperties(),
+                new GameRandom(), new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()),
+                new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()),
+                new WorldEventService(new WorldProperties(), new MessageCatalog()), GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled());
+
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < WARMUP; i++) {
+            state.setPlotProgress(after);
+            service.undo(1L, 1).block();
+        }
+        for (int i = 0; i < ROUNDS; i++) {
+            state.setPlotProgress(after);
+            long t0 = System.nanoTime();
+            service.undo(1L, 1).block();
+            samples[i] = System.nanoTime() - t0;
+        }
+        assertThat(state.getPlotProgress()).isEqualTo("@forest.sword");
+
+        Arrays.sort(samples);
+        System.out.printf("undo 1 шага: p50=%.1f мкс p99=%.1f мкс (без БД)%n",
+                samples[ROUNDS / 2] / 1e3, samples[(int) (ROUNDS * 0.99)] / 1e3);
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(UndoDeltaBenchmark.class.getClassLoader(), new Class<?>[]{type},
+                (p, m, args) -> handler.invoke(m.getName(), args));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.questgame.bench;
+
+import com.example.questgame.config.BinaryCodecsConfig;
+import com.example.questgame.dto.ActionDto;
+import com.example.questgame.dto.CraftDto;
+import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.dto.ItemDto;
+import com.example.questgame.dto.PreEncodedCraft;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Байты на проводе и время encode/decode: JSON против CBOR (stringref) и Smile (shared names/values)
+ * на типичном и большом состоянии и на списке инвентаря.
+ * Запуск: mvn test -Pbench
+ */
+@Tag("benchmark")
+class WireFormatBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ROUNDS = 50_000;
+
+    @Test
+    @DisplayName("JSON vs CBOR vs Smile")
+    void compare() throws Exception {
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().build());
+        mappers.put("cbor", BinaryCodecsConfig.cborMapper(Jackson2ObjectMapperBuilder.json()));
+        mappers.put("smile", BinaryCodecsConfig.smileMapper(Jackson2ObjectMapperBuilder.json()));
+
+        Map<String, Object> payloads = new LinkedHashMap<>();
+        payloads.put("typical state", state(2, 3, 2));
+        payloads.put("large state", state(40, 12, 10));
+        payloads.put("inventory x200", inventory(200));
+
+        for (Map.Entry<String, Object> p : payloads.entrySet()) {
+            int jsonBytes = 0;
+            for (Map.Entry<String, ObjectMapper> m : mappers.entrySet()) {
+                ObjectMapper mapper = m.getValue();
+                Object value = p.getValue();
+                JavaType type = value instanceof List
+                        ? mapper.getTypeFactory().constructCollectionType(List.class, InventoryItemDto.class)
+                        : mapper.constructType(GameStateDto.class);
+                byte[] bytes = mapper.writeValueAsBytes(value);
+                assertThat((Object) mapper.readValue(bytes, type)).isEqualTo(value);
+                if (jsonBytes == 0) jsonBytes = bytes.length;
+
+                double encodeNs = time(() -> mapper.writeValueAsBytes(value));
+                double decodeNs = time(() -> mapper.readValue(bytes, type));
+                System.out.printf("%-15s %-6s %7d B (%5.1f%% of json)  encode %8.0f ns  decode %8.0f ns%n",
+                        p.getKey(), m.getKey(), bytes.length, 100.0 * bytes.length / jsonBytes, encodeNs, decodeNs);
+            }
+        }
+    }
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private static double time(Op op) throws Exception {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) sink = op.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) sink = op.run();
+        assertThat(sink).isNotNull();
+        return (System.nanoTime() - start) / (double) ROUNDS;
+    }
+
+    private static GameStateDto state(int paragraphs, int actions, int crafts) {
+        StringBuilder plot = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            plot.append("Вы идёте по тропинке в тёмном лесу. Где-то вдалеке слышен вой волка, ")
+                    .append("а под ногами хрустят сухие ветки. Вы нашли сундук с сокровищами. ");
+        }
+        List<ActionDto> acts = new ArrayList<>();
+        for (int i = 0; i < actions; i++) {
+            acts.add(new ActionDto("action_" + i, "Пойти в пещеру " + i));
+        }
+        List<PreEncodedCraft> recipes = new ArrayList<>();
+        for (int i = 0; i < crafts; i++) {
+            recipes.add(PreEncodedCraft.of(new CraftDto("recipe_" + i, "Факел", List.of("Палка", "Ткань", "Смола"),
+                    new ItemDto("Факел", "Освещает тёмные пещеры"))));
+        }
+        return new GameStateDto(1L, plot.toString(), 80, "Пещера", acts, false, null, recipes);
+    }
+
+    private static List<InventoryItemDto> inventory(int n) {
+        List<InventoryItemDto> items = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            items.add(new InventoryItemDto((long) i, i % 2 == 0 ? "Зелье" : "Факел",
+                    i % 2 == 0 ? "Восстанавливает здоровье" : "Освещает тёмные пещеры"));
+        }
+        return items;
+    }
+}
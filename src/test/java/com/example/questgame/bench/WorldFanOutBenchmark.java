@@ -0,0 +1,138 @@
+package com.example.questgame.bench;
+
+import ch.qos.logback.classic.Level;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.PreEncoded;
+import com.example.questgame.dto.PreEncodedWorldEvent;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.WorldEventService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Рассылка мировых событий 100k подписчикам через общий hot sink. Каждый подписчик, как
+ * SSE-писатель, превращает событие в байты: готовым JSON (как в сервисе) или сериализацией
+ * DTO на каждого (как было бы без предкодирования).
+ * Запуск: mvn test -Pbench -Dtest=WorldFanOutBenchmark
+ */
+@Tag("benchmark")
+class WorldFanOutBenchmark {
+
+    private static final int SUBSCRIBERS = 100_000;
+    private static final int EVENTS = 20;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("100k подписчиков: подписка, публикация, кодирование один раз vs на каждого")
+    void fanOut() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        long tid = Thread.currentThread().getId();
+
+        Result warm = run(false);          // прогрев обоих путей
+        run(true);
+        Result perSubscriber = run(true);
+        Result preEncoded = run(false);
+        assertThat(warm.delivered).isEqualTo((long) SUBSCRIBERS * EVENTS);
+
+        System.out.printf("подписка: %.0f нс и %.0f B на подписчика%n",
+                preEncoded.subscribeNanos / (double) SUBSCRIBERS, preEncoded.subscribeBytes / (double) SUBSCRIBERS);
+        System.out.printf("готовый JSON:      %.1f мс на событие (%.0f нс и %.0f B на доставку)%n",
+                preEncoded.perEventMillis(), preEncoded.perDeliveryNanos(), preEncoded.perDeliveryBytes());
+        System.out.printf("DTO на каждого:    %.1f мс на событие (%.0f нс и %.0f B на доставку)%n",
+                perSubscriber.perEventMillis(), perSubscriber.perDeliveryNanos(), perSubscriber.perDeliveryBytes());
+
+        assertThat(preEncoded.delivered).isEqualTo((long) SUBSCRIBERS * EVENTS);
+        assertThat(preEncoded.perDeliveryNanos()).isLessThan(perSubscriber.perDeliveryNanos());
+        assertThat(tid).isEqualTo(Thread.currentThread().getId());
+    }
+
+    private record Result(long subscribeNanos, long subscribeBytes, long publishNanos, long publishBytes, long delivered) {
+        double perEventMillis() {
+            return publishNanos / 1e6 / EVENTS;
+        }
+
+        double perDeliveryNanos() {
+            return publishNanos / (double) delivered;
+        }
+
+        double perDeliveryBytes() {
+            return publishBytes / (double) delivered;
+        }
+    }
+
+    private Result run(boolean encodePerSubscriber) {
+        long tid = Thread.currentThread().getId();
+        WorldEventService world = new WorldEventService(new WorldProperties(), new MessageCatalog());
+
+        List<Client> clients = new ArrayList<>(SUBSCRIBERS);
+        long bytes0 = threads.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            Client c = new Client(encodePerSubscriber);
+            world.events().subscribe(c);
+            clients.add(c);
+        }
+        long subscribeNanos = System.nanoTime() - t0;
+        long subscribeBytes = threads.getThreadAllocatedBytes(tid) - bytes0;
+        assertThat(world.subscriberCount()).isEqualTo(SUBSCRIBERS);
+
+        // sink directBestEffort доставляет в потоке публикации: время публикации — время рассылки всем
+        bytes0 = threads.getThreadAllocatedBytes(tid);
+        t0 = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            if (i % 2 == 0) world.start("dragon_sleeps", Duration.ofMinutes(10 + i));
+            else world.end("dragon_sleeps");
+        }
+        long publishNanos = System.nanoTime() - t0;
+        long publishBytes = threads.getThreadAllocatedBytes(tid) - bytes0;
+
+        long delivered = 0;
+        for (Client c : clients) {
+            delivered += c.received;
+            c.dispose();
+        }
+        return new Result(subscribeNanos, subscribeBytes, publishNanos, publishBytes, delivered);
+    }
+
+    /** Подписчик как SSE-писатель: запрашивает порциями и кодирует каждое событие в байты. */
+    private final class Client extends BaseSubscriber<PreEncodedWorldEvent> {
+        private final boolean encodePerSubscriber;
+        long received;
+        long bytes;
+
+        Client(boolean encodePerSubscriber) {
+            this.encodePerSubscriber = encodePerSubscriber;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(32);
+        }
+
+        @Override
+        protected void hookOnNext(PreEncodedWorldEvent value) {
+            try {
+                Object payload = encodePerSubscriber ? ((PreEncoded) value).plain() : value;
+                bytes += mapper.writeValueAsBytes(payload).length;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (++received % 32 == 0) request(32);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.questgame.config;
+
+import com.example.questgame.QuestGameApplication;
+import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.model.GameState;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.security.JwtWebFilter;
+import com.example.questgame.service.GameService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = QuestGameApplication.class
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+@Import(TestSecurityConfig.class)
+class BinaryCodecsWebTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private GameService gameService;
+
+    @Autowired
+    private QuestPacks quests;
+
+    @MockBean
+    private JwtWebFilter jwtWebFilter;
+
+    @BeforeEach
+    void stubs() {
+        Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
+                .thenAnswer(inv -> inv.<WebFilterChain>getArgument(1).filter(inv.getArgument(0)));
+        Mockito.when(gameService.getAvailableCrafts(Mockito.any(GameState.class))).thenReturn(Flux.empty());
+        Mockito.when(gameService.packOf(Mockito.any(GameState.class))).thenReturn(quests.get("classic"));
+
+        GameState state = new GameState();
+        state.setId(5L);
+        state.setCurrentLocation("Лес");
+        state.setPlotProgress("Вы стоите на опушке тёмного леса.");
+        state.setHealth(100);
+        Mockito.when(gameService.byId(5L)).thenReturn(Mono.just(state));
+
+        InventoryItem potion = new InventoryItem();
+        potion.setId(1L);
+        potion.setGameStateId(5L);
+        potion.setName("Зелье");
+        potion.setDescription("Восстанавливает здоровье");
+        Mockito.when(gameService.listInventory(5L)).thenReturn(Flux.just(potion, potion));
+    }
+
+    @Test
+    @DisplayName("Без Accept — JSON; Accept: application/cbor — CBOR того же содержания")
+    void gameState_negotiatesCbor() throws Exception {
+        webTestClient.get().uri("/api/games/5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+
+        byte[] body = webTestClient.get().uri("/api/games/5")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        ObjectMapper cbor = BinaryCodecsConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+        GameStateDto dto = cbor.readValue(body, GameStateDto.class);
+        assertThat(dto.getPlotProgress()).isEqualTo("Вы стоите на опушке тёмного леса.");
+        assertThat(dto.getActions()).first().satisfies(a -> assertThat(a.getLabel()).isEqualTo("Идти в замок"));
+    }
+
+    @Test
+    @DisplayName("Список (Flux) в CBOR и Smile пишется одним массивом")
+    void inventory_negotiatesCborAndSmile() throws Exception {
+        TypeReference<List<InventoryItemDto>> listType = new TypeReference<>() {};
+
+        byte[] cborBody = webTestClient.get().uri("/api/games/5/inventory")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertThat(BinaryCodecsConfig.cborMapper(Jackson2ObjectMapperBuilder.json()).readValue(cborBody, listType))
+                .hasSize(2);
+
+        byte[] smileBody = webTestClient.get().uri("/api/games/5/inventory")
+                .accept(MediaType.parseMediaType(BinaryCodecsConfig.APPLICATION_SMILE_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertThat(BinaryCodecsConfig.smileMapper(Jackson2ObjectMapperBuilder.json()).readValue(smileBody, listType))
+                .extracting(InventoryItemDto::getName).containsExactly("Зелье", "Зелье");
+    }
+}
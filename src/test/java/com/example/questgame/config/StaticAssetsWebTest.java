@@ -0,0 +1,52 @@
+package com.example.questgame.config;
+
+import com.example.questgame.QuestGameApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = QuestGameApplication.class
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+@Import(TestSecurityConfig.class)
+class StaticAssetsWebTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private StaticAssetManifest manifest;
+
+    @Test
+    @DisplayName("Статика по URL с хэшем — immutable-кэш, по старому URL — no-cache")
+    void versionedAsset_isImmutable() {
+        String url = manifest.rewrite("/js/game.js");
+        assertThat(url).matches("/js/game-[0-9a-f]{32}\\.js");
+
+        webTestClient.get().uri(url)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("Cache-Control", cc -> assertThat(cc).contains("immutable", "max-age=31536000"));
+
+        webTestClient.get().uri(url)
+                .header("Accept-Encoding", "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Content-Encoding", "gzip");
+
+        webTestClient.get().uri("/js/game.js")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("Cache-Control", cc -> assertThat(cc).isEqualTo("no-cache"));
+    }
+}
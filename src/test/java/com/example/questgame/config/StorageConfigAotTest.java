@@ -0,0 +1,130 @@
+package com.example.questgame.config;
+
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.storage.GameStore;
+import com.example.questgame.storage.InMemoryGameStore;
+import com.example.questgame.storage.R2dbcGameStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.javapoet.ClassName;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Выбор хранилища в AOT-сборке (mvn -Pfast-start): контекст обрабатывается AOT с профилем prod и
+ * backend по умолчанию, сгенерированный код компилируется и запускается с app.storage.backend=memory —
+ * как запуск собранного jar с -Dspring.aot.enabled=true.
+ */
+class StorageConfigAotTest {
+
+    @TempDir
+    Path out;
+
+    @Test
+    @DisplayName("AOT собран с prod и r2dbc, запуск с backend=memory — хранилище в памяти")
+    void aotContext_honoursBackendAtRuntime() throws Exception {
+        ApplicationContextInitializer<GenericApplicationContext> aot = processAheadOfTime();
+
+        try (GenericApplicationContext memory = run(aot, "memory")) {
+            assertThat(memory.getBean(GameStore.class)).isInstanceOf(InMemoryGameStore.class);
+        }
+        try (GenericApplicationContext r2dbc = run(aot, "r2dbc")) {
+            assertThat(r2dbc.getBean(GameStore.class)).isInstanceOf(R2dbcGameStore.class);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ApplicationContextInitializer<GenericApplicationContext> processAheadOfTime() throws Exception {
+        GenericApplicationContext build = new GenericApplicationContext();
+        build.getEnvironment().setActiveProfiles("prod");
+        build.registerBean(StorageConfig.class);
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(build);
+
+        InMemoryGeneratedFiles files = new InMemoryGeneratedFiles();
+        DefaultGenerationContext generation = new DefaultGenerationContext(
+                new ClassNameGenerator(ClassName.get(StorageConfigAotTest.class)), files);
+        ClassName initializer = new ApplicationContextAotGenerator().processAheadOfTime(build, generation);
+        generation.writeGeneratedContent();
+
+        List<String> args = new ArrayList<>(List.of(
+                "-classpath", classpath(), "-d", out.toString(), "-proc:none", "-encoding", "UTF-8"));
+        for (Map.Entry<String, InputStreamSource> source : files.getGeneratedFiles(GeneratedFiles.Kind.SOURCE).entrySet()) {
+            Path file = out.resolve("src").resolve(source.getKey());
+            write(file, source.getValue());
+            args.add(file.toString());
+        }
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        assertThat(javac.run(null, null, errors, args.toArray(String[]::new))).as(errors.toString()).isZero();
+
+        // сгенерированные классы обращаются к package-private членам своих пакетов (как в собранном jar) —
+        // определяем их в загрузчике приложения, в пакете соседнего класса
+        try (Stream<Path> classes = Files.walk(out)) {
+            for (Path file : classes.filter(c -> c.toString().endsWith(".class")).sorted().toList()) {
+                String name = out.relativize(file).toString().replace(File.separatorChar, '.').replace(".class", "");
+                Class<?> neighbour = Class.forName(name.split("__|\\$\\$")[0]);
+                MethodHandles.privateLookupIn(neighbour, MethodHandles.lookup()).defineClass(Files.readAllBytes(file));
+            }
+        }
+        return (ApplicationContextInitializer<GenericApplicationContext>)
+                Class.forName(initializer.reflectionName()).getDeclaredConstructor().newInstance();
+    }
+
+    /** Запуск «собранного» контекста: определения бинов только из AOT-кода, условия заново не вычисляются. */
+    private static GenericApplicationContext run(ApplicationContextInitializer<GenericApplicationContext> aot,
+                                                 String backend) {
+        GenericApplicationContext runtime = new GenericApplicationContext();
+        runtime.getEnvironment().setActiveProfiles("prod");
+        runtime.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("test", Map.of("app.storage.backend", backend)));
+        aot.initialize(runtime);
+        registerRepositories(runtime);
+        runtime.refresh();
+        return runtime;
+    }
+
+    // репозитории в приложении даёт Spring Data (в AOT-коде — своими определениями); здесь — моки для R2dbcGameStore
+    private static void registerRepositories(GenericApplicationContext context) {
+        context.registerBean(GameStateRepository.class, () -> Mockito.mock(GameStateRepository.class));
+        context.registerBean(InventoryItemRepository.class, () -> Mockito.mock(InventoryItemRepository.class));
+    }
+
+    private static void write(Path file, InputStreamSource content) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (InputStream in = content.getInputStream()) {
+            Files.copy(in, file);
+        }
+    }
+
+    // surefire передаёт classpath манифестом booter-jar'а; javac читает его Class-Path
+    private static String classpath() {
+        return System.getProperty("java.class.path");
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.questgame.config;
+
+import com.example.questgame.exception.DatabaseUnavailableException;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.repository.GameArchiveRepository;
+import com.example.questgame.repository.GameDeltaRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.repository.OutboxRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Тестовая «БД» в памяти для app.storage.backend=r2dbc: репозитории игр, инвентаря, outbox и архива
+ * и журнал отмены — на картах, транзакции — без соединения (и без отката). R2dbcGameStore и путь
+ * GameService для долговечного хранилища (транзакция команды, outbox, журнал отмены, снимки) работают
+ * как с MySQL, но без неё. {@link TestDatabase#down(boolean)} — БД «упала»: вызовы отказывают, как
+ * при открытом предохранителе.
+ */
+@TestConfiguration
+public class TestDatabaseConfig {
+
+    /** Состояние тестовой БД: таблицы и переключатель доступности. */
+    public static class TestDatabase {
+        private final Map<Long, GameState> states = new ConcurrentHashMap<>();
+        private final Map<Long, InventoryItem> items = new ConcurrentSkipListMap<>();
+        private final Map<Long, TreeMap<Long, byte[]>> deltas = new ConcurrentHashMap<>();
+        private final AtomicLong stateSeq = new AtomicLong();
+        private final AtomicLong itemSeq = new AtomicLong();
+        private volatile boolean down;
+
+        public void down(boolean down) {
+            this.down = down;
+        }
+    }
+
+    @Bean
+    public TestDatabase testDatabase() {
+        return new TestDatabase();
+    }
+
+    @Bean
+    @Primary
+    public GameStateRepository testGameStateRepository(TestDatabase db) {
+        return repository(GameStateRepository.class, db, (method, args) -> switch (method) {
+            case "findById" -> Mono.justOrEmpty(db.states.get((Long) args[0])).map(s -> copy(s, new GameState()));
+            case "save" -> Mono.fromSupplier(() -> {
+                GameState s = (GameState) args[0];
+                if (s.getId() == null) s.setId(db.stateSeq.incrementAndGet());
+                db.states.put(s.getId(), copy(s, new GameState()));
+                return s;
+            });
+            default -> null;
+        });
+    }
+
+    @Bean
+    @Primary
+    public InventoryItemRepository testInventoryItemRepository(TestDatabase db) {
+        return repository(InventoryItemRepository.class, db, (method, args) -> switch (method) {
+            case "findById" -> Mono.justOrEmpty(db.items.get((Long) args[0])).map(i -> copy(i, new InventoryItem()));
+            case "findByGameStateId" -> Flux.defer(() -> Flux.fromIterable(itemsOf(db, (Long) args[0])));
+            case "findFirstByGameStateIdAndNameIgnoreCase" -> Mono.fromSupplier(() -> itemsOf(db, (Long) args[0]).stream()
+                    .filter(i -> ((String) args[1]).equalsIgnoreCase(i.getName()))
+                    .findFirst().orElse(null));
+            case "save" -> Mono.fromSupplier(() -> {
+                InventoryItem i = (InventoryItem) args[0];
+                if (i.getId() == null) i.setId(db.itemSeq.incrementAndGet());
+                db.items.put(i.getId(), copy(i, new InventoryItem()));
+                return i;
+            });
+            case "deleteById" -> Mono.fromRunnable(() -> db.items.remove((Long) args[0]));
+            default -> null;
+        });
+    }
+
+    @Bean
+    @Primary
+    public OutboxRepository testOutboxRepository(TestDatabase db) {
+        return repository(OutboxRepository.class, db, (method, args) ->
+                method.equals("saveAll") && args[0] instanceof Iterable<?> rows ? Flux.fromIterable(rows) : null);
+    }
+
+    /** Архива нет: игра, которой нет в game_states, не найдена. */
+    @Bean
+    @Primary
+    public GameArchiveRepository testGameArchiveRepository(TestDatabase db) {
+        return repository(GameArchiveRepository.class, db, (method, args) -> null);
+    }
+
+    @Bean
+    @Primary
+    public GameDeltaRepository testGameDeltaRepository(TestDatabase db) {
+        return new GameDeltaRepository(null) {
+            @Override
+            public Mono<Long> append(Long gameStateId, byte[] payload, int depth) {
+                return available(db, () -> Mono.fromSupplier(() -> {
+                    TreeMap<Long, byte[]> steps = journal(gameStateId);
+                    synchronized (steps) {
+                        long step = steps.isEmpty() ? 1 : steps.lastKey() + 1;
+                        steps.put(step, payload);
+                        steps.headMap(step - depth, true).clear();
+                        return 1L;
+                    }
+                }));
+            }
+
+            @Override
+            public Flux<Row> findLatest(Long gameStateId, int limit) {
+                return available(db, () -> Mono.fromSupplier(() -> rows(gameStateId, 0))).flatMapMany(Flux::fromIterable)
+                        .take(limit);
+            }
+
+            @Override
+            public Flux<Row> findAfter(Long gameStateId, long step) {
+                return available(db, () -> Mono.fromSupplier(() -> rows(gameStateId, step))).flatMapMany(Flux::fromIterable);
+            }
+
+            @Override
+            public Mono<Long> deleteFrom(Long gameStateId, long fromStep) {
+                return available(db, () -> Mono.fromSupplier(() -> {
+                    TreeMap<Long, byte[]> steps = journal(gameStateId);
+                    synchronized (steps) {
+                        long n = steps.tailMap(fromStep, true).size();
+                        steps.tailMap(fromStep, true).clear();
+                        return n;
+                    }
+                }));
+            }
+
+            @Override
+            public Mono<Long> deleteOrphans(Collection<Long> gameStateIds) {
+                return Mono.just(0L);
+            }
+
+            private TreeMap<Long, byte[]> journal(Long gameStateId) {
+                return db.deltas.computeIfAbsent(gameStateId, id -> new TreeMap<>());
+            }
+
+            // от новых к старым, как ORDER BY step DESC
+            private List<Row> rows(Long gameStateId, long after) {
+                TreeMap<Long, byte[]> steps = journal(gameStateId);
+                List<Row> out = new ArrayList<>();
+                synchronized (steps) {
+                    steps.tailMap(after, false).descendingMap().forEach((step, payload) -> out.add(new Row(step, payload)));
+                }
+                return out;
+            }
+        };
+    }
+
+    /** Транзакция без соединения: commit и rollback ничего не делают — записанное в карты остаётся. */
+    @Bean
+    public ReactiveTransactionManager testTransactionManager() {
+        return new AbstractReactiveTransactionManager() {
+            @Override
+            protected Object doGetTransaction(TransactionSynchronizationManager sync) {
+                return new Object();
+            }
+
+            @Override
+            protected Mono<Void> doBegin(TransactionSynchronizationManager sync, Object tx, TransactionDefinition def) {
+                return Mono.empty();
+            }
+
+            @Override
+            protected Mono<Void> doCommit(TransactionSynchronizationManager sync, GenericReactiveTransaction status) {
+                return Mono.empty();
+            }
+
+            @Override
+            protected Mono<Void> doRollback(TransactionSynchronizationManager sync, GenericReactiveTransaction status) {
+                return Mono.empty();
+            }
+        };
+    }
+
+    private static List<InventoryItem> itemsOf(TestDatabase db, Long gameStateId) {
+        List<InventoryItem> out = new ArrayList<>();
+        for (InventoryItem i : db.items.values()) {
+            if (Objects.equals(i.getGameStateId(), gameStateId)) out.add(copy(i, new InventoryItem()));
+        }
+        return out;
+    }
+
+    private static <T> T copy(T from, T to) {
+        BeanUtils.copyProperties(from, to);
+        return to;
+    }
+
+    private static <T> Mono<T> available(TestDatabase db, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> db.down ? Mono.error(unavailable()) : call.get());
+    }
+
+    private static DatabaseUnavailableException unavailable() {
+        return new DatabaseUnavailableException("БД недоступна, повторите позже", 2);
+    }
+
+    /**
+     * Репозиторий-прокси: calls отвечает на поддержанные методы, на остальные (null) — пустой Mono/Flux,
+     * как запрос без строк. При «упавшей» БД любой вызов отказывает.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, TestDatabase db, BiFunction<String, Object[], Object> calls) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "test " + type.getSimpleName();
+                };
+            }
+            Object result = calls.apply(method.getName(), args);
+            if (Flux.class.isAssignableFrom(method.getReturnType())) {
+                Flux<?> rows = result == null ? Flux.empty() : (Flux<?>) result;
+                return Flux.defer(() -> db.down ? Flux.error(unavailable()) : rows);
+            }
+            Mono<?> row = result == null ? Mono.empty() : (Mono<?>) result;
+            return available(db, () -> row);
+        });
+    }
+}
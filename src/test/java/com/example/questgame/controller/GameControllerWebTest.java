@@ -1,13 +1,17 @@
 package com.example.questgame.controller;
 
 import com.example.questgame.QuestGameApplication;
+import com.example.questgame.config.TestDatabaseConfig;
 import com.example.questgame.config.TestSecurityConfig;
-import com.example.questgame.model.GameState;
 import com.example.questgame.security.JwtWebFilter;
 import com.example.questgame.service.GameService;
+import com.example.questgame.storage.GameStore;
+import com.example.questgame.storage.InMemoryGameStore;
+import com.example.questgame.storage.R2dbcGameStore;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,96 +20,287 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
-import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Hooks;
-import reactor.core.publisher.Mono;
-
-@SpringBootTest(
-        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
-        classes = QuestGameApplication.class
-)
-@AutoConfigureWebTestClient
-@ActiveProfiles("test")
-@Import(TestSecurityConfig.class)
-class GameControllerWebTest {
 
-    @Autowired
-    private WebTestClient webTestClient;
+import static org.assertj.core.api.Assertions.assertThat;
 
-    @MockBean
-    private GameService gameService;
+/**
+ * Сценарии GameController на обоих хранилищах игр (app.storage.backend) с настоящим GameService:
+ * R2DBC — R2dbcGameStore поверх {@link TestDatabaseConfig}, память — {@link InMemoryGameStore}.
+ */
+class GameControllerWebTest {
 
-    @MockBean
-    private JwtWebFilter jwtWebFilter;
+    private static final String CAVE_RU = "Вы в тёмной пещере. Здесь можно попытаться решить загадку.";
+    private static final String START_RU = "Вы просыпаетесь в древнем лесу. Вокруг густая листва и странные звуки. Выберите путь.";
 
     @BeforeAll
     static void enableReactorDebug() {
         Hooks.onOperatorDebug();
     }
 
-    @BeforeEach
-    void bypassSecurityFilter() {
-        Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
-                .thenAnswer(inv -> inv.<WebFilterChain>getArgument(1).filter(inv.getArgument(0)));
+    @Nested
+    @DisplayName("app.storage.backend=r2dbc")
+    @Import(TestDatabaseConfig.class)
+    class OnR2dbc extends Scenarios {
+
+        @Autowired
+        private TestDatabaseConfig.TestDatabase database;
+
+        @Test
+        @DisplayName("Хранилище — R2dbcGameStore")
+        void storeIsR2dbc() {
+            assertThat(store).isInstanceOf(R2dbcGameStore.class);
+        }
+
+        @Test
+        @DisplayName("GET /api/games/{id} — повтор с If-None-Match отдаёт 304, не обращаясь к БД")
+        void get_ifNoneMatch_doesNotTouchDatabase() {
+            Long id = newGame();
+            String etag = webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(String.class)
+                    .getResponseHeaders().getETag();
+
+            database.down(true);
+            try {
+                webTestClient.get()
+                        .uri("/api/games/{id}", id)
+                        .header("If-None-Match", etag)
+                        .exchange()
+                        .expectStatus().isNotModified();
+            } finally {
+                database.down(false);
+            }
+        }
+
+        @Test
+        @DisplayName("БД недоступна: GET игры — из последнего снимка с X-Data-Stale, команда — 503 DB_UNAVAILABLE")
+        void databaseDown_getServesSnapshot_commandFailsFast() {
+            Long id = newGame();
+            webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().doesNotExist(GameController.STALE_HEADER);
+
+            database.down(true);
+            try {
+                webTestClient.get()
+                        .uri("/api/games/{id}", id)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectHeader().valueEquals(GameController.STALE_HEADER, "true")
+                        .expectBody()
+                        .jsonPath("$.currentLocation").isEqualTo("лес")
+                        .jsonPath("$.health").isEqualTo(100);
 
-        // важные стабы для фасада:
-        Mockito.when(gameService.getAvailableCrafts(Mockito.anyLong()))
-                .thenReturn(Flux.empty()); // теперь Flux, не Mono<List>
+                progress(id, "go_cave")
+                        .exchange()
+                        .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                        .expectHeader().valueEquals("Retry-After", "2")
+                        .expectBody()
+                        .jsonPath("$.code").isEqualTo("DB_UNAVAILABLE");
+            } finally {
+                database.down(false);
+            }
+        }
 
-        Mockito.when(gameService.getAvailableActionKeys(Mockito.any(GameState.class)))
-                .thenReturn(Flux.empty()); // иначе будет NPE внутри фасада
+        @Test
+        @DisplayName("POST /api/games/{id}/undo — шаг отменяется по журналу: снова лес и стартовый текст")
+        void undo_restoresPreviousStep() {
+            Long id = newGame();
+            progress(id, "go_cave").exchange().expectStatus().isOk();
+
+            webTestClient.post()
+                    .uri("/api/games/{id}/undo", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.currentLocation").isEqualTo("лес")
+                    .jsonPath("$.plotProgress").isEqualTo(START_RU)
+                    .jsonPath("$.health").isEqualTo(100);
+        }
     }
 
-    @Test
-    @DisplayName("POST /api/games/progress — OK, возвращает GameState/DTO")
-    void progress_ok_returnsGameState() {
-        long gameStateId = 5L;
-        String choice = "Идти в лес";
-
-        GameState state = new GameState();
-        state.setId(gameStateId);
-        state.setCurrentLocation("Лес");
-        state.setPlotProgress("Начало");
-        state.setHealth(100);
-
-        Mockito.when(gameService.updatePlot(gameStateId, choice))
-                .thenReturn(Mono.just(state));
-
-        webTestClient.post()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/games/progress")
-                        .queryParam("gameStateId", gameStateId)
-                        .queryParam("choice", choice)
-                        .build())
-                .exchange()
-                .expectStatus().isOk()
-                .expectBody()
-                .jsonPath("$.id").isEqualTo((int) gameStateId)
-                .jsonPath("$.currentLocation").isEqualTo("Лес")
-                .jsonPath("$.health").isEqualTo(100);
+    @Nested
+    @DisplayName("app.storage.backend=memory")
+    @TestPropertySource(properties = "app.storage.backend=memory")
+    class OnMemory extends Scenarios {
+
+        @Test
+        @DisplayName("Хранилище — InMemoryGameStore, не долговечное")
+        void storeIsInMemory() {
+            assertThat(store).isInstanceOf(InMemoryGameStore.class);
+            assertThat(store.durable()).isFalse();
+        }
+
+        @Test
+        @DisplayName("POST /api/games/{id}/undo — 400: журнала отмены у хранилища в памяти нет")
+        void undo_unavailable() {
+            Long id = newGame();
+            progress(id, "go_cave").exchange().expectStatus().isOk();
+
+            webTestClient.post()
+                    .uri("/api/games/{id}/undo", id)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+        }
     }
 
-    @Test
-    @DisplayName("POST /api/games/progress — NOT_FOUND, если игра не найдена")
-    void progress_notFound_returns404() {
-        long gameStateId = 42L;
-        String choice = "Куда-то";
-
-        Mockito.when(gameService.updatePlot(gameStateId, choice))
-                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Game state not found")));
-
-        webTestClient.post()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/games/progress")
-                        .queryParam("gameStateId", gameStateId)
-                        .queryParam("choice", choice)
-                        .build())
-                .exchange()
-                .expectStatus().isNotFound();
+    @SpringBootTest(
+            webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            classes = QuestGameApplication.class
+    )
+    @AutoConfigureWebTestClient
+    @ActiveProfiles("test")
+    @Import(TestSecurityConfig.class)
+    abstract class Scenarios {
+
+        @Autowired
+        WebTestClient webTestClient;
+
+        @Autowired
+        GameService gameService;
+
+        @Autowired
+        GameStore store;
+
+        @MockBean
+        JwtWebFilter jwtWebFilter;
+
+        @BeforeEach
+        void bypassSecurityFilter() {
+            Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
+                    .thenAnswer(inv -> inv.<WebFilterChain>getArgument(1).filter(inv.getArgument(0)));
+        }
+
+        @Test
+        @DisplayName("POST /api/games/progress — OK, шаг сделан: пещера, здоровье и текст сюжета")
+        void progress_ok_returnsGameState() {
+            Long id = newGame();
+
+            progress(id, "go_cave")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.id").isEqualTo(id.intValue())
+                    .jsonPath("$.currentLocation").isEqualTo("пещера")
+                    .jsonPath("$.health").isEqualTo(100)
+                    .jsonPath("$.plotProgress").isEqualTo(CAVE_RU);
+        }
+
+        @Test
+        @DisplayName("POST /api/games/progress — текст сюжета из кода каталога на языке Accept-Language")
+        void progress_plotCode_resolvedPerAcceptLanguage() {
+            Long id = newGame();
+
+            progress(id, "go_village")
+                    .header("Accept-Language", "en-US,en;q=0.9")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.plotProgress").isEqualTo("You are in the village. The villagers ask you to find the artifact in the cave.");
+
+            webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.currentLocation").isEqualTo("деревня")
+                    .jsonPath("$.plotProgress").isEqualTo("Вы в деревне. Жители просят найти артефакт в пещере.");
+        }
+
+        @Test
+        @DisplayName("POST /api/games/progress — NOT_FOUND, если игра не найдена")
+        void progress_notFound_returns404() {
+            progress(999_999L, "go_cave")
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+
+        @Test
+        @DisplayName("POST /api/games/progress — повтор с тем же Idempotency-Key не выполняет шаг второй раз")
+        void progress_sameIdempotencyKey_runsOnce() {
+            Long id = newGame();
+            String key = "retry-" + id;
+
+            // второй go_cave из пещеры недоступен — выполнись шаг повторно, текст сменился бы
+            for (int i = 0; i < 2; i++) {
+                progress(id, "go_cave")
+                        .header("Idempotency-Key", key)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.currentLocation").isEqualTo("пещера")
+                        .jsonPath("$.plotProgress").isEqualTo(CAVE_RU);
+            }
+            webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.plotProgress").isEqualTo(CAVE_RU);
+        }
+
+        @Test
+        @DisplayName("GET /api/games/{id} — ETag; If-None-Match отдаёт 304, после шага тег меняется, у CBOR свой")
+        void get_ifNoneMatch_returns304() {
+            Long id = newGame();
+
+            String etag = webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().exists("ETag")
+                    .returnResult(String.class)
+                    .getResponseHeaders().getETag();
+
+            webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .header("If-None-Match", etag)
+                    .exchange()
+                    .expectStatus().isNotModified();
+
+            // тот же тег при Accept: CBOR — другое представление, 304 недопустим
+            String cborTag = webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .accept(MediaType.APPLICATION_CBOR)
+                    .header("If-None-Match", etag)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(byte[].class)
+                    .getResponseHeaders().getETag();
+            assertThat(cborTag).isNotEqualTo(etag);
+
+            progress(id, "go_cave").exchange().expectStatus().isOk();
+            webTestClient.get()
+                    .uri("/api/games/{id}", id)
+                    .header("If-None-Match", etag)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.currentLocation").isEqualTo("пещера");
+        }
+
+        Long newGame() {
+            return gameService.createNewGame(5L).block().getId();
+        }
+
+        WebTestClient.RequestHeadersSpec<?> progress(Long id, String choice) {
+            return webTestClient.post()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/api/games/progress")
+                            .queryParam("gameStateId", id)
+                            .queryParam("choice", choice)
+                            .build());
+        }
     }
 }
@@ -1,12 +1,18 @@
 package com.example.questgame.controller;
 
 import com.example.questgame.QuestGameApplication;
+import com.example.questgame.config.TestDatabaseConfig;
 import com.example.questgame.config.TestSecurityConfig;
 import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
 import com.example.questgame.security.JwtWebFilter;
 import com.example.questgame.service.GameService;
+import com.example.questgame.storage.GameStore;
+import com.example.questgame.storage.InMemoryGameStore;
+import com.example.questgame.storage.R2dbcGameStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,71 +21,131 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-
-@SpringBootTest(
-        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
-        classes = QuestGameApplication.class
-)
-@AutoConfigureWebTestClient
-@ActiveProfiles("test")
-@Import(TestSecurityConfig.class)
-class InventoryControllerWebTest {
 
-    @Autowired
-    private WebTestClient webTestClient;
+import static org.assertj.core.api.Assertions.assertThat;
 
-    @MockBean
-    private GameService gameService;
+/**
+ * Сценарии InventoryController на обоих хранилищах игр (app.storage.backend) с настоящим GameService:
+ * R2DBC — R2dbcGameStore поверх {@link TestDatabaseConfig}, память — {@link InMemoryGameStore}.
+ */
+class InventoryControllerWebTest {
 
-    @MockBean
-    private JwtWebFilter jwtWebFilter;
+    @Nested
+    @DisplayName("app.storage.backend=r2dbc")
+    @Import(TestDatabaseConfig.class)
+    class OnR2dbc extends Scenarios {
 
-    @BeforeEach
-    void bypassSecurityFilter() {
-        Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
-                .thenAnswer(inv -> {
-                    ServerWebExchange exchange = inv.getArgument(0);
-                    WebFilterChain chain = inv.getArgument(1);
-                    return chain.filter(exchange);
-                });
+        @Test
+        @DisplayName("Хранилище — R2dbcGameStore")
+        void storeIsR2dbc() {
+            assertThat(store).isInstanceOf(R2dbcGameStore.class);
+        }
+    }
 
-        Mockito.when(gameService.getAvailableCrafts(Mockito.anyLong()))
-                .thenReturn(Flux.empty());
+    @Nested
+    @DisplayName("app.storage.backend=memory")
+    @TestPropertySource(properties = "app.storage.backend=memory")
+    class OnMemory extends Scenarios {
 
-        Mockito.when(gameService.getAvailableActionKeys(Mockito.any(GameState.class)))
-                .thenReturn(Flux.empty());
+        @Test
+        @DisplayName("Хранилище — InMemoryGameStore")
+        void storeIsInMemory() {
+            assertThat(store).isInstanceOf(InMemoryGameStore.class);
+        }
     }
 
-    @Test
-    @DisplayName("POST /api/games/{id}/inventory/use — OK, возвращает обновлённый GameStateDto")
-    void use_returnsUpdatedState() {
-        long gameStateId = 9L;
-        long itemId = 7L;
-
-        GameState state = new GameState();
-        state.setId(gameStateId);
-        state.setCurrentLocation("Пещера");
-        state.setPlotProgress("Вы использовали предмет");
-        state.setHealth(85);
-
-        Mockito.when(gameService.useItem(gameStateId, itemId))
-                .thenReturn(Mono.just(state));
-
-        webTestClient.post()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/games/{gameStateId}/inventory/use")
-                        .queryParam("itemId", itemId)
-                        .build(gameStateId))
-                .exchange()
-                .expectStatus().isOk()
-                .expectBody()
-                .jsonPath("$.id").isEqualTo((int) gameStateId)
-                .jsonPath("$.currentLocation").isEqualTo("Пещера")
-                .jsonPath("$.health").isEqualTo(85);
+    @SpringBootTest(
+            webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            classes = QuestGameApplication.class
+    )
+    @AutoConfigureWebTestClient
+    @ActiveProfiles("test")
+    @Import(TestSecurityConfig.class)
+    abstract class Scenarios {
+
+        @Autowired
+        WebTestClient webTestClient;
+
+        @Autowired
+        GameService gameService;
+
+        @Autowired
+        GameStore store;
+
+        @MockBean
+        JwtWebFilter jwtWebFilter;
+
+        @BeforeEach
+        void bypassSecurityFilter() {
+            Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
+                    .thenAnswer(inv -> inv.<WebFilterChain>getArgument(1).filter(inv.getArgument(0)));
+        }
+
+        @Test
+        @DisplayName("POST /api/games/{id}/inventory/use — зелье лечит +30 и расходуется; GET инвентаря пуст")
+        void use_returnsUpdatedState() {
+            GameState game = gameService.createNewGame(9L).block();
+            game.setHealth(50);
+            store.saveState(game).block();
+            Long itemId = store.saveItem(potion(game.getId())).block().getId();
+
+            webTestClient.get()
+                    .uri("/api/games/{id}/inventory", game.getId())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.length()").isEqualTo(1)
+                    .jsonPath("$[0].id").isEqualTo(itemId.intValue())
+                    .jsonPath("$[0].name").isEqualTo("зелье")
+                    .jsonPath("$[0].description").isEqualTo("Зелье лечения");
+
+            webTestClient.post()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/api/games/{gameStateId}/inventory/use")
+                            .queryParam("itemId", itemId)
+                            .build(game.getId()))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.id").isEqualTo(game.getId().intValue())
+                    .jsonPath("$.currentLocation").isEqualTo("лес")
+                    .jsonPath("$.health").isEqualTo(80)
+                    .jsonPath("$.plotProgress").value(plot ->
+                            assertThat((String) plot).startsWith("Вы использовали зелье. Здоровье +30."));
+
+            webTestClient.get()
+                    .uri("/api/games/{id}/inventory", game.getId())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.length()").isEqualTo(0);
+            assertThat(store.findItem(itemId).block()).isNull();
+        }
+
+        @Test
+        @DisplayName("POST /api/games/{id}/inventory/use — NOT_FOUND, если предмета нет")
+        void use_missingItem_returns404() {
+            Long id = gameService.createNewGame(9L).block().getId();
+
+            webTestClient.post()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/api/games/{gameStateId}/inventory/use")
+                            .queryParam("itemId", 999_999L)
+                            .build(id))
+                    .exchange()
+                    .expectStatus().isNotFound();
+        }
+
+        private InventoryItem potion(Long gameStateId) {
+            InventoryItem potion = new InventoryItem();
+            potion.setGameStateId(gameStateId);
+            potion.setName("зелье");
+            potion.setDescription("Зелье лечения");
+            return potion;
+        }
     }
 }
@@ -0,0 +1,104 @@
+package com.example.questgame.controller;
+
+import com.example.questgame.QuestGameApplication;
+import com.example.questgame.config.TestSecurityConfig;
+import com.example.questgame.dto.WorldEventDto;
+import com.example.questgame.security.JwtWebFilter;
+import com.example.questgame.service.WorldEventService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = QuestGameApplication.class
+)
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+@Import(TestSecurityConfig.class)
+class WorldControllerWebTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private WorldEventService world;
+
+    @MockBean
+    private JwtWebFilter jwtWebFilter;
+
+    @BeforeEach
+    void bypassSecurityFilter() {
+        Mockito.when(jwtWebFilter.filter(Mockito.any(ServerWebExchange.class), Mockito.any(WebFilterChain.class)))
+                .thenAnswer(inv -> {
+                    ServerWebExchange exchange = inv.getArgument(0);
+                    WebFilterChain chain = inv.getArgument(1);
+                    return chain.filter(exchange);
+                });
+    }
+
+    @AfterEach
+    void endEvent() {
+        world.end("dragon_sleeps");
+    }
+
+    @Test
+    @DisplayName("GET /api/world/events — идущее событие, затем живое объявление о конце")
+    void events_streamSnapshotThenLive() {
+        world.start("dragon_sleeps", Duration.ofMinutes(10));
+
+        var body = webTestClient.get().uri("/api/world/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<WorldEventDto>>() {})
+                .getResponseBody();
+
+        StepVerifier.create(body)
+                .assertNext(e -> {
+                    assertThat(e.event()).isEqualTo(WorldEventDto.STARTED);
+                    assertThat(e.data().getName()).isEqualTo("dragon_sleeps");
+                    assertThat(e.data().getMessage()).startsWith("Дракон уснул");
+                    assertThat(e.data().getEndsAt()).isGreaterThan(System.currentTimeMillis());
+                })
+                .then(() -> world.end("dragon_sleeps"))
+                .assertNext(e -> {
+                    assertThat(e.event()).isEqualTo(WorldEventDto.ENDED);
+                    assertThat(Long.parseLong(e.id())).isEqualTo(e.data().getVersion());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("GET /api/world — идущие события готовым JSON")
+    void active_listsRunningEvents() {
+        world.start("dragon_sleeps", null);
+
+        webTestClient.get().uri("/api/world")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].type").isEqualTo("started")
+                .jsonPath("$[0].name").isEqualTo("dragon_sleeps");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.questgame.facade;
+
+import com.example.questgame.limit.DatabaseBreakerProperties;
+import com.example.questgame.model.GameState;
+import com.example.questgame.service.GameVersions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LastKnownGoodTest {
+
+    @Test
+    @DisplayName("Снимки ограничены snapshot-size: старые игры вытесняются, свежие остаются; отдаётся копия")
+    void snapshots_boundedAndCopied() {
+        DatabaseBreakerProperties props = new DatabaseBreakerProperties();
+        props.setSnapshotSize(100);
+        LastKnownGood snapshots = new LastKnownGood(props, new GameVersions());
+
+        for (long id = 1; id <= 1_000; id++) snapshots.remember(state(id));
+
+        long kept = 0;
+        for (long id = 1; id <= 1_000; id++) if (snapshots.state(id) != null) kept++;
+        assertThat(kept).isBetween(50L, 100L);
+        assertThat(snapshots.state(1L)).isNull();
+        assertThat(snapshots.state(1_000L).getHealth()).isEqualTo(1_000);
+
+        snapshots.state(1_000L).setHealth(1);
+        assertThat(snapshots.state(1_000L).getHealth()).isEqualTo(1_000);
+    }
+
+    @Test
+    @DisplayName("disabled() ничего не запоминает")
+    void disabled_remembersNothing() {
+        LastKnownGood off = LastKnownGood.disabled();
+        off.remember(state(1L));
+        assertThat(off.state(1L)).isNull();
+    }
+
+    private static GameState state(long id) {
+        GameState s = new GameState();
+        s.setId(id);
+        s.setHealth((int) id);
+        return s;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.questgame.facade;
+
+import com.example.questgame.config.BinaryCodecsConfig;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.dto.CraftDto;
+import com.example.questgame.dto.GameStateDto;
+import com.example.questgame.dto.PreEncodedCraft;
+import com.example.questgame.dto.PreEncodedRiddle;
+import com.example.questgame.quest.QuestPack;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.service.MessageCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaticFragmentsTest {
+
+    private final StaticFragments fragments = new StaticFragments();
+
+    private static QuestPack classic() {
+        return new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()).get("classic");
+    }
+
+    @Test
+    @DisplayName("Фрагмент рецепта общий в пределах пакета и заменяется, а не копится, после перезагрузки пакета")
+    void crafts_sharedPerPack_replacedOnReload() {
+        QuestPack pack = classic();
+        PreEncodedCraft blade = fragments.craft(pack, pack.recipes().get("light_blade"));
+        assertThat(fragments.craft(pack, pack.recipes().get("light_blade"))).isSameAs(blade);
+
+        for (int i = 0; i < 3; i++) {
+            QuestPack reloaded = classic();
+            assertThat(fragments.craft(reloaded, reloaded.recipes().get("light_blade"))).isNotSameAs(blade);
+        }
+        assertThat(fragments.cachedCrafts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Без регистрации модулей: JSON — готовые байты, CBOR — обычный DTO; ответ читается обратно")
+    void holders_serializeInAnyMapper() throws Exception {
+        QuestPack pack = classic();
+        PreEncodedCraft blade = fragments.craft(pack, pack.recipes().get("light_blade"));
+        PreEncodedRiddle riddle = fragments.riddle(pack);
+        GameStateDto dto = new GameStateDto(1L, "plot", 100, "cave", List.of(), false, riddle, List.of(blade));
+
+        ObjectMapper json = new ObjectMapper();
+        assertThat(json.writeValueAsString(blade)).isEqualTo(json.writeValueAsString(blade.plain()));
+        assertThat(json.readValue(json.writeValueAsBytes(dto), GameStateDto.class)).isEqualTo(dto);
+
+        ObjectMapper cbor = BinaryCodecsConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+        assertThat(cbor.readValue(cbor.writeValueAsBytes(blade), CraftDto.class)).isEqualTo(blade.plain());
+        assertThat(cbor.readValue(cbor.writeValueAsBytes(dto), GameStateDto.class).getRiddle().question())
+                .isEqualTo(riddle.question());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.questgame.limit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    @DisplayName("Стабильная задержка при полной загрузке — лимит растёт до максимума")
+    void stableLatency_growsLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 100);
+        for (int i = 0; i < 500; i++) {
+            limit.onSample(10 * MS, false, limit.getLimit());
+        }
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Рост задержки и ошибки сжимают лимит, но не ниже минимума")
+    void latencySpike_shrinksLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(50, 5, 100);
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(10 * MS, false, limit.getLimit());
+        }
+        int before = limit.getLimit();
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(200 * MS, false, limit.getLimit());
+        }
+        assertThat(limit.getLimit()).isLessThan(before);
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(200 * MS, true, limit.getLimit());
+        }
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Сверх лимита слот не выдаётся, после release — снова выдаётся")
+    void tryAcquire_respectsLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10);
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        limit.release();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.getInflight()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Токен-бакет: всплеск до burst, дальше — ожидание, простаивающие бакеты вычищаются")
+    void tokenBucket_limitsSingleClient() {
+        UserTokenBuckets buckets = new UserTokenBuckets(3, 10, 1);
+        long now = 0;
+        assertThat(buckets.tryConsume("a", now)).isZero();
+        assertThat(buckets.tryConsume("a", now)).isZero();
+        assertThat(buckets.tryConsume("a", now)).isZero();
+        long wait = buckets.tryConsume("a", now);
+        assertThat(wait).isBetween(99 * MS, 101 * MS);
+        assertThat(buckets.tryConsume("b", now)).isZero(); // другой клиент не страдает
+
+        now += 1_000 * MS;
+        assertThat(buckets.tryConsume("a", now)).isZero();
+        buckets.tryConsume("c", now + 1_000 * MS);
+        assertThat(buckets.tracked()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Токен-бакет: карта ограничена, чистка не чаще наполнения бакета, лишние клиенты делят общий бакет")
+    void tokenBucket_boundedWithoutPerRequestScans() {
+        UserTokenBuckets buckets = new UserTokenBuckets(1, 1, 2);
+        long now = 0;
+        for (int i = 0; i < 100; i++) buckets.tryConsume("u" + i, now);
+        assertThat(buckets.tracked()).isEqualTo(4);
+        // u10 и u11 попали в общий бакет: второй ждёт
+        assertThat(buckets.tryConsume("u10", now)).isPositive();
+
+        // все бакеты пусты — чистке нечего выбросить, и до наполнения она не повторяется
+        now += 500 * MS;
+        assertThat(buckets.tryConsume("new", now)).isPositive();
+        assertThat(buckets.tracked()).isEqualTo(4);
+
+        now += 1_000 * MS;
+        assertThat(buckets.tryConsume("new", now)).isZero();
+        assertThat(buckets.tracked()).isEqualTo(1);
+    }
+}
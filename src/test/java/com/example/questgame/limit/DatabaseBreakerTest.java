@@ -0,0 +1,110 @@
+package com.example.questgame.limit;
+
+import com.example.questgame.exception.DatabaseUnavailableException;
+import com.example.questgame.exception.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseBreakerTest {
+
+    /** Предохранитель без БД: исход пробы задаёт тест. */
+    private static final class TestBreaker extends DatabaseBreaker {
+        final AtomicBoolean dbUp = new AtomicBoolean(false);
+
+        TestBreaker(DatabaseBreakerProperties props) {
+            super(props, null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        protected Mono<?> probe() {
+            return dbUp.get() ? Mono.just(1) : Mono.error(new R2dbcNonTransientResourceException("connection refused"));
+        }
+    }
+
+    private static DatabaseBreakerProperties props() {
+        DatabaseBreakerProperties p = new DatabaseBreakerProperties();
+        p.setWindow(10);
+        p.setMinimumCalls(4);
+        p.setFailureRatePercent(50);
+        p.setCallTimeout(Duration.ofMillis(50));
+        p.setProbeSuccesses(2);
+        return p;
+    }
+
+    @Test
+    @DisplayName("Сбои связи открывают предохранитель; дальше отказ сразу, без вызова БД")
+    void failures_openBreaker_thenFailFast() {
+        TestBreaker breaker = new TestBreaker(props());
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.call(Mono.error(new R2dbcNonTransientResourceException("connection refused"))))
+                    .expectError(R2dbcNonTransientResourceException.class)
+                    .verify();
+        }
+        assertThat(breaker.isOpen()).isTrue();
+
+        AtomicInteger subscribed = new AtomicInteger();
+        StepVerifier.create(breaker.call(Flux.defer(() -> {
+                    subscribed.incrementAndGet();
+                    return Flux.just(1);
+                })))
+                .expectErrorSatisfies(e -> assertThat(((DatabaseUnavailableException) e).getCode())
+                        .isEqualTo(ErrorCode.DB_UNAVAILABLE))
+                .verify();
+        StepVerifier.create(breaker.command(Mono.fromCallable(subscribed::incrementAndGet)))
+                .expectError(DatabaseUnavailableException.class)
+                .verify();
+        assertThat(subscribed).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Ответы БД с ошибкой (дубликат ключа) — не сбой связи; истёкший срок — сбой")
+    void applicationErrors_doNotCount_timeoutsDo() {
+        TestBreaker breaker = new TestBreaker(props());
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(breaker.call(Mono.error(new DuplicateKeyException("dup"))))
+                    .expectError(DuplicateKeyException.class)
+                    .verify();
+        }
+        assertThat(breaker.isOpen()).isFalse();
+
+        StepVerifier.create(breaker.call(Mono.never()))
+                .expectError(DatabaseUnavailableException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(DatabaseBreaker.isDatabaseFailure(new RuntimeException(new R2dbcNonTransientResourceException())))
+                .isTrue();
+        assertThat(DatabaseBreaker.isDatabaseFailure(new DuplicateKeyException("dup"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Закрывают предохранитель только удачные пробы подряд")
+    void probes_closeBreaker() {
+        TestBreaker breaker = new TestBreaker(props());
+        for (int i = 0; i < 4; i++) {
+            breaker.call(Mono.error(new R2dbcNonTransientResourceException("down"))).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertThat(breaker.isOpen()).isTrue();
+
+        breaker.probeOnce().block();
+        assertThat(breaker.isOpen()).isTrue();
+
+        breaker.dbUp.set(true);
+        breaker.probeOnce().block();
+        assertThat(breaker.isOpen()).isTrue();
+        breaker.probeOnce().block();
+        assertThat(breaker.isOpen()).isFalse();
+
+        StepVerifier.create(breaker.call(Mono.just(7))).expectNext(7).verifyComplete();
+    }
+}
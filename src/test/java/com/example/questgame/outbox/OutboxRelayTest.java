@@ -0,0 +1,123 @@
+package com.example.questgame.outbox;
+
+import com.example.questgame.config.OutboxProperties;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.model.OutboxEvent;
+import com.example.questgame.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxRelayTest {
+
+    @TempDir Path dir;
+
+    private final TreeMap<Long, OutboxEvent> rows = new TreeMap<>();
+    private final OutboxRepository repository = repository(rows);
+    private final GameOutbox outbox = new GameOutbox(repository, null);
+    private final InProcessOutboxSink inProcess = new InProcessOutboxSink();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void drain_deliversInOrderToAllSinks_inBatches_andDeletes() throws Exception {
+        FileOutboxSink file = new FileOutboxSink(dir.resolve("events.jsonl"));
+        OutboxRelay relay = relay(2, file);
+        List<GameEventDto> seen = new CopyOnWriteArrayList<>();
+        inProcess.subscribe("test", e -> Mono.fromRunnable(() -> seen.add(e)));
+
+        outbox.append(List.of(event(GameEventDto.LOCATION_CHANGED, 1L), event(GameEventDto.ITEM_GRANTED, 1L))).block();
+        outbox.append(List.of(event(GameEventDto.PLAYER_DIED, 2L))).block();
+        outbox.append(List.of(event(GameEventDto.GAME_WON, 1L))).block();
+
+        assertThat(relay.drain().block()).isEqualTo(4L);
+        assertThat(seen).extracting(GameEventDto::getId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(seen).filteredOn(e -> e.getGameStateId() == 1L).extracting(GameEventDto::getType)
+                .containsExactly(GameEventDto.LOCATION_CHANGED, GameEventDto.ITEM_GRANTED, GameEventDto.GAME_WON);
+        assertThat(FileOutboxSink.read(file.file())).extracting(GameEventDto::getId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(rows).isEmpty();
+        assertThat(relay.pending()).isZero();
+        assertThat(relay.lagMillis()).isZero();
+        assertThat(registry.get("questgame.outbox.delivered").counter().count()).isEqualTo(4.0);
+    }
+
+    @Test
+    void failingConsumer_keepsBatch_andItIsRedelivered() throws Exception {
+        FileOutboxSink file = new FileOutboxSink(dir.resolve("events.jsonl"));
+        OutboxRelay relay = relay(10, file);
+        AtomicBoolean down = new AtomicBoolean(true);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        inProcess.subscribe("flaky", e -> down.get()
+                ? Mono.error(new IllegalStateException("недоступен"))
+                : Mono.fromRunnable(() -> seen.add(e.getId())));
+
+        OutboxEvent old = new OutboxEvent();
+        old.setGameStateId(1L);
+        old.setEventType(GameEventDto.ITEM_GRANTED);
+        old.setPayload(GameOutbox.encode(event(GameEventDto.ITEM_GRANTED, 1L)));
+        old.setCreatedAt(LocalDateTime.now().minusSeconds(30));
+        repository.save(old).block();
+
+        assertThatThrownBy(() -> relay.drain().block()).isInstanceOf(IllegalStateException.class);
+        assertThat(rows).hasSize(1);
+        assertThat(relay.lagMillis()).isGreaterThanOrEqualTo(30_000L);
+        assertThat(registry.get("questgame.outbox.failures").counter().count()).isEqualTo(1.0);
+
+        down.set(false);
+        assertThat(relay.drain().block()).isEqualTo(1L);
+        assertThat(seen).containsExactly(1L);
+        assertThat(rows).isEmpty();
+        // файловый приёмник стоит первым и получил батч оба раза — повтор, но не потеря
+        assertThat(FileOutboxSink.read(file.file())).extracting(GameEventDto::getId).containsExactly(1L, 1L);
+    }
+
+    private OutboxRelay relay(int batchSize, FileOutboxSink file) {
+        OutboxProperties props = new OutboxProperties();
+        props.setBatchSize(batchSize);
+        return new OutboxRelay(props, repository, List.of(file, inProcess), registry);
+    }
+
+    private static GameEventDto event(String type, Long gameStateId) {
+        GameEventDto e = new GameEventDto();
+        e.setType(type);
+        e.setGameStateId(gameStateId);
+        e.setAt(System.currentTimeMillis());
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static OutboxRepository repository(TreeMap<Long, OutboxEvent> rows) {
+        return (OutboxRepository) Proxy.newProxyInstance(OutboxRelayTest.class.getClassLoader(),
+                new Class<?>[]{OutboxRepository.class}, (p, m, args) -> switch (m.getName()) {
+                    case "save" -> {
+                        OutboxEvent row = (OutboxEvent) args[0];
+                        row.setId(rows.isEmpty() ? 1L : rows.lastKey() + 1);
+                        rows.put(row.getId(), row);
+                        yield Mono.just(row);
+                    }
+                    case "saveAll" -> Flux.fromIterable((Iterable<OutboxEvent>) args[0])
+                            .concatMap(row -> {
+                                row.setId(rows.isEmpty() ? 1L : rows.lastKey() + 1);
+                                rows.put(row.getId(), row);
+                                return Mono.just(row);
+                            });
+                    case "findBatch" -> Flux.fromIterable(new ArrayList<>(rows.values())).take((Integer) args[0]);
+                    case "deleteAllById" -> Mono.fromRunnable(() -> ((Iterable<Long>) args[0]).forEach(rows::remove));
+                    case "count" -> Mono.fromCallable(() -> (long) rows.size());
+                    default -> throw new UnsupportedOperationException(m.getName());
+                });
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.questgame.quest;
+
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.exception.NotFoundException;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.PlotText;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuestPacksTest {
+
+    private final MessageCatalog messages = new MessageCatalog();
+
+    private QuestPacks packs(String dir) {
+        QuestProperties props = new QuestProperties();
+        props.setDir(dir);
+        return new QuestPacks(props, new ObjectMapper(), messages);
+    }
+
+    @Test
+    void get_loadsOnceAndSharesInstance() {
+        QuestPacks packs = packs("");
+
+        QuestPack classic = packs.get(null);
+        assertThat(classic.id()).isEqualTo("classic");
+        assertThat(packs.get("classic")).isSameAs(classic);
+        assertThat(classic.start().name()).isEqualTo("лес");
+        assertThat(classic.locationOf("пещера").action("solve_riddle")).isNotNull();
+        assertThat(packs.loaded()).containsExactly(classic);
+        assertThat(packs.available()).contains("classic", "swamp");
+    }
+
+    @Test
+    void get_unknownQuest_throwsNotFound() {
+        QuestPacks packs = packs("");
+
+        assertThatThrownBy(() -> packs.get("nope")).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> packs.get("../classic")).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void outcomes_pickFirstMatchingByItemsAndRoll() {
+        QuestPack.Location forest = packs("").get("classic").location("forest");
+        QuestPack.Action search = forest.action("search_treasure");
+
+        assertThat(search.roll()).isEqualTo(10);
+        assertThat(search.choose(ctx(Set.of(), 100, 9)).message()).isEqualTo(PlotText.of("forest.sword"));
+        assertThat(search.choose(ctx(Set.of(), 100, 0)).message()).isEqualTo(PlotText.of("forest.potion"));
+
+        QuestPack.Action fight = packs("").get("classic").location("castle").action("fight_dragon");
+        assertThat(fight.choose(ctx(Set.of("меч"), 100, 0)).message()).isEqualTo(PlotText.of("end.win_sword"));
+        assertThat(fight.choose(ctx(Set.of(), 100, 0)).health()).isEqualTo(-50);
+    }
+
+    @Test
+    void packMessages_areRegisteredInCatalog() {
+        QuestPack swamp = packs("").get("swamp");
+
+        assertThat(messages.resolve(swamp.startText(), Locale.ENGLISH)).startsWith("Fog creeps over the swamp.");
+        assertThat(messages.resolve(PlotText.of("craft.done", "оберег"), Locale.ENGLISH)).isEqualTo("You crafted: charm.");
+    }
+
+    @Test
+    void reload_swapsAtomically_andKeepsOldPackOnInvalidFile(@TempDir Path dir) throws Exception {
+        QuestPacks packs = packs(dir.toString());
+        QuestPack before = packs.get("swamp");
+
+        String json = new String(QuestPacks.class.getClassLoader().getResourceAsStream("quests/swamp.json").readAllBytes(),
+                StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("swamp.json"), json.replace("Болото ведьмы", "Болото ведьмы II"));
+
+        QuestPack after = packs.reload("swamp");
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.title()).isEqualTo("Болото ведьмы II");
+        assertThat(packs.get("swamp")).isSameAs(after);
+        // старый экземпляр не меняется: команды в полёте доигрывают на нём
+        assertThat(before.title()).isEqualTo("Болото ведьмы");
+
+        Files.writeString(dir.resolve("swamp.json"), json.replace("move bog", "move nowhere"));
+        assertThatThrownBy(() -> packs.reload("swamp")).isInstanceOf(ValidationException.class)
+                .hasMessageContaining("nowhere");
+        assertThat(packs.get("swamp")).isSameAs(after);
+    }
+
+    private static RuleContext ctx(Set<String> items, int health, int roll) {
+        return new RuleContext() {
+            @Override public boolean has(String itemNameLower) { return items.contains(itemNameLower); }
+            @Override public int health() { return health; }
+            @Override public int roll() { return roll; }
+            @Override public int var(String name) { return 0; }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.questgame.quest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RuleCompilerTest {
+
+    private static final Map<String, String> ITEMS = Map.of("sword", "меч", "light_blade", "клинок света");
+
+    private static Condition when(String src) {
+        return RuleCompiler.condition(src, ITEMS::get);
+    }
+
+    @Test
+    void condition_precedenceAndComparisons() {
+        Condition c = when("has(sword) || has(light_blade) && health > 50");
+
+        // && связывает сильнее ||
+        assertThat(c.test(ctx(Set.of("меч"), 10, 0, Map.of()))).isTrue();
+        assertThat(c.test(ctx(Set.of("клинок света"), 10, 0, Map.of()))).isFalse();
+        assertThat(c.test(ctx(Set.of("клинок света"), 60, 0, Map.of()))).isTrue();
+
+        Condition grouped = when("!(has(sword) || flag(met)) && roll >= 7 && count(leeches) != 2");
+        assertThat(grouped.test(ctx(Set.of(), 0, 7, Map.of("leeches", 1)))).isTrue();
+        assertThat(grouped.test(ctx(Set.of(), 0, 7, Map.of("leeches", 2)))).isFalse();
+        assertThat(grouped.test(ctx(Set.of(), 0, 7, Map.of("met", 1)))).isFalse();
+        assertThat(grouped.test(ctx(Set.of(), 0, 6, Map.of()))).isFalse();
+
+        assertThat(when("")).isSameAs(Condition.ALWAYS);
+        assertThat(when("!false")).isSameAs(Condition.ALWAYS);
+    }
+
+    @Test
+    void effects_foldIntoPlan() {
+        RuleCompiler.Effects fx = RuleCompiler.effects("health -50; health +10; grant sword; remove light_blade;"
+                + " move castle; set met; inc leeches; dec gold 3; clear met;");
+
+        assertThat(fx.health()).isEqualTo(-40);
+        assertThat(fx.moveTo()).isEqualTo("castle");
+        assertThat(fx.grant()).containsExactly("sword");
+        assertThat(fx.remove()).containsExactly("light_blade");
+        assertThat(fx.vars()).containsExactly(new QuestVars.Op("met", true, 1), new QuestVars.Op("leeches", false, 1),
+                new QuestVars.Op("gold", false, -3), new QuestVars.Op("met", true, 0));
+
+        QuestVars vars = QuestVars.parse("gold=5");
+        fx.vars().forEach(vars::apply);
+        assertThat(vars.encode()).isEqualTo("gold=2;leeches=1");
+    }
+
+    @Test
+    void errors_pointAtPosition() {
+        assertThatThrownBy(() -> when("has(axe)")).hasMessageContaining("позиция 1").hasMessageContaining("axe");
+        assertThatThrownBy(() -> when("health >")).hasMessageContaining("ожидалось число");
+        assertThatThrownBy(() -> when("has(sword) has(sword)")).hasMessageContaining("лишний текст");
+        assertThatThrownBy(() -> RuleCompiler.effects("move cave; move castle")).hasMessageContaining("move указан дважды");
+        assertThatThrownBy(() -> RuleCompiler.effects("teleport x")).hasMessageContaining("неизвестный эффект");
+        assertThat(List.of(RuleCompiler.effects(null).vars(), RuleCompiler.effects(" ").grant())).allMatch(List::isEmpty);
+    }
+
+    private static RuleContext ctx(Set<String> items, int health, int roll, Map<String, Integer> vars) {
+        return new RuleContext() {
+            @Override public boolean has(String itemNameLower) { return items.contains(itemNameLower); }
+            @Override public int health() { return health; }
+            @Override public int roll() { return roll; }
+            @Override public int var(String name) { return vars.getOrDefault(name, 0); }
+        };
+    }
+}
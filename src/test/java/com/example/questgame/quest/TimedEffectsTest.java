@@ -0,0 +1,73 @@
+package com.example.questgame.quest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimedEffectsTest {
+
+    private static final TimedEffects.Regen REGEN = new TimedEffects.Regen(1, 30_000);
+
+    @Test
+    void dsl_parsesTimedVerbs() {
+        RuleCompiler.Effects fx = RuleCompiler.effects("poison 2 every 10s for 1m; buff vigor 2m; cure poison");
+
+        assertThat(fx.timed()).containsExactly(
+                new TimedEffects.Op(TimedEffects.Kind.POISON, "poison", 2, 10_000, 60_000),
+                new TimedEffects.Op(TimedEffects.Kind.BUFF, "vigor", 0, 0, 120_000),
+                new TimedEffects.Op(TimedEffects.Kind.CURE, "poison", 0, 0, 0));
+        assertThat(RuleCompiler.duration("1500ms")).isEqualTo(1500);
+        assertThat(RuleCompiler.duration("1h")).isEqualTo(3_600_000);
+        assertThatThrownBy(() -> RuleCompiler.effects("buff poison 1m")).hasMessageContaining("poison");
+    }
+
+    @Test
+    void advance_sameResultInOneOrManySteps() {
+        TimedEffects once = TimedEffects.parse(null);
+        once.advance(50, 100, REGEN, 1_000);
+        once.apply(new TimedEffects.Op(TimedEffects.Kind.POISON, "poison", 3, 7_000, 100_000), 1_000);
+        TimedEffects stepped = TimedEffects.parse(once.encode());
+
+        int h1 = once.advance(50, 100, REGEN, 201_000);
+        int h2 = 50;
+        for (long t = 1_000; t <= 201_000; t += 1_234) h2 = stepped.advance(h2, 100, REGEN, t);
+        h2 = stepped.advance(h2, 100, REGEN, 201_000);
+
+        // 14 тиков яда по 3 и 6 тиков регенерации по 1
+        assertThat(h1).isEqualTo(50 - 14 * 3 + 6).isEqualTo(h2);
+        assertThat(once.encode()).isEqualTo(stepped.encode());
+        assertThat(once.buff("poison", 201_000)).isFalse();
+    }
+
+    @Test
+    void nextDue_isDeathOrLastPoisonTick() {
+        TimedEffects fx = TimedEffects.parse(null);
+        fx.apply(new TimedEffects.Op(TimedEffects.Kind.POISON, "poison", 4, 10_000, 60_000), 0);
+
+        assertThat(fx.nextDue(100, 100, TimedEffects.Regen.OFF)).isEqualTo(60_000);
+        assertThat(fx.nextDue(10, 100, TimedEffects.Regen.OFF)).isEqualTo(30_000);
+        assertThat(fx.advance(10, 100, TimedEffects.Regen.OFF, 30_000)).isZero();
+        assertThat(fx.encode()).isNull();
+
+        TimedEffects cured = TimedEffects.parse("p=4,10000,10000,60000");
+        cured.apply(new TimedEffects.Op(TimedEffects.Kind.CURE, "poison", 0, 0, 0), 5_000);
+        assertThat(cured.nextDue(10, 100, TimedEffects.Regen.OFF)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void buffsAndCooldowns_expireByTimestamp() {
+        TimedEffects fx = TimedEffects.parse(null);
+        fx.apply(new TimedEffects.Op(TimedEffects.Kind.BUFF, "vigor", 0, 0, 120_000), 1_000);
+        fx.cooldown("search_treasure", 30_000, 1_000);
+
+        TimedEffects back = TimedEffects.parse(fx.encode());
+        assertThat(back.buff("vigor", 120_999)).isTrue();
+        assertThat(back.buff("vigor", 121_000)).isFalse();
+        assertThat(back.cooldownLeft("search_treasure", 11_000)).isEqualTo(20_000);
+        assertThat(back.cooldownLeft("search_treasure", 31_000)).isZero();
+
+        back.advance(100, 100, TimedEffects.Regen.OFF, 200_000);
+        assertThat(back.encode()).isNull();
+    }
+}
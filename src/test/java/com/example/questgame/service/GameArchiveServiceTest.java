@@ -0,0 +1,125 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.ArchiveProperties;
+import com.example.questgame.model.ArchivedGame;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.repository.GameArchiveRepository;
+import com.example.questgame.repository.GameBulkRepository;
+import com.example.questgame.repository.GameDeltaRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GameArchiveServiceTest {
+
+    @Mock GameStateRepository gameStateRepository;
+    @Mock InventoryItemRepository inventoryItemRepository;
+    @Mock GameArchiveRepository archiveRepository;
+    @Mock GameBulkRepository bulkRepository;
+    @Mock GameDeltaRepository deltaRepository;
+    @Mock GameVersions versions;
+
+    private final ArchiveProperties props = new ArchiveProperties();
+    private GameArchiveService service;
+
+    @BeforeEach
+    void setup() {
+        props.setBatchSize(2);
+        props.setPauseBetweenBatches(Duration.ZERO);
+        service = new GameArchiveService(props, new R2dbcGameStore(gameStateRepository, inventoryItemRepository),
+                gameStateRepository, inventoryItemRepository, archiveRepository,
+                bulkRepository, deltaRepository, versions, JsonMapper.builder().findAndAddModules().build());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void runOnce_archivesBatchesByIdAndDeletesHotRows() {
+        given(gameStateRepository.findArchiveCandidates(eq(0L), any(), eq(2))).willReturn(Flux.just(state(1L), state(2L)));
+        given(gameStateRepository.findArchiveCandidates(eq(2L), any(), eq(2))).willReturn(Flux.just(state(5L)));
+        given(inventoryItemRepository.findByGameStateIdIn(anyCollection())).willReturn(Flux.just(item(10L, 1L)));
+        given(bulkRepository.upsertArchived(anyList())).willAnswer(i -> Mono.just((long) i.<List<?>>getArgument(0).size()));
+        given(gameStateRepository.deleteArchived(anyCollection(), any(), any()))
+                .willAnswer(i -> Mono.just(i.<List<?>>getArgument(0).size()));
+        given(inventoryItemRepository.deleteOrphans(anyCollection())).willReturn(Mono.just(1));
+        given(archiveRepository.deleteStillHot(anyCollection())).willReturn(Mono.just(0));
+        given(deltaRepository.deleteOrphans(anyCollection())).willReturn(Mono.just(0L));
+
+        StepVerifier.create(service.runOnce())
+                .expectNext(3L)
+                .verifyComplete();
+
+        ArgumentCaptor<List<ArchivedGame>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository, times(2)).upsertArchived(captor.capture());
+        ArchivedGame first = captor.getAllValues().get(0).get(0);
+        assertThat(first.getGameId()).isEqualTo(1L);
+        assertThat(first.getStatus()).isEqualTo("WON");
+        assertThat(service.decode(first.getPayload()).getInventory()).hasSize(1);
+        // страница короче batchSize — дальше не читаем
+        verify(gameStateRepository, never()).findArchiveCandidates(eq(5L), any(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void restore_writesHotRowsAndDropsArchive() {
+        ArchivedGame archived = new ArchivedGame();
+        archived.setGameId(1L);
+        archived.setPayload(service.encode(GameTransferService.toExport(state(1L),
+                java.util.Map.of(1L, List.of(item(10L, 1L))))));
+        given(archiveRepository.findById(1L)).willReturn(Mono.just(archived));
+        given(bulkRepository.upsertStates(anyList())).willReturn(Mono.just(1L));
+        given(bulkRepository.upsertItems(anyList())).willReturn(Mono.just(1L));
+        given(archiveRepository.deleteById(1L)).willReturn(Mono.empty());
+        given(gameStateRepository.findById(1L)).willReturn(Mono.just(state(1L)));
+
+        StepVerifier.create(service.restore(1L))
+                .assertNext(gs -> assertThat(gs.getId()).isEqualTo(1L))
+                .verifyComplete();
+
+        ArgumentCaptor<List<InventoryItem>> items = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository).upsertItems(items.capture());
+        assertThat(items.getValue()).extracting(InventoryItem::getId).containsExactly(10L);
+        verify(versions).bump(1L);
+    }
+
+    private static GameState state(Long id) {
+        GameState s = new GameState();
+        s.setId(id);
+        s.setUserId(7L);
+        s.setCurrentLocation("замок");
+        s.setPlotProgress("@end.win_sword");
+        s.setHealth(40);
+        s.setStatus("WON");
+        s.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return s;
+    }
+
+    private static InventoryItem item(Long id, Long gameId) {
+        InventoryItem i = new InventoryItem();
+        i.setId(id);
+        i.setGameStateId(gameId);
+        i.setName("меч");
+        i.setDescription("Острый меч для боя");
+        return i;
+    }
+}
@@ -1,23 +1,42 @@
 package com.example.questgame.service;
 
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.GameEventDto;
+import com.example.questgame.dto.GameSlotDto;
+import com.example.questgame.dto.GameSlotPageDto;
+import com.example.questgame.exception.ForbiddenException;
 import com.example.questgame.exception.NotFoundException;
+import com.example.questgame.facade.LastKnownGood;
 import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameSummary;
 import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.GameDeltaRepository;
 import com.example.questgame.repository.GameStateRepository;
 import com.example.questgame.repository.InventoryItemRepository;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
@@ -28,13 +47,26 @@ class GameServiceTest {
 
     @Mock GameStateRepository gameStateRepository;
     @Mock InventoryItemRepository inventoryItemRepository;
+    @Mock GameStatsService stats;
+    @Mock GameVersions versions;
+    @Mock GameArchiveService archive;
+    @Mock GameDeltaRepository deltas;
+    @Mock UndoProperties undo;
+    @Spy GameRandom random = new GameRandom();
+    @Spy ActionTraceRecorder trace = new ActionTraceRecorder(new TraceProperties(), new EffectsProperties());
+    @Spy QuestPacks quests = new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog());
+    @Spy WorldEventService world = new WorldEventService(new WorldProperties(), new MessageCatalog());
+    @Spy GameOutbox outbox = GameOutbox.disabled();
+    @Spy EffectScheduler effects = EffectScheduler.disabled();
 
-    @InjectMocks GameService service;
+    GameService service;
 
     private GameState state;
 
     @BeforeEach
     void setup() {
+        service = new GameService(new R2dbcGameStore(gameStateRepository, inventoryItemRepository), stats, versions,
+                archive, deltas, undo, random, trace, quests, world, outbox, effects, LastKnownGood.disabled());
         state = new GameState();
         state.setId(1L);
         state.setUserId(777L);
@@ -46,6 +78,7 @@ class GameServiceTest {
     @Test
     void findState_notFound_throws() {
         given(gameStateRepository.findById(1L)).willReturn(Mono.empty());
+        given(archive.restore(1L)).willReturn(Mono.empty());
 
         StepVerifier.create(service.findState(1L))
                 .expectErrorSatisfies(e -> assertThat(e).isInstanceOf(NotFoundException.class))
@@ -61,7 +94,7 @@ class GameServiceTest {
         given(inventoryItemRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
 
         StepVerifier.create(service.answerRiddle(1L, "СЫР"))
-                .assertNext(saved -> assertThat(saved.getPlotProgress()).contains("Верно!"))
+                .assertNext(saved -> assertThat(saved.getPlotProgress()).isEqualTo("@riddle.correct"))
                 .verifyComplete();
 
         verify(inventoryItemRepository).save(argThat(it ->
@@ -76,7 +109,7 @@ class GameServiceTest {
         StepVerifier.create(service.answerRiddle(1L, "лук"))
                 .assertNext(saved -> {
                     assertThat(saved.getHealth()).isEqualTo(60); // 90 - 30
-                    assertThat(saved.getPlotProgress()).contains("Неверно");
+                    assertThat(saved.getPlotProgress()).isEqualTo("@riddle.wrong");
                 })
                 .verifyComplete();
     }
@@ -102,7 +135,7 @@ class GameServiceTest {
         given(inventoryItemRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
 
         StepVerifier.create(service.craft(1L, "light_blade"))
-                .assertNext(saved -> assertThat(saved.getPlotProgress()).contains("Вы создали: клинок света"))
+                .assertNext(saved -> assertThat(saved.getPlotProgress()).startsWith("@craft.done|клинок света\n"))
                 .verifyComplete();
 
         verify(inventoryItemRepository).deleteById(11L);
@@ -110,6 +143,52 @@ class GameServiceTest {
         verify(inventoryItemRepository).save(argThat(i -> "клинок света".equalsIgnoreCase(i.getName())));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void craft_withUndoDepth_recordsDelta_andUndoRestoresInventoryAndPlot() {
+        given(undo.getDepth()).willReturn(20);
+        state.setCurrentLocation("лес");
+        given(gameStateRepository.findById(1L)).willReturn(Mono.just(state));
+        given(gameStateRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
+        given(inventoryItemRepository.findByGameStateId(1L)).willReturn(Flux.just(item(11L, 1L, "меч"), item(12L, 1L, "артефакт")));
+        given(inventoryItemRepository.findFirstByGameStateIdAndNameIgnoreCase(1L, "меч")).willReturn(Mono.just(item(11L, 1L, "меч")));
+        given(inventoryItemRepository.findFirstByGameStateIdAndNameIgnoreCase(1L, "артефакт")).willReturn(Mono.just(item(12L, 1L, "артефакт")));
+        given(inventoryItemRepository.findFirstByGameStateIdAndNameIgnoreCase(1L, "клинок света"))
+                .willReturn(Mono.empty())
+                .willReturn(Mono.just(item(13L, 1L, "клинок света")));
+        given(inventoryItemRepository.deleteById(anyLong())).willReturn(Mono.empty());
+        given(inventoryItemRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
+        org.mockito.ArgumentCaptor<byte[]> payload = org.mockito.ArgumentCaptor.forClass(byte[].class);
+        given(deltas.append(eq(1L), payload.capture(), eq(20))).willReturn(Mono.just(0L));
+
+        service.craft(1L, "light_blade").block();
+
+        StepDelta d = StepDelta.decode(payload.getValue());
+        assertThat(d.plotPrepended()).isTrue();
+        assertThat(d.added()).extracting(GameService.Item::name).containsExactly("клинок света");
+        assertThat(d.removed()).extracting(GameService.Item::name).containsExactly("меч", "артефакт");
+
+        given(deltas.findLatest(1L, 1)).willReturn(Flux.just(new GameDeltaRepository.Row(4L, payload.getValue())));
+        given(deltas.deleteFrom(1L, 4L)).willReturn(Mono.just(1L));
+
+        StepVerifier.create(service.undo(1L, 1))
+                .assertNext(saved -> assertThat(saved.getPlotProgress()).isEqualTo("В пещере темно."))
+                .verifyComplete();
+
+        verify(inventoryItemRepository).deleteById(13L);
+        verify(inventoryItemRepository).save(argThat(i -> "меч".equals(i.getName()) && i.getId() == null));
+        verify(inventoryItemRepository).save(argThat(i -> "артефакт".equals(i.getName()) && i.getId() == null));
+        verify(deltas).deleteFrom(1L, 4L);
+
+        // откат — такая же команда: своя транзакция и события обратного шага
+        verify(outbox, times(2)).transactional(any());
+        ArgumentCaptor<List<GameEventDto>> events = ArgumentCaptor.forClass(List.class);
+        verify(outbox, times(2)).append(events.capture());
+        assertThat(events.getValue().get(0))
+                .extracting(GameEventDto::getType, GameEventDto::getAction, GameEventDto::getItems, GameEventDto::getRemoved)
+                .containsExactly(GameEventDto.STEP, "undo", List.of("меч", "артефакт"), List.of("клинок света"));
+    }
+
     @Test
     void useItem_potion_increasesHealthAndDeletes() {
         state.setHealth(75);
@@ -125,6 +204,59 @@ class GameServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void fightDragon_withoutWeapon_isEasierWhileDragonSleeps() {
+        state.setCurrentLocation("замок");
+        given(gameStateRepository.findById(1L)).willReturn(Mono.just(state));
+        given(gameStateRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
+        given(inventoryItemRepository.findByGameStateId(1L)).willReturn(Flux.empty());
+
+        world.start("dragon_sleeps", null);
+        StepVerifier.create(service.updatePlot(1L, "fight_dragon"))
+                .assertNext(saved -> {
+                    assertThat(saved.getPlotProgress()).isEqualTo("@castle.dragon_asleep");
+                    assertThat(saved.getHealth()).isEqualTo(80);
+                })
+                .verifyComplete();
+
+        world.end("dragon_sleeps");
+        StepVerifier.create(service.updatePlot(1L, "fight_dragon"))
+                .assertNext(saved -> assertThat(saved.getHealth()).isEqualTo(30))
+                .verifyComplete();
+    }
+
+    @Test
+    void searchTreasure_isOnCooldown_andPoisonKillsOnSchedule() {
+        state.setCurrentLocation("лес");
+        given(gameStateRepository.findById(1L)).willReturn(Mono.just(state));
+        given(gameStateRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
+        lenient().when(inventoryItemRepository.findByGameStateId(1L)).thenReturn(Flux.empty());
+        lenient().when(inventoryItemRepository.findFirstByGameStateIdAndNameIgnoreCase(eq(1L), anyString()))
+                .thenReturn(Mono.empty());
+        lenient().when(inventoryItemRepository.save(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        doReturn(1_000_000L, 1_010_500L).when(random).now();
+
+        service.updatePlot(1L, "search_treasure").block();
+        String effects = state.getEffects();
+        StepVerifier.create(service.updatePlot(1L, "search_treasure"))
+                .assertNext(saved -> {
+                    assertThat(saved.getPlotProgress()).isEqualTo("@action.cooldown|20");
+                    assertThat(saved.getEffects()).isEqualTo(effects);
+                })
+                .verifyComplete();
+
+        // яд 4 каждые 10 с: при здоровье 6 второй тик убивает, досчёт по расписанию пишет смерть
+        state.setHealth(6);
+        state.setEffects("p=4,10000,1010000,1060000");
+        doReturn(1_020_000L).when(random).now();
+        StepVerifier.create(service.applyDueEffects(List.of(1L))).expectNext(1L).verifyComplete();
+
+        assertThat(state.getHealth()).isZero();
+        assertThat(state.getEffects()).isNull();
+        assertThat(state.getPlotProgress()).startsWith("@effects.poison_dead");
+        verify(stats).recordDeath(anyString());
+    }
+
     @Test
     void restart_clearsInventory_andResetsState() {
         given(gameStateRepository.findById(1L)).willReturn(Mono.just(state));
@@ -141,6 +273,67 @@ class GameServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void commands_writeDomainEventsToOutbox() {
+        state.setCurrentLocation("лес");
+        given(gameStateRepository.findById(1L)).willReturn(Mono.just(state));
+        given(gameStateRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
+        given(inventoryItemRepository.findByGameStateId(1L)).willReturn(Flux.empty());
+        lenient().when(inventoryItemRepository.findFirstByGameStateIdAndNameIgnoreCase(1L, "артефакт"))
+                .thenReturn(Mono.empty());
+        given(inventoryItemRepository.save(any())).willAnswer(i -> Mono.just(i.getArgument(0)));
+
+        service.updatePlot(1L, "go_cave").block();
+        service.answerRiddle(1L, "сыр").block();
+        state.setHealth(20);
+        service.answerRiddle(1L, "лук").block();
+
+        ArgumentCaptor<List<GameEventDto>> events = ArgumentCaptor.forClass(List.class);
+        verify(outbox, times(3)).append(events.capture());
+        assertThat(events.getAllValues().get(0))
+                .extracting(GameEventDto::getType, GameEventDto::getAction, GameEventDto::getFrom, GameEventDto::getLocation)
+                .containsExactly(tuple(GameEventDto.STEP, "go_cave", "лес", "пещера"),
+                        tuple(GameEventDto.LOCATION_CHANGED, null, "лес", "пещера"));
+        assertThat(events.getAllValues().get(1))
+                .extracting(GameEventDto::getType, GameEventDto::getItem, GameEventDto::getItems)
+                .containsExactly(tuple(GameEventDto.STEP, null, List.of("артефакт")),
+                        tuple(GameEventDto.ITEM_GRANTED, "артефакт", null));
+        assertThat(events.getAllValues().get(2))
+                .extracting(GameEventDto::getType, GameEventDto::getOutcome, GameEventDto::getHealthDelta)
+                .containsExactly(tuple(GameEventDto.STEP, "riddle.wrong", -20),
+                        tuple(GameEventDto.PLAYER_DIED, null, null));
+        assertThat(events.getAllValues().get(2).get(1).getUserId()).isEqualTo(777L);
+    }
+
+    @Test
+    void listSlots_usesKeysetCursorForNextPage() {
+        LocalDateTime t = LocalDateTime.of(2024, 1, 1, 12, 0);
+        given(gameStateRepository.findSummaries(777L, 3)).willReturn(Flux.just(
+                new GameSummary(30L, "лес", 100, "ACTIVE", t.plusMinutes(3)),
+                new GameSummary(20L, "замок", 50, "ACTIVE", t.plusMinutes(2)),
+                new GameSummary(10L, "пещера", 0, "DEAD", t.plusMinutes(1))));
+        given(gameStateRepository.findSummariesAfter(777L, t.plusMinutes(2), 20L, 3))
+                .willReturn(Flux.just(new GameSummary(10L, "пещера", 0, "DEAD", t.plusMinutes(1))));
+
+        GameSlotPageDto first = service.listSlots(777L, null, 2).block();
+        assertThat(first.getItems()).extracting(GameSlotDto::getId).containsExactly(30L, 20L);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        GameSlotPageDto second = service.listSlots(777L, first.getNextCursor(), 2).block();
+        assertThat(second.getItems()).extracting(GameSlotDto::getId).containsExactly(10L);
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void findOwnedState_foreignSlot_isForbidden() {
+        given(gameStateRepository.findById(1L)).willReturn(Mono.just(state));
+
+        StepVerifier.create(service.findOwnedState(1L, 1L))
+                .expectError(ForbiddenException.class)
+                .verify();
+    }
+
     private static InventoryItem item(Long id, Long gsId, String name) {
         InventoryItem i = new InventoryItem();
         i.setId(id);
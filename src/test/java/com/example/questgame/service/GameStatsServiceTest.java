@@ -0,0 +1,71 @@
+package com.example.questgame.service;
+
+import com.example.questgame.dto.GameStatsDto;
+import com.example.questgame.repository.GameStatRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GameStatsServiceTest {
+
+    @Mock GameStatRepository repository;
+
+    @Test
+    void snapshot_servesCountersFromMemory() {
+        GameStatsService stats = new GameStatsService(repository, Duration.ofSeconds(5));
+        stats.recordAction("forest", "search_treasure");
+        stats.recordAction("forest", "search_treasure");
+        stats.recordRiddle(true);
+        stats.recordRiddle(false);
+        stats.recordRiddle(true);
+        stats.recordRiddle(true);
+
+        GameStatsDto dto = stats.snapshot();
+
+        assertThat(dto.getActions()).containsEntry("forest:search_treasure", 2L);
+        assertThat(dto.getRiddleSuccessRate()).isEqualTo(0.75);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void flush_writesOnlyNewDeltas() {
+        given(repository.increment(anyString(), anyString(), anyLong())).willReturn(Mono.just(1));
+        GameStatsService stats = new GameStatsService(repository, Duration.ofSeconds(5));
+
+        stats.recordDeath("castle");
+        stats.recordDeath("castle");
+        StepVerifier.create(stats.flush()).verifyComplete();
+        StepVerifier.create(stats.flush()).verifyComplete();
+        stats.recordDeath("castle");
+        StepVerifier.create(stats.flush()).verifyComplete();
+
+        verify(repository).increment("deaths", "castle", 2L);
+        verify(repository).increment("deaths", "castle", 1L);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void flush_failure_keepsDeltaForNextAttempt() {
+        given(repository.increment(anyString(), anyString(), anyLong()))
+                .willReturn(Mono.error(new IllegalStateException("db down")))
+                .willReturn(Mono.just(1));
+        GameStatsService stats = new GameStatsService(repository, Duration.ofSeconds(5));
+
+        stats.recordCraft("light_blade");
+        StepVerifier.create(stats.flush()).verifyComplete();
+        StepVerifier.create(stats.flush()).verifyComplete();
+
+        verify(repository, times(2)).increment("crafts", "light_blade", 1L);
+    }
+}
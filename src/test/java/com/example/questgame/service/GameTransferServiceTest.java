@@ -0,0 +1,140 @@
+package com.example.questgame.service;
+
+import com.example.questgame.dto.GameExportDto;
+import com.example.questgame.dto.InventoryItemDto;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.ImportCheckpoint;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.repository.GameBulkRepository;
+import com.example.questgame.repository.GameStateRepository;
+import com.example.questgame.repository.ImportCheckpointRepository;
+import com.example.questgame.repository.InventoryItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GameTransferServiceTest {
+
+    @Mock GameStateRepository gameStateRepository;
+    @Mock InventoryItemRepository inventoryItemRepository;
+    @Mock GameBulkRepository bulkRepository;
+    @Mock ImportCheckpointRepository checkpointRepository;
+    @Mock GameVersions versions;
+    @Mock ActionTraceRecorder trace;
+
+    @InjectMocks GameTransferService service;
+
+    @Test
+    void export_pagesByIdAndJoinsInventory() {
+        given(gameStateRepository.findPageAfter(0L, 2)).willReturn(Flux.just(state(1L), state(2L)));
+        given(gameStateRepository.findPageAfter(2L, 2)).willReturn(Flux.just(state(3L)));
+        given(inventoryItemRepository.findByGameStateIdIn(anyCollection())).willAnswer(inv -> {
+            List<Long> ids = List.copyOf(inv.getArgument(0));
+            return ids.contains(2L) ? Flux.just(item(70L, 2L)) : Flux.empty();
+        });
+
+        StepVerifier.create(service.exportAll(0L, 2))
+                .assertNext(g -> assertThat(g.getInventory()).isEmpty())
+                .assertNext(g -> assertThat(g.getInventory()).extracting(InventoryItemDto::getId).containsExactly(70L))
+                .assertNext(g -> assertThat(g.getId()).isEqualTo(3L))
+                .verifyComplete();
+
+        // страница короче pageSize — следующую не запрашиваем
+        verify(gameStateRepository, never()).findPageAfter(eq(3L), anyInt());
+    }
+
+    @Test
+    void export_manySynchronousPages_doesNotNestSubscribers() {
+        long total = 20_000;
+        given(gameStateRepository.findPageAfter(anyLong(), eq(2))).willAnswer(inv -> {
+            long after = inv.getArgument(0);
+            return Flux.range(1, 2).map(i -> after + i).filter(id -> id <= total).map(GameTransferServiceTest::state);
+        });
+        given(inventoryItemRepository.findByGameStateIdIn(anyCollection())).willReturn(Flux.empty());
+
+        // 10 000 страниц из синхронных источников: вложенный concat на каждую страницу переполнял стек
+        StepVerifier.create(service.exportAll(0L, 2).map(GameExportDto::getId).reduce(0L, (n, id) -> n + 1))
+                .expectNext(total)
+                .verifyComplete();
+    }
+
+    @Test
+    void import_replacesInventoryOfImportedGames() {
+        given(checkpointRepository.findById("job")).willReturn(Mono.empty());
+        given(bulkRepository.upsertStates(anyList())).willReturn(Mono.just(1L));
+        given(inventoryItemRepository.deleteByGameStateIdIn(anyCollection())).willReturn(Mono.just(3));
+        given(bulkRepository.upsertItems(anyList())).willReturn(Mono.just(1L));
+        given(checkpointRepository.advance(eq("job"), anyLong(), anyLong(), anyLong())).willReturn(Mono.just(1));
+
+        GameExportDto game = new GameExportDto(7L, 1L, "лес", "", 100, "ACTIVE", null,
+                List.of(new InventoryItemDto(null, "факел", "без id")), null, null, null);
+
+        StepVerifier.create(service.importAll("job", Flux.just(game), 10, 1))
+                .assertNext(r -> assertThat(r.getItems()).isEqualTo(1))
+                .verifyComplete();
+
+        var order = inOrder(bulkRepository, inventoryItemRepository);
+        order.verify(bulkRepository).upsertStates(anyList());
+        order.verify(inventoryItemRepository).deleteByGameStateIdIn(List.of(7L));
+        order.verify(bulkRepository).upsertItems(anyList());
+    }
+
+    @Test
+    void import_resumesAfterCheckpoint_andAdvancesInOrder() {
+        ImportCheckpoint cp = new ImportCheckpoint();
+        cp.setJobId("job");
+        cp.setLastGameId(2L);
+        given(checkpointRepository.findById("job")).willReturn(Mono.just(cp));
+        given(bulkRepository.upsertStates(anyList())).willReturn(Mono.just(1L));
+        given(inventoryItemRepository.deleteByGameStateIdIn(anyCollection())).willReturn(Mono.just(0));
+        given(bulkRepository.upsertItems(anyList())).willReturn(Mono.just(0L));
+        given(checkpointRepository.advance(eq("job"), anyLong(), anyLong(), anyLong())).willReturn(Mono.just(1));
+
+        Flux<GameExportDto> input = Flux.just(export(1L), export(2L), export(3L), export(4L), export(5L));
+
+        StepVerifier.create(service.importAll("job", input, 2, 2))
+                .assertNext(r -> {
+                    assertThat(r.getResumedAfterId()).isEqualTo(2L);
+                    assertThat(r.getGames()).isEqualTo(3);
+                    assertThat(r.getLastGameId()).isEqualTo(5L);
+                })
+                .verifyComplete();
+
+        var order = inOrder(checkpointRepository);
+        order.verify(checkpointRepository).advance("job", 4L, 2L, 0L);
+        order.verify(checkpointRepository).advance("job", 5L, 1L, 0L);
+    }
+
+    private static GameState state(long id) {
+        GameState s = new GameState();
+        s.setId(id);
+        s.setUserId(1L);
+        s.setHealth(100);
+        return s;
+    }
+
+    private static InventoryItem item(long id, long gsId) {
+        InventoryItem i = new InventoryItem();
+        i.setId(id);
+        i.setGameStateId(gsId);
+        i.setName("меч");
+        return i;
+    }
+
+    private static GameExportDto export(long id) {
+        return new GameExportDto(id, 1L, "лес", "", 100, "ACTIVE", null, List.of(), null, null, null);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.questgame.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GameVersionsTest {
+
+    @Test
+    @DisplayName("Игр в памяти не больше предела; вытесненная игра не получает тег, выданный её прежнему состоянию")
+    void bounded_andTagsNeverRepeatAfterEviction() {
+        GameVersions versions = new GameVersions(100);
+        Set<String> hotTags = new HashSet<>();
+        hotTags.add(versions.etag(1L));
+        versions.bump(1L);
+        hotTags.add(versions.etag(1L));
+
+        for (long id = 2; id < 10_000; id++) {
+            versions.bump(id);
+            assertThat(versions.tracked()).isLessThanOrEqualTo(100);
+        }
+        // игра 1 давно вытеснена: тег новый, но стабильный, пока ничего не вытесняется
+        String evicted = versions.etag(1L);
+        assertThat(hotTags).doesNotContain(evicted);
+        assertThat(versions.etag(1L)).isEqualTo(evicted);
+
+        versions.bump(1L);
+        assertThat(versions.etag(1L)).isNotEqualTo(evicted);
+    }
+
+    @Test
+    @DisplayName("forget не возвращает игру к тегу её более раннего состояния")
+    void forget_neverRewindsVersion() {
+        GameVersions versions = new GameVersions(100);
+        String before = versions.etag(7L);
+        versions.bump(7L);
+        long bumped = versions.version(7L);
+        versions.forget(7L);
+
+        assertThat(versions.version(7L)).isGreaterThanOrEqualTo(bumped);
+        assertThat(versions.etag(7L)).isNotEqualTo(before);
+    }
+}
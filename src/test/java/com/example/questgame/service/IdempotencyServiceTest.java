@@ -0,0 +1,109 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.IdempotencyProperties;
+import com.example.questgame.dto.ItemDto;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.repository.IdempotencyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock IdempotencyRepository repository;
+
+    private IdempotencyService service;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyProperties props = new IdempotencyProperties();
+        props.setMaxEntries(2);
+        service = new IdempotencyService(props, repository, new ObjectMapper());
+    }
+
+    private Mono<ItemDto> potion() {
+        return Mono.fromSupplier(() -> new ItemDto("Зелье", "выпито #" + calls.incrementAndGet()));
+    }
+
+    @Test
+    @DisplayName("Повтор с тем же ключом возвращает первый ответ, команда выполняется один раз")
+    void retry_returnsStoredResponse() {
+        StepVerifier.create(service.execute("u", "k1", "use:1:5", ItemDto.class, this::potion))
+                .assertNext(i -> assertThat(i.getDescription()).isEqualTo("выпито #1"))
+                .verifyComplete();
+        StepVerifier.create(service.execute("u", "k1", "use:1:5", ItemDto.class, this::potion))
+                .assertNext(i -> assertThat(i.getDescription()).isEqualTo("выпито #1"))
+                .verifyComplete();
+        // другой пользователь с тем же ключом — своя команда
+        StepVerifier.create(service.execute("v", "k1", "use:1:5", ItemDto.class, this::potion))
+                .assertNext(i -> assertThat(i.getDescription()).isEqualTo("выпито #2"))
+                .verifyComplete();
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Одновременный дубликат ждёт первое выполнение, а не запускает своё")
+    void concurrentDuplicate_waitsForFirst() {
+        Sinks.One<ItemDto> slow = Sinks.one();
+        Mono<ItemDto> first = service.execute("u", "k2", "craft:1:rope", ItemDto.class,
+                () -> { calls.incrementAndGet(); return slow.asMono(); });
+        Mono<ItemDto> second = service.execute("u", "k2", "craft:1:rope", ItemDto.class, this::potion);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> slow.tryEmitValue(new ItemDto("Верёвка", "готово")))
+                .assertNext(t -> {
+                    assertThat(t.getT1().getName()).isEqualTo("Верёвка");
+                    assertThat(t.getT2().getName()).isEqualTo("Верёвка");
+                })
+                .verifyComplete();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Ошибка не запоминается; ключ с другим запросом отклоняется")
+    void failureNotCached_andMismatchRejected() {
+        StepVerifier.create(service.execute("u", "k3", "progress:1:go", ItemDto.class,
+                        () -> Mono.error(new IllegalStateException("БД недоступна"))))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(service.execute("u", "k3", "progress:1:go", ItemDto.class, this::potion))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(service.execute("u", "k3", "progress:1:back", ItemDto.class, this::potion))
+                .verifyError(ValidationException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Режим DB: просрочку ключа считают часы БД — в запрос уходит TTL, а не момент по часам узла")
+    void dbStore_expiryComputedByDatabaseClock() {
+        IdempotencyProperties props = new IdempotencyProperties();
+        props.setStore(IdempotencyProperties.Store.DB);
+        props.setTtl(Duration.ofMinutes(10));
+        IdempotencyService shared = new IdempotencyService(props, repository, new ObjectMapper());
+        given(repository.deleteExpired("u:k4", 600_000_000L)).willReturn(Mono.just(0));
+        given(repository.claim("u:k4", "use:1:5")).willReturn(Mono.just(1));
+        given(repository.complete(anyString(), anyString())).willReturn(Mono.just(1));
+
+        StepVerifier.create(shared.execute("u", "k4", "use:1:5", ItemDto.class, this::potion))
+                .assertNext(i -> assertThat(i.getDescription()).isEqualTo("выпито #1"))
+                .verifyComplete();
+        verify(repository).deleteExpired("u:k4", 600_000_000L);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.questgame.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageCatalogTest {
+
+    private final MessageCatalog catalog = new MessageCatalog();
+
+    @Test
+    void resolve_codeWithItemParam_translatesTemplateAndItem() {
+        String stored = PlotText.of("craft.done", "клинок света");
+
+        assertThat(catalog.resolve(stored, Locale.forLanguageTag("ru"))).isEqualTo("Вы создали: клинок света.");
+        assertThat(catalog.resolve(stored, Locale.ENGLISH)).isEqualTo("You crafted: blade of light.");
+    }
+
+    @Test
+    void resolve_chainOfMessages_keepsOrderAndLegacyText() {
+        String stored = PlotText.prepend(PlotText.of("use.potion"), "Старый текст без кода");
+
+        assertThat(catalog.resolve(stored, Locale.ENGLISH))
+                .isEqualTo("You used a potion. Health +30.\nСтарый текст без кода");
+    }
+
+    @Test
+    void resolve_unsupportedLanguage_fallsBackToRussian() {
+        assertThat(catalog.resolve(PlotText.of("craft.missing", "трава,фляга"), Locale.GERMAN))
+                .isEqualTo("Не хватает компонентов: трава, фляга.");
+    }
+
+    @Test
+    void bundles_resolveKnownCodesInBothLanguages() {
+        for (String code : new String[]{"start", "end.dead", "cave.riddle", "use.unknown"}) {
+            assertThat(catalog.message(code, Locale.ENGLISH)).isNotEqualTo(code);
+            assertThat(catalog.message(code, Locale.forLanguageTag("ru"))).isNotEqualTo(code);
+        }
+    }
+}
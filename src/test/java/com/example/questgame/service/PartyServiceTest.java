@@ -0,0 +1,193 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.PartyProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.PartyDto;
+import com.example.questgame.dto.PartyEventDto;
+import com.example.questgame.exception.BusinessRuleException;
+import com.example.questgame.exception.ForbiddenException;
+import com.example.questgame.facade.GameDtoFacade;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.facade.StaticFragments;
+import com.example.questgame.limit.DatabaseBreakerProperties;
+import com.example.questgame.model.Party;
+import com.example.questgame.model.PartyMember;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.repository.PartyMemberRepository;
+import com.example.questgame.repository.PartyRepository;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartyServiceTest {
+
+    private final PartyProperties props = new PartyProperties();
+    private final PartyService parties = partyService();
+
+    @Test
+    void majorityVote_runsActionOnce_andBroadcastsState() {
+        PartyDto party = parties.create(1L, null).block();
+        parties.join(party.getId(), 2L).block();
+        parties.join(party.getId(), 3L).block();
+
+        List<PartyEventDto> seen = new CopyOnWriteArrayList<>();
+        Disposable sub = parties.events(party.getId(), 3L).subscribe(seen::add);
+
+        PartyEventDto first = parties.vote(party.getId(), 1L, "go_cave").block();
+        assertThat(first.getType()).isEqualTo(PartyEventDto.VOTE);
+        assertThat(first.getVotes()).containsExactly(Map.entry("go_cave", 1));
+
+        // синоним того же действия: 2 из 3 — большинство, ход выполняется
+        PartyEventDto decided = parties.vote(party.getId(), 2L, "Идти в пещеру").block();
+        assertThat(decided.getType()).isEqualTo(PartyEventDto.STATE);
+        assertThat(decided.getState().getCurrentLocation()).isEqualTo("пещера");
+
+        assertThat(seen).extracting(PartyEventDto::getType)
+                .containsExactly(PartyEventDto.STATE, PartyEventDto.VOTE, PartyEventDto.STATE);
+        assertThat(seen.get(2).getSeq()).isGreaterThan(seen.get(1).getSeq());
+
+        sub.dispose();
+        assertThat(parties.openSessions()).isZero();
+    }
+
+    @Test
+    void slowSubscriber_doesNotHoldBackOthers() {
+        PartyDto party = parties.create(1L, null).block();
+
+        List<PartyEventDto> fast = new CopyOnWriteArrayList<>();
+        parties.events(party.getId(), 1L).subscribe(fast::add);
+        List<PartyEventDto> slow = new ArrayList<>();
+        parties.events(party.getId(), 1L).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(PartyEventDto value) {
+                slow.add(value);
+            }
+        });
+
+        // один участник — сам себе большинство
+        for (int i = 0; i < 10; i++) parties.vote(party.getId(), 1L, "run_away").block();
+
+        assertThat(fast).hasSize(11);
+        assertThat(slow).hasSize(1);
+    }
+
+    @Test
+    void eventsDuringSnapshotLoad_areDelivered_overflowFailsLoudly() {
+        Party row = new Party();
+        row.setId(7L);
+        row.setGameStateId(1L);
+        PartySession session = new PartySession(row, List.of(1L), "classic");
+        Sinks.One<PartyEventDto> loading = Sinks.one();
+        AtomicLong ended = new AtomicLong();
+
+        Flux<PartyEventDto> events = session.subscribe(loading::asMono, 1, ended::incrementAndGet).block();
+        StepVerifier.create(events, 1)
+                // снимок ещё грузится, а голос уже разослан — он не должен потеряться
+                .then(() -> session.publishVotes(Map.of("go_cave", 1)))
+                .then(() -> loading.tryEmitValue(session.snapshot(null)))
+                .expectNextMatches(e -> PartyEventDto.STATE.equals(e.getType()))
+                .then(() -> {
+                    session.publishMembers();
+                    session.publishMembers();
+                })
+                .thenRequest(10)
+                .expectNextMatches(e -> PartyEventDto.VOTE.equals(e.getType()) && e.getSeq() == 1)
+                .expectError(BusinessRuleException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(ended).hasValue(1);
+
+        assertThat(session.closeIfIdle()).isTrue();
+        StepVerifier.create(session.subscribe(loading::asMono, 1, ended::incrementAndGet))
+                .verifyError(PartySession.Closed.class);
+    }
+
+    @Test
+    void membership_isChecked() {
+        props.setMaxMembers(2);
+        PartyDto party = parties.create(1L, null).block();
+        parties.join(party.getId(), 2L).block();
+
+        assertThatThrownBy(() -> parties.join(party.getId(), 3L).block()).isInstanceOf(BusinessRuleException.class);
+        assertThatThrownBy(() -> parties.vote(party.getId(), 3L, "go_cave").block())
+                .isInstanceOf(ForbiddenException.class);
+
+        assertThat(parties.leave(party.getId(), 2L).block().getMembers()).containsExactly(1L);
+        assertThat(parties.join(party.getId(), 3L).block().getMembers()).containsExactly(1L, 3L);
+    }
+
+    private PartyService partyService() {
+        TraceReplayer.InMemoryStore store = new TraceReplayer.InMemoryStore();
+        UndoProperties noUndo = new UndoProperties();
+        noUndo.setDepth(0);
+        QuestPacks quests = new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog());
+        GameService engine = new GameService(new R2dbcGameStore(store.states(), store.inventory()), new GameStatsService(null, Duration.ZERO),
+                new GameVersions(), null, null, noUndo, new GameRandom(),
+                new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()), quests, new WorldEventService(new WorldProperties(), new MessageCatalog()),
+                GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled());
+        GameDtoFacade facade = new GameDtoFacade(engine, new StaticFragments(), new MessageCatalog(),
+                new LastKnownGood(new DatabaseBreakerProperties(), new GameVersions()));
+        return new PartyService(partyRepository(), memberRepository(), engine, facade, quests, props);
+    }
+
+    private static PartyRepository partyRepository() {
+        Map<Long, Party> rows = new ConcurrentHashMap<>();
+        AtomicLong seq = new AtomicLong();
+        return (PartyRepository) Proxy.newProxyInstance(PartyServiceTest.class.getClassLoader(),
+                new Class<?>[]{PartyRepository.class}, (p, m, args) -> switch (m.getName()) {
+                    case "save" -> {
+                        Party party = (Party) args[0];
+                        if (party.getId() == null) party.setId(seq.incrementAndGet());
+                        rows.put(party.getId(), party);
+                        yield Mono.just(party);
+                    }
+                    case "findById" -> Mono.justOrEmpty(rows.get((Long) args[0]));
+                    default -> throw new UnsupportedOperationException(m.getName());
+                });
+    }
+
+    private static PartyMemberRepository memberRepository() {
+        List<PartyMember> rows = new CopyOnWriteArrayList<>();
+        return (PartyMemberRepository) Proxy.newProxyInstance(PartyServiceTest.class.getClassLoader(),
+                new Class<?>[]{PartyMemberRepository.class}, (p, m, args) -> switch (m.getName()) {
+                    case "save" -> {
+                        rows.add((PartyMember) args[0]);
+                        yield Mono.just(args[0]);
+                    }
+                    case "findByPartyId" -> Flux.fromIterable(rows).filter(r -> r.getPartyId().equals(args[0]));
+                    case "deleteByPartyIdAndUserId" -> {
+                        rows.removeIf(r -> r.getPartyId().equals(args[0]) && r.getUserId().equals(args[1]));
+                        yield Mono.<Void>empty();
+                    }
+                    default -> throw new UnsupportedOperationException(m.getName());
+                });
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.questgame.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StepDeltaTest {
+
+    @Test
+    void encode_dictionaryValues_fitInFewBytes_andRoundTrip() {
+        StepDelta.Builder b = StepDelta.begin(100, "лес", "@forest.cave");
+        b.added("меч", "Острый меч для боя");
+        StepDelta d = b.finish(80, "пещера", "@forest.sword");
+
+        byte[] bytes = d.encode();
+
+        assertThat(bytes.length).isLessThan(24);
+        assertThat(StepDelta.decode(bytes)).isEqualTo(d);
+        assertThat(d.healthDelta()).isEqualTo(-20);
+        assertThat(d.prevLocation()).isEqualTo("лес");
+    }
+
+    @Test
+    void prependedPlot_isNotStored() {
+        String before = "@forest.sword\n@start";
+        StepDelta d = StepDelta.begin(50, "лес", before)
+                .finish(80, "лес", PlotText.prepend(PlotText.of("use.potion"), before));
+
+        assertThat(d.plotPrepended()).isTrue();
+        assertThat(d.prevPlot()).isNull();
+        assertThat(d.prevLocation()).isNull();
+        assertThat(StepDelta.decode(d.encode())).isEqualTo(d);
+    }
+
+    @Test
+    void unknownItem_isWrittenAsText() {
+        StepDelta.Builder b = StepDelta.begin(10, "замок", "");
+        b.removed("свиток", "Неизвестный свиток");
+        StepDelta d = b.finish(10, "замок", "");
+
+        assertThat(StepDelta.decode(d.encode()).removed())
+                .containsExactly(new GameService.Item("свиток", "Неизвестный свиток"));
+    }
+
+    @Test
+    void changedVars_areStored_unchangedAreNot() {
+        StepDelta first = StepDelta.begin(80, "берег", "@swamp.start", null)
+                .finish(65, "берег", "@swamp.leech", "leeches=1");
+        assertThat(first.prevVars()).isEmpty(); // переменных до шага не было
+        assertThat(StepDelta.decode(first.encode())).isEqualTo(first);
+
+        StepDelta same = StepDelta.begin(80, "берег", "@swamp.start", "leeches=1")
+                .finish(80, "трясина", "@swamp.bog", "leeches=1");
+        assertThat(same.prevVars()).isNull();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @Test
+    void firesWithinOneTickOfDue_acrossLevels() {
+        // 8 корзин по 10 мс: due до ~40 с уходят на 4-5 уровней и спускаются каскадом
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 8, 0);
+        Random random = new Random(7);
+        List<Long> dues = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long due = random.nextInt(40_000);
+            dues.add(due);
+            wheel.schedule(due, due);  // payload — свой due
+        }
+
+        List<long[]> fired = new ArrayList<>();
+        for (long t = 0; t <= 41_000; t += 37) {
+            long at = t;
+            wheel.advance(at, due -> fired.add(new long[]{due, at}));
+        }
+
+        assertThat(fired).hasSize(dues.size());
+        for (long[] f : fired) {
+            assertThat(f[1]).isGreaterThanOrEqualTo(f[0]).isLessThan(f[0] + 10 + 37);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelledAndOverdueTimers() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 4, 1_000);
+        TimingWheel.Timer<String> keep = wheel.schedule("keep", 1_250);
+        TimingWheel.Timer<String> drop = wheel.schedule("drop", 90_000);
+        wheel.schedule("late", 500);
+
+        assertThat(wheel.cancel(drop)).isTrue();
+        assertThat(wheel.cancel(drop)).isFalse();
+
+        List<String> fired = new ArrayList<>();
+        assertThat(wheel.advance(1_000, fired::add)).isEqualTo(1);
+        assertThat(fired).containsExactly("late");
+        wheel.advance(1_300, fired::add);
+        assertThat(fired).containsExactly("late", "keep");
+        assertThat(wheel.cancel(keep)).isFalse();
+
+        wheel.advance(200_000, fired::add);
+        assertThat(fired).hasSize(2);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void effectScheduler_concurrentReschedules_keepOneTimerPerGame() throws Exception {
+        EffectScheduler scheduler = new EffectScheduler(new EffectsProperties());
+        long base = System.currentTimeMillis() + 60_000;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int w = 0; w < 4; w++) {
+            long first = w * 1_000L;
+            pool.execute(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (long id = first; id < first + 1_000; id++) {
+                        // чётные игры в конце остаются с таймером, нечётные — без
+                        boolean last = round == 49;
+                        long due = last && id % 2 == 1 ? Long.MAX_VALUE : base + (round % 3) * 1_000 + id;
+                        scheduler.schedule(id, due);
+                        scheduler.schedule(id, due);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        pool.shutdown();
+
+        assertThat(scheduler.scheduled()).isEqualTo(2_000);
+        List<Long> due = scheduler.due(base + 100_000);
+        assertThat(due).hasSize(2_000).allMatch(id -> id % 2 == 0);
+        assertThat(scheduler.scheduled()).isZero();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.questgame.service;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.storage.R2dbcGameStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceReplayerTest {
+
+    @TempDir Path dir;
+
+    @Test
+    void recordedSession_replaysWithMatchingHashes() throws Exception {
+        Path file = recordSession();
+
+        TraceReplayer.Report report = new TraceReplayer().replay(file);
+
+        assertThat(report.mismatches()).as(report.details().toString()).isZero();
+        assertThat(report.skipped()).isZero();
+        assertThat(report.games()).isEqualTo(3);
+        assertThat(report.commands()).isGreaterThanOrEqualTo(30);
+    }
+
+    @Test
+    void tamperedHash_reportedAsMismatch() throws Exception {
+        Path file = recordSession();
+        // последняя запись — команда, её последние 4 байта — хеш состояния
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+
+        TraceReplayer.Report report = new TraceReplayer().replay(file);
+
+        assertThat(report.mismatches()).isEqualTo(1);
+        assertThat(report.details()).singleElement().asString().contains("хеш");
+    }
+
+    /** Две игры: новая (снимок при создании) и уже существовавшая с инвентарём (снимок перед первой командой). */
+    private Path recordSession() {
+        TraceProperties props = new TraceProperties();
+        props.setEnabled(true);
+        props.setDir(dir.toString());
+        props.setFlushInterval(Duration.ofMillis(10));
+        ActionTraceRecorder recorder = new ActionTraceRecorder(props, new EffectsProperties());
+        recorder.start();
+
+        TraceReplayer.InMemoryStore store = new TraceReplayer.InMemoryStore();
+        GameState existing = new GameState();
+        existing.setId(40L);
+        existing.setUserId(7L);
+        existing.setCurrentLocation("деревня");
+        existing.setPlotProgress("@forest.village");
+        existing.setHealth(60);
+        existing.setStatus("ACTIVE");
+        InventoryItem potion = new InventoryItem();
+        potion.setId(500L);
+        potion.setGameStateId(40L);
+        potion.setName("зелье");
+        potion.setDescription("Зелье лечения");
+        store.put(existing, List.of(potion));
+
+        UndoProperties noUndo = new UndoProperties();
+        noUndo.setDepth(0);
+        Random seeded = new Random(42);
+        WorldEventService world = new WorldEventService(new WorldProperties(), new MessageCatalog());
+        GameService engine = new GameService(new R2dbcGameStore(store.states(), store.inventory()), new GameStatsService(null, Duration.ZERO),
+                new GameVersions(), null, null, noUndo,
+                new GameRandom() {
+                    @Override
+                    public int nextInt(int bound) {
+                        return seeded.nextInt(bound);
+                    }
+                }, recorder, new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()), world, GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled());
+
+        Long id = engine.createNewGame(1L).block().getId();
+        for (int i = 0; i < 20; i++) engine.updatePlot(id, "search_treasure").block();
+        engine.craft(id, "potion_from_herb").block();
+        engine.updatePlot(id, "go_cave").block();
+        engine.answerRiddle(id, "лук").block();
+        engine.answerRiddle(id, "сыр").block();
+        engine.updatePlot(id, "go_village").block();
+        engine.updatePlot(id, "return_artifact").block();
+
+        engine.useItem(40L, 500L).block();
+        engine.updatePlot(40L, "run_away").block();
+        engine.restartGame(40L).block();
+
+        // снимок несёт id квеста: игра другого пакета воспроизводится по своему графу
+        Long swamp = engine.createNewGame(2L, "swamp").block().getId();
+        for (int i = 0; i < 5; i++) engine.updatePlot(swamp, "search_reeds").block();
+        engine.updatePlot(swamp, "go_bog").block();
+        engine.updatePlot(40L, "go_castle").block();
+        // мировое событие меняет исход боя: воспроизведение должно увидеть то же, что ход
+        world.start("dragon_sleeps", null);
+        engine.updatePlot(40L, "fight_dragon").block();
+        world.end("dragon_sleeps");
+        engine.updatePlot(40L, "fight_dragon").block();
+
+        recorder.stop();
+        assertThat(recorder.droppedCount()).isZero();
+        return recorder.currentFile();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.questgame.storage;
+
+import com.example.questgame.config.EffectsProperties;
+import com.example.questgame.config.QuestProperties;
+import com.example.questgame.config.TraceProperties;
+import com.example.questgame.config.UndoProperties;
+import com.example.questgame.config.WorldProperties;
+import com.example.questgame.dto.GameSlotDto;
+import com.example.questgame.dto.GameSlotPageDto;
+import com.example.questgame.exception.ValidationException;
+import com.example.questgame.facade.LastKnownGood;
+import com.example.questgame.model.GameState;
+import com.example.questgame.model.GameSummary;
+import com.example.questgame.model.InventoryItem;
+import com.example.questgame.outbox.GameOutbox;
+import com.example.questgame.quest.QuestPacks;
+import com.example.questgame.service.ActionTraceRecorder;
+import com.example.questgame.service.EffectScheduler;
+import com.example.questgame.service.GameRandom;
+import com.example.questgame.service.GameService;
+import com.example.questgame.service.GameStatsService;
+import com.example.questgame.service.GameVersions;
+import com.example.questgame.service.MessageCatalog;
+import com.example.questgame.service.WorldEventService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryGameStoreTest {
+
+    private final InMemoryGameStore store = new InMemoryGameStore(16);
+
+    @Test
+    @DisplayName("Состояние хранится и отдаётся копией; слоты — от новых к старым, keyset-страницами")
+    void states_copiedAndPagedNewestFirst() {
+        LocalDateTime t = LocalDateTime.of(2026, 10, 19, 12, 0);
+        for (int i = 0; i < 5; i++) store.saveState(state(7L, "loc" + i, t.plusMinutes(i % 3))).block();
+        store.saveState(state(8L, "чужая", t.plusHours(1))).block();
+
+        GameState read = store.findState(1L).block();
+        read.setHealth(1);
+        assertThat(store.findState(1L).block().getHealth()).isEqualTo(100);
+
+        List<GameSummary> first = store.findSummaries(7L, 3).collectList().block();
+        // t+2: id 3; t+1: id 5, 2; t+0: id 4, 1
+        assertThat(first).extracting(GameSummary::id).containsExactly(3L, 5L, 2L);
+        GameSummary last = first.get(2);
+        assertThat(store.findSummariesAfter(7L, last.updatedAt(), last.id(), 3).collectList().block())
+                .extracting(GameSummary::id).containsExactly(4L, 1L);
+        assertThat(store.findLatestByUser(7L).block().getCurrentLocation()).isEqualTo("loc2");
+        assertThat(store.findLatestByUser(99L).block()).isNull();
+    }
+
+    @Test
+    @DisplayName("Тысячи слотов: сохранение переносит игру в начало без дублей, keyset обходит всё ровно один раз")
+    void manySlots_indexFollowsSaves() {
+        LocalDateTime t = LocalDateTime.of(2026, 10, 19, 12, 0);
+        for (int i = 0; i < 5_000; i++) store.saveState(state(7L, "loc" + i, t.plusSeconds(i))).block();
+
+        GameState oldest = store.findState(1L).block();
+        oldest.setUpdatedAt(t.plusDays(1));
+        store.saveState(oldest).block();
+        GameState moved = store.findState(2L).block();
+        moved.setUserId(8L);
+        store.saveState(moved).block();
+
+        assertThat(store.findSummaries(7L, 2).collectList().block())
+                .extracting(GameSummary::id).containsExactly(1L, 5_000L);
+        assertThat(store.findSummaries(8L, 10).collectList().block())
+                .extracting(GameSummary::id).containsExactly(2L);
+
+        List<Long> seen = new ArrayList<>();
+        List<GameSummary> page = store.findSummaries(7L, 300).collectList().block();
+        while (!page.isEmpty()) {
+            page.forEach(s -> seen.add(s.id()));
+            GameSummary last = page.get(page.size() - 1);
+            page = store.findSummariesAfter(7L, last.updatedAt(), last.id(), 300).collectList().block();
+        }
+        assertThat(seen).hasSize(4_999).doesNotHaveDuplicates().doesNotContain(2L);
+        assertThat(seen.subList(1, seen.size())).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    @DisplayName("Инвентарь: поиск по имени без регистра, по id, удаление; предметы — свежие объекты")
+    void inventory_crud() {
+        InventoryItem sword = store.saveItem(item(1L, "Меч")).block();
+        InventoryItem herb = store.saveItem(item(1L, "трава")).block();
+        store.saveItem(item(2L, "меч")).block();
+
+        assertThat(store.findItems(1L).collectList().block()).extracting(InventoryItem::getName)
+                .containsExactly("Меч", "трава");
+        assertThat(store.findItemByName(1L, "МЕЧ").block().getId()).isEqualTo(sword.getId());
+        assertThat(store.findItem(herb.getId()).block().getGameStateId()).isEqualTo(1L);
+
+        store.findItem(herb.getId()).block().setName("испорчено");
+        assertThat(store.findItem(herb.getId()).block().getName()).isEqualTo("трава");
+
+        store.deleteItem(sword.getId()).block();
+        assertThat(store.findItemByName(1L, "меч").block()).isNull();
+        assertThat(store.findItem(sword.getId()).block()).isNull();
+        assertThat(store.findItemByName(2L, "меч").block()).isNotNull();
+        assertThat(store.findItems(3L).collectList().block()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("ConcurrentLongMap совпадает с HashMap на случайных вставках и удалениях, в т.ч. из нескольких потоков")
+    void longMap_matchesHashMap() throws Exception {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(8);
+        Map<Long, String> expected = new HashMap<>();
+        Random rnd = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            long key = rnd.nextInt(5_000) - 2_500;
+            if (rnd.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, "v" + i)).isEqualTo(expected.put(key, "v" + i));
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((k, v) -> assertThat(map.get(k)).isEqualTo(v));
+
+        ConcurrentLongMap<Long> shared = new ConcurrentLongMap<>(8);
+        Map<Long, Long> last = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int w = 0; w < 4; w++) {
+            long base = w * 1_000_000L;
+            pool.execute(() -> {
+                for (long k = base; k < base + 20_000; k++) {
+                    shared.put(k, k);
+                    if (k % 2 == 0) shared.remove(k);
+                    else last.put(k, k);
+                    // читатели чужих сегментов не должны видеть полузаписанную таблицу
+                    Long probe = shared.get(k - 1);
+                    if (probe != null) assertThat(probe).isEqualTo(k - 1);
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        pool.shutdown();
+        assertThat(shared.size()).isEqualTo(last.size());
+        last.forEach((k, v) -> assertThat(shared.get(k)).isEqualTo(v));
+    }
+
+    @Test
+    @DisplayName("GameService на хранилище в памяти: новая игра, ход, слоты; отмена недоступна")
+    void gameService_runsOnMemoryStore() {
+        UndoProperties undo = new UndoProperties();
+        GameService engine = new GameService(store, new GameStatsService(null, Duration.ZERO), new GameVersions(),
+                null, null, undo, new GameRandom(), new ActionTraceRecorder(new TraceProperties(), new EffectsProperties()),
+                new QuestPacks(new QuestProperties(), new ObjectMapper(), new MessageCatalog()),
+                new WorldEventService(new WorldProperties(), new MessageCatalog()),
+                GameOutbox.disabled(), EffectScheduler.disabled(), LastKnownGood.disabled());
+
+        Long id = engine.createNewGame(5L).block().getId();
+        GameState moved = engine.updatePlot(id, "go_cave").block();
+        assertThat(moved.getCurrentLocation()).isEqualTo(engine.findState(id).block().getCurrentLocation());
+        assertThat(moved.getCurrentLocation()).isNotEqualTo("forest");
+
+        GameSlotPageDto slots = engine.listSlots(5L, null, 10).block();
+        assertThat(slots.getItems()).extracting(GameSlotDto::getId).containsExactly(id);
+        assertThatThrownBy(() -> engine.undo(id, 1).block()).isInstanceOf(ValidationException.class);
+        assertThat(engine.history(id).collectList().block()).isEmpty();
+    }
+
+    private static GameState state(Long userId, String location, LocalDateTime updatedAt) {
+        GameState s = new GameState();
+        s.setUserId(userId);
+        s.setCurrentLocation(location);
+        s.setHealth(100);
+        s.setUpdatedAt(updatedAt);
+        return s;
+    }
+
+    private static InventoryItem item(Long gameStateId, String name) {
+        InventoryItem it = new InventoryItem();
+        it.setGameStateId(gameStateId);
+        it.setName(name);
+        it.setDescription("описание " + name);
+        return it;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.questgame.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaUpgradeTest {
+
+    // столбцы таблиц, которые были в самой первой схеме: их upgrade.sql не добавляет
+    private static final Set<String> ORIGINAL = Set.of(
+            "game_states.id", "game_states.user_id", "game_states.current_location", "game_states.plot_progress",
+            "game_states.health",
+            "inventory_items.id", "inventory_items.game_state_id", "inventory_items.name", "inventory_items.description");
+
+    @Test
+    @DisplayName("Всё, что schema.sql добавил в исходные таблицы, есть в db/upgrade.sql")
+    void upgradeCoversSchemaAdditions() throws IOException {
+        String schema = read("schema.sql");
+        String upgrade = read("db/upgrade.sql");
+
+        List<String> missing = new ArrayList<>();
+        for (String table : List.of("game_states", "inventory_items")) {
+            Matcher body = Pattern.compile("CREATE TABLE IF NOT EXISTS " + table + " \\((.*?)\\n\\);", Pattern.DOTALL)
+                    .matcher(schema);
+            assertThat(body.find()).as(table).isTrue();
+            for (String line : body.group(1).split("\\n")) {
+                String def = line.strip();
+                if (def.isEmpty()) continue;
+                String name = def.startsWith("INDEX ") ? def.split("\\s+")[1] : def.split("\\s+")[0];
+                if (ORIGINAL.contains(table + "." + name)) continue;
+                boolean covered = upgrade.contains("table_name = '" + table + "'")
+                        && (upgrade.contains("column_name = '" + name + "'") || upgrade.contains("index_name = '" + name + "'"))
+                        && upgrade.contains("ALTER TABLE " + table + " ADD " + (def.startsWith("INDEX ") ? "INDEX " : "COLUMN ") + name + " ");
+                if (!covered) missing.add(table + "." + name);
+            }
+        }
+        assertThat(missing).isEmpty();
+    }
+
+    private static String read(String path) throws IOException {
+        return new String(new ClassPathResource(path).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+}